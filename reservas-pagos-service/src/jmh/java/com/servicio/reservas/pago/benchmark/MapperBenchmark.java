@@ -0,0 +1,80 @@
+package com.servicio.reservas.pago.benchmark;
+
+import com.servicio.reservas.pago.application.dto.PaymentDtoMapper;
+import com.servicio.reservas.pago.application.dto.PaymentResponse;
+import com.servicio.reservas.pago.application.dto.PreferenceRequest;
+import com.servicio.reservas.pago.domain.entities.Payment;
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import com.servicio.reservas.pago.infraestructure.client.PreferenceMapper;
+import com.servicio.reservas.pago.infraestructure.persistence.PaymentMapper;
+import com.servicio.reservas.pago.infraestructure.persistence.PaymentModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request mapping costs: domain to JPA model and back, domain to API response,
+ * and internal preference request to the Mercado Pago SDK request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    private Payment payment;
+    private PaymentModel model;
+    private PaymentDtoMapper dtoMapper;
+    private PreferenceRequest preferenceRequest;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.of(2025, 3, 14, 9, 30);
+        payment = new Payment(1L, 101L, "1234567890-abcdef", 45000.0, PaymentStatus.APPROVED,
+                "https://www.mercadopago.com.co/checkout/v1/redirect?pref_id=1234567890-abcdef",
+                now, now, "RESERVAS_SERVICE", "MERCADOPAGO_WEBHOOK", null, 3L);
+        model = PaymentMapper.toModel(payment);
+        dtoMapper = new PaymentDtoMapper();
+        preferenceRequest = new PreferenceRequest(
+                Collections.singletonList(new PreferenceRequest.Item("Service Reservation No. 101", 45000.0, 1)),
+                PreferenceRequest.BackUrls.builder()
+                        .success("https://example.com/success")
+                        .pending("https://example.com/pending")
+                        .failure("https://example.com/failure")
+                        .build(),
+                "1");
+    }
+
+    @Benchmark
+    public PaymentModel paymentToModel() {
+        return PaymentMapper.toModel(payment);
+    }
+
+    @Benchmark
+    public Payment paymentToDomain() {
+        return PaymentMapper.toDomain(model);
+    }
+
+    @Benchmark
+    public PaymentResponse paymentToResponse() {
+        return dtoMapper.toResponse(payment);
+    }
+
+    @Benchmark
+    public com.mercadopago.client.preference.PreferenceRequest preferenceToSdkRequest() {
+        return PreferenceMapper.toSdkRequest(preferenceRequest, "https://example.com/api/payments/webhook");
+    }
+}
@@ -0,0 +1,58 @@
+package com.servicio.reservas.pago.benchmark;
+
+import com.servicio.reservas.pago.domain.entities.Payment;
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import com.servicio.reservas.pago.domain.services.VoucherPdfGeneratorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Voucher rendering, buffered into a byte[] vs streamed to a discarding sink (the response path).
+ * Run with several threads (-t 8) to see behaviour under concurrent downloads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VoucherPdfBenchmark {
+
+    private VoucherPdfGeneratorService generator;
+    private Payment payment;
+
+    @Setup
+    public void setUp() {
+        generator = new VoucherPdfGeneratorService();
+        payment = Payment.builder()
+                .id(1L)
+                .reservationId(101L)
+                .externalPaymentId("1234567890-abcdef")
+                .amount(45000.0)
+                .status(PaymentStatus.APPROVED)
+                .createdAt(LocalDateTime.of(2025, 3, 14, 9, 30))
+                .build();
+    }
+
+    @Benchmark
+    public byte[] generatePdf() {
+        return generator.generatePdf(payment);
+    }
+
+    @Benchmark
+    public void writePdf() {
+        generator.writePdf(payment, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,25 @@
+package com.servicio.reservas.pago.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPaymentItemResult {
+    private Long reservationId;
+    private boolean success;
+    private PaymentResponse payment; // Present when success is true
+    private String error;            // Present when success is false
+
+    public static BatchPaymentItemResult succeeded(Long reservationId, PaymentResponse payment) {
+        return new BatchPaymentItemResult(reservationId, true, payment, null);
+    }
+
+    public static BatchPaymentItemResult failed(Long reservationId, String error) {
+        return new BatchPaymentItemResult(reservationId, false, null, error);
+    }
+}
@@ -0,0 +1,21 @@
+package com.servicio.reservas.pago.application.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPaymentRequest {
+    @NotEmpty
+    @Size(max = 100)
+    private List<@NotNull Long> reservationIds;
+}
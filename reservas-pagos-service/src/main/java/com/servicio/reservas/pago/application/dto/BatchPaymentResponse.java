@@ -0,0 +1,18 @@
+package com.servicio.reservas.pago.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPaymentResponse {
+    private List<BatchPaymentItemResult> results; // Same order as the requested reservation ids
+    private int succeeded;
+    private int failed;
+}
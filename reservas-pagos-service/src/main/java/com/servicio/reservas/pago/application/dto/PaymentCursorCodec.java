@@ -0,0 +1,36 @@
+package com.servicio.reservas.pago.application.dto;
+
+import com.servicio.reservas.pago.domain.repository.PaymentCursor;
+import com.servicio.reservas.pago.infraestructure.exception.InvalidPageCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+public class PaymentCursorCodec {
+
+    private static final char SEPARATOR = '|';
+
+    // Encodes the keyset position as an opaque, URL-safe token
+    public static String encode(PaymentCursor cursor) {
+        String raw = cursor.getCreatedAt().toString() + SEPARATOR + cursor.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PaymentCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separatorIndex = raw.lastIndexOf(SEPARATOR);
+            if (separatorIndex < 0) {
+                throw new InvalidPageCursorException("Invalid page cursor: " + token);
+            }
+            return new PaymentCursor(
+                    LocalDateTime.parse(raw.substring(0, separatorIndex)),
+                    Long.parseLong(raw.substring(separatorIndex + 1))
+            );
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidPageCursorException("Invalid page cursor: " + token);
+        }
+    }
+}
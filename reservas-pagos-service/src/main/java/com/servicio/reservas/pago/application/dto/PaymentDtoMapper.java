@@ -12,6 +12,7 @@ public class PaymentDtoMapper {
         response.setAmount(payment.getAmount());
         response.setStatus(payment.getStatus());
         response.setPaymentLink(payment.getPaymentLink());
+        response.setLinkReady(payment.getPaymentLink() != null);
         response.setCreatedAt(payment.getCreatedAt());
 
         return response;
@@ -0,0 +1,18 @@
+package com.servicio.reservas.pago.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PaymentPageResponse {
+    private List<PaymentResponse> items;
+    private String nextCursor; // Opaque token for the next page, null on the last page
+    private boolean hasMore;
+}
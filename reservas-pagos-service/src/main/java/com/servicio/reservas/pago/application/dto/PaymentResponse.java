@@ -19,6 +19,8 @@ public class PaymentResponse {
     private Double amount;
     private PaymentStatus status;
     private String paymentLink;
+    // False while the Mercado Pago preference is still being created (async creation); poll or subscribe until true
+    private boolean linkReady;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
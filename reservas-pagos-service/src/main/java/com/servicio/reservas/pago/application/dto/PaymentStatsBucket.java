@@ -0,0 +1,21 @@
+package com.servicio.reservas.pago.application.dto;
+
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PaymentStatsBucket {
+    private LocalDateTime start;
+    private PaymentStatus status; // Current status of the payments created in the bucket
+    private long count;
+    private BigDecimal amount;
+}
@@ -0,0 +1,20 @@
+package com.servicio.reservas.pago.application.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+
+@Getter
+@RequiredArgsConstructor
+public enum PaymentStatsGranularity {
+    // Defaults to the last day, at most 31 days (744 buckets per status)
+    HOUR(ChronoUnit.HOURS, Duration.ofDays(1), Duration.ofDays(31)),
+    // Defaults to the last 30 days, at most a year
+    DAY(ChronoUnit.DAYS, Duration.ofDays(30), Duration.ofDays(366));
+
+    private final ChronoUnit unit;
+    private final Duration defaultRange;
+    private final Duration maxRange;
+}
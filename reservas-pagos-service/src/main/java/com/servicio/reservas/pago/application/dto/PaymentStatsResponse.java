@@ -0,0 +1,20 @@
+package com.servicio.reservas.pago.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PaymentStatsResponse {
+    private PaymentStatsGranularity granularity;
+    private LocalDateTime from; // Inclusive, aligned to the granularity
+    private LocalDateTime to;   // Exclusive, aligned to the granularity
+    private List<PaymentStatsBucket> buckets; // Oldest first; buckets and statuses without payments are left out
+}
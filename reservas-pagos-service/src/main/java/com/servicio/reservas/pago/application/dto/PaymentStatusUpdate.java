@@ -0,0 +1,14 @@
+package com.servicio.reservas.pago.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentStatusUpdate {
+    private Long paymentId;
+    private String status;
+    private String updatedBy;
+}
@@ -0,0 +1,34 @@
+package com.servicio.reservas.pago.application.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * A voucher ready to be sent: either a stored file, or a renderer that writes
+ * the PDF straight to the response when the file store is unavailable.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class VoucherDocument {
+    private final Path file;
+    private final Consumer<OutputStream> renderer;
+    private final String etag; // Only stored files have one: iText output differs between renders
+    private final long contentLength;
+
+    public static VoucherDocument stored(Path file, String etag, long contentLength) {
+        return new VoucherDocument(file, null, etag, contentLength);
+    }
+
+    public static VoucherDocument streamed(Consumer<OutputStream> renderer) {
+        return new VoucherDocument(null, renderer, null, -1);
+    }
+
+    public boolean isStored() {
+        return file != null;
+    }
+}
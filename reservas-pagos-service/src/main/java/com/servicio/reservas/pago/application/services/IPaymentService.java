@@ -1,17 +1,41 @@
 package com.servicio.reservas.pago.application.services;
 
+import com.servicio.reservas.pago.application.dto.BatchPaymentRequest;
+import com.servicio.reservas.pago.application.dto.BatchPaymentResponse;
+import com.servicio.reservas.pago.application.dto.PaymentLedgerFormat;
+import com.servicio.reservas.pago.application.dto.PaymentPageResponse;
 import com.servicio.reservas.pago.application.dto.PaymentRequest;
 import com.servicio.reservas.pago.application.dto.PaymentResponse;
+import com.servicio.reservas.pago.application.dto.PaymentStatsGranularity;
+import com.servicio.reservas.pago.application.dto.PaymentStatsResponse;
+import com.servicio.reservas.pago.application.dto.PaymentStatusUpdate;
+import com.servicio.reservas.pago.application.dto.VoucherDocument;
 import com.servicio.reservas.pago.domain.entities.Payment;
+import com.servicio.reservas.pago.domain.repository.PaymentSearchCriteria;
 
+import java.io.OutputStream;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 public interface IPaymentService {
 
-    PaymentResponse createPayment(PaymentRequest request);
+    // Both return the existing payment instead of creating a new one when the idempotency key was already used
+    // or the reservation already has a PENDING payment. The key is optional.
+    PaymentResponse createPayment(PaymentRequest request, String idempotencyKey);
+    // Returns as soon as the PENDING payment is saved; the link is filled in by a background dispatch
+    PaymentResponse createPaymentAsync(PaymentRequest request, String idempotencyKey);
+    BatchPaymentResponse createPayments(BatchPaymentRequest request);
     Optional<PaymentResponse> getPaymentById(Long paymentId);
-    Payment updatePaymentStatus(Long paymentId, String newStatus, String updatedBy);
-    byte[] generatePaymentVoucher(Long paymentId);
-    List<PaymentResponse> findAllPayments();
+    // Returns false when the payment already had that status. Moves not allowed by PaymentStatus
+    // (e.g. APPROVED -> PENDING) throw InvalidStatusTransitionException and change nothing
+    boolean updatePaymentStatus(Long paymentId, String newStatus, String updatedBy);
+    // Applies all updates in order in one transaction; fails as a whole if any payment, status or transition is invalid
+    List<Payment> updatePaymentStatuses(List<PaymentStatusUpdate> updates);
+    VoucherDocument getPaymentVoucher(Long paymentId);
+    PaymentPageResponse findPayments(PaymentSearchCriteria criteria, String cursor, int size);
+    void exportPayments(LocalDateTime createdFrom, LocalDateTime createdTo, PaymentLedgerFormat format, OutputStream outputStream);
+    void exportVouchers(LocalDateTime createdFrom, LocalDateTime createdTo, OutputStream outputStream);
+    // Counts and amounts per status of the payments created in each hour or day of the range
+    PaymentStatsResponse getPaymentStats(LocalDateTime from, LocalDateTime to, PaymentStatsGranularity granularity);
 }
\ No newline at end of file
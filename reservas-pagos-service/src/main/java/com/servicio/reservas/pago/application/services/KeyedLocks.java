@@ -0,0 +1,29 @@
+package com.servicio.reservas.pago.application.services;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One lock per key, only for the keys held right now: equal keys wait for each other, unrelated keys never do.
+ * Not reentrant; {@link #unlock} must be called by the thread that locked the key.
+ */
+final class KeyedLocks {
+
+    // Completed when the holder unlocks, which wakes the callers waiting for that key
+    private final ConcurrentHashMap<Object, CompletableFuture<Void>> held = new ConcurrentHashMap<>();
+
+    void lock(Object key) {
+        CompletableFuture<Void> released = new CompletableFuture<>();
+        CompletableFuture<Void> holder;
+        while ((holder = held.putIfAbsent(key, released)) != null) {
+            holder.join();
+        }
+    }
+
+    void unlock(Object key) {
+        CompletableFuture<Void> released = held.remove(key);
+        if (released != null) {
+            released.complete(null);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.servicio.reservas.pago.application.services;
+
+import com.servicio.reservas.pago.application.dto.PaymentLedgerFormat;
+import com.servicio.reservas.pago.domain.repository.PaymentLedgerRow;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * Writes ledger rows field by field into a buffered character stream (NDJSON or CSV),
+ * so the export never builds DTOs or an in-memory document.
+ */
+class PaymentLedgerWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER =
+            "id,reservationId,externalPaymentId,amount,status,createdAt,updatedAt,createdBy,updatedBy\n";
+
+    private final PaymentLedgerFormat format;
+    private final Writer writer;
+
+    PaymentLedgerWriter(PaymentLedgerFormat format, OutputStream outputStream) {
+        this.format = format;
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    void writeHeader() {
+        if (format == PaymentLedgerFormat.CSV) {
+            append(CSV_HEADER);
+        }
+    }
+
+    void write(PaymentLedgerRow row) {
+        try {
+            if (format == PaymentLedgerFormat.CSV) {
+                writeCsv(row);
+            } else {
+                writeJson(row);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Flushes buffered characters without closing the underlying (container-owned) stream
+    void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeJson(PaymentLedgerRow row) throws IOException {
+        writer.write("{\"id\":");
+        writer.write(String.valueOf(row.getId()));
+        writer.write(",\"reservationId\":");
+        writer.write(String.valueOf(row.getReservationId()));
+        writer.write(",\"externalPaymentId\":");
+        writeJsonString(row.getExternalPaymentId());
+        writer.write(",\"amount\":");
+        writer.write(String.valueOf(row.getAmount()));
+        writer.write(",\"status\":");
+        writeJsonString(row.getStatus() != null ? row.getStatus().name() : null);
+        writer.write(",\"createdAt\":");
+        writeJsonString(formatDate(row.getCreatedAt()));
+        writer.write(",\"updatedAt\":");
+        writeJsonString(formatDate(row.getUpdatedAt()));
+        writer.write(",\"createdBy\":");
+        writeJsonString(row.getCreatedBy());
+        writer.write(",\"updatedBy\":");
+        writeJsonString(row.getUpdatedBy());
+        writer.write("}\n");
+    }
+
+    private void writeCsv(PaymentLedgerRow row) throws IOException {
+        writer.write(String.valueOf(row.getId()));
+        writer.write(',');
+        writer.write(String.valueOf(row.getReservationId()));
+        writer.write(',');
+        writeCsvValue(row.getExternalPaymentId());
+        writer.write(',');
+        writer.write(String.valueOf(row.getAmount()));
+        writer.write(',');
+        writeCsvValue(row.getStatus() != null ? row.getStatus().name() : null);
+        writer.write(',');
+        writeCsvValue(formatDate(row.getCreatedAt()));
+        writer.write(',');
+        writeCsvValue(formatDate(row.getUpdatedAt()));
+        writer.write(',');
+        writeCsvValue(row.getCreatedBy());
+        writer.write(',');
+        writeCsvValue(row.getUpdatedBy());
+        writer.write('\n');
+    }
+
+    private void writeJsonString(String value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> writer.write("\\\"");
+                case '\\' -> writer.write("\\\\");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                case '\t' -> writer.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+                }
+            }
+        }
+        writer.write('"');
+    }
+
+    private void writeCsvValue(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean needsQuotes = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!needsQuotes) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private String formatDate(LocalDateTime value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private void append(String value) {
+        try {
+            writer.write(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
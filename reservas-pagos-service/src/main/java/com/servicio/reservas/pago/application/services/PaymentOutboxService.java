@@ -0,0 +1,204 @@
+package com.servicio.reservas.pago.application.services;
+
+import com.servicio.reservas.pago.application.dto.PreferenceResponse;
+import com.servicio.reservas.pago.domain.entities.Payment;
+import com.servicio.reservas.pago.domain.entities.PaymentOutboxEntry;
+import com.servicio.reservas.pago.domain.events.PaymentLinkReadyEvent;
+import com.servicio.reservas.pago.domain.repository.IPaymentOutboxRepository;
+import com.servicio.reservas.pago.domain.repository.IPaymentRepository;
+import com.servicio.reservas.pago.infraestructure.exception.PaymentNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Local, short transactions around payment inserts and the payment outbox. None of these methods call Mercado Pago:
+ * the gateway call happens between {@link #createPendingPayment} or {@link #claimNext} and {@link #complete}/{@link #reschedule}, with no connection held.
+ * Inserts and deletes update the payment statistics in the same transaction.
+ * <p>
+ * A lease is identified by a token chosen when it is taken. The lease holder's writes are conditional on that token,
+ * so a holder whose lease ran out while the gateway answered cannot undo the work of the node that claimed the entry next.
+ */
+@Service
+@Slf4j
+public class PaymentOutboxService {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final IPaymentRepository paymentRepository;
+    private final IPaymentOutboxRepository outboxRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PaymentStatsService paymentStatsService;
+    private final Duration lease;
+    private final Duration retryBackoff;
+    private final Duration maxRetryBackoff;
+    private final int maxAttempts;
+
+    public PaymentOutboxService(IPaymentRepository paymentRepository,
+                                IPaymentOutboxRepository outboxRepository,
+                                ApplicationEventPublisher eventPublisher,
+                                PaymentStatsService paymentStatsService,
+                                @Value("${app.payment.outbox.lease:2m}") Duration lease,
+                                @Value("${app.payment.outbox.retry-backoff:10s}") Duration retryBackoff,
+                                @Value("${app.payment.outbox.max-retry-backoff:10m}") Duration maxRetryBackoff,
+                                @Value("${app.payment.outbox.max-attempts:10}") int maxAttempts) {
+        this.paymentRepository = paymentRepository;
+        this.outboxRepository = outboxRepository;
+        this.eventPublisher = eventPublisher;
+        this.paymentStatsService = paymentStatsService;
+        this.lease = lease;
+        this.retryBackoff = retryBackoff;
+        this.maxRetryBackoff = maxRetryBackoff;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public static String newLeaseToken() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Saves the new payment together with its outbox entry. The entry is created already leased to the caller
+     * under {@code leaseToken}, so the worker leaves it alone while the caller creates the preference right after commit.
+     */
+    @Transactional
+    public Payment createPendingPayment(Payment payment, String leaseToken) {
+        Payment savedPayment = paymentRepository.save(payment);
+        paymentStatsService.recordCreated(List.of(savedPayment));
+
+        outboxRepository.save(leasedEntry(savedPayment.getId(), leaseToken));
+
+        return savedPayment;
+    }
+
+    /**
+     * Queues the preference again for a PENDING payment that has no link and no outbox entry: its retries ran out,
+     * or a batch creation stopped before linking it. The new entry is leased to the caller, as for a new payment.
+     * @return false when the payment still has an entry, so its preference is still on its way.
+     */
+    @Transactional
+    public boolean requeue(Long paymentId, String leaseToken) {
+        if (outboxRepository.findByPaymentId(paymentId).isPresent()) {
+            return false;
+        }
+        outboxRepository.save(leasedEntry(paymentId, leaseToken));
+        return true;
+    }
+
+    /**
+     * Batch version of {@link #createPendingPayment}: every entry is leased to the caller under the same token.
+     */
+    @Transactional
+    public List<Payment> createPendingPayments(List<Payment> payments, String leaseToken) {
+        List<Payment> savedPayments = paymentRepository.saveAll(payments);
+        paymentStatsService.recordCreated(savedPayments);
+
+        outboxRepository.saveAll(savedPayments.stream()
+                .map(payment -> leasedEntry(payment.getId(), leaseToken))
+                .collect(Collectors.toList()));
+
+        return savedPayments;
+    }
+
+    /**
+     * Leases the next due entry under a new token. The worker claims one entry right before its gateway call,
+     * so the lease only has to outlast that call, not the calls queued behind it.
+     * The row lock only lasts for this transaction; the lease is what keeps other nodes away while the gateway call runs.
+     */
+    @Transactional
+    public Optional<PaymentOutboxEntry> claimNext() {
+        LocalDateTime now = LocalDateTime.now();
+
+        return outboxRepository.lockDue(now, 1).stream()
+                .findFirst()
+                .map(entry -> {
+                    entry.setLockedUntil(now.plus(lease));
+                    entry.setLeaseToken(newLeaseToken());
+                    return outboxRepository.save(entry);
+                });
+    }
+
+    /**
+     * Stores the preference on the payment and removes the outbox entry in one transaction.
+     * Subscribers waiting for the link are notified once it commits.
+     * @return empty when the caller no longer holds the lease; the payment is left to the current holder.
+     */
+    @Transactional
+    public Optional<Payment> complete(Long paymentId, String leaseToken, PreferenceResponse preference) {
+        if (!outboxRepository.deleteLeased(paymentId, leaseToken)) {
+            log.warn("Lease on the outbox entry of payment {} was lost before its preference was stored", paymentId);
+            return Optional.empty();
+        }
+        Payment payment = paymentRepository.findById(paymentId)
+                .orElseThrow(() -> new PaymentNotFoundException("Payment not found with ID: " + paymentId));
+
+        payment.setExternalPaymentId(preference.getId());
+        payment.setPaymentLink(preference.getInit_point());
+
+        Payment savedPayment = paymentRepository.save(payment);
+        eventPublisher.publishEvent(new PaymentLinkReadyEvent(savedPayment.toBuilder().build()));
+        return Optional.of(savedPayment);
+    }
+
+    /**
+     * Releases the lease and schedules the next attempt with exponential backoff.
+     * After {@code maxAttempts} the entry is dropped and the payment stays PENDING without a link,
+     * until a retried creation queues it again (see {@link #requeue}). Does nothing once the lease was lost.
+     */
+    @Transactional
+    public void reschedule(Long paymentId, String leaseToken, String error) {
+        outboxRepository.findByPaymentId(paymentId)
+                .filter(entry -> leaseToken.equals(entry.getLeaseToken()))
+                .ifPresent(entry -> {
+                    int attempts = entry.getAttempts() + 1;
+                    if (attempts >= maxAttempts) {
+                        if (outboxRepository.deleteLeased(paymentId, leaseToken)) {
+                            log.error("Giving up on the payment preference for payment {} after {} attempts: {}", paymentId, attempts, error);
+                        }
+                        return;
+                    }
+
+                    outboxRepository.rescheduleLeased(paymentId, leaseToken, attempts,
+                            LocalDateTime.now().plus(backoff(attempts)),
+                            error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+                });
+    }
+
+    /**
+     * Gives up the caller's lease without counting an attempt, so the worker picks the entry up on its next poll.
+     */
+    @Transactional
+    public void release(Long paymentId, String leaseToken) {
+        outboxRepository.releaseLease(paymentId, leaseToken);
+    }
+
+    @Transactional
+    public void discard(Long paymentId, String leaseToken) {
+        outboxRepository.deleteLeased(paymentId, leaseToken);
+    }
+
+    private PaymentOutboxEntry leasedEntry(Long paymentId, String leaseToken) {
+        LocalDateTime now = LocalDateTime.now();
+        return PaymentOutboxEntry.builder()
+                .paymentId(paymentId)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .lockedUntil(now.plus(lease))
+                .leaseToken(leaseToken)
+                .createdAt(now)
+                .build();
+    }
+
+    private Duration backoff(int attempts) {
+        Duration backoff = retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return backoff.compareTo(maxRetryBackoff) > 0 ? maxRetryBackoff : backoff;
+    }
+}
@@ -0,0 +1,86 @@
+package com.servicio.reservas.pago.application.services;
+
+import com.servicio.reservas.pago.application.dto.PreferenceResponse;
+import com.servicio.reservas.pago.domain.entities.Payment;
+import com.servicio.reservas.pago.domain.entities.PaymentOutboxEntry;
+import com.servicio.reservas.pago.domain.repository.IPaymentRepository;
+import com.servicio.reservas.pago.infraestructure.client.IGatewayPaymentPort;
+import com.servicio.reservas.pago.infraestructure.metrics.PaymentMetrics;
+import com.servicio.reservas.pago.infraestructure.metrics.PaymentMetrics.CreationPhase;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Creates Mercado Pago preferences for payments in the outbox.
+ * Not transactional on purpose: each step commits on its own, so no connection is held during the gateway call.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PaymentPreferenceDispatcher {
+
+    private final IPaymentRepository paymentRepository;
+    private final PaymentOutboxService paymentOutboxService;
+    private final IGatewayPaymentPort gatewayPaymentPort;
+    private final PreferenceRequestFactory preferenceRequestFactory;
+    private final PaymentMetrics paymentMetrics;
+
+    /**
+     * Creates the preference for a payment whose outbox entry the caller already leased under {@code leaseToken}
+     * (see {@link PaymentOutboxService#createPendingPayment}).
+     * @return the linked payment, or empty when the gateway failed and the entry was rescheduled,
+     * or the lease was lost to another node in the meantime.
+     */
+    public Optional<Payment> dispatchClaimed(Long paymentId, String leaseToken) {
+        Optional<Payment> payment = paymentRepository.findById(paymentId);
+        if (payment.isEmpty()) {
+            paymentOutboxService.discard(paymentId, leaseToken);
+            return Optional.empty();
+        }
+
+        Optional<PreferenceResponse> preference;
+        String error = "Mercado Pago returned no preference";
+        try {
+            preference = paymentMetrics.timeCreationPhase(CreationPhase.GATEWAY_CALL,
+                    () -> gatewayPaymentPort.createPaymentPreference(preferenceRequestFactory.build(payment.get())));
+        } catch (RuntimeException e) {
+            preference = Optional.empty();
+            error = e.getMessage();
+        }
+
+        if (preference.isPresent()) {
+            PreferenceResponse linked = preference.get();
+            return paymentMetrics.timeCreationPhase(CreationPhase.LINK_SAVE,
+                    () -> paymentOutboxService.complete(paymentId, leaseToken, linked));
+        }
+
+        paymentOutboxService.reschedule(paymentId, leaseToken, error);
+        return Optional.empty();
+    }
+
+    /**
+     * Processes up to {@code batchSize} due entries, leasing each one right before its gateway call.
+     * @return how many entries were claimed.
+     */
+    public int dispatchDue(int batchSize) {
+        int claimed = 0;
+        while (claimed < batchSize) {
+            Optional<PaymentOutboxEntry> entry = paymentOutboxService.claimNext();
+            if (entry.isEmpty()) {
+                break;
+            }
+            claimed++;
+            Long paymentId = entry.get().getPaymentId();
+            try {
+                dispatchClaimed(paymentId, entry.get().getLeaseToken());
+            } catch (RuntimeException e) {
+                // The lease expires and the entry is picked up again
+                log.warn("Outbox dispatch failed for payment {}: {}", paymentId, e.getMessage());
+            }
+        }
+        return claimed;
+    }
+}
@@ -3,21 +3,52 @@ package com.servicio.reservas.pago.application.services;
 import com.servicio.reservas.pago.application.dto.*;
 import com.servicio.reservas.pago.domain.entities.Payment;
 import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import com.servicio.reservas.pago.domain.events.PaymentApprovedEvent;
 import com.servicio.reservas.pago.domain.repository.IPaymentRepository;
+import com.servicio.reservas.pago.domain.repository.PaymentCursor;
+import com.servicio.reservas.pago.domain.repository.PaymentLedgerRow;
+import com.servicio.reservas.pago.domain.repository.PaymentSearchCriteria;
+import com.servicio.reservas.pago.domain.repository.PaymentStatusChange;
+import com.servicio.reservas.pago.domain.repository.PaymentStatusChangeRequest;
+import com.servicio.reservas.pago.domain.repository.PaymentStatusSnapshot;
 import com.servicio.reservas.pago.domain.services.VoucherPdfGeneratorService;
-import com.servicio.reservas.pago.infraestructure.client.IGatewayPaymentPort;
+import com.servicio.reservas.pago.infraestructure.client.GatewayExecutor;
 import com.servicio.reservas.pago.infraestructure.client.IReservationClient;
 import com.servicio.reservas.pago.infraestructure.client.ReservationDTO;
 import com.servicio.reservas.pago.infraestructure.exception.*;
+import com.servicio.reservas.pago.infraestructure.metrics.PaymentMetrics;
+import com.servicio.reservas.pago.infraestructure.metrics.PaymentMetrics.CreationPhase;
+import com.servicio.reservas.pago.infraestructure.metrics.PaymentMetrics.StatusUpdateMode;
+import com.servicio.reservas.pago.infraestructure.metrics.PaymentMetrics.StatusUpdateResult;
+import com.servicio.reservas.pago.infraestructure.metrics.PaymentMetrics.VoucherSource;
+import com.servicio.reservas.pago.infraestructure.metrics.RequestTimings;
+import com.servicio.reservas.pago.infraestructure.storage.StoredVoucher;
+import com.servicio.reservas.pago.infraestructure.storage.VoucherFileStore;
+import com.servicio.reservas.pago.infraestructure.storage.VoucherRenderExecutor;
+import feign.FeignException;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.time.LocalDateTime;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -26,61 +57,167 @@ public class PaymentService implements IPaymentService {
     private final IPaymentRepository paymentRepository;
     private final PaymentDtoMapper paymentDtoMapper;
     private final IReservationClient reservationClient;
-    private final IGatewayPaymentPort gatewayPaymentPort;
     private static final String AUDIT_USER_ID = "RESERVAS_SERVICE";
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int EXPORT_PAGE_SIZE = 200;
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
     private final VoucherPdfGeneratorService voucherPdfGeneratorService;
+    private final GatewayExecutor gatewayExecutor;
+    private final VoucherFileStore voucherFileStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final VoucherRenderExecutor voucherRenderExecutor;
+    private final PaymentOutboxService paymentOutboxService;
+    private final PaymentPreferenceDispatcher preferenceDispatcher;
+    private final PaymentMetrics paymentMetrics;
+    private final PaymentStatsService paymentStatsService;
+    // Serializes concurrent creations for the same reservation on this node; other reservations never wait
+    private final KeyedLocks creationLocks = new KeyedLocks();
+    private final LongAdder unchangedStatusUpdates = new LongAdder();
+    private final LongAdder refusedStatusUpdates = new LongAdder();
 
-    @Value("${app.payment.success-url}")
-    private String successUrl;
+    // Not transactional on purpose: only the insert of the payment and its outbox entry runs in a transaction.
+    // The reservation lookup and the Mercado Pago call happen outside it, so neither holds a pooled connection.
+    @Override
+    public PaymentResponse createPayment(PaymentRequest request, String idempotencyKey) {
+        String key = normalizeIdempotencyKey(idempotencyKey);
+        String leaseToken = PaymentOutboxService.newLeaseToken();
+
+        // Duplicates on this node wait here and then find the payment (and link) created by the first request
+        long lockStart = System.nanoTime();
+        creationLocks.lock(request.getReservationId());
+        long lookupStart = System.nanoTime();
+        RequestTimings.record(RequestTimings.Span.LOCK, lookupStart - lockStart);
+        try {
+            Optional<Payment> existing = findExistingPayment(request.getReservationId(), key);
+            RequestTimings.record(RequestTimings.Span.LOOKUP, System.nanoTime() - lookupStart);
+            if (existing.isPresent()) {
+                if (!requeueIfAbandoned(existing.get(), leaseToken)) {
+                    return paymentDtoMapper.toResponse(existing.get());
+                }
+                // Queued again: same outcome as a new payment, the link or a 503
+                return paymentDtoMapper.toResponse(preferenceDispatcher.dispatchClaimed(existing.get().getId(), leaseToken)
+                        .orElseThrow(() -> new ExternalPaymentGatewayException("Could not create payment preference with Mercado Pago.")));
+            }
+
+            Payment savedPayment;
+            try {
+                savedPayment = savePendingPayment(request, key, leaseToken);
+            } catch (DataIntegrityViolationException e) {
+                // Another node created it first
+                return paymentDtoMapper.toResponse(findExistingPayment(request.getReservationId(), key).orElseThrow(() -> e));
+            }
 
-    @Value("${app.payment.pending-url}")
-    private String pendingUrl;
+            // On failure the outbox entry stays and the worker keeps retrying the preference for this payment
+            Payment finalPayment = preferenceDispatcher.dispatchClaimed(savedPayment.getId(), leaseToken)
+                    .orElseThrow(() -> new ExternalPaymentGatewayException("Could not create payment preference with Mercado Pago."));
 
-    @Value("${app.payment.failure-url}")
-    private String failureUrl;
+            return paymentDtoMapper.toResponse(finalPayment);
+        } finally {
+            creationLocks.unlock(request.getReservationId());
+        }
+    }
 
     @Override
-    @Transactional
-    public PaymentResponse createPayment(PaymentRequest request) {
-        ReservationDTO reservation = reservationClient.findReservationById(request.getReservationId())
-                .orElseThrow(() -> new ReservationNotFoundException("Reservation not found with ID: " + request.getReservationId()));
+    public PaymentResponse createPaymentAsync(PaymentRequest request, String idempotencyKey) {
+        String key = normalizeIdempotencyKey(idempotencyKey);
+        String leaseToken = PaymentOutboxService.newLeaseToken();
 
-        Payment initialPayment = Payment.builder()
-                .reservationId(request.getReservationId())
-                .amount(reservation.getAmount())
-                .status(PaymentStatus.PENDING)
-                .createdAt(LocalDateTime.now())
-                .updatedAt(LocalDateTime.now())
-                .createdBy(AUDIT_USER_ID)
-                .build();
+        Payment savedPayment;
+        creationLocks.lock(request.getReservationId());
+        try {
+            Optional<Payment> existing = findExistingPayment(request.getReservationId(), key);
+            if (existing.isPresent() && !requeueIfAbandoned(existing.get(), leaseToken)) {
+                return paymentDtoMapper.toResponse(existing.get());
+            }
+            if (existing.isPresent()) {
+                savedPayment = existing.get();
+            } else {
+                try {
+                    savedPayment = savePendingPayment(request, key, leaseToken);
+                } catch (DataIntegrityViolationException e) {
+                    return paymentDtoMapper.toResponse(findExistingPayment(request.getReservationId(), key).orElseThrow(() -> e));
+                }
+            }
+        } finally {
+            creationLocks.unlock(request.getReservationId());
+        }
 
-        Payment savedPayment = paymentRepository.save(initialPayment);
+        Long paymentId = savedPayment.getId();
+        gatewayExecutor.submit(() -> preferenceDispatcher.dispatchClaimed(paymentId, leaseToken))
+                .exceptionally(e -> {
+                    // Gateway pool saturated or the dispatch broke: hand the entry to the outbox worker now
+                    // instead of waiting for the lease to run out
+                    paymentOutboxService.release(paymentId, leaseToken);
+                    return Optional.empty();
+                });
 
-        PreferenceRequest preferenceRequest = new PreferenceRequest(
-                Collections.singletonList(
-                        new PreferenceRequest.Item(
-                                "Service Reservation No. " + request.getReservationId(),
-                                reservation.getAmount(),
-                                1
-                        )
-                ),
-                PreferenceRequest.BackUrls.builder()
-                        .success(this.successUrl)
-                        .pending(this.pendingUrl)
-                        .failure(this.failureUrl)
-                        .build(),
-                savedPayment.getId().toString()
-        );
+        return paymentDtoMapper.toResponse(savedPayment);
+    }
 
-        PreferenceResponse mpResponse = gatewayPaymentPort.createPaymentPreference(preferenceRequest)
-                .orElseThrow(() -> new ExternalPaymentGatewayException("Could not create payment preference with Mercado Pago."));
+    // Not transactional on purpose: the batch insert commits before the gateway fan-out,
+    // so no connection is held while Mercado Pago answers
+    @Override
+    public BatchPaymentResponse createPayments(BatchPaymentRequest request) {
+        String leaseToken = PaymentOutboxService.newLeaseToken();
+        List<Long> reservationIds = request.getReservationIds().stream()
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, ReservationDTO> reservations = findReservations(reservationIds);
+        // Reservations that already have a PENDING payment get that payment back instead of a second one
+        Map<Long, Payment> pendingPayments = paymentRepository.findPendingByReservationIds(reservationIds).stream()
+                .collect(Collectors.toMap(Payment::getReservationId, Function.identity(), (first, second) -> first));
 
-        savedPayment.setExternalPaymentId(mpResponse.getId());
-        savedPayment.setPaymentLink(mpResponse.getInit_point());
+        // Keeps the request order; null marks an item whose outcome is still pending
+        Map<Long, BatchPaymentItemResult> results = new LinkedHashMap<>();
+        List<Payment> newPayments = new ArrayList<>();
+        List<Payment> requeuedPayments = new ArrayList<>();
+        for (Long reservationId : reservationIds) {
+            ReservationDTO reservation = reservations.get(reservationId);
+            Payment pending = pendingPayments.get(reservationId);
+            if (pending != null && requeueIfAbandoned(pending, leaseToken)) {
+                results.put(reservationId, null);
+                requeuedPayments.add(pending);
+            } else if (pending != null) {
+                results.put(reservationId, BatchPaymentItemResult.succeeded(reservationId, paymentDtoMapper.toResponse(pending)));
+            } else if (reservation == null) {
+                results.put(reservationId, BatchPaymentItemResult.failed(reservationId, "Reservation not found with ID: " + reservationId));
+            } else {
+                results.put(reservationId, null);
+                newPayments.add(newPendingPayment(reservationId, reservation.getAmount()));
+            }
+        }
+
+        List<Payment> claimedPayments = new ArrayList<>(requeuedPayments);
+        claimedPayments.addAll(savePendingPayments(newPayments, leaseToken, results));
+
+        List<CompletableFuture<Optional<Payment>>> linkedPayments = claimedPayments.stream()
+                .map(payment -> gatewayExecutor.submit(() -> preferenceDispatcher.dispatchClaimed(payment.getId(), leaseToken))
+                        .exceptionally(e -> {
+                            // Gateway pool saturated or the dispatch broke: the worker takes the entry on its next poll
+                            paymentOutboxService.release(payment.getId(), leaseToken);
+                            return Optional.empty();
+                        }))
+                .collect(Collectors.toList());
 
-        Payment finalPayment = paymentRepository.save(savedPayment);
+        // Same outcome as a failed single creation: the item fails, the payment stays PENDING
+        // and the outbox worker keeps retrying its preference
+        for (int i = 0; i < claimedPayments.size(); i++) {
+            Long reservationId = claimedPayments.get(i).getReservationId();
+            Optional<Payment> linked = linkedPayments.get(i).join();
+            results.put(reservationId, linked
+                    .map(payment -> BatchPaymentItemResult.succeeded(reservationId, paymentDtoMapper.toResponse(payment)))
+                    .orElseGet(() -> BatchPaymentItemResult.failed(reservationId, "Could not create payment preference with Mercado Pago.")));
+        }
+
+        List<BatchPaymentItemResult> items = new ArrayList<>(results.values());
+        int succeeded = (int) items.stream().filter(BatchPaymentItemResult::isSuccess).count();
 
-        return paymentDtoMapper.toResponse(finalPayment);
+        return BatchPaymentResponse.builder()
+                .results(items)
+                .succeeded(succeeded)
+                .failed(items.size() - succeeded)
+                .build();
     }
 
     @Override
@@ -92,45 +229,392 @@ public class PaymentService implements IPaymentService {
 
     @Override
     @Transactional(readOnly = true)
-    public List<PaymentResponse> findAllPayments(){
-        List<Payment> payments = paymentRepository.findAll();
+    public PaymentPageResponse findPayments(PaymentSearchCriteria criteria, String cursor, int size){
+        int pageSize = size > 0 ? Math.min(size, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        PaymentCursor after = cursor != null && !cursor.isBlank() ? PaymentCursorCodec.decode(cursor) : null;
 
-        return payments.stream()
-                .map(paymentDtoMapper::toResponse)
-                .collect(Collectors.toList());
+        // One extra row tells whether another page exists without a COUNT query
+        List<Payment> payments = paymentRepository.findPage(criteria, after, pageSize + 1);
+        boolean hasMore = payments.size() > pageSize;
+        if (hasMore) {
+            payments = payments.subList(0, pageSize);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            Payment last = payments.get(payments.size() - 1);
+            nextCursor = PaymentCursorCodec.encode(new PaymentCursor(last.getCreatedAt(), last.getId()));
+        }
+
+        return PaymentPageResponse.builder()
+                .items(payments.stream()
+                        .map(paymentDtoMapper::toResponse)
+                        .collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportPayments(LocalDateTime createdFrom, LocalDateTime createdTo, PaymentLedgerFormat format, OutputStream outputStream) {
+        PaymentLedgerWriter writer = new PaymentLedgerWriter(format, outputStream);
+        writer.writeHeader();
+
+        // The cursor stays open for the whole transaction; rows are written and dropped one at a time
+        try (Stream<PaymentLedgerRow> rows = paymentRepository.streamLedger(createdFrom, createdTo)) {
+            rows.forEach(writer::write);
+        }
+        writer.flush();
+    }
+
+    // Not transactional: pages are read in short transactions while vouchers render in parallel
+    @Override
+    public void exportVouchers(LocalDateTime createdFrom, LocalDateTime createdTo, OutputStream outputStream) {
+        PaymentSearchCriteria criteria = PaymentSearchCriteria.builder()
+                .status(PaymentStatus.APPROVED)
+                .createdFrom(createdFrom)
+                .createdTo(createdTo)
+                .build();
+
+        VoucherArchiveWriter archive = new VoucherArchiveWriter(outputStream);
+        CompletionService<VoucherArchiveWriter.Entry> renders = voucherRenderExecutor.newCompletionService();
+        // Bounds memory: at most this many rendered PDFs exist before they are written
+        int window = voucherRenderExecutor.getParallelism() * 2;
+        Map<Future<VoucherArchiveWriter.Entry>, Long> inFlight = new HashMap<>();
+        List<Long> failedPaymentIds = new ArrayList<>();
+
+        try {
+            PaymentCursor after = null;
+            List<Payment> page;
+            do {
+                page = paymentRepository.findPage(criteria, after, EXPORT_PAGE_SIZE);
+                for (Payment payment : page) {
+                    if (inFlight.size() >= window) {
+                        writeNextCompleted(renders, inFlight, archive, failedPaymentIds);
+                    }
+                    inFlight.put(renders.submit(() -> renderArchiveEntry(payment)), payment.getId());
+                }
+                if (!page.isEmpty()) {
+                    Payment last = page.get(page.size() - 1);
+                    after = new PaymentCursor(last.getCreatedAt(), last.getId());
+                }
+            } while (page.size() == EXPORT_PAGE_SIZE);
+
+            while (!inFlight.isEmpty()) {
+                writeNextCompleted(renders, inFlight, archive, failedPaymentIds);
+            }
+
+            if (!failedPaymentIds.isEmpty()) {
+                archive.write(VoucherArchiveWriter.Entry.text("errors.txt",
+                        "Vouchers that could not be generated, by payment ID:\n" + failedPaymentIds.stream()
+                                .map(String::valueOf)
+                                .collect(Collectors.joining("\n", "", "\n"))));
+            }
+            archive.finish();
+        } finally {
+            // Client disconnected or the export failed: stop rendering vouchers nobody will read
+            inFlight.keySet().forEach(render -> render.cancel(true));
+        }
     }
 
     @Override
     @Transactional
-    public Payment updatePaymentStatus(Long paymentId, String newStatus, String updatedBy){
-        Payment payment = paymentRepository.findById(paymentId)
+    public boolean updatePaymentStatus(Long paymentId, String newStatus, String updatedBy){
+        long start = System.nanoTime();
+        try {
+            boolean changed = applyStatusUpdate(paymentId, newStatus, updatedBy);
+            paymentMetrics.recordStatusUpdate(StatusUpdateMode.SINGLE,
+                    changed ? StatusUpdateResult.APPLIED : StatusUpdateResult.UNCHANGED, System.nanoTime() - start);
+            return changed;
+        } catch (RuntimeException e) {
+            paymentMetrics.recordStatusUpdate(StatusUpdateMode.SINGLE, StatusUpdateResult.of(e), System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    private boolean applyStatusUpdate(Long paymentId, String newStatus, String updatedBy) {
+        PaymentStatus paymentStatus = parseStatus(newStatus);
+
+        // One statement applies the change if the transition is allowed and reports the status the payment had,
+        // which the statistics need
+        PaymentStatusChange change = paymentRepository.changeStatus(paymentId, paymentStatus, LocalDateTime.now(), updatedBy)
                 .orElseThrow(() -> new PaymentNotFoundException("Payment not found with ID: "  + paymentId));
+        PaymentStatusSnapshot previous = change.getPrevious();
+
+        if (!change.isApplied()) {
+            // Repeated notification: nothing to write and the approval was already announced
+            if (previous.getStatus() == paymentStatus) {
+                unchangedStatusUpdates.increment();
+                return false;
+            }
+            throw new InvalidStatusTransitionException("Payment " + paymentId + " cannot move from " + previous.getStatus() + " to " + paymentStatus + ".");
+        }
 
-        PaymentStatus paymentStatus;
+        paymentStatsService.recordStatusChange(previous.getCreatedAt(), previous.getAmount(), previous.getStatus(), paymentStatus);
+        // The voucher is rendered in the background once this transaction commits
+        if (paymentStatus == PaymentStatus.APPROVED) {
+            eventPublisher.publishEvent(new PaymentApprovedEvent(paymentId));
+        }
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public List<Payment> updatePaymentStatuses(List<PaymentStatusUpdate> updates) {
+        long start = System.nanoTime();
         try {
-            paymentStatus = PaymentStatus.valueOf(newStatus);
-        } catch (IllegalArgumentException e) {
-            throw new InvalidPaymentStatusException("Invalid payment status provided: " + newStatus + ". Valid statuses are: PENDING, APPROVED, REJECTED, REFUNDED.");
+            List<Payment> payments = applyStatusUpdates(updates);
+            paymentMetrics.recordStatusUpdate(StatusUpdateMode.BATCH, StatusUpdateResult.APPLIED, System.nanoTime() - start);
+            return payments;
+        } catch (RuntimeException e) {
+            paymentMetrics.recordStatusUpdate(StatusUpdateMode.BATCH, StatusUpdateResult.of(e), System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    private List<Payment> applyStatusUpdates(List<PaymentStatusUpdate> updates) {
+        // Parsed first: an unknown status fails the batch before anything is written
+        List<PaymentStatusChangeRequest> changes = updates.stream()
+                .map(update -> new PaymentStatusChangeRequest(update.getPaymentId(), parseStatus(update.getStatus()), update.getUpdatedBy()))
+                .toList();
+
+        // One batch of conditional UPDATEs, applied in arrival order; refused transitions simply match nothing
+        List<PaymentStatus> previousStatuses = paymentRepository.changeStatuses(changes, LocalDateTime.now());
+
+        // Read after the writes, for the statistics and the result; the changed rows stay locked until commit
+        List<Long> ids = changes.stream().map(PaymentStatusChangeRequest::getPaymentId).distinct().toList();
+        Map<Long, Payment> payments = paymentRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Payment::getId, Function.identity()));
+        for (Long id : ids) {
+            if (!payments.containsKey(id)) {
+                throw new PaymentNotFoundException("Payment not found with ID: " + id);
+            }
+        }
+
+        // Each payment's status before the batch: the one its first applied change left, else the current one
+        Map<Long, PaymentStatus> originalStatuses = new HashMap<>();
+        for (int i = 0; i < changes.size(); i++) {
+            if (previousStatuses.get(i) != null) {
+                originalStatuses.putIfAbsent(changes.get(i).getPaymentId(), previousStatuses.get(i));
+            }
         }
+        List<Payment> changed = payments.values().stream()
+                .filter(payment -> originalStatuses.containsKey(payment.getId()))
+                .toList();
+        payments.values().forEach(payment -> originalStatuses.putIfAbsent(payment.getId(), payment.getStatus()));
 
-        payment.updateStatus(paymentStatus, updatedBy);
+        // Replays the batch to tell repeated notifications from refused ones
+        Map<Long, PaymentStatus> statuses = new HashMap<>(originalStatuses);
+        for (int i = 0; i < changes.size(); i++) {
+            PaymentStatusChangeRequest change = changes.get(i);
+            if (previousStatuses.get(i) != null) {
+                statuses.put(change.getPaymentId(), change.getStatus());
+            } else if (statuses.get(change.getPaymentId()) == change.getStatus()) {
+                unchangedStatusUpdates.increment();
+            } else {
+                refusedStatusUpdates.increment();
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            paymentStatsService.recordStatusChanges(changed, originalStatuses);
+            changed.stream()
+                    .filter(payment -> payment.getStatus() == PaymentStatus.APPROVED)
+                    .forEach(payment -> eventPublisher.publishEvent(new PaymentApprovedEvent(payment.getId())));
+        }
 
-        return paymentRepository.save(payment);
+        return new ArrayList<>(payments.values());
     }
 
     @Override
-    public byte[] generatePaymentVoucher(Long paymentId) {
-        Optional<Payment> paymentOpt = paymentRepository.findById(paymentId);
+    public PaymentStatsResponse getPaymentStats(LocalDateTime from, LocalDateTime to, PaymentStatsGranularity granularity) {
+        return paymentStatsService.getStats(from, to, granularity);
+    }
 
-        if (paymentOpt.isEmpty()) {
-            throw new PaymentNotFoundException("Payment not found with ID: " + paymentId);
-        }
+    // Status updates skipped because the payment already had that status
+    public long unchangedStatusUpdates() {
+        return unchangedStatusUpdates.sum();
+    }
+
+    // Batch status updates skipped because the payment could not move to that status
+    public long refusedStatusUpdates() {
+        return refusedStatusUpdates.sum();
+    }
 
-        Payment payment = paymentOpt.get();
+    @Override
+    public VoucherDocument getPaymentVoucher(Long paymentId) {
+        Payment payment = paymentRepository.findById(paymentId)
+                .orElseThrow(() -> new PaymentNotFoundException("Payment not found with ID: " + paymentId));
 
         if (!payment.getStatus().equals(PaymentStatus.APPROVED)) {
             throw new VoucherGenerationException("Cannot generate voucher for payment status: " + payment.getStatus());
         }
-        return voucherPdfGeneratorService.generatePdf(payment);
+
+        // Miss: the pre-render has not run yet (or was dropped), render on demand straight into the store
+        Optional<StoredVoucher> stored = voucherFileStore.find(payment)
+                .or(() -> voucherFileStore.store(payment, out -> voucherPdfGeneratorService.writePdf(payment, out)));
+
+        if (stored.isEmpty()) {
+            return VoucherDocument.streamed(out -> voucherPdfGeneratorService.writePdf(payment, out));
+        }
+
+        StoredVoucher voucher = stored.get();
+        return VoucherDocument.stored(voucher.getPath(), voucher.getEtag(), voucher.getSize());
+    }
+
+    private void writeNextCompleted(CompletionService<VoucherArchiveWriter.Entry> renders,
+                                    Map<Future<VoucherArchiveWriter.Entry>, Long> inFlight,
+                                    VoucherArchiveWriter archive,
+                                    List<Long> failedPaymentIds) {
+        try {
+            Future<VoucherArchiveWriter.Entry> completed = renders.take();
+            Long paymentId = inFlight.remove(completed);
+            try {
+                archive.write(completed.get());
+            } catch (ExecutionException e) {
+                failedPaymentIds.add(paymentId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new VoucherGenerationException("Voucher export interrupted");
+        }
+    }
+
+    private VoucherArchiveWriter.Entry renderArchiveEntry(Payment payment) {
+        String name = "payment_voucher_" + payment.getId() + ".pdf";
+        // Vouchers pre-rendered on approval are copied from the store instead of rendered again
+        Optional<StoredVoucher> stored = voucherFileStore.find(payment);
+        if (stored.isPresent()) {
+            try {
+                return new VoucherArchiveWriter.Entry(name, Files.readAllBytes(stored.get().getPath()));
+            } catch (IOException e) {
+                // Unreadable file: render instead
+            }
+        }
+        long start = System.nanoTime();
+        try {
+            byte[] pdf = voucherPdfGeneratorService.generatePdf(payment);
+            paymentMetrics.recordVoucherRender(VoucherSource.EXPORT, System.nanoTime() - start, pdf.length);
+            return new VoucherArchiveWriter.Entry(name, pdf);
+        } catch (RuntimeException e) {
+            paymentMetrics.recordFailedVoucherRender(VoucherSource.EXPORT, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    private Payment savePendingPayment(PaymentRequest request, String idempotencyKey, String leaseToken) {
+        ReservationDTO reservation = paymentMetrics.timeCreationPhase(CreationPhase.RESERVATION_LOOKUP,
+                        () -> reservationClient.findReservationById(request.getReservationId()))
+                .orElseThrow(() -> new ReservationNotFoundException("Reservation not found with ID: " + request.getReservationId()));
+
+        Payment payment = newPendingPayment(request.getReservationId(), reservation.getAmount());
+        payment.setIdempotencyKey(idempotencyKey);
+        return paymentMetrics.timeCreationPhase(CreationPhase.PENDING_INSERT,
+                () -> paymentOutboxService.createPendingPayment(payment, leaseToken));
+    }
+
+    // The payments and their outbox entries are saved in one transaction, leased to this request. A single creation,
+    // here or on another node, may insert a PENDING payment for one of the reservations after the lookup; the unique
+    // index then refuses the whole insert. Each payment is then saved on its own, and a reservation that lost the
+    // race gets the winning payment back, as a duplicate single creation would
+    private List<Payment> savePendingPayments(List<Payment> payments, String leaseToken, Map<Long, BatchPaymentItemResult> results) {
+        if (payments.isEmpty()) {
+            return List.of();
+        }
+        try {
+            return paymentOutboxService.createPendingPayments(payments, leaseToken);
+        } catch (DataIntegrityViolationException e) {
+            List<Payment> savedPayments = new ArrayList<>();
+            for (Payment payment : payments) {
+                Long reservationId = payment.getReservationId();
+                try {
+                    savedPayments.add(paymentOutboxService.createPendingPayment(payment, leaseToken));
+                } catch (DataIntegrityViolationException duplicate) {
+                    results.put(reservationId, paymentRepository.findPendingByReservationId(reservationId)
+                            .map(winner -> BatchPaymentItemResult.succeeded(reservationId, paymentDtoMapper.toResponse(winner)))
+                            .orElseGet(() -> BatchPaymentItemResult.failed(reservationId,
+                                    "A payment for reservation " + reservationId + " was created concurrently")));
+                }
+            }
+            return savedPayments;
+        }
+    }
+
+    // A PENDING payment without a link is only replayed while its outbox entry still exists. Without one nothing
+    // would ever create its preference, so it is queued again, leased to this caller
+    private boolean requeueIfAbandoned(Payment payment, String leaseToken) {
+        if (payment.getStatus() != PaymentStatus.PENDING || payment.getPaymentLink() != null) {
+            return false;
+        }
+        try {
+            return paymentOutboxService.requeue(payment.getId(), leaseToken);
+        } catch (DataIntegrityViolationException e) {
+            // Another node queued it first
+            return false;
+        }
+    }
+
+    private Optional<Payment> findExistingPayment(Long reservationId, String idempotencyKey) {
+        if (idempotencyKey != null) {
+            Optional<Payment> byKey = paymentRepository.findByIdempotencyKey(idempotencyKey);
+            if (byKey.isPresent()) {
+                if (!byKey.get().getReservationId().equals(reservationId)) {
+                    throw new IdempotencyKeyConflictException("Idempotency-Key was already used for another reservation.");
+                }
+                return byKey;
+            }
+        }
+        return paymentRepository.findPendingByReservationId(reservationId);
+    }
+
+    private static PaymentStatus parseStatus(String status) {
+        try {
+            return PaymentStatus.valueOf(status);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new InvalidPaymentStatusException("Invalid payment status provided: " + status + ". Valid statuses are: PENDING, APPROVED, REJECTED, REFUNDED.");
+        }
+    }
+
+    private static String normalizeIdempotencyKey(String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return null;
+        }
+        String key = idempotencyKey.trim();
+        if (key.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException("Idempotency-Key must be at most " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters.");
+        }
+        return key;
+    }
+
+    private Payment newPendingPayment(Long reservationId, Double amount) {
+        LocalDateTime now = LocalDateTime.now();
+        return Payment.builder()
+                .reservationId(reservationId)
+                .amount(amount)
+                .status(PaymentStatus.PENDING)
+                .createdAt(now)
+                .updatedAt(now)
+                .createdBy(AUDIT_USER_ID)
+                .build();
+    }
+
+    private Map<Long, ReservationDTO> findReservations(List<Long> reservationIds) {
+        try {
+            return reservationClient.findReservationsByIds(reservationIds).stream()
+                    .collect(Collectors.toMap(ReservationDTO::getId, Function.identity(), (first, second) -> first));
+        } catch (FeignException e) {
+            // Bulk endpoint unavailable on the agenda service: fall back to one lookup per id
+            Map<Long, ReservationDTO> reservations = new HashMap<>();
+            for (Long reservationId : reservationIds) {
+                try {
+                    reservationClient.findReservationById(reservationId)
+                            .ifPresent(reservation -> reservations.put(reservationId, reservation));
+                } catch (FeignException.NotFound notFound) {
+                    // Reported as a missing reservation for this item
+                }
+            }
+            return reservations;
+        }
     }
 }
@@ -0,0 +1,170 @@
+package com.servicio.reservas.pago.application.services;
+
+import com.servicio.reservas.pago.application.dto.PaymentStatsBucket;
+import com.servicio.reservas.pago.application.dto.PaymentStatsGranularity;
+import com.servicio.reservas.pago.application.dto.PaymentStatsResponse;
+import com.servicio.reservas.pago.domain.entities.Payment;
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import com.servicio.reservas.pago.domain.repository.IPaymentStatsRepository;
+import com.servicio.reservas.pago.domain.repository.PaymentStatsRow;
+import com.servicio.reservas.pago.infraestructure.exception.InvalidStatsRangeException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Counts and summed amounts per hour of creation and current status, kept in {@code payment_stats}.
+ * <p>
+ * The {@code record*} methods join the transaction that inserts, updates or deletes the payments, so the
+ * statistics never drift from the payments table; they refuse to run without one. A dashboard refresh then
+ * reads one row per hour, status and stripe instead of every payment in the range.
+ */
+@Service
+@RequiredArgsConstructor
+public class PaymentStatsService {
+
+    private final IPaymentStatsRepository statsRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(List<Payment> payments) {
+        Increments increments = new Increments();
+        payments.forEach(payment -> increments.add(payment.getCreatedAt(), payment.getStatus(), 1, payment.getAmount()));
+        increments.save();
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeleted(List<Payment> payments) {
+        Increments increments = new Increments();
+        payments.forEach(payment -> increments.add(payment.getCreatedAt(), payment.getStatus(), -1, payment.getAmount()));
+        increments.save();
+    }
+
+    // The payment leaves the previous status and joins the new one, in the hour it was created
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordStatusChange(LocalDateTime createdAt, Double amount, PaymentStatus previous, PaymentStatus current) {
+        Increments increments = new Increments();
+        increments.move(createdAt, amount, previous, current);
+        increments.save();
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordStatusChanges(List<Payment> payments, Map<Long, PaymentStatus> previousStatuses) {
+        Increments increments = new Increments();
+        payments.forEach(payment -> increments.move(payment.getCreatedAt(), payment.getAmount(),
+                previousStatuses.get(payment.getId()), payment.getStatus()));
+        increments.save();
+    }
+
+    /**
+     * Buckets in [from, to), widened to whole hours or days. A missing {@code to} means up to the current
+     * bucket included; a missing {@code from} goes back the granularity's default range.
+     */
+    @Transactional(readOnly = true)
+    public PaymentStatsResponse getStats(LocalDateTime from, LocalDateTime to, PaymentStatsGranularity granularity) {
+        ChronoUnit unit = granularity.getUnit();
+        LocalDateTime end = to != null ? ceil(to, unit) : LocalDateTime.now().truncatedTo(unit).plus(1, unit);
+        LocalDateTime start = from != null ? from.truncatedTo(unit) : end.minus(granularity.getDefaultRange());
+
+        if (!start.isBefore(end)) {
+            throw new InvalidStatsRangeException("'from' must be before 'to'.");
+        }
+        if (Duration.between(start, end).compareTo(granularity.getMaxRange()) > 0) {
+            throw new InvalidStatsRangeException("Range too long for " + granularity + " granularity, at most "
+                    + granularity.getMaxRange().toDays() + " days.");
+        }
+
+        List<PaymentStatsRow> hourly = statsRepository.findHourly(start, end);
+        List<PaymentStatsBucket> buckets = granularity == PaymentStatsGranularity.HOUR
+                ? hourly.stream().map(PaymentStatsService::toBucket).collect(Collectors.toList())
+                : sumByDay(hourly);
+
+        return PaymentStatsResponse.builder()
+                .granularity(granularity)
+                .from(start)
+                .to(end)
+                .buckets(buckets)
+                .build();
+    }
+
+    private static List<PaymentStatsBucket> sumByDay(List<PaymentStatsRow> hourly) {
+        Map<LocalDateTime, Map<PaymentStatus, PaymentStatsBucket>> days = new LinkedHashMap<>();
+        for (PaymentStatsRow row : hourly) {
+            LocalDateTime day = row.getBucketStart().truncatedTo(ChronoUnit.DAYS);
+            PaymentStatsBucket bucket = days.computeIfAbsent(day, d -> new EnumMap<>(PaymentStatus.class))
+                    .computeIfAbsent(row.getStatus(), status -> new PaymentStatsBucket(day, status, 0, BigDecimal.ZERO));
+            bucket.setCount(bucket.getCount() + row.getCount());
+            bucket.setAmount(bucket.getAmount().add(row.getAmount()));
+        }
+        // Same order as the hourly buckets: by start, then by status name
+        return days.values().stream()
+                .flatMap(byStatus -> byStatus.values().stream()
+                        .sorted(Comparator.comparing(bucket -> bucket.getStatus().name())))
+                .collect(Collectors.toList());
+    }
+
+    private static PaymentStatsBucket toBucket(PaymentStatsRow row) {
+        return new PaymentStatsBucket(row.getBucketStart(), row.getStatus(), row.getCount(), row.getAmount());
+    }
+
+    private static LocalDateTime ceil(LocalDateTime time, ChronoUnit unit) {
+        LocalDateTime truncated = time.truncatedTo(unit);
+        return truncated.equals(time) ? time : truncated.plus(1, unit);
+    }
+
+    /**
+     * Increments of one transaction, merged per bucket and status and written in (bucket, status) order,
+     * so concurrent transactions lock the rows they share in the same order.
+     */
+    private final class Increments {
+
+        private final Map<LocalDateTime, Map<PaymentStatus, Total>> totals = new TreeMap<>();
+
+        void move(LocalDateTime createdAt, Double amount, PaymentStatus previous, PaymentStatus current) {
+            if (previous == current) {
+                return;
+            }
+            add(createdAt, previous, -1, amount);
+            add(createdAt, current, 1, amount);
+        }
+
+        void add(LocalDateTime createdAt, PaymentStatus status, int sign, Double amount) {
+            Total total = totals.computeIfAbsent(createdAt.truncatedTo(ChronoUnit.HOURS), bucket -> new EnumMap<>(PaymentStatus.class))
+                    .computeIfAbsent(status, s -> new Total());
+            BigDecimal delta = BigDecimal.valueOf(amount);
+            total.count += sign;
+            total.amount = sign < 0 ? total.amount.subtract(delta) : total.amount.add(delta);
+        }
+
+        void save() {
+            List<PaymentStatsRow> rows = new ArrayList<>();
+            totals.forEach((bucket, byStatus) -> byStatus.forEach((status, total) -> {
+                // Moves that cancel out within the transaction write nothing
+                if (total.count != 0 || total.amount.signum() != 0) {
+                    rows.add(new PaymentStatsRow(bucket, status, total.count, total.amount));
+                }
+            }));
+            if (!rows.isEmpty()) {
+                statsRepository.add(rows);
+            }
+        }
+    }
+
+    private static final class Total {
+        private long count;
+        private BigDecimal amount = BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,45 @@
+package com.servicio.reservas.pago.application.services;
+
+import com.servicio.reservas.pago.application.dto.PreferenceRequest;
+import com.servicio.reservas.pago.domain.entities.Payment;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+
+/**
+ * Builds the Mercado Pago preference for a saved payment; the payment id is the external reference.
+ */
+@Component
+public class PreferenceRequestFactory {
+
+    private final String successUrl;
+    private final String pendingUrl;
+    private final String failureUrl;
+
+    public PreferenceRequestFactory(@Value("${app.payment.success-url}") String successUrl,
+                                    @Value("${app.payment.pending-url}") String pendingUrl,
+                                    @Value("${app.payment.failure-url}") String failureUrl) {
+        this.successUrl = successUrl;
+        this.pendingUrl = pendingUrl;
+        this.failureUrl = failureUrl;
+    }
+
+    public PreferenceRequest build(Payment payment) {
+        return new PreferenceRequest(
+                Collections.singletonList(
+                        new PreferenceRequest.Item(
+                                "Service Reservation No. " + payment.getReservationId(),
+                                payment.getAmount(),
+                                1
+                        )
+                ),
+                PreferenceRequest.BackUrls.builder()
+                        .success(this.successUrl)
+                        .pending(this.pendingUrl)
+                        .failure(this.failureUrl)
+                        .build(),
+                payment.getId().toString()
+        );
+    }
+}
@@ -0,0 +1,71 @@
+package com.servicio.reservas.pago.application.services;
+
+import lombok.Getter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes rendered vouchers into a ZIP archive. PDFs are already compressed, so entries are STORED:
+ * the CRC is computed by the rendering thread and the writer only copies bytes.
+ */
+class VoucherArchiveWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ZipOutputStream zip;
+
+    VoucherArchiveWriter(OutputStream outputStream) {
+        this.zip = new ZipOutputStream(new BufferedOutputStream(outputStream, BUFFER_SIZE));
+    }
+
+    void write(Entry entry) {
+        ZipEntry zipEntry = new ZipEntry(entry.getName());
+        zipEntry.setMethod(ZipEntry.STORED);
+        zipEntry.setSize(entry.getContent().length);
+        zipEntry.setCompressedSize(entry.getContent().length);
+        zipEntry.setCrc(entry.getCrc());
+        try {
+            zip.putNextEntry(zipEntry);
+            zip.write(entry.getContent());
+            zip.closeEntry();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Writes the central directory and flushes without closing the underlying (container-owned) stream
+    void finish() {
+        try {
+            zip.finish();
+            zip.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Getter
+    static class Entry {
+        private final String name;
+        private final byte[] content;
+        private final long crc;
+
+        Entry(String name, byte[] content) {
+            CRC32 crc32 = new CRC32();
+            crc32.update(content);
+            this.name = name;
+            this.content = content;
+            this.crc = crc32.getValue();
+        }
+
+        static Entry text(String name, String content) {
+            return new Entry(name, content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -5,7 +5,7 @@ import lombok.*;
 
 import java.time.LocalDateTime;
 
-@Builder
+@Builder(toBuilder = true)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -21,6 +21,10 @@ public class Payment {
     private LocalDateTime updatedAt;
     private String createdBy;
     private String updatedBy;
+    // Client-supplied Idempotency-Key of the creation request, if any
+    private String idempotencyKey;
+    // Optimistic lock version; null until the payment is first saved
+    private Long version;
 
 //    public boolean isApproved() {
 //        return status == PaymentStatus.APPROVED;
@@ -0,0 +1,26 @@
+package com.servicio.reservas.pago.domain.entities;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pending gateway work for a payment: the Mercado Pago preference still has to be created.
+ * The entry is written in the same transaction as the payment and removed once the link is stored.
+ */
+@Builder(toBuilder = true)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentOutboxEntry {
+    private Long id;
+    private Long paymentId;
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    // Set while a worker owns the entry; an expired lease makes it claimable again
+    private LocalDateTime lockedUntil;
+    // Names the current lease holder; its complete, reschedule and release only apply while it still matches
+    private String leaseToken;
+    private String lastError;
+    private LocalDateTime createdAt;
+}
@@ -1,8 +1,30 @@
 package com.servicio.reservas.pago.domain.entities;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 public enum PaymentStatus {
     PENDING,
     APPROVED,
     REJECTED,
     REFUNDED,
+    ;
+
+    // Statuses each status may be reached from. Anything else (e.g. APPROVED -> PENDING) is a regression,
+    // typically an out-of-order notification, and is refused. A rejected payment can still be paid later.
+    private static final Map<PaymentStatus, Set<PaymentStatus>> ALLOWED_FROM = new EnumMap<>(PaymentStatus.class);
+
+    static {
+        ALLOWED_FROM.put(PENDING, Collections.unmodifiableSet(EnumSet.noneOf(PaymentStatus.class)));
+        ALLOWED_FROM.put(APPROVED, Collections.unmodifiableSet(EnumSet.of(PENDING, REJECTED)));
+        ALLOWED_FROM.put(REJECTED, Collections.unmodifiableSet(EnumSet.of(PENDING)));
+        ALLOWED_FROM.put(REFUNDED, Collections.unmodifiableSet(EnumSet.of(APPROVED)));
+    }
+
+    public boolean canTransitionTo(PaymentStatus next) {
+        return ALLOWED_FROM.get(next).contains(this);
+    }
 }
@@ -0,0 +1,11 @@
+package com.servicio.reservas.pago.domain.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Published when a payment moves to APPROVED; listeners react after the transaction commits
+@Getter
+@AllArgsConstructor
+public class PaymentApprovedEvent {
+    private final Long paymentId;
+}
@@ -0,0 +1,12 @@
+package com.servicio.reservas.pago.domain.events;
+
+import com.servicio.reservas.pago.domain.entities.Payment;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Published when the Mercado Pago link is stored on a payment; carries the saved state so listeners need no query
+@Getter
+@AllArgsConstructor
+public class PaymentLinkReadyEvent {
+    private final Payment payment;
+}
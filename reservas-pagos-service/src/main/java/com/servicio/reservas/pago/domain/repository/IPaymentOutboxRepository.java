@@ -0,0 +1,39 @@
+package com.servicio.reservas.pago.domain.repository;
+
+import com.servicio.reservas.pago.domain.entities.PaymentOutboxEntry;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface IPaymentOutboxRepository {
+
+    PaymentOutboxEntry save(PaymentOutboxEntry entry);
+
+    List<PaymentOutboxEntry> saveAll(List<PaymentOutboxEntry> entries);
+
+    Optional<PaymentOutboxEntry> findByPaymentId(Long paymentId);
+
+    /**
+     * Row-locks up to {@code limit} entries that are due and not leased, skipping rows locked by other nodes.
+     * Must be called inside a transaction; the locks are released when it ends.
+     */
+    List<PaymentOutboxEntry> lockDue(LocalDateTime now, int limit);
+
+    /**
+     * Deletes the entry only while it still carries {@code leaseToken}: once a lease ran out and another node
+     * claimed the entry, a late write from the previous holder is a no-op.
+     * @return whether the caller still held the entry.
+     */
+    boolean deleteLeased(Long paymentId, String leaseToken);
+
+    /**
+     * Records a failed attempt and ends the lease, under the same condition as {@link #deleteLeased}.
+     */
+    boolean rescheduleLeased(Long paymentId, String leaseToken, int attempts, LocalDateTime nextAttemptAt, String lastError);
+
+    /**
+     * Ends the lease without counting an attempt, under the same condition as {@link #deleteLeased}.
+     */
+    boolean releaseLease(Long paymentId, String leaseToken);
+}
@@ -1,14 +1,54 @@
 package com.servicio.reservas.pago.domain.repository;
 
 import com.servicio.reservas.pago.domain.entities.Payment;
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface IPaymentRepository {
 
     Payment save(Payment payment);
+
+    // Inserts/updates all payments in one transaction using JDBC batching
+    List<Payment> saveAll(List<Payment> payments);
+
     Optional<Payment> findById(Long id);
-    List<Payment> findAll();
-}
 
+    List<Payment> findAllById(List<Long> ids);
+
+    // The PENDING payment of a reservation; the database allows at most one
+    Optional<Payment> findPendingByReservationId(Long reservationId);
+
+    List<Payment> findPendingByReservationIds(List<Long> reservationIds);
+
+    Optional<Payment> findByIdempotencyKey(String idempotencyKey);
+
+    /**
+     * Sets the status only if the payment may move to it from its current one, and returns the status it had.
+     * Empty when the payment does not exist. Always runs against the database, never a cache.
+     */
+    Optional<PaymentStatusChange> changeStatus(Long id, PaymentStatus newStatus, LocalDateTime updatedAt, String updatedBy);
+
+    /**
+     * Applies the changes in order as conditional UPDATEs sent in one JDBC batch. Returns, for each change, the status
+     * it moved the payment from, or null when it did not apply (unknown payment, same status or refused transition).
+     */
+    List<PaymentStatus> changeStatuses(List<PaymentStatusChangeRequest> changes, LocalDateTime updatedAt);
+
+    void deleteAllById(List<Long> ids);
+
+    /**
+     * Returns at most {@code limit} payments matching the criteria, newest first,
+     * starting right after the given cursor (or from the newest payment when it is null).
+     */
+    List<Payment> findPage(PaymentSearchCriteria criteria, PaymentCursor after, int limit);
+
+    /**
+     * Streams every payment created in [createdFrom, createdTo) over a forward-only database cursor.
+     * Null bounds are open. Must be consumed and closed inside a transaction.
+     */
+    Stream<PaymentLedgerRow> streamLedger(LocalDateTime createdFrom, LocalDateTime createdTo);
+}
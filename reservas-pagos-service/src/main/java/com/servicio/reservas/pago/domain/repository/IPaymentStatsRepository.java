@@ -0,0 +1,16 @@
+package com.servicio.reservas.pago.domain.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface IPaymentStatsRepository {
+
+    /**
+     * Adds the increments to their hourly buckets, creating missing buckets. Must run inside the transaction
+     * that changed the payments, so the statistics commit or roll back with them.
+     */
+    void add(List<PaymentStatsRow> increments);
+
+    // Totals per hour and status for buckets starting in [from, to), oldest first; empty buckets are left out
+    List<PaymentStatsRow> findHourly(LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,18 @@
+package com.servicio.reservas.pago.domain.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Keyset position of the last payment returned in a page (ordered by createdAt, id descending).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentCursor {
+    private LocalDateTime createdAt;
+    private Long id;
+}
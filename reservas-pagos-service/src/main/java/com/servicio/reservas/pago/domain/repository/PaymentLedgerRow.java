@@ -0,0 +1,25 @@
+package com.servicio.reservas.pago.domain.repository;
+
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Flat, read-only projection of a payment row used by the ledger export.
+ * It is built directly by the query, so no entity or domain mapping happens per row.
+ */
+@Getter
+@AllArgsConstructor
+public class PaymentLedgerRow {
+    private final Long id;
+    private final Long reservationId;
+    private final String externalPaymentId;
+    private final Double amount;
+    private final PaymentStatus status;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+    private final String createdBy;
+    private final String updatedBy;
+}
@@ -0,0 +1,24 @@
+package com.servicio.reservas.pago.domain.repository;
+
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional filters for payment listings. Null fields are ignored.
+ * The creation date range is inclusive on {@code createdFrom} and exclusive on {@code createdTo}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentSearchCriteria {
+    private PaymentStatus status;
+    private Long reservationId;
+    private LocalDateTime createdFrom;
+    private LocalDateTime createdTo;
+}
@@ -0,0 +1,21 @@
+package com.servicio.reservas.pago.domain.repository;
+
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Number and summed amount of the payments created in one hour that currently have {@code status}.
+ * Read back as totals per bucket, and written as the increments (possibly negative) of one transaction.
+ */
+@Getter
+@AllArgsConstructor
+public class PaymentStatsRow {
+    private final LocalDateTime bucketStart;
+    private final PaymentStatus status;
+    private final Long count;
+    private final BigDecimal amount;
+}
@@ -0,0 +1,15 @@
+package com.servicio.reservas.pago.domain.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of a conditional status change. {@code previous} is the payment as the change found it: the status it
+ * left when the change was applied, otherwise the status that refused it.
+ */
+@Getter
+@AllArgsConstructor
+public class PaymentStatusChange {
+    private final boolean applied;
+    private final PaymentStatusSnapshot previous;
+}
@@ -0,0 +1,16 @@
+package com.servicio.reservas.pago.domain.repository;
+
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One status change of a batch: move payment {@code paymentId} to {@code status} if its current status allows it.
+ */
+@Getter
+@AllArgsConstructor
+public class PaymentStatusChangeRequest {
+    private final Long paymentId;
+    private final PaymentStatus status;
+    private final String updatedBy;
+}
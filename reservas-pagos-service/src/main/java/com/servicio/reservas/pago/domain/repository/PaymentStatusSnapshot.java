@@ -0,0 +1,19 @@
+package com.servicio.reservas.pago.domain.repository;
+
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns a status change needs: the current status, and the amount and creation time that place
+ * the payment in its statistics bucket.
+ */
+@Getter
+@AllArgsConstructor
+public class PaymentStatusSnapshot {
+    private final PaymentStatus status;
+    private final Double amount;
+    private final LocalDateTime createdAt;
+}
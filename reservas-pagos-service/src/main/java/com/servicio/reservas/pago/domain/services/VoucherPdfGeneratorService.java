@@ -1,129 +1,204 @@
 package com.servicio.reservas.pago.domain.services;
 
 import com.servicio.reservas.pago.domain.entities.Payment;
-import com.itextpdf.kernel.pdf.PdfDocument;
-import com.itextpdf.kernel.pdf.PdfWriter;
-import com.itextpdf.layout.Document;
-import com.itextpdf.layout.element.Paragraph;
-import com.itextpdf.layout.element.Table;
-import com.itextpdf.layout.element.Cell;
-import com.itextpdf.layout.properties.TextAlignment;
-import com.itextpdf.layout.properties.UnitValue;
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.io.font.PdfEncodings;
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.colors.Color;
 import com.itextpdf.kernel.colors.ColorConstants;
 import com.itextpdf.kernel.colors.DeviceRgb;
-import com.itextpdf.layout.borders.SolidBorder;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfPage;
+import com.itextpdf.kernel.pdf.PdfResources;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
+import com.itextpdf.kernel.pdf.xobject.PdfFormXObject;
 import com.servicio.reservas.pago.infraestructure.exception.VoucherGenerationException;
 import org.springframework.stereotype.Service;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.format.DateTimeFormatter;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 
+/**
+ * Renders payment vouchers from a precompiled template.
+ * <p>
+ * Everything that does not depend on the payment (header, title, labels, separator, merchant line)
+ * is drawn once at startup and kept as raw content-stream bytes. Each voucher replays those bytes
+ * as a form XObject and only draws the variable fields at fixed coordinates, so no layout pass runs
+ * per request. Font programs are parsed once and shared; PdfFont instances are per document,
+ * as iText requires.
+ */
 @Service
 public class VoucherPdfGeneratorService {
 
     private static final DateTimeFormatter DATE_FORMATTER =
             DateTimeFormatter.ofPattern("dd/MM/yyyy 'a las' HH:mm 'hs.'");
 
+    // A rendered voucher is a few KB; sized so the common case never grows the buffer
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
     private static final DeviceRgb BRAND_COLOR = new DeviceRgb(0, 158, 227);
 
+    // Page geometry, A4 with 40pt margins like the previous layout
+    private static final PageSize PAGE_SIZE = PageSize.A4;
+    private static final float LEFT = 40;
+    private static final float RIGHT = PAGE_SIZE.getWidth() - 40;
+    private static final float TOP = PAGE_SIZE.getHeight() - 40;
+    private static final float HEADER_HEIGHT = 46;
+    private static final float VALUE_COLUMN = LEFT + (RIGHT - LEFT) / 3.5f;
+
+    // Baselines, top to bottom
+    private static final float TITLE_Y = TOP - HEADER_HEIGHT - 34;
+    private static final float DATE_Y = TITLE_Y - 24;
+    private static final float AMOUNT_Y = DATE_Y - 45;
+    private static final float SEPARATOR_Y = AMOUNT_Y - 30;
+    private static final float STATUS_Y = SEPARATOR_Y - 23;
+    private static final float EXTERNAL_REFERENCE_Y = STATUS_Y - 16;
+    private static final float OPERATION_ID_Y = EXTERNAL_REFERENCE_Y - 16;
+    private static final float FROM_LABEL_Y = OPERATION_ID_Y - 28;
+    private static final float RESERVATION_Y = FROM_LABEL_Y - 16;
+    private static final float TO_LABEL_Y = RESERVATION_Y - 24;
+    private static final float MERCHANT_Y = TO_LABEL_Y - 16;
+
+    private final FontProgram regularProgram;
+    private final FontProgram boldProgram;
+    private final byte[] staticContent;
+    private final PdfName regularFontName;
+    private final PdfName boldFontName;
+
+    public VoucherPdfGeneratorService() {
+        try {
+            this.regularProgram = FontProgramFactory.createFont(StandardFonts.HELVETICA);
+            this.boldProgram = FontProgramFactory.createFont(StandardFonts.HELVETICA_BOLD);
+        } catch (IOException e) {
+            throw new IllegalStateException("Standard fonts not available", e);
+        }
+
+        // Record the static layer once on a throwaway document; only its content bytes are kept
+        PdfDocument scratch = new PdfDocument(new PdfWriter(OutputStream.nullOutputStream()));
+        PdfFont regular = newFont(regularProgram);
+        PdfFont bold = newFont(boldProgram);
+        PdfFormXObject template = new PdfFormXObject(PAGE_SIZE);
+        this.regularFontName = template.getResources().addFont(scratch, regular);
+        this.boldFontName = template.getResources().addFont(scratch, bold);
+        drawStaticLayer(new PdfCanvas(template, scratch), regular, bold);
+        this.staticContent = template.getPdfObject().getBytes();
+        scratch.addNewPage(PAGE_SIZE);
+        scratch.close();
+    }
+
     public byte[] generatePdf(Payment payment) {
-        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        writePdf(payment, byteArrayOutputStream);
+        return byteArrayOutputStream.toByteArray();
+    }
 
-            PdfWriter writer = new PdfWriter(byteArrayOutputStream);
+    /**
+     * Renders the voucher straight into the given stream, which is flushed but left open.
+     * Lets callers send the PDF to a file or the response without an intermediate byte[].
+     */
+    public void writePdf(Payment payment, OutputStream outputStream) {
+        try {
+            // iText emits many small writes; buffer them before they reach a socket or file
+            BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(outputStream, INITIAL_BUFFER_SIZE);
+            PdfWriter writer = new PdfWriter(bufferedOutputStream);
+            writer.setCloseStream(false);
             PdfDocument pdf = new PdfDocument(writer);
-            Document document = new Document(pdf);
-
-            document.setMargins(40, 40, 40, 40);
-
-            Table headerTable = new Table(UnitValue.createPercentArray(new float[]{1f}));
-            headerTable.setWidth(UnitValue.createPercentValue(100));
-
-            Cell titleCell = new Cell()
-                    .add(new Paragraph("StudioBarber")
-                            .setFontSize(16)
-                            .setBold()
-                            .setFontColor(ColorConstants.WHITE)
-                            .setTextAlignment(TextAlignment.CENTER))
-                    .setBackgroundColor(BRAND_COLOR)
-                    .setPadding(10)
-                    .setBorder(null);
-
-            headerTable.addCell(titleCell);
-            document.add(headerTable);
-
-            document.add(new Paragraph("Comprobante de Ingreso")
-                    .setFontSize(14)
-                    .setMarginTop(20)
-                    .setMarginBottom(10)
-                    .setBold());
-
-            document.add(new Paragraph(payment.getCreatedAt().format(DATE_FORMATTER))
-                    .setTextAlignment(TextAlignment.RIGHT)
-                    .setFontSize(10)
-                    .setMarginBottom(15));
-
-            Double originalAmount = payment.getAmount();
-            BigDecimal formattedAmount = new BigDecimal(String.valueOf(originalAmount))
-                    .setScale(2, RoundingMode.HALF_UP);
-
-            document.add(new Paragraph("$ " + formattedAmount + " COP")
-                    .setFontSize(28)
-                    .setBold()
-                    .setFontColor(BRAND_COLOR)
-                    .setTextAlignment(TextAlignment.LEFT)
-                    .setMarginBottom(25));
-
-            document.add(new Paragraph("")
-                    .setBorderBottom(new SolidBorder(ColorConstants.LIGHT_GRAY, 1)));
-            document.add(new Paragraph(" "));
-
-            Table detailsTable = new Table(UnitValue.createPercentArray(new float[]{1f, 2.5f}));
-            detailsTable.setWidth(UnitValue.createPercentValue(100));
-
-            addDetailRow(detailsTable, "Estado de Pago:", payment.getStatus().name());
-            addDetailRow(detailsTable, "Referencia Externa:", safeStringValue(payment.getExternalPaymentId()));
-            addDetailRow(detailsTable, "ID de Operación:", safeStringValue(payment.getId().toString()));
-
-            document.add(detailsTable);
-
-            document.add(new Paragraph(" ")
-                    .setMarginTop(20));
-            document.add(new Paragraph("Desde:")
-                    .setFontSize(10)
-                    .setBold());
-            document.add(new Paragraph("Reserva N° " + safeStringValue(payment.getReservationId().toString()))
-                    .setFontSize(12)
-                    .setMarginBottom(15));
-
-            document.add(new Paragraph("Hacia:")
-                    .setFontSize(10)
-                    .setBold());
-            document.add(new Paragraph("StudioBarber | Cuenta de Comercio")
-                    .setFontSize(12));
-
-            document.close();
-            return byteArrayOutputStream.toByteArray();
+
+            PdfFont regular = newFont(regularProgram);
+            PdfFont bold = newFont(boldProgram);
+
+            PdfPage page = pdf.addNewPage(PAGE_SIZE);
+            PdfCanvas canvas = new PdfCanvas(page);
+            canvas.addXObjectAt(staticLayer(pdf, regular, bold), 0, 0);
+            drawVariableFields(canvas, payment, regular, bold);
+
+            pdf.close();
+            bufferedOutputStream.flush();
 
         } catch (IOException e) {
             throw new VoucherGenerationException("Error al generar el PDF del Voucher: " + e.getMessage());
         }
     }
 
-    private void addDetailRow(Table table, String key, String value) {
-        table.addCell(new Cell()
-                .add(new Paragraph(key).setFontSize(10).setFontColor(ColorConstants.GRAY))
-                .setBorder(null)
-                .setPaddingLeft(0));
+    private PdfFormXObject staticLayer(PdfDocument pdf, PdfFont regular, PdfFont bold) {
+        PdfFormXObject layer = new PdfFormXObject(PAGE_SIZE);
+        PdfResources resources = layer.getResources();
+        // Fonts are registered in the same order as when the template was recorded, so the names match
+        if (!regularFontName.equals(resources.addFont(pdf, regular)) || !boldFontName.equals(resources.addFont(pdf, bold))) {
+            throw new IllegalStateException("Voucher template font names do not match");
+        }
+        layer.getPdfObject().setData(staticContent);
+        return layer;
+    }
+
+    private void drawStaticLayer(PdfCanvas canvas, PdfFont regular, PdfFont bold) {
+        canvas.saveState()
+                .setFillColor(BRAND_COLOR)
+                .rectangle(LEFT, TOP - HEADER_HEIGHT, RIGHT - LEFT, HEADER_HEIGHT)
+                .fill()
+                .restoreState();
+        String brand = "StudioBarber";
+        float brandX = LEFT + (RIGHT - LEFT - bold.getWidth(brand, 16)) / 2;
+        drawText(canvas, bold, 16, ColorConstants.WHITE, brandX, TOP - HEADER_HEIGHT + 17, brand);
+
+        drawText(canvas, bold, 14, ColorConstants.BLACK, LEFT, TITLE_Y, "Comprobante de Ingreso");
+
+        canvas.saveState()
+                .setStrokeColor(ColorConstants.LIGHT_GRAY)
+                .setLineWidth(1)
+                .moveTo(LEFT, SEPARATOR_Y)
+                .lineTo(RIGHT, SEPARATOR_Y)
+                .stroke()
+                .restoreState();
+
+        drawText(canvas, regular, 10, ColorConstants.GRAY, LEFT, STATUS_Y, "Estado de Pago:");
+        drawText(canvas, regular, 10, ColorConstants.GRAY, LEFT, EXTERNAL_REFERENCE_Y, "Referencia Externa:");
+        drawText(canvas, regular, 10, ColorConstants.GRAY, LEFT, OPERATION_ID_Y, "ID de Operación:");
+
+        drawText(canvas, bold, 10, ColorConstants.BLACK, LEFT, FROM_LABEL_Y, "Desde:");
+        drawText(canvas, bold, 10, ColorConstants.BLACK, LEFT, TO_LABEL_Y, "Hacia:");
+        drawText(canvas, regular, 12, ColorConstants.BLACK, LEFT, MERCHANT_Y, "StudioBarber | Cuenta de Comercio");
+    }
+
+    private void drawVariableFields(PdfCanvas canvas, Payment payment, PdfFont regular, PdfFont bold) {
+        String date = payment.getCreatedAt().format(DATE_FORMATTER);
+        drawText(canvas, regular, 10, ColorConstants.BLACK, RIGHT - regular.getWidth(date, 10), DATE_Y, date);
+
+        BigDecimal formattedAmount = new BigDecimal(String.valueOf(payment.getAmount()))
+                .setScale(2, RoundingMode.HALF_UP);
+        drawText(canvas, bold, 28, BRAND_COLOR, LEFT, AMOUNT_Y, "$ " + formattedAmount + " COP");
+
+        drawText(canvas, regular, 10, ColorConstants.BLACK, VALUE_COLUMN, STATUS_Y, payment.getStatus().name());
+        drawText(canvas, regular, 10, ColorConstants.BLACK, VALUE_COLUMN, EXTERNAL_REFERENCE_Y, safeStringValue(payment.getExternalPaymentId()));
+        drawText(canvas, regular, 10, ColorConstants.BLACK, VALUE_COLUMN, OPERATION_ID_Y, safeStringValue(payment.getId()));
+
+        drawText(canvas, regular, 12, ColorConstants.BLACK, LEFT, RESERVATION_Y, "Reserva N° " + safeStringValue(payment.getReservationId()));
+    }
+
+    private void drawText(PdfCanvas canvas, PdfFont font, float size, Color color, float x, float y, String text) {
+        canvas.beginText()
+                .setFontAndSize(font, size)
+                .setFillColor(color)
+                .moveText(x, y)
+                .showText(text)
+                .endText();
+    }
 
-        table.addCell(new Cell()
-                .add(new Paragraph(value).setFontSize(10))
-                .setBorder(null)
-                .setPaddingRight(0));
+    private PdfFont newFont(FontProgram program) {
+        return PdfFontFactory.createFont(program, PdfEncodings.WINANSI, PdfFontFactory.EmbeddingStrategy.PREFER_NOT_EMBEDDED);
     }
 
     private String safeStringValue(Object value) {
         return value != null ? String.valueOf(value) : "N/A";
     }
-}
\ No newline at end of file
+}
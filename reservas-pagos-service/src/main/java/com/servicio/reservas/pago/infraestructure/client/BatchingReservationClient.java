@@ -0,0 +1,184 @@
+package com.servicio.reservas.pago.infraestructure.client;
+
+import feign.FeignException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Dataloader-style batcher for single reservation lookups.
+ * <p>
+ * Lookups arriving within {@code window} of the first one (or until {@code max-batch-size} distinct ids
+ * are waiting) are sent as one call to the bulk endpoint, and each caller's future is completed with its
+ * own reservation. A lookup still alone when the window closes is sent to the per-id endpoint from the
+ * dispatcher thread. If the bulk call fails, every caller falls back to its own per-id call; when the
+ * endpoint does not exist on the agenda service, batching is switched off for {@code bulk-retry-after}.
+ */
+@Component
+@Slf4j
+public class BatchingReservationClient implements IReservationClient {
+
+    private final IReservationClient delegate;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final long bulkRetryAfterNanos;
+    private final ScheduledThreadPoolExecutor dispatcher;
+
+    private final Object lock = new Object();
+    // Guarded by lock
+    private Map<Long, CompletableFuture<Optional<ReservationDTO>>> pending = new HashMap<>();
+    private long batchSequence;
+
+    private volatile long bulkUnavailableUntil;
+
+    public BatchingReservationClient(@Qualifier("reservationFeignClient") IReservationClient delegate,
+                                     @Value("${app.reservation.batch.window:5ms}") Duration window,
+                                     @Value("${app.reservation.batch.max-batch-size:50}") int maxBatchSize,
+                                     @Value("${app.reservation.batch.bulk-retry-after:60s}") Duration bulkRetryAfter,
+                                     @Value("${app.reservation.batch.dispatch-threads:2}") int dispatchThreads) {
+        this.delegate = delegate;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.bulkRetryAfterNanos = bulkRetryAfter.toNanos();
+        this.dispatcher = new ScheduledThreadPoolExecutor(dispatchThreads, new CustomizableThreadFactory("reservation-batch-"));
+        this.dispatcher.setRemoveOnCancelPolicy(true);
+        this.bulkUnavailableUntil = System.nanoTime();
+    }
+
+    @Override
+    public Optional<ReservationDTO> findReservationById(Long id) {
+        if (System.nanoTime() - bulkUnavailableUntil < 0) {
+            return delegate.findReservationById(id);
+        }
+
+        CompletableFuture<Optional<ReservationDTO>> result;
+        Map<Long, CompletableFuture<Optional<ReservationDTO>>> fullBatch = null;
+        synchronized (lock) {
+            result = pending.get(id);
+            if (result == null) {
+                result = new CompletableFuture<>();
+                pending.put(id, result);
+                if (pending.size() == 1) {
+                    long batch = batchSequence;
+                    dispatcher.schedule(() -> flushIfCurrent(batch), windowNanos, TimeUnit.NANOSECONDS);
+                }
+                if (pending.size() >= maxBatchSize) {
+                    fullBatch = takePending();
+                }
+            }
+        }
+        if (fullBatch != null) {
+            // Full batches are sent from the caller's thread instead of waiting for the timer
+            dispatch(fullBatch);
+        }
+
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof BulkLookupFailed) {
+                return delegate.findReservationById(id);
+            }
+            // The per-id call failed on the dispatcher: rethrow what the delegate threw
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public List<ReservationDTO> findReservationsByIds(List<Long> ids) {
+        return delegate.findReservationsByIds(ids);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    // Flushes waiting on the dispatcher's timer
+    int scheduledFlushes() {
+        return dispatcher.getQueue().size();
+    }
+
+    private void flushIfCurrent(long batch) {
+        Map<Long, CompletableFuture<Optional<ReservationDTO>>> batchToSend;
+        synchronized (lock) {
+            // The batch may already have been sent because it filled up
+            if (batch != batchSequence || pending.isEmpty()) {
+                return;
+            }
+            batchToSend = takePending();
+        }
+        dispatch(batchToSend);
+    }
+
+    // Must hold lock
+    private Map<Long, CompletableFuture<Optional<ReservationDTO>>> takePending() {
+        Map<Long, CompletableFuture<Optional<ReservationDTO>>> taken = pending;
+        pending = new HashMap<>();
+        batchSequence++;
+        return taken;
+    }
+
+    private void dispatch(Map<Long, CompletableFuture<Optional<ReservationDTO>>> batch) {
+        if (batch.size() == 1) {
+            // Nothing to combine: the per-id endpoint is the cheaper call, and the caller gets the answer directly
+            batch.forEach((id, future) -> {
+                try {
+                    future.complete(delegate.findReservationById(id));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+            return;
+        }
+
+        Map<Long, ReservationDTO> found;
+        try {
+            found = delegate.findReservationsByIds(new ArrayList<>(batch.keySet())).stream()
+                    .collect(Collectors.toMap(ReservationDTO::getId, Function.identity(), (first, second) -> first));
+        } catch (RuntimeException e) {
+            if (isBulkEndpointMissing(e)) {
+                log.warn("Bulk reservation endpoint unavailable, using per-id lookups for {}", Duration.ofNanos(bulkRetryAfterNanos));
+                bulkUnavailableUntil = System.nanoTime() + bulkRetryAfterNanos;
+            }
+            batch.values().forEach(future -> future.completeExceptionally(BulkLookupFailed.INSTANCE));
+            return;
+        }
+
+        // The bulk endpoint omits ids that do not exist
+        batch.forEach((id, future) -> future.complete(Optional.ofNullable(found.get(id))));
+    }
+
+    private static boolean isBulkEndpointMissing(RuntimeException e) {
+        return e instanceof FeignException.NotFound
+                || e instanceof FeignException.MethodNotAllowed
+                || e instanceof FeignException.NotImplemented;
+    }
+
+    // Signals waiting callers to fall back to their own per-id call; carries no stack trace
+    private static final class BulkLookupFailed extends RuntimeException {
+        private static final BulkLookupFailed INSTANCE = new BulkLookupFailed();
+
+        private BulkLookupFailed() {
+            super("Bulk reservation lookup failed", null, false, false);
+        }
+    }
+}
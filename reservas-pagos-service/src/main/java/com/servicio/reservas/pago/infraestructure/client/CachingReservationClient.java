@@ -0,0 +1,194 @@
+package com.servicio.reservas.pago.infraestructure.client;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import feign.FeignException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caching decorator for the agenda service client.
+ * <p>
+ * Found reservations are kept for a short TTL and missing ones (404 or an empty result) for a shorter one,
+ * so retries by impatient users do not reach the agenda service. Concurrent lookups of the same id share
+ * one remote call: the first caller loads on its own thread and the others wait for its future.
+ * Failures other than 404 are never cached.
+ */
+@Primary
+@Component
+public class CachingReservationClient implements IReservationClient {
+
+    private final IReservationClient delegate;
+    private final AsyncCache<Long, Optional<ReservationDTO>> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalescedLoads = new LongAdder();
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder loadTimeNanos = new LongAdder();
+    private final LongAccumulator maxLoadTimeNanos = new LongAccumulator(Math::max, 0);
+
+    public CachingReservationClient(@Qualifier("batchingReservationClient") IReservationClient delegate,
+                                    @Value("${app.reservation.cache.max-size:10000}") long maxSize,
+                                    @Value("${app.reservation.cache.ttl:30s}") Duration ttl,
+                                    @Value("${app.reservation.cache.negative-ttl:5s}") Duration negativeTtl) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<Long, Optional<ReservationDTO>>() {
+                    @Override
+                    public long expireAfterCreate(Long id, Optional<ReservationDTO> reservation, long currentTime) {
+                        return (reservation.isPresent() ? ttl : negativeTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long id, Optional<ReservationDTO> reservation, long currentTime, long currentDuration) {
+                        return expireAfterCreate(id, reservation, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long id, Optional<ReservationDTO> reservation, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .buildAsync();
+    }
+
+    @Override
+    public Optional<ReservationDTO> findReservationById(Long id) {
+        CompletableFuture<Optional<ReservationDTO>> load = new CompletableFuture<>();
+        CompletableFuture<Optional<ReservationDTO>> existing = cache.asMap().putIfAbsent(id, load);
+
+        if (existing != null) {
+            if (existing.isDone() && !existing.isCompletedExceptionally()) {
+                (existing.join().isPresent() ? hits : negativeHits).increment();
+            } else {
+                coalescedLoads.increment();
+            }
+            try {
+                return existing.join().map(CachingReservationClient::copy);
+            } catch (CompletionException e) {
+                // The shared load failed; surface the same failure to this caller
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        misses.increment();
+        try {
+            Optional<ReservationDTO> loaded = timedLoad(id);
+            // Completing the future stores the value; a failed future is dropped by the cache
+            load.complete(loaded.map(CachingReservationClient::copy));
+            return loaded;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // Serves cached ids locally and asks the agenda service only for the rest
+    @Override
+    public List<ReservationDTO> findReservationsByIds(List<Long> ids) {
+        List<ReservationDTO> found = new ArrayList<>();
+        List<Long> uncached = new ArrayList<>();
+        for (Long id : ids) {
+            CompletableFuture<Optional<ReservationDTO>> cached = cache.getIfPresent(id);
+            if (cached != null && cached.isDone() && !cached.isCompletedExceptionally()) {
+                Optional<ReservationDTO> reservation = cached.join();
+                (reservation.isPresent() ? hits : negativeHits).increment();
+                reservation.map(CachingReservationClient::copy).ifPresent(found::add);
+            } else {
+                uncached.add(id);
+            }
+        }
+        if (uncached.isEmpty()) {
+            return found;
+        }
+
+        misses.add(uncached.size());
+        long start = System.nanoTime();
+        List<ReservationDTO> loaded = delegate.findReservationsByIds(uncached);
+        recordLoadTime(System.nanoTime() - start);
+
+        Set<Long> absent = new HashSet<>(uncached);
+        for (ReservationDTO reservation : loaded) {
+            absent.remove(reservation.getId());
+            cache.put(reservation.getId(), CompletableFuture.completedFuture(Optional.of(copy(reservation))));
+            found.add(reservation);
+        }
+        // The bulk endpoint omits ids that do not exist
+        for (Long id : absent) {
+            cache.put(id, CompletableFuture.completedFuture(Optional.empty()));
+        }
+        return found;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long negativeHits() {
+        return negativeHits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long coalescedLoads() {
+        return coalescedLoads.sum();
+    }
+
+    public long loadCount() {
+        return loadCount.sum();
+    }
+
+    public Duration totalLoadTime() {
+        return Duration.ofNanos(loadTimeNanos.sum());
+    }
+
+    public Duration maxLoadTime() {
+        return Duration.ofNanos(maxLoadTimeNanos.get());
+    }
+
+    public long estimatedSize() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    private Optional<ReservationDTO> timedLoad(Long id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findReservationById(id);
+        } catch (FeignException.NotFound e) {
+            // A 404 is an answer, not a failure: cached as a miss for the negative TTL
+            return Optional.empty();
+        } finally {
+            recordLoadTime(System.nanoTime() - start);
+        }
+    }
+
+    private void recordLoadTime(long nanos) {
+        loadCount.increment();
+        loadTimeNanos.add(nanos);
+        maxLoadTimeNanos.accumulate(nanos);
+    }
+
+    // ReservationDTO is mutable, so the cache never hands out its own instance
+    private static ReservationDTO copy(ReservationDTO reservation) {
+        return new ReservationDTO(reservation.getId(), reservation.getServiceId(), reservation.getUserId(), reservation.getAmount());
+    }
+}
@@ -0,0 +1,187 @@
+package com.servicio.reservas.pago.infraestructure.client;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the client-credentials access token used for calls to other services.
+ * <p>
+ * Requests read the current token from an {@link AtomicReference} without locking. A background thread
+ * fetches a new token {@code refresh-before} (minus a random jitter) ahead of expiry, but never before half
+ * of the token's lifetime has passed, and the old token keeps being served while it does. Failed refreshes
+ * are retried; only when no valid token is left does a request thread fetch one itself.
+ */
+@Component
+@Slf4j
+public class ClientCredentialsTokenHolder {
+
+    static final String CLIENT_REGISTRATION_ID = "pagos-service-client";
+    private static final String PRINCIPAL = "reservas-pagos-service";
+
+    private final OAuth2AuthorizedClientManager authorizedClientManager;
+    private final OAuth2AuthorizedClientService authorizedClientService;
+    private final Duration refreshBefore;
+    private final Duration refreshJitter;
+    private final Duration retryDelay;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final AtomicReference<OAuth2AccessToken> current = new AtomicReference<>();
+    private final ReentrantLock fetchLock = new ReentrantLock();
+
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    private final LongAdder blockingFetches = new LongAdder();
+    private final LongAdder refreshTimeNanos = new LongAdder();
+    private final LongAccumulator maxRefreshTimeNanos = new LongAccumulator(Math::max, 0);
+
+    public ClientCredentialsTokenHolder(OAuth2AuthorizedClientManager authorizedClientManager,
+                                        OAuth2AuthorizedClientService authorizedClientService,
+                                        @Value("${app.oauth.token.refresh-before:60s}") Duration refreshBefore,
+                                        @Value("${app.oauth.token.refresh-jitter:15s}") Duration refreshJitter,
+                                        @Value("${app.oauth.token.retry-delay:5s}") Duration retryDelay) {
+        this.authorizedClientManager = authorizedClientManager;
+        this.authorizedClientService = authorizedClientService;
+        this.refreshBefore = refreshBefore;
+        this.refreshJitter = refreshJitter;
+        this.retryDelay = retryDelay;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, new CustomizableThreadFactory("oauth-token-refresh-"));
+    }
+
+    // The first token is fetched in the background so startup does not depend on the auth service
+    @PostConstruct
+    public void start() {
+        scheduler.execute(this::refreshInBackground);
+    }
+
+    public String getAccessToken() {
+        OAuth2AccessToken token = current.get();
+        if (isUsable(token)) {
+            return token.getTokenValue();
+        }
+
+        // A lock rather than synchronized: the fetch is an HTTP call, and blocking inside a monitor
+        // would pin the carrier thread when requests run on virtual threads
+        fetchLock.lock();
+        try {
+            token = current.get();
+            if (isUsable(token)) {
+                return token.getTokenValue();
+            }
+            blockingFetches.increment();
+            return fetch().getTokenValue();
+        } finally {
+            fetchLock.unlock();
+        }
+    }
+
+    public long refreshes() {
+        return refreshes.sum();
+    }
+
+    public long refreshFailures() {
+        return refreshFailures.sum();
+    }
+
+    public long blockingFetches() {
+        return blockingFetches.sum();
+    }
+
+    public Duration totalRefreshTime() {
+        return Duration.ofNanos(refreshTimeNanos.sum());
+    }
+
+    public Duration maxRefreshTime() {
+        return Duration.ofNanos(maxRefreshTimeNanos.get());
+    }
+
+    // Seconds until the current token expires; negative when there is none or it has expired
+    public long secondsToExpiry() {
+        OAuth2AccessToken token = current.get();
+        if (token == null || token.getExpiresAt() == null) {
+            return -1;
+        }
+        return Duration.between(Instant.now(), token.getExpiresAt()).getSeconds();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    void refreshInBackground() {
+        try {
+            OAuth2AccessToken token = fetch();
+            scheduler.schedule(this::refreshInBackground, nextRefreshDelay(token).toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            log.warn("Access token refresh failed, retrying in {}: {}", retryDelay, e.getMessage());
+            scheduler.schedule(this::refreshInBackground, retryDelay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private OAuth2AccessToken fetch() {
+        OAuth2AuthorizeRequest authorizeRequest = OAuth2AuthorizeRequest
+                .withClientRegistrationId(CLIENT_REGISTRATION_ID)
+                .principal(PRINCIPAL)
+                .build();
+
+        long start = System.nanoTime();
+        try {
+            // Otherwise the manager hands back the stored token while its clock skew still considers it valid
+            authorizedClientService.removeAuthorizedClient(CLIENT_REGISTRATION_ID, PRINCIPAL);
+            OAuth2AuthorizedClient authorizedClient = authorizedClientManager.authorize(authorizeRequest);
+            if (authorizedClient == null) {
+                throw new IllegalStateException("Failed to obtain OAuth2 access token for " + CLIENT_REGISTRATION_ID);
+            }
+            OAuth2AccessToken token = authorizedClient.getAccessToken();
+            current.set(token);
+            refreshes.increment();
+            return token;
+        } catch (RuntimeException e) {
+            refreshFailures.increment();
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            refreshTimeNanos.add(elapsed);
+            maxRefreshTimeNanos.accumulate(elapsed);
+        }
+    }
+
+    // Jitter spreads refreshes of several instances so they do not hit the auth service together
+    Duration nextRefreshDelay(OAuth2AccessToken token) {
+        if (token.getExpiresAt() == null) {
+            return retryDelay;
+        }
+        long jitterMillis = refreshJitter.isZero() ? 0 : ThreadLocalRandom.current().nextLong(refreshJitter.toMillis() + 1);
+        Duration remaining = Duration.between(Instant.now(), token.getExpiresAt());
+        Duration lifetime = token.getIssuedAt() != null ? Duration.between(token.getIssuedAt(), token.getExpiresAt()) : remaining;
+        // A token living less than refresh-before plus jitter would otherwise be refetched every retry-delay
+        Duration lead = refreshBefore.plusMillis(jitterMillis);
+        if (lead.compareTo(lifetime.dividedBy(2)) > 0) {
+            lead = lifetime.dividedBy(2);
+        }
+        Duration delay = remaining.minus(lead);
+        return delay.compareTo(retryDelay) < 0 ? retryDelay : delay;
+    }
+
+    private static boolean isUsable(OAuth2AccessToken token) {
+        return token != null && (token.getExpiresAt() == null || Instant.now().isBefore(token.getExpiresAt()));
+    }
+}
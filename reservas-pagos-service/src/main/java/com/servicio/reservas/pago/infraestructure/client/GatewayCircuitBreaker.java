@@ -0,0 +1,123 @@
+package com.servicio.reservas.pago.infraestructure.client;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker over the last {@code windowSize} gateway calls.
+ * <p>
+ * CLOSED: calls pass; once at least {@code minimumCalls} are recorded and the failure rate reaches the threshold, it opens.
+ * OPEN: calls are rejected without reaching the gateway until {@code openNanos} have passed.
+ * HALF_OPEN: {@code halfOpenCalls} trial calls pass; all succeeding closes the breaker, any failure opens it again.
+ * State changes are guarded by the monitor; nothing blocks while holding it.
+ */
+public class GatewayCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier nanoClock;
+
+    // Ring buffer of outcomes, true = failure
+    private final boolean[] window;
+    private int windowIndex;
+    private int recordedCalls;
+    private int recordedFailures;
+
+    private volatile State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    private final LongAdder openedCount = new LongAdder();
+
+    GatewayCircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          long openNanos, int halfOpenCalls, LongSupplier nanoClock) {
+        this.window = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openNanos;
+        this.halfOpenCalls = halfOpenCalls;
+        this.nanoClock = nanoClock;
+    }
+
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAt < openNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermits = halfOpenCalls;
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    // The acquired call was rejected further down (bulkhead, limit) and never reached the gateway
+    synchronized void releaseUnused() {
+        if (state == State.HALF_OPEN) {
+            halfOpenPermits++;
+        }
+    }
+
+    synchronized void onResult(boolean failed) {
+        if (state == State.OPEN) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (failed) {
+                open();
+            } else if (++halfOpenSuccesses >= halfOpenCalls) {
+                close();
+            }
+            return;
+        }
+
+        if (recordedCalls == window.length) {
+            if (window[windowIndex]) {
+                recordedFailures--;
+            }
+        } else {
+            recordedCalls++;
+        }
+        window[windowIndex] = failed;
+        if (failed) {
+            recordedFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+
+        if (recordedCalls >= minimumCalls && (double) recordedFailures / recordedCalls >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    State getState() {
+        return state;
+    }
+
+    long openedCount() {
+        return openedCount.sum();
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = nanoClock.getAsLong();
+        openedCount.increment();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        recordedCalls = 0;
+        recordedFailures = 0;
+        windowIndex = 0;
+    }
+}
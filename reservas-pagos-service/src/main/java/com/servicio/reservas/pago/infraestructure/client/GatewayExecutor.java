@@ -0,0 +1,97 @@
+package com.servicio.reservas.pago.infraestructure.client;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool for outbound payment gateway calls. At most {@code max-concurrency} calls run at once
+ * and at most {@code queue-capacity} wait; anything beyond that fails fast instead of piling up.
+ * Deliberately not exposed as an {@link java.util.concurrent.Executor} bean so Spring Boot keeps its own task executor.
+ * <p>
+ * With {@code spring.threads.virtual.enabled} each call gets its own virtual thread and the same limits are
+ * enforced with permits: waiting callers park instead of sitting in a queue.
+ */
+@Component
+public class GatewayExecutor {
+
+    private final Executor executor;
+    private final ThreadPoolExecutor platformPool;
+    // Virtual-thread mode only: running + waiting calls, and running calls
+    private final Semaphore admitted;
+    private final Semaphore running;
+
+    public GatewayExecutor(int maxConcurrency, int queueCapacity) {
+        this(maxConcurrency, queueCapacity, false);
+    }
+
+    @Autowired
+    public GatewayExecutor(@Value("${app.payment.gateway.max-concurrency:8}") int maxConcurrency,
+                           @Value("${app.payment.gateway.queue-capacity:200}") int queueCapacity,
+                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            this.platformPool = null;
+            this.executor = new VirtualThreadTaskExecutor("gateway-");
+            this.admitted = new Semaphore(maxConcurrency + queueCapacity);
+            this.running = new Semaphore(maxConcurrency);
+            return;
+        }
+
+        this.platformPool = new ThreadPoolExecutor(
+                maxConcurrency, maxConcurrency,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("gateway-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.platformPool.allowCoreThreadTimeOut(true);
+        this.executor = platformPool;
+        this.admitted = null;
+        this.running = null;
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        if (admitted != null && !admitted.tryAcquire()) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Gateway call limit reached"));
+        }
+        try {
+            return CompletableFuture.supplyAsync(admitted != null ? () -> runBounded(task) : task, executor);
+        } catch (RejectedExecutionException e) {
+            if (admitted != null) {
+                admitted.release();
+            }
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (platformPool != null) {
+            platformPool.shutdown();
+        }
+    }
+
+    private <T> T runBounded(Supplier<T> task) {
+        try {
+            running.acquireUninterruptibly();
+            try {
+                return task.get();
+            } finally {
+                running.release();
+            }
+        } finally {
+            admitted.release();
+        }
+    }
+}
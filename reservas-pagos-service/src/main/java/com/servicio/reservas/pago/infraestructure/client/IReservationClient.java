@@ -4,12 +4,20 @@ package com.servicio.reservas.pago.infraestructure.client;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.List;
 import java.util.Optional;
 
-@FeignClient(name = "reservas-agenda-service", configuration = ReservationClientConfig.class)
+// Not primary: callers get CachingReservationClient -> BatchingReservationClient -> this client
+@FeignClient(name = "reservas-agenda-service", configuration = ReservationClientConfig.class,
+        qualifiers = "reservationFeignClient", primary = false)
 public interface IReservationClient {
 
     @GetMapping("/api/reservations/{id}")
     Optional<ReservationDTO> findReservationById(@PathVariable("id") Long id);
+
+    // Bulk lookup; ids that do not exist are simply absent from the result
+    @GetMapping("/api/reservations/batch")
+    List<ReservationDTO> findReservationsByIds(@RequestParam("ids") List<Long> ids);
 }
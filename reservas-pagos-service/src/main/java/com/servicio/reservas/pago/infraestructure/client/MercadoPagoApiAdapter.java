@@ -1,6 +1,7 @@
 package com.servicio.reservas.pago.infraestructure.client;
 
 import com.mercadopago.MercadoPagoConfig;
+import com.mercadopago.core.MPRequestOptions;
 import com.mercadopago.client.preference.PreferenceClient;
 import com.mercadopago.exceptions.MPApiException;
 import com.mercadopago.resources.preference.Preference;
@@ -10,6 +11,7 @@ import com.servicio.reservas.pago.application.dto.PreferenceResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import java.time.Duration;
 import java.util.Optional;
 
 @Component
@@ -18,14 +20,23 @@ public class MercadoPagoApiAdapter implements IGatewayPaymentPort {
 
     private final PreferenceClient preferenceClient;
     private final String notificationUrl;
+    private final MPRequestOptions requestOptions;
 
     public MercadoPagoApiAdapter(@Value("${mercado-pago.access-token}") String accessToken,
-                                 @Value("${app.notification_url}") String notificationUrl) {
+                                 @Value("${app.notification_url}") String notificationUrl,
+                                 @Value("${app.payment.gateway.connect-timeout:2s}") Duration connectTimeout,
+                                 @Value("${app.payment.gateway.read-timeout:8s}") Duration readTimeout) {
 
         // Use instance-level configuration for PreferenceClient
         MercadoPagoConfig.setAccessToken(accessToken);
         this.preferenceClient = new PreferenceClient();
         this.notificationUrl = notificationUrl;
+        // Bounded waits: without them a hung Mercado Pago keeps the caller blocked for the SDK default
+        this.requestOptions = MPRequestOptions.builder()
+                .connectionTimeout((int) connectTimeout.toMillis())
+                .connectionRequestTimeout((int) connectTimeout.toMillis())
+                .socketTimeout((int) readTimeout.toMillis())
+                .build();
     }
 
     @Override
@@ -38,7 +49,7 @@ public class MercadoPagoApiAdapter implements IGatewayPaymentPort {
                     PreferenceMapper.toSdkRequest(request, notificationUrl);
 
             // 2. Direct call to the SDK
-            Preference mpPreference = preferenceClient.create(sdkRequest);
+            Preference mpPreference = preferenceClient.create(sdkRequest, requestOptions);
 
             // 3. Map SDK response to internal DTO
             PreferenceResponse response = PreferenceMapper.fromSdkResponse(mpPreference);
@@ -6,8 +6,6 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.security.oauth2.client.*;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 
-import java.util.Objects;
-
 @Configuration
 public class ReservationClientConfig {
     @Bean
@@ -15,6 +13,8 @@ public class ReservationClientConfig {
             ClientRegistrationRepository clientRegistrationRepository,
             OAuth2AuthorizedClientService authorizedClientService) {
 
+        // ClientCredentialsTokenHolder decides when to refresh and drops the stored token first,
+        // so the provider's clock skew does not need to match the refresh schedule
         OAuth2AuthorizedClientProvider authorizedClientProvider =
                 OAuth2AuthorizedClientProviderBuilder.builder()
                         .clientCredentials()
@@ -28,21 +28,9 @@ public class ReservationClientConfig {
         return authorizedClientManager;
     }
 
+    // Reads the cached token; the request thread never waits on the auth service while a valid token exists
     @Bean
-    public RequestInterceptor oauth2FeignRequestInterceptor(OAuth2AuthorizedClientManager authorizedClientManager) {
-        return requestTemplate -> {
-            OAuth2AuthorizeRequest authorizeRequest = OAuth2AuthorizeRequest
-                    .withClientRegistrationId("pagos-service-client")
-                    .principal("reservas-pagos-service")
-                    .build();
-
-            String accessToken = Objects.requireNonNull(
-                            authorizedClientManager.authorize(authorizeRequest),
-                            "Failed to obtain OAuth2 access token for pagos-service-client")
-                    .getAccessToken()
-                    .getTokenValue();
-
-            requestTemplate.header("Authorization", "Bearer " + accessToken);
-        };
+    public RequestInterceptor oauth2FeignRequestInterceptor(ClientCredentialsTokenHolder tokenHolder) {
+        return requestTemplate -> requestTemplate.header("Authorization", "Bearer " + tokenHolder.getAccessToken());
     }
 }
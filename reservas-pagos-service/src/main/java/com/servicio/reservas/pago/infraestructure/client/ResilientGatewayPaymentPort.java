@@ -0,0 +1,217 @@
+package com.servicio.reservas.pago.infraestructure.client;
+
+import com.servicio.reservas.pago.application.dto.PreferenceRequest;
+import com.servicio.reservas.pago.application.dto.PreferenceResponse;
+import com.servicio.reservas.pago.infraestructure.exception.ExternalPaymentGatewayException;
+import com.servicio.reservas.pago.infraestructure.metrics.PaymentMetrics;
+import com.servicio.reservas.pago.infraestructure.metrics.PaymentMetrics.GatewayOutcome;
+import com.servicio.reservas.pago.infraestructure.metrics.RequestTimings;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Resilience decorator for the Mercado Pago adapter. Each call passes, in order:
+ * <ol>
+ *     <li>a circuit breaker that fails fast while Mercado Pago keeps failing or answering slowly,</li>
+ *     <li>a bulkhead that caps concurrent calls (callers wait at most {@code max-wait} for a slot),</li>
+ *     <li>an AIMD concurrency limit that shrinks as soon as latency rises, before the breaker trips.</li>
+ * </ol>
+ * Rejected calls never reach the gateway and throw {@link ExternalPaymentGatewayException}; callers already
+ * treat it like a failed preference (503 on synchronous creation, a retry for the outbox).
+ * An empty result from the adapter or a call slower than {@code slow-call-duration} counts as a failure.
+ */
+@Primary
+@Component
+@Slf4j
+public class ResilientGatewayPaymentPort implements IGatewayPaymentPort {
+
+    private final IGatewayPaymentPort delegate;
+    private final GatewayCircuitBreaker circuitBreaker;
+    private final Semaphore bulkhead;
+    private final long bulkheadMaxWaitNanos;
+    private final AimdConcurrencyLimit concurrencyLimit;
+    private final long slowCallNanos;
+    private final LongSupplier nanoClock;
+    private final PaymentMetrics paymentMetrics;
+
+    private final LongAdder successfulCalls = new LongAdder();
+    private final LongAdder failedCalls = new LongAdder();
+    private final LongAdder slowCalls = new LongAdder();
+    private final LongAdder rejectedByCircuitBreaker = new LongAdder();
+    private final LongAdder rejectedByBulkhead = new LongAdder();
+    private final LongAdder rejectedByLimit = new LongAdder();
+    private final LongAdder callTimeNanos = new LongAdder();
+    private final LongAccumulator maxCallTimeNanos = new LongAccumulator(Math::max, 0);
+
+    @Autowired
+    public ResilientGatewayPaymentPort(MercadoPagoApiAdapter delegate,
+                                       @Value("${app.payment.gateway.circuit-breaker.window-size:20}") int windowSize,
+                                       @Value("${app.payment.gateway.circuit-breaker.minimum-calls:10}") int minimumCalls,
+                                       @Value("${app.payment.gateway.circuit-breaker.failure-rate-threshold:50}") int failureRatePercent,
+                                       @Value("${app.payment.gateway.circuit-breaker.slow-call-duration:4s}") Duration slowCallDuration,
+                                       @Value("${app.payment.gateway.circuit-breaker.open-duration:30s}") Duration openDuration,
+                                       @Value("${app.payment.gateway.circuit-breaker.half-open-calls:3}") int halfOpenCalls,
+                                       @Value("${app.payment.gateway.bulkhead.max-concurrent-calls:20}") int maxConcurrentCalls,
+                                       @Value("${app.payment.gateway.bulkhead.max-wait:100ms}") Duration bulkheadMaxWait,
+                                       @Value("${app.payment.gateway.limit.initial:10}") int initialLimit,
+                                       @Value("${app.payment.gateway.limit.min:2}") int minLimit,
+                                       @Value("${app.payment.gateway.limit.latency-threshold:2s}") Duration latencyThreshold,
+                                       @Value("${app.payment.gateway.limit.backoff-ratio:0.7}") double backoffRatio,
+                                       PaymentMetrics paymentMetrics) {
+        this(delegate,
+                new GatewayCircuitBreaker(windowSize, minimumCalls, failureRatePercent / 100.0,
+                        openDuration.toNanos(), halfOpenCalls, System::nanoTime),
+                maxConcurrentCalls, bulkheadMaxWait,
+                new AimdConcurrencyLimit(initialLimit, minLimit, maxConcurrentCalls, latencyThreshold.toNanos(), backoffRatio),
+                slowCallDuration, System::nanoTime, paymentMetrics);
+    }
+
+    ResilientGatewayPaymentPort(IGatewayPaymentPort delegate, GatewayCircuitBreaker circuitBreaker,
+                                int maxConcurrentCalls, Duration bulkheadMaxWait,
+                                AimdConcurrencyLimit concurrencyLimit, Duration slowCallDuration, LongSupplier nanoClock,
+                                PaymentMetrics paymentMetrics) {
+        this.delegate = delegate;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.bulkheadMaxWaitNanos = bulkheadMaxWait.toNanos();
+        this.concurrencyLimit = concurrencyLimit;
+        this.slowCallNanos = slowCallDuration.toNanos();
+        this.nanoClock = nanoClock;
+        this.paymentMetrics = paymentMetrics;
+    }
+
+    @Override
+    public Optional<PreferenceResponse> createPaymentPreference(PreferenceRequest request) {
+        long start = nanoClock.getAsLong();
+        if (!circuitBreaker.tryAcquire()) {
+            rejectedByCircuitBreaker.increment();
+            paymentMetrics.recordGatewayCall(GatewayOutcome.CIRCUIT_OPEN, nanoClock.getAsLong() - start);
+            throw new ExternalPaymentGatewayException("Mercado Pago is unavailable (circuit breaker open).");
+        }
+
+        if (!acquireBulkhead()) {
+            circuitBreaker.releaseUnused();
+            rejectedByBulkhead.increment();
+            paymentMetrics.recordGatewayCall(GatewayOutcome.BULKHEAD_FULL, nanoClock.getAsLong() - start);
+            throw new ExternalPaymentGatewayException("Too many concurrent Mercado Pago calls.");
+        }
+
+        try {
+            if (!concurrencyLimit.tryAcquire()) {
+                circuitBreaker.releaseUnused();
+                rejectedByLimit.increment();
+                paymentMetrics.recordGatewayCall(GatewayOutcome.LIMIT_REACHED, nanoClock.getAsLong() - start);
+                throw new ExternalPaymentGatewayException("Mercado Pago concurrency limit reached.");
+            }
+            RequestTimings.record(RequestTimings.Span.MP_WAIT, nanoClock.getAsLong() - start);
+            return call(request);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    public GatewayCircuitBreaker.State circuitState() {
+        return circuitBreaker.getState();
+    }
+
+    public long circuitOpenedCount() {
+        return circuitBreaker.openedCount();
+    }
+
+    public int concurrencyLimit() {
+        return concurrencyLimit.getLimit();
+    }
+
+    public int inFlightCalls() {
+        return concurrencyLimit.getInFlight();
+    }
+
+    public long successfulCalls() {
+        return successfulCalls.sum();
+    }
+
+    public long failedCalls() {
+        return failedCalls.sum();
+    }
+
+    public long slowCalls() {
+        return slowCalls.sum();
+    }
+
+    public long rejectedByCircuitBreaker() {
+        return rejectedByCircuitBreaker.sum();
+    }
+
+    public long rejectedByBulkhead() {
+        return rejectedByBulkhead.sum();
+    }
+
+    public long rejectedByLimit() {
+        return rejectedByLimit.sum();
+    }
+
+    public Duration totalCallTime() {
+        return Duration.ofNanos(callTimeNanos.sum());
+    }
+
+    public Duration maxCallTime() {
+        return Duration.ofNanos(maxCallTimeNanos.get());
+    }
+
+    private Optional<PreferenceResponse> call(PreferenceRequest request) {
+        long start = nanoClock.getAsLong();
+        Optional<PreferenceResponse> response = Optional.empty();
+        boolean threw = true;
+        try {
+            response = delegate.createPaymentPreference(request);
+            threw = false;
+            return response;
+        } finally {
+            long elapsed = nanoClock.getAsLong() - start;
+            callTimeNanos.add(elapsed);
+            maxCallTimeNanos.accumulate(elapsed);
+            paymentMetrics.recordGatewayCall(threw ? GatewayOutcome.ERROR
+                    : response.isPresent() ? GatewayOutcome.SUCCESS : GatewayOutcome.EMPTY, elapsed);
+            RequestTimings.record(RequestTimings.Span.MP, elapsed);
+
+            boolean slow = elapsed > slowCallNanos;
+            if (response.isPresent()) {
+                successfulCalls.increment();
+                concurrencyLimit.onSuccess(elapsed);
+            } else {
+                failedCalls.increment();
+                concurrencyLimit.onDropped();
+            }
+            if (slow) {
+                slowCalls.increment();
+            }
+
+            GatewayCircuitBreaker.State before = circuitBreaker.getState();
+            circuitBreaker.onResult(response.isEmpty() || slow);
+            GatewayCircuitBreaker.State after = circuitBreaker.getState();
+            if (before != after) {
+                log.warn("Mercado Pago circuit breaker {} -> {}", before, after);
+            }
+        }
+    }
+
+    private boolean acquireBulkhead() {
+        try {
+            return bulkhead.tryAcquire(bulkheadMaxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
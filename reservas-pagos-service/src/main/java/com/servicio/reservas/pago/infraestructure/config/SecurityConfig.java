@@ -1,5 +1,7 @@
 package com.servicio.reservas.pago.infraestructure.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.converter.Converter;
@@ -24,10 +26,15 @@ import java.util.stream.Stream;
 @EnableMethodSecurity
 public class SecurityConfig {
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   @Value("${app.metrics.scraper-authority:SCOPE_METRICS_SCRAPE}") String scraperAuthority) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(authorize -> authorize
+                        // Probes carry no token
+                        .requestMatchers(EndpointRequest.to("health")).permitAll()
+                        // Business metrics: only the scraper's client-credentials token
+                        .requestMatchers(EndpointRequest.to("prometheus")).hasAuthority(scraperAuthority)
                         .anyRequest().authenticated()
                 )
                 .oauth2ResourceServer(oauth2 ->
@@ -1,41 +1,168 @@
 package com.servicio.reservas.pago.infraestructure.controller;
 
+import com.servicio.reservas.pago.application.dto.BatchPaymentRequest;
+import com.servicio.reservas.pago.application.dto.BatchPaymentResponse;
+import com.servicio.reservas.pago.application.dto.PaymentLedgerFormat;
+import com.servicio.reservas.pago.application.dto.PaymentPageResponse;
 import com.servicio.reservas.pago.application.dto.PaymentRequest;
 import com.servicio.reservas.pago.application.dto.PaymentResponse;
+import com.servicio.reservas.pago.application.dto.PaymentStatsGranularity;
+import com.servicio.reservas.pago.application.dto.PaymentStatsResponse;
+import com.servicio.reservas.pago.application.dto.VoucherDocument;
 import com.servicio.reservas.pago.application.services.IPaymentService;
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import com.servicio.reservas.pago.domain.repository.PaymentSearchCriteria;
+import com.servicio.reservas.pago.infraestructure.exception.InvalidStatusTransitionException;
+import com.servicio.reservas.pago.infraestructure.exception.PaymentNotFoundException;
+import com.servicio.reservas.pago.infraestructure.storage.WebhookJournal;
+import com.servicio.reservas.pago.infraestructure.storage.WebhookNotification;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.*;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import java.io.OutputStream;
+import java.net.URI;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/payments")
 @RequiredArgsConstructor
+@Slf4j
 public class PaymentController {
 
+    private static final String RESPOND_ASYNC = "respond-async";
+
     private final IPaymentService ipaymentservice;
+    private final PaymentEventStream paymentEventStream;
+    private final WebhookJournal webhookJournal;
+    private final WebhookDeduplicator webhookDeduplicator;
 
     @GetMapping
     @PreAuthorize("hasAuthority('ROLE_ADMINISTRADOR')")
-    public ResponseEntity<List<PaymentResponse>> listAllPayments() {
-        List<PaymentResponse> payments = ipaymentservice.findAllPayments();
+    public ResponseEntity<PaymentPageResponse> listAllPayments(
+            @RequestParam(name = "status", required = false) PaymentStatus status,
+            @RequestParam(name = "reservationId", required = false) Long reservationId,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = "20") int size) {
+
+        PaymentSearchCriteria criteria = PaymentSearchCriteria.builder()
+                .status(status)
+                .reservationId(reservationId)
+                .createdFrom(from)
+                .createdTo(to)
+                .build();
+
+        PaymentPageResponse page = ipaymentservice.findPayments(criteria, cursor, size);
 
-        return ResponseEntity.ok().body(payments);
+        return ResponseEntity.ok().body(page);
+    }
+
+    // Served from the hourly summary table: cost depends on the range, not on the number of payments
+    @GetMapping("/stats")
+    @PreAuthorize("hasAuthority('ROLE_ADMINISTRADOR')")
+    public ResponseEntity<PaymentStatsResponse> getPaymentStats(
+            @RequestParam(name = "granularity", defaultValue = "HOUR") PaymentStatsGranularity granularity,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+
+        return ResponseEntity.ok().body(ipaymentservice.getPaymentStats(from, to, granularity));
+    }
+
+    @GetMapping("/export")
+    @PreAuthorize("hasAuthority('ROLE_ADMINISTRADOR')")
+    public ResponseEntity<StreamingResponseBody> exportPayments(
+            @RequestParam(name = "format", defaultValue = "NDJSON") PaymentLedgerFormat format,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(name = "gzip", defaultValue = "false") boolean gzip) {
+
+        // Rows are written straight to the socket from the database cursor on the async request thread
+        StreamingResponseBody body = outputStream -> {
+            if (gzip) {
+                GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, 8192);
+                ipaymentservice.exportPayments(from, to, format, gzipOutputStream);
+                gzipOutputStream.finish();
+            } else {
+                ipaymentservice.exportPayments(from, to, format, outputStream);
+            }
+        };
+
+        String filename = "payments." + format.getFileExtension() + (gzip ? ".gz" : "");
+        MediaType contentType = gzip
+                ? MediaType.parseMediaType("application/gzip")
+                : MediaType.parseMediaType(format.getContentType() + ";charset=UTF-8");
+
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.builder("attachment").filename(filename).build().toString())
+                .body(body);
+    }
+
+    @GetMapping("/vouchers/export")
+    @PreAuthorize("hasAuthority('ROLE_ADMINISTRADOR')")
+    public ResponseEntity<StreamingResponseBody> exportVouchers(
+            @RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(name = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+
+        // Entries are written as vouchers finish rendering; a client disconnect cancels the pending renders
+        StreamingResponseBody body = outputStream -> ipaymentservice.exportVouchers(from, to, outputStream);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.builder("attachment").filename("vouchers.zip").build().toString())
+                .body(body);
     }
 
     @PostMapping("/create")
     @PreAuthorize("hasAuthority('ROLE_ADMINISTRADOR') or hasAuthority('ROLE_CLIENTE')")
     public ResponseEntity<PaymentResponse> createPayment(
             @RequestBody @Valid @NotNull(message = "Reservation ID cannot be null")
-            PaymentRequest request) {
+            PaymentRequest request,
+            @RequestHeader(name = "Prefer", required = false) String prefer,
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+
+        // "Prefer: respond-async" (RFC 7240): answer once the payment is saved, without waiting for Mercado Pago
+        if (prefer != null && prefer.toLowerCase().contains(RESPOND_ASYNC)) {
+            PaymentResponse response = ipaymentservice.createPaymentAsync(request, idempotencyKey);
+            URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                    .path("/api/payments/{id}")
+                    .buildAndExpand(response.getId())
+                    .toUri();
+            return ResponseEntity.accepted()
+                    .location(location)
+                    .header("Preference-Applied", RESPOND_ASYNC)
+                    .body(response);
+        }
 
-        PaymentResponse response = ipaymentservice.createPayment(request);
+        PaymentResponse response = ipaymentservice.createPayment(request, idempotencyKey);
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
+    @PostMapping("/batch")
+    @PreAuthorize("hasAuthority('ROLE_ADMINISTRADOR') or hasAuthority('SCOPE_INTERNAL_SERVICE')")
+    public ResponseEntity<BatchPaymentResponse> createPayments(@RequestBody @Valid BatchPaymentRequest request) {
+        BatchPaymentResponse response = ipaymentservice.createPayments(request);
+
+        // 207 tells the caller to inspect each item when only part of the batch succeeded
+        HttpStatus status = response.getFailed() == 0 ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS;
+        return new ResponseEntity<>(response, status);
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<PaymentResponse> getPaymentStatus(@PathVariable Long id) {
@@ -44,21 +171,48 @@ public class PaymentController {
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("isAuthenticated()")
+    public SseEmitter streamPaymentEvents(@PathVariable Long id) {
+        // Subscribe before reading, so a link stored in between is still pushed
+        SseEmitter emitter = paymentEventStream.subscribe(id);
+
+        Optional<PaymentResponse> payment = ipaymentservice.getPaymentById(id);
+        if (payment.isEmpty()) {
+            paymentEventStream.unsubscribe(id, emitter);
+            throw new PaymentNotFoundException("Payment not found with ID: " + id);
+        }
+
+        paymentEventStream.send(emitter, payment.get());
+        return emitter;
+    }
+
     @GetMapping("/{id}/voucher")
     @PreAuthorize("hasAuthority('ROLE_ADMINISTRADOR') or hasAuthority('ROLE_CLIENTE')")
-    public ResponseEntity<byte[]> generateVoucher(@PathVariable("id") Long paymentId) {
+    public ResponseEntity<?> generateVoucher(@PathVariable("id") Long paymentId) {
 
-        byte[] pdfContents = ipaymentservice.generatePaymentVoucher(paymentId);
+        VoucherDocument voucher = ipaymentservice.getPaymentVoucher(paymentId);
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_PDF);
 
         String filename = "payment_voucher_" + paymentId + ".pdf";
         headers.setContentDisposition(ContentDisposition.builder("attachment").filename(filename).build());
-        headers.setContentLength(pdfContents.length);
+
+        if (!voucher.isStored()) {
+            // Store unavailable: render straight to the response, length unknown up front
+            StreamingResponseBody body = outputStream -> voucher.getRenderer().accept(outputStream);
+            return ResponseEntity.ok()
+                    .headers(headers)
+                    .body(body);
+        }
+
+        // Spring answers 304 for a matching If-None-Match and serves Range and HEAD requests from the file
+        headers.setContentLength(voucher.getContentLength());
+        headers.setETag("\"" + voucher.getEtag() + "\"");
 
         return ResponseEntity.ok()
                 .headers(headers)
-                .body(pdfContents);
+                .body(new FileSystemResource(voucher.getFile()));
     }
 
     @PostMapping("/webhook")
@@ -68,12 +222,30 @@ public class PaymentController {
             @RequestParam(name = "topic", required = false) String topic
     ) {
         final String updatedBySource = "MERCADOPAGO_WEBHOOK";
+        // Mercado Pago resends the same notification several times; only the first one goes further
+        if (webhookDeduplicator.isDuplicate(paymentId, newStatus)) {
+            return ResponseEntity.ok().build();
+        }
+
+        try {
+            // Acknowledged once it is in the local journal; WebhookNotificationConsumer applies it shortly after
+            webhookJournal.append(new WebhookNotification(paymentId, newStatus, topic, Instant.now()));
+            return ResponseEntity.ok().build();
+        } catch (RuntimeException journalFailure) {
+            log.warn("Could not journal webhook for payment {}, applying it directly: {}", paymentId, journalFailure.getMessage());
+        }
+
         try {
             ipaymentservice.updatePaymentStatus(paymentId, newStatus, updatedBySource);
             return ResponseEntity.ok().build();
 
+        } catch (InvalidStatusTransitionException e) {
+            // Out of order: the payment has already moved past this status, so a retry would not help
+            return ResponseEntity.ok().build();
         } catch (Exception e) {
+            // Not accepted: let Mercado Pago's retry through
+            webhookDeduplicator.forget(paymentId, newStatus);
             return ResponseEntity.internalServerError().build();
         }
     }
-}
\ No newline at end of file
+}
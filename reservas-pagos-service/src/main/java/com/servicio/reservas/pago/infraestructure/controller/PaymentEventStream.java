@@ -0,0 +1,85 @@
+package com.servicio.reservas.pago.infraestructure.controller;
+
+import com.servicio.reservas.pago.application.dto.PaymentDtoMapper;
+import com.servicio.reservas.pago.application.dto.PaymentResponse;
+import com.servicio.reservas.pago.domain.events.PaymentLinkReadyEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Server-sent event subscriptions for payments created asynchronously.
+ * Each subscriber receives one {@code payment} event once the link is ready and the stream then ends.
+ * Only links stored by this node are pushed; on timeout the client falls back to {@code GET /api/payments/{id}}.
+ */
+@Component
+@Slf4j
+public class PaymentEventStream {
+
+    static final String EVENT_NAME = "payment";
+
+    private final PaymentDtoMapper paymentDtoMapper;
+    private final long timeoutMillis;
+    private final ConcurrentHashMap<Long, Set<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    public PaymentEventStream(PaymentDtoMapper paymentDtoMapper,
+                              @Value("${app.payment.events.timeout:30s}") Duration timeout) {
+        this.paymentDtoMapper = paymentDtoMapper;
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    public SseEmitter subscribe(Long paymentId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        subscribers.computeIfAbsent(paymentId, id -> ConcurrentHashMap.newKeySet()).add(emitter);
+
+        Runnable unsubscribe = () -> unsubscribe(paymentId, emitter);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+        return emitter;
+    }
+
+    public void unsubscribe(Long paymentId, SseEmitter emitter) {
+        subscribers.computeIfPresent(paymentId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+
+    /**
+     * Sends the current state to one subscriber; the stream is closed when the link is already there.
+     */
+    public void send(SseEmitter emitter, PaymentResponse payment) {
+        try {
+            emitter.send(SseEmitter.event().name(EVENT_NAME).data(payment));
+            if (payment.isLinkReady()) {
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client already gone
+            emitter.completeWithError(e);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPaymentLinkReady(PaymentLinkReadyEvent event) {
+        Set<SseEmitter> emitters = subscribers.remove(event.getPayment().getId());
+        if (emitters == null) {
+            return;
+        }
+
+        PaymentResponse payment = paymentDtoMapper.toResponse(event.getPayment());
+        for (SseEmitter emitter : emitters) {
+            send(emitter, payment);
+        }
+        log.debug("Payment link for {} pushed to {} subscribers", payment.getId(), emitters.size());
+    }
+}
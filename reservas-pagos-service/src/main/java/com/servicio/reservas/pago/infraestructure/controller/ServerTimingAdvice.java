@@ -0,0 +1,36 @@
+package com.servicio.reservas.pago.infraestructure.controller;
+
+import com.servicio.reservas.pago.infraestructure.metrics.RequestTimings;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds the spans recorded by {@link ServerTimingFilter} as a {@code Server-Timing} header, right before the
+ * body (or the error body) is written and the headers are committed.
+ */
+@ControllerAdvice
+public class ServerTimingAdvice implements ResponseBodyAdvice<Object> {
+
+    static final String SERVER_TIMING = "Server-Timing";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        String timings = RequestTimings.headerValue();
+        if (timings != null) {
+            response.getHeaders().add(SERVER_TIMING, timings);
+        }
+        return body;
+    }
+}
@@ -0,0 +1,82 @@
+package com.servicio.reservas.pago.infraestructure.controller;
+
+import com.servicio.reservas.pago.infraestructure.metrics.RequestTimings;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Records {@link RequestTimings} spans for synchronous payment creations. {@link ServerTimingAdvice}
+ * writes them as a {@code Server-Timing} header.
+ * <p>
+ * Runs after Spring Security, so it can check the caller's authorities. A request is timed when the caller
+ * holds {@code authority} (if set) and sent {@code request-header} (if set). Leave both blank to time every
+ * creation.
+ */
+@Component
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    static final String CREATE_PATH = "/api/payments/create";
+
+    private final boolean enabled;
+    private final String authority;
+    private final String requestHeader;
+
+    public ServerTimingFilter(@Value("${app.server-timing.enabled:true}") boolean enabled,
+                              @Value("${app.server-timing.authority:ROLE_ADMINISTRADOR}") String authority,
+                              @Value("${app.server-timing.request-header:}") String requestHeader) {
+        this.enabled = enabled;
+        this.authority = authority.isBlank() ? null : authority.trim();
+        this.requestHeader = requestHeader.isBlank() ? null : requestHeader.trim();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled
+                || !"POST".equals(request.getMethod())
+                || !request.getRequestURI().equals(request.getContextPath() + CREATE_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!isRequested(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        RequestTimings.begin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestTimings.end();
+        }
+    }
+
+    private boolean isRequested(HttpServletRequest request) {
+        if (requestHeader != null && request.getHeader(requestHeader) == null) {
+            return false;
+        }
+        if (authority == null) {
+            return true;
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            return false;
+        }
+        for (GrantedAuthority granted : authentication.getAuthorities()) {
+            if (authority.equals(granted.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,45 @@
+package com.servicio.reservas.pago.infraestructure.controller;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link StreamingResponseBody} returned from a {@code ResponseEntity<?>} handler, on the request thread.
+ * <p>
+ * Spring only streams the body asynchronously when the handler declares {@code ResponseEntity<StreamingResponseBody>};
+ * a handler that answers with either a file {@code Resource} or a rendered stream has to declare {@code ResponseEntity<?>}.
+ */
+@Component
+public class StreamingBodyMessageConverter extends AbstractHttpMessageConverter<StreamingResponseBody> {
+
+    public StreamingBodyMessageConverter() {
+        super(MediaType.ALL);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return StreamingResponseBody.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected StreamingResponseBody readInternal(Class<? extends StreamingResponseBody> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("StreamingResponseBody is write-only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(StreamingResponseBody body, HttpOutputMessage outputMessage) throws IOException {
+        body.writeTo(outputMessage.getBody());
+    }
+}
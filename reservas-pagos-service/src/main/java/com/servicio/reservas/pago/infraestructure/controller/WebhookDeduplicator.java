@@ -0,0 +1,107 @@
+package com.servicio.reservas.pago.infraestructure.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Drops repeated Mercado Pago notifications (same payment, same status) seen within the last window,
+ * before they reach the journal or the database.
+ * <p>
+ * A fixed, direct-mapped table of {@code capacity} slots, one per payment hash, updated with CAS only.
+ * Each slot packs a 16-bit payment fingerprint, a 16-bit status hash and the time it was last seen, so a
+ * newer payment landing on the same slot simply replaces the older one. Since a slot keeps only the
+ * latest status of its payment, APPROVED, REJECTED, APPROVED is never collapsed. Two payments are only
+ * confused when they share both the slot and the fingerprint within the window (with the default
+ * capacity, about 1 in 2^31 per pair).
+ */
+@Component
+public class WebhookDeduplicator {
+
+    // Time is kept in 16 ms ticks truncated to 32 bits; int subtraction keeps comparisons right across the wrap
+    private static final int TICK_SHIFT = 4;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final int windowTicks;
+    private final LongSupplier clockMillis;
+
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder passed = new LongAdder();
+
+    @Autowired
+    public WebhookDeduplicator(@Value("${app.webhook.dedup.capacity:65536}") int capacity,
+                               @Value("${app.webhook.dedup.window:60s}") Duration window) {
+        this(capacity, window, System::currentTimeMillis);
+    }
+
+    WebhookDeduplicator(int capacity, Duration window, LongSupplier clockMillis) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.windowTicks = (int) Math.max(1, window.toMillis() >>> TICK_SHIFT);
+        this.clockMillis = clockMillis;
+    }
+
+    /**
+     * Returns true when the same payment and status were already seen within the window. Otherwise
+     * records them and returns false.
+     */
+    public boolean isDuplicate(Long paymentId, String status) {
+        long hash = mix(paymentId);
+        int index = (int) hash & mask;
+        long key = key(hash, status);
+        int now = (int) (clockMillis.getAsLong() >>> TICK_SHIFT);
+
+        while (true) {
+            long current = slots.get(index);
+            if (current != 0 && (current & ~0xFFFFFFFFL) == key && now - (int) current < windowTicks) {
+                suppressed.increment();
+                return true;
+            }
+            if (slots.compareAndSet(index, current, key | (now & 0xFFFFFFFFL))) {
+                passed.increment();
+                return false;
+            }
+            // Another notification for this slot won the race; look again
+        }
+    }
+
+    // Undoes isDuplicate when the notification could not be accepted, so Mercado Pago's retry is let through
+    public void forget(Long paymentId, String status) {
+        long hash = mix(paymentId);
+        int index = (int) hash & mask;
+        long current = slots.get(index);
+        if ((current & ~0xFFFFFFFFL) == key(hash, status)) {
+            slots.compareAndSet(index, current, 0);
+        }
+    }
+
+    public long suppressedDuplicates() {
+        return suppressed.sum();
+    }
+
+    public long passedNotifications() {
+        return passed.sum();
+    }
+
+    private static long key(long paymentHash, String status) {
+        long paymentFingerprint = (paymentHash >>> 48) | 1;
+        int statusHash = status.hashCode();
+        long statusFingerprint = (statusHash ^ (statusHash >>> 16)) & 0xFFFF;
+        return (paymentFingerprint << 48) | (statusFingerprint << 32);
+    }
+
+    // SplitMix64 finalizer: payment ids are sequential, so spread them over the whole table
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
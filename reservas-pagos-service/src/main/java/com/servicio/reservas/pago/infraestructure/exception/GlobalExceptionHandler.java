@@ -1,40 +1,63 @@
 package com.servicio.reservas.pago.infraestructure.exception;
 
+import com.servicio.reservas.pago.infraestructure.metrics.PaymentMetrics;
+import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j; // Logger object import
 
 @ControllerAdvice
 @Slf4j
+@RequiredArgsConstructor
 public class GlobalExceptionHandler {
 
+    private final PaymentMetrics paymentMetrics;
+
     // Handler for 404 Not Found (Payments and Reservations)
     @ExceptionHandler({PaymentNotFoundException.class, ReservationNotFoundException.class})
     public ResponseEntity<Map<String, String>> handleNotFoundExceptions(RuntimeException ex) {
-        return new ResponseEntity<>(
+        return respond(ex,
                 Map.of("error", "Not Found", "message", ex.getMessage()),
                 HttpStatus.NOT_FOUND);
     }
 
-    // Handler for 400 Bad Request (Status validation)
-    @ExceptionHandler(InvalidPaymentStatusException.class)
-    public ResponseEntity<Map<String, String>> handleInvalidPaymentStatus(InvalidPaymentStatusException ex) {
-        return new ResponseEntity<>(
+    // Handler for 400 Bad Request (Status, page cursor, idempotency key, stats range and query parameter validation)
+    @ExceptionHandler({InvalidPaymentStatusException.class, InvalidPageCursorException.class,
+            InvalidIdempotencyKeyException.class, InvalidStatsRangeException.class, MethodArgumentTypeMismatchException.class})
+    public ResponseEntity<Map<String, String>> handleBadRequestExceptions(RuntimeException ex) {
+        return respond(ex,
                 Map.of("error", "Bad Request", "message", ex.getMessage()),
                 HttpStatus.BAD_REQUEST);
     }
 
+    // Handler for 409 Conflict (status change not allowed from the payment's current status)
+    @ExceptionHandler(InvalidStatusTransitionException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidStatusTransition(InvalidStatusTransitionException ex) {
+        return respond(ex,
+                Map.of("error", "Conflict", "message", ex.getMessage()),
+                HttpStatus.CONFLICT);
+    }
+
+    // Handler for 422 Unprocessable Entity (Idempotency-Key reused for a different reservation)
+    @ExceptionHandler(IdempotencyKeyConflictException.class)
+    public ResponseEntity<Map<String, String>> handleIdempotencyKeyConflict(IdempotencyKeyConflictException ex) {
+        return respond(ex,
+                Map.of("error", "Unprocessable Entity", "message", ex.getMessage()),
+                HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
     // Handler for 503 Service Unavailable (Mercado Pago failure - SRT-45)
     @ExceptionHandler(ExternalPaymentGatewayException.class)
     public ResponseEntity<Map<String, String>> handleExternalPaymentGateway(ExternalPaymentGatewayException ex) {
         // Log the error for visibility in production
         log.error("External Payment Gateway Error (503): {}", ex.getMessage());
 
-        return new ResponseEntity<>(
+        return respond(ex,
                 Map.of("error", "Service Unavailable", "message", ex.getMessage()),
                 HttpStatus.SERVICE_UNAVAILABLE);
     }
@@ -46,7 +69,7 @@ public class GlobalExceptionHandler {
         // **IMPORTANT**: Log the full stack trace for diagnosis without exposing details to the client.
         log.error("Unhandled internal server error occurred.", ex);
 
-        return new ResponseEntity<>(
+        return respond(ex,
                 Map.of("error", "Internal Server Error", "message", "An unexpected error occurred. Please contact support."),
                 HttpStatus.INTERNAL_SERVER_ERROR);
     }
@@ -56,8 +79,14 @@ public class GlobalExceptionHandler {
 
         log.error("Voucher Generation Error (400): Failed to generate PDF.", ex);
 
-        return new ResponseEntity<>(
+        return respond(ex,
                 Map.of("error", "Unprocessable Entity", "message", ex.getMessage()),
                 HttpStatus.UNPROCESSABLE_ENTITY);
     }
-}
\ No newline at end of file
+
+    // Every error response is counted by exception class and status
+    private ResponseEntity<Map<String, String>> respond(Exception ex, Map<String, String> body, HttpStatus status) {
+        paymentMetrics.recordHandledException(ex, status);
+        return new ResponseEntity<>(body, status);
+    }
+}
@@ -0,0 +1,13 @@
+package com.servicio.reservas.pago.infraestructure.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// 400 Bad Request
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidStatsRangeException extends RuntimeException {
+
+    public InvalidStatsRangeException(String message) {
+        super(message);
+    }
+}
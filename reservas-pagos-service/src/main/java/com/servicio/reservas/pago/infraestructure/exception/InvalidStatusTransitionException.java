@@ -0,0 +1,13 @@
+package com.servicio.reservas.pago.infraestructure.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// 409 Conflict: the payment's current status does not allow the requested one (e.g. APPROVED -> PENDING)
+@ResponseStatus(HttpStatus.CONFLICT)
+public class InvalidStatusTransitionException extends RuntimeException {
+
+    public InvalidStatusTransitionException(String message) {
+        super(message);
+    }
+}
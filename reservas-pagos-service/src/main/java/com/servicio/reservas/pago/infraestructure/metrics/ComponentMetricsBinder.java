@@ -0,0 +1,98 @@
+package com.servicio.reservas.pago.infraestructure.metrics;
+
+import com.servicio.reservas.pago.application.services.PaymentService;
+import com.servicio.reservas.pago.infraestructure.client.CachingReservationClient;
+import com.servicio.reservas.pago.infraestructure.client.ClientCredentialsTokenHolder;
+import com.servicio.reservas.pago.infraestructure.client.GatewayCircuitBreaker;
+import com.servicio.reservas.pago.infraestructure.client.ResilientGatewayPaymentPort;
+import com.servicio.reservas.pago.infraestructure.controller.WebhookDeduplicator;
+import com.servicio.reservas.pago.infraestructure.persistence.CachingPaymentRepository;
+import com.servicio.reservas.pago.infraestructure.persistence.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes the counters the components already keep (LongAdders read on scrape, nothing added to the
+ * request path): circuit breaker and concurrency limit, both caches, the service token, webhook dedup and, when configured, read replica routing.
+ */
+@Component
+@RequiredArgsConstructor
+public class ComponentMetricsBinder implements MeterBinder {
+
+    private final ResilientGatewayPaymentPort gatewayPaymentPort;
+    private final CachingPaymentRepository paymentRepository;
+    private final CachingReservationClient reservationClient;
+    private final ClientCredentialsTokenHolder tokenHolder;
+    private final WebhookDeduplicator webhookDeduplicator;
+    private final PaymentService paymentService;
+    private final ObjectProvider<ReplicaRoutingDataSource> replicaRouting;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // Mercado Pago resilience
+        for (GatewayCircuitBreaker.State state : GatewayCircuitBreaker.State.values()) {
+            Gauge.builder("mercadopago.circuit.state", gatewayPaymentPort, port -> port.circuitState() == state ? 1 : 0)
+                    .description("1 for the current circuit breaker state, 0 for the others")
+                    .tag("state", state.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+        counter(registry, "mercadopago.circuit.opened", gatewayPaymentPort, ResilientGatewayPaymentPort::circuitOpenedCount);
+        Gauge.builder("mercadopago.concurrency.limit", gatewayPaymentPort, ResilientGatewayPaymentPort::concurrencyLimit)
+                .register(registry);
+        Gauge.builder("mercadopago.concurrency.in.flight", gatewayPaymentPort, ResilientGatewayPaymentPort::inFlightCalls)
+                .register(registry);
+        counter(registry, "mercadopago.calls.slow", gatewayPaymentPort, ResilientGatewayPaymentPort::slowCalls);
+
+        // Read caches
+        CaffeineCacheMetrics.monitor(registry, paymentRepository.cache(), "payments");
+        counter(registry, "payment.cache.coalesced.loads", paymentRepository, CachingPaymentRepository::coalescedLoads);
+        Gauge.builder("reservation.cache.size", reservationClient, CachingReservationClient::estimatedSize)
+                .register(registry);
+        counter(registry, "reservation.cache.hits", reservationClient, CachingReservationClient::hits);
+        counter(registry, "reservation.cache.negative.hits", reservationClient, CachingReservationClient::negativeHits);
+        counter(registry, "reservation.cache.misses", reservationClient, CachingReservationClient::misses);
+        counter(registry, "reservation.cache.coalesced.loads", reservationClient, CachingReservationClient::coalescedLoads);
+
+        // Service-to-service token
+        counter(registry, "oauth.token.refreshes", tokenHolder, ClientCredentialsTokenHolder::refreshes);
+        counter(registry, "oauth.token.refresh.failures", tokenHolder, ClientCredentialsTokenHolder::refreshFailures);
+        counter(registry, "oauth.token.blocking.fetches", tokenHolder, ClientCredentialsTokenHolder::blockingFetches);
+        Gauge.builder("oauth.token.expiry", tokenHolder, ClientCredentialsTokenHolder::secondsToExpiry)
+                .baseUnit("seconds")
+                .register(registry);
+
+        // Webhooks
+        counter(registry, "webhook.duplicates.suppressed", webhookDeduplicator, WebhookDeduplicator::suppressedDuplicates);
+        counter(registry, "webhook.notifications.passed", webhookDeduplicator, WebhookDeduplicator::passedNotifications);
+        counter(registry, "payment.status.update.unchanged", paymentService, PaymentService::unchangedStatusUpdates);
+        counter(registry, "payment.status.update.refused", paymentService, PaymentService::refusedStatusUpdates);
+
+        // Read replicas (only with app.datasource.replicas.urls)
+        counter(registry, "payment.reads.pinned.primary", paymentRepository, CachingPaymentRepository::primaryPinnedReads);
+        replicaRouting.ifAvailable(router -> {
+            for (String replica : router.replicaNames()) {
+                Gauge.builder("datasource.replica.healthy", router, r -> r.isHealthy(replica) ? 1 : 0)
+                        .description("1 while the replica is in the read rotation")
+                        .tag("replica", replica)
+                        .register(registry);
+                FunctionCounter.builder("datasource.replica.connections", router, r -> r.replicaConnections(replica))
+                        .tag("replica", replica)
+                        .register(registry);
+            }
+            counter(registry, "datasource.replica.primary.fallbacks", router, ReplicaRoutingDataSource::primaryFallbacks);
+        });
+    }
+
+    private static <T> void counter(MeterRegistry registry, String name, T source, ToDoubleFunction<T> count) {
+        FunctionCounter.builder(name, source, count).register(registry);
+    }
+}
@@ -0,0 +1,168 @@
+package com.servicio.reservas.pago.infraestructure.metrics;
+
+import com.servicio.reservas.pago.infraestructure.exception.InvalidPaymentStatusException;
+import com.servicio.reservas.pago.infraestructure.exception.InvalidStatusTransitionException;
+import com.servicio.reservas.pago.infraestructure.exception.PaymentNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Timers, histograms and counters for the payment hot paths.
+ * <p>
+ * Tag values only come from the small fixed sets below (phase, outcome, source, exception class, HTTP status),
+ * never from ids, amounts or messages, so the number of Prometheus series does not grow with traffic.
+ * Meters with enum tags are registered up front; recording is then a map lookup.
+ */
+@Component
+public class PaymentMetrics {
+
+    public enum CreationPhase {
+        RESERVATION_LOOKUP(RequestTimings.Span.AGENDA),
+        PENDING_INSERT(RequestTimings.Span.DB_INSERT),
+        GATEWAY_CALL(RequestTimings.Span.GATEWAY),
+        LINK_SAVE(RequestTimings.Span.DB_LINK);
+
+        private final RequestTimings.Span span;
+
+        CreationPhase(RequestTimings.Span span) {
+            this.span = span;
+        }
+    }
+
+    public enum StatusUpdateMode { SINGLE, BATCH }
+
+    public enum StatusUpdateResult {
+        APPLIED, UNCHANGED, INVALID_STATUS, INVALID_TRANSITION, NOT_FOUND, ERROR;
+
+        public static StatusUpdateResult of(RuntimeException e) {
+            if (e instanceof InvalidPaymentStatusException) {
+                return INVALID_STATUS;
+            }
+            if (e instanceof InvalidStatusTransitionException) {
+                return INVALID_TRANSITION;
+            }
+            if (e instanceof PaymentNotFoundException) {
+                return NOT_FOUND;
+            }
+            return ERROR;
+        }
+    }
+
+    public enum GatewayOutcome { SUCCESS, EMPTY, ERROR, CIRCUIT_OPEN, BULKHEAD_FULL, LIMIT_REACHED }
+
+    public enum VoucherSource { STORE, EXPORT }
+
+    private final MeterRegistry registry;
+    private final Map<CreationPhase, Timer> creationPhases = new EnumMap<>(CreationPhase.class);
+    private final Map<StatusUpdateMode, Map<StatusUpdateResult, Timer>> statusUpdates = new EnumMap<>(StatusUpdateMode.class);
+    private final Map<GatewayOutcome, Timer> gatewayCalls = new EnumMap<>(GatewayOutcome.class);
+    private final Map<VoucherSource, Timer> voucherRenders = new EnumMap<>(VoucherSource.class);
+    private final Map<VoucherSource, Timer> failedVoucherRenders = new EnumMap<>(VoucherSource.class);
+    private final Map<VoucherSource, DistributionSummary> voucherSizes = new EnumMap<>(VoucherSource.class);
+
+    public PaymentMetrics(MeterRegistry registry) {
+        this.registry = registry;
+
+        for (CreationPhase phase : CreationPhase.values()) {
+            creationPhases.put(phase, Timer.builder("payment.create.phase")
+                    .description("Time spent in each step of a single payment creation")
+                    .tag("phase", tagValue(phase))
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+
+        for (StatusUpdateMode mode : StatusUpdateMode.values()) {
+            Map<StatusUpdateResult, Timer> byResult = new EnumMap<>(StatusUpdateResult.class);
+            for (StatusUpdateResult result : StatusUpdateResult.values()) {
+                byResult.put(result, Timer.builder("payment.status.update")
+                        .description("Payment status updates from webhooks, single or batched")
+                        .tag("mode", tagValue(mode))
+                        .tag("result", tagValue(result))
+                        .publishPercentileHistogram()
+                        .register(registry));
+            }
+            statusUpdates.put(mode, byResult);
+        }
+
+        for (GatewayOutcome outcome : GatewayOutcome.values()) {
+            gatewayCalls.put(outcome, Timer.builder("mercadopago.preference.calls")
+                    .description("Mercado Pago preference calls; rejections record the time until they were rejected")
+                    .tag("outcome", tagValue(outcome))
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+
+        for (VoucherSource source : VoucherSource.values()) {
+            voucherRenders.put(source, voucherRenderTimer(source, "success"));
+            failedVoucherRenders.put(source, voucherRenderTimer(source, "failure"));
+            voucherSizes.put(source, DistributionSummary.builder("voucher.size")
+                    .description("Size of rendered voucher PDFs")
+                    .baseUnit("bytes")
+                    .tag("source", tagValue(source))
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+    // Records the step even when it throws, also as a Server-Timing span when the request is timed
+    public <T> T timeCreationPhase(CreationPhase phase, Supplier<T> step) {
+        long start = System.nanoTime();
+        try {
+            return step.get();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            creationPhases.get(phase).record(elapsed, TimeUnit.NANOSECONDS);
+            RequestTimings.record(phase.span, elapsed);
+        }
+    }
+
+    public void recordStatusUpdate(StatusUpdateMode mode, StatusUpdateResult result, long nanos) {
+        statusUpdates.get(mode).get(result).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordGatewayCall(GatewayOutcome outcome, long nanos) {
+        gatewayCalls.get(outcome).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordVoucherRender(VoucherSource source, long nanos, long bytes) {
+        voucherRenders.get(source).record(nanos, TimeUnit.NANOSECONDS);
+        voucherSizes.get(source).record(bytes);
+    }
+
+    public void recordFailedVoucherRender(VoucherSource source, long nanos) {
+        failedVoucherRenders.get(source).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Exception classes are a closed set (ours plus the few Spring ones that reach the handler)
+    public void recordHandledException(Throwable exception, HttpStatusCode status) {
+        Counter.builder("payment.api.exceptions")
+                .description("Exceptions turned into error responses by the global exception handler")
+                .tag("exception", exception.getClass().getSimpleName())
+                .tag("status", String.valueOf(status.value()))
+                .register(registry)
+                .increment();
+    }
+
+    private Timer voucherRenderTimer(VoucherSource source, String outcome) {
+        return Timer.builder("voucher.render")
+                .description("Voucher PDF rendering time")
+                .tag("source", tagValue(source))
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,118 @@
+package com.servicio.reservas.pago.infraestructure.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Per-request span recorder behind the {@code Server-Timing} response header.
+ * <p>
+ * Spans are a fixed set, accumulated into two arrays owned by the request thread: recording is a
+ * thread-local read and two array writes, and nothing is recorded (or allocated) unless the request
+ * was started with {@link #begin()}. The same instance is reused by every request served by a thread.
+ * Work handed to other threads (gateway pool, reservation batching) shows up in the span of the
+ * request thread that waits for it.
+ */
+public final class RequestTimings {
+
+    public enum Span {
+        LOCK("lock", "Wait for the reservation creation lock"),
+        LOOKUP("lookup", "Existing payment lookup"),
+        AGENDA("agenda", "Reservation lookup (cache, batching, agenda service)"),
+        DB_INSERT("db-insert", "Pending payment and outbox insert"),
+        GATEWAY("gateway", "Preference creation (slot wait and Mercado Pago call)"),
+        MP_WAIT("mp-wait", "Wait for a Mercado Pago slot"),
+        MP("mp", "Mercado Pago call"),
+        DB_LINK("db-link", "Payment link save");
+
+        private final String metric;
+        private final String description;
+
+        Span(String metric, String description) {
+            this.metric = metric;
+            this.description = description;
+        }
+    }
+
+    private static final Span[] SPANS = Span.values();
+    // Only threads that served a timed request get an instance
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    private final long[] nanos = new long[SPANS.length];
+    private final int[] counts = new int[SPANS.length];
+    private final StringBuilder header = new StringBuilder(512);
+    private boolean active;
+    private long startNanos;
+
+    private RequestTimings() {
+    }
+
+    // Starts recording on the calling thread
+    public static void begin() {
+        RequestTimings timings = CURRENT.get();
+        if (timings == null) {
+            timings = new RequestTimings();
+            CURRENT.set(timings);
+        }
+        Arrays.fill(timings.nanos, 0);
+        Arrays.fill(timings.counts, 0);
+        timings.startNanos = System.nanoTime();
+        timings.active = true;
+    }
+
+    public static void end() {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.active = false;
+        }
+    }
+
+    public static void record(Span span, long elapsedNanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null && timings.active) {
+            timings.nanos[span.ordinal()] += elapsedNanos;
+            timings.counts[span.ordinal()]++;
+        }
+    }
+
+    /**
+     * Header value for the spans recorded so far plus {@code total} since {@link #begin()}, or null
+     * when the thread is not recording. Durations are in milliseconds, as the header requires.
+     */
+    public static String headerValue() {
+        RequestTimings timings = CURRENT.get();
+        return timings != null && timings.active ? timings.format(System.nanoTime() - timings.startNanos) : null;
+    }
+
+    private String format(long totalNanos) {
+        header.setLength(0);
+        for (Span span : SPANS) {
+            int count = counts[span.ordinal()];
+            if (count == 0) {
+                continue;
+            }
+            header.append(span.metric).append(";dur=");
+            appendMillis(nanos[span.ordinal()]);
+            header.append(";desc=\"").append(span.description);
+            if (count > 1) {
+                header.append(" x").append(count);
+            }
+            header.append("\", ");
+        }
+        header.append("total;dur=");
+        appendMillis(totalNanos);
+        return header.toString();
+    }
+
+    // Milliseconds with microsecond precision, without going through String.format
+    private void appendMillis(long nanos) {
+        long micros = nanos / 1_000;
+        header.append(micros / 1_000).append('.');
+        long fraction = micros % 1_000;
+        if (fraction < 100) {
+            header.append('0');
+        }
+        if (fraction < 10) {
+            header.append('0');
+        }
+        header.append(fraction);
+    }
+}
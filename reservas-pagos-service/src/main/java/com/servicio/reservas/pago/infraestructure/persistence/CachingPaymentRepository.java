@@ -0,0 +1,248 @@
+package com.servicio.reservas.pago.infraestructure.persistence;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.servicio.reservas.pago.domain.entities.Payment;
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import com.servicio.reservas.pago.domain.repository.IPaymentRepository;
+import com.servicio.reservas.pago.domain.repository.PaymentCursor;
+import com.servicio.reservas.pago.domain.repository.PaymentLedgerRow;
+import com.servicio.reservas.pago.domain.repository.PaymentSearchCriteria;
+import com.servicio.reservas.pago.domain.repository.PaymentStatusChange;
+import com.servicio.reservas.pago.domain.repository.PaymentStatusChangeRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Read-through cache in front of {@link PaymentRepositoryPersistence#findById(Long)}.
+ * <p>
+ * Entries are bounded by size and TTL and evicted after every committed write on this node.
+ * Concurrent misses for the same id are coalesced: one caller reads the database and the rest wait for its result.
+ * Reads inside read-write transactions always go to the database, so updates never start from a cached copy.
+ * <p>
+ * With read replicas, a payment written on this node is read from the primary for {@code read-your-writes-window}
+ * after the commit (see {@link ReplicaRouting}), so its creator does not get a missing or stale row from a replica
+ * that has not caught up, and no such row ends up in the cache. Other nodes only know about their own writes.
+ */
+@Primary
+@Repository
+public class CachingPaymentRepository implements IPaymentRepository {
+
+    private static final int GENERATION_STRIPES = 64;
+
+    private final PaymentRepositoryPersistence delegate;
+    private final Cache<Long, Payment> cache;
+    private final ConcurrentHashMap<Long, CompletableFuture<Optional<Payment>>> inFlightLoads = new ConcurrentHashMap<>();
+    // Bumped on every committed write; a load that overlapped a write is returned but not cached
+    private final AtomicLongArray writeGenerations = new AtomicLongArray(GENERATION_STRIPES);
+    private final LongAdder coalescedLoads = new LongAdder();
+    // Ids committed on this node within the read-your-writes window
+    private final Cache<Long, Boolean> recentWrites;
+    private final LongAdder primaryPinnedReads = new LongAdder();
+
+    public CachingPaymentRepository(PaymentRepositoryPersistence delegate,
+                                    @Value("${app.payment.cache.max-size:10000}") long maxSize,
+                                    @Value("${app.payment.cache.ttl:10s}") Duration ttl,
+                                    @Value("${app.datasource.replicas.read-your-writes-window:5s}") Duration readYourWritesWindow) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.recentWrites = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(readYourWritesWindow)
+                .build();
+    }
+
+    @Override
+    public Optional<Payment> findById(Long id) {
+        if (isReadWriteTransaction()) {
+            return delegate.findById(id);
+        }
+        if (recentWrites.getIfPresent(id) != null) {
+            primaryPinnedReads.increment();
+            return ReplicaRouting.onPrimary(() -> read(id));
+        }
+        return read(id);
+    }
+
+    private Optional<Payment> read(Long id) {
+        Payment cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(copy(cached));
+        }
+
+        CompletableFuture<Optional<Payment>> load = new CompletableFuture<>();
+        CompletableFuture<Optional<Payment>> inFlight = inFlightLoads.putIfAbsent(id, load);
+        if (inFlight != null) {
+            coalescedLoads.increment();
+            try {
+                return inFlight.join().map(CachingPaymentRepository::copy);
+            } catch (CompletionException e) {
+                return delegate.findById(id);
+            }
+        }
+
+        long generation = writeGenerations.get(stripe(id));
+        try {
+            Optional<Payment> loaded = delegate.findById(id);
+            if (loaded.isPresent() && writeGenerations.get(stripe(id)) == generation) {
+                cache.put(id, copy(loaded.get()));
+            }
+            load.complete(loaded.map(CachingPaymentRepository::copy));
+            return loaded;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(id, load);
+        }
+    }
+
+    // Not cached: only used for updates, which must not start from a cached copy
+    @Override
+    public List<Payment> findAllById(List<Long> ids) {
+        return delegate.findAllById(ids);
+    }
+
+    // Not cached: these decide whether a new payment is created, so they must see the latest committed rows
+    @Override
+    public Optional<Payment> findPendingByReservationId(Long reservationId) {
+        return delegate.findPendingByReservationId(reservationId);
+    }
+
+    @Override
+    public List<Payment> findPendingByReservationIds(List<Long> reservationIds) {
+        return delegate.findPendingByReservationIds(reservationIds);
+    }
+
+    @Override
+    public Optional<Payment> findByIdempotencyKey(String idempotencyKey) {
+        return delegate.findByIdempotencyKey(idempotencyKey);
+    }
+
+    @Override
+    public Optional<PaymentStatusChange> changeStatus(Long id, PaymentStatus newStatus, LocalDateTime updatedAt, String updatedBy) {
+        Optional<PaymentStatusChange> change = delegate.changeStatus(id, newStatus, updatedAt, updatedBy);
+        if (change.isPresent() && change.get().isApplied()) {
+            evictAfterCommit(List.of(id));
+        }
+        return change;
+    }
+
+    @Override
+    public List<PaymentStatus> changeStatuses(List<PaymentStatusChangeRequest> changes, LocalDateTime updatedAt) {
+        List<PaymentStatus> previousStatuses = delegate.changeStatuses(changes, updatedAt);
+        List<Long> changedIds = new ArrayList<>();
+        for (int i = 0; i < changes.size(); i++) {
+            if (previousStatuses.get(i) != null) {
+                changedIds.add(changes.get(i).getPaymentId());
+            }
+        }
+        if (!changedIds.isEmpty()) {
+            evictAfterCommit(changedIds);
+        }
+        return previousStatuses;
+    }
+
+    @Override
+    public Payment save(Payment payment) {
+        Payment saved = delegate.save(payment);
+        evictAfterCommit(List.of(saved.getId()));
+        return saved;
+    }
+
+    @Override
+    public List<Payment> saveAll(List<Payment> payments) {
+        List<Payment> saved = delegate.saveAll(payments);
+        evictAfterCommit(saved.stream().map(Payment::getId).toList());
+        return saved;
+    }
+
+    @Override
+    public void deleteAllById(List<Long> ids) {
+        delegate.deleteAllById(ids);
+        evictAfterCommit(ids);
+    }
+
+    @Override
+    public List<Payment> findPage(PaymentSearchCriteria criteria, PaymentCursor after, int limit) {
+        return delegate.findPage(criteria, after, limit);
+    }
+
+    @Override
+    public Stream<PaymentLedgerRow> streamLedger(LocalDateTime createdFrom, LocalDateTime createdTo) {
+        return delegate.streamLedger(createdFrom, createdTo);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long coalescedLoads() {
+        return coalescedLoads.sum();
+    }
+
+    // Reads sent to the primary because the payment was written within the read-your-writes window
+    public long primaryPinnedReads() {
+        return primaryPinnedReads.sum();
+    }
+
+    public Cache<Long, Payment> cache() {
+        return cache;
+    }
+
+    // Evicting before commit would let a concurrent reader cache the old row again
+    private void evictAfterCommit(List<Long> ids) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(ids);
+                }
+            });
+        } else {
+            evict(ids);
+        }
+    }
+
+    private void evict(List<Long> ids) {
+        for (Long id : ids) {
+            writeGenerations.incrementAndGet(stripe(id));
+            cache.invalidate(id);
+            recentWrites.put(id, Boolean.TRUE);
+        }
+    }
+
+    private static boolean isReadWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private static int stripe(Long id) {
+        return (Long.hashCode(id) & Integer.MAX_VALUE) % GENERATION_STRIPES;
+    }
+
+    // Payment is mutable, so the cache never hands out its own instance
+    private static Payment copy(Payment payment) {
+        return payment.toBuilder().build();
+    }
+}
@@ -0,0 +1,37 @@
+package com.servicio.reservas.pago.infraestructure.persistence;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Tells whether the service runs on PostgreSQL (production) or another database (H2 in tests), for the
+ * statements that only PostgreSQL supports. The database is asked once and the answer is kept.
+ */
+@Component
+public class DatabaseDialect {
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean postgres;
+
+    public DatabaseDialect(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            result = Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) DatabaseDialect::isPostgres));
+            postgres = result;
+        }
+        return result;
+    }
+
+    // For callers that already hold a connection and cannot depend on this bean (the routing DataSource itself)
+    public static boolean isPostgres(Connection connection) throws SQLException {
+        return "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+    }
+}
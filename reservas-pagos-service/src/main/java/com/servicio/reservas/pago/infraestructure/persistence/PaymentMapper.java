@@ -15,6 +15,8 @@ public class PaymentMapper {
         model.setUpdatedAt(domain.getUpdatedAt());
         model.setCreatedBy(domain.getCreatedBy());
         model.setUpdatedBy(domain.getUpdatedBy());
+        model.setIdempotencyKey(domain.getIdempotencyKey());
+        model.setVersion(domain.getVersion());
 
         return model;
     }
@@ -30,7 +32,9 @@ public class PaymentMapper {
                 model.getCreatedAt(),
                 model.getUpdatedAt(),
                 model.getCreatedBy(),
-                model.getUpdatedBy()
+                model.getUpdatedBy(),
+                model.getIdempotencyKey(),
+                model.getVersion()
         );
     }
 }
@@ -10,7 +10,10 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Version;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 
@@ -18,16 +21,20 @@ import java.time.LocalDateTime;
 @Table(
     name = "payments",
     indexes = {
-        @Index(name = "idx_reservation_id", columnList = "reservation_id"),
-        @Index(name = "idx_external_payment_id", columnList = "external_payment_id")
+        @Index(name = "idx_reservation_id_created_at", columnList = "reservation_id, created_at, id"),
+        @Index(name = "idx_external_payment_id", columnList = "external_payment_id"),
+        @Index(name = "idx_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_status_created_at_id", columnList = "status, created_at, id")
     }
 )
 @Data
 @NoArgsConstructor
 public class PaymentModel {
 
+    // Pooled sequence: ids are handed out from memory in blocks of 50, which keeps JDBC insert batching enabled
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payments_seq")
+    @SequenceGenerator(name = "payments_seq", sequenceName = "payments_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "reservation_id", nullable = false)
@@ -57,4 +64,14 @@ public class PaymentModel {
 
     @Column(name = "updated_by")
     private String updatedBy;
+
+    @Column(name = "idempotency_key", unique = true)
+    private String idempotencyKey;
+
+    // Checked by every write: a full-row save from a stale copy fails instead of undoing a newer status.
+    // The default fills existing rows when ddl-auto adds the column
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
 }
\ No newline at end of file
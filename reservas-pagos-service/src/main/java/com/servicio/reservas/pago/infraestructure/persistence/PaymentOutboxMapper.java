@@ -0,0 +1,33 @@
+package com.servicio.reservas.pago.infraestructure.persistence;
+
+import com.servicio.reservas.pago.domain.entities.PaymentOutboxEntry;
+
+public class PaymentOutboxMapper {
+
+    public static PaymentOutboxModel toModel(PaymentOutboxEntry domain) {
+        PaymentOutboxModel model = new PaymentOutboxModel();
+        model.setId(domain.getId());
+        model.setPaymentId(domain.getPaymentId());
+        model.setAttempts(domain.getAttempts());
+        model.setNextAttemptAt(domain.getNextAttemptAt());
+        model.setLockedUntil(domain.getLockedUntil());
+        model.setLeaseToken(domain.getLeaseToken());
+        model.setLastError(domain.getLastError());
+        model.setCreatedAt(domain.getCreatedAt());
+
+        return model;
+    }
+
+    public static PaymentOutboxEntry toDomain(PaymentOutboxModel model) {
+        return new PaymentOutboxEntry(
+                model.getId(),
+                model.getPaymentId(),
+                model.getAttempts(),
+                model.getNextAttemptAt(),
+                model.getLockedUntil(),
+                model.getLeaseToken(),
+                model.getLastError(),
+                model.getCreatedAt()
+        );
+    }
+}
@@ -0,0 +1,70 @@
+package com.servicio.reservas.pago.infraestructure.persistence;
+
+import com.servicio.reservas.pago.domain.entities.PaymentOutboxEntry;
+import com.servicio.reservas.pago.domain.repository.IPaymentOutboxRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@Repository
+public class PaymentOutboxRepositoryPersistence implements IPaymentOutboxRepository {
+
+    private final SpringPaymentOutboxRepository springRepository;
+
+    public PaymentOutboxRepositoryPersistence(SpringPaymentOutboxRepository springRepository) {
+        this.springRepository = springRepository;
+    }
+
+    @Override
+    public PaymentOutboxEntry save(PaymentOutboxEntry entry) {
+        PaymentOutboxModel savedModel = springRepository.save(PaymentOutboxMapper.toModel(entry));
+        return PaymentOutboxMapper.toDomain(savedModel);
+    }
+
+    @Override
+    public List<PaymentOutboxEntry> saveAll(List<PaymentOutboxEntry> entries) {
+        List<PaymentOutboxModel> models = entries.stream()
+                .map(PaymentOutboxMapper::toModel)
+                .collect(Collectors.toList());
+        return springRepository.saveAll(models).stream()
+                .map(PaymentOutboxMapper::toDomain)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<PaymentOutboxEntry> findByPaymentId(Long paymentId) {
+        return springRepository.findByPaymentId(paymentId).map(PaymentOutboxMapper::toDomain);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<PaymentOutboxEntry> lockDue(LocalDateTime now, int limit) {
+        return springRepository.findDueForUpdate(now, Limit.of(limit)).stream()
+                .map(PaymentOutboxMapper::toDomain)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteLeased(Long paymentId, String leaseToken) {
+        return springRepository.deleteLeased(paymentId, leaseToken) > 0;
+    }
+
+    @Override
+    @Transactional
+    public boolean rescheduleLeased(Long paymentId, String leaseToken, int attempts, LocalDateTime nextAttemptAt, String lastError) {
+        return springRepository.rescheduleLeased(paymentId, leaseToken, attempts, nextAttemptAt, lastError) > 0;
+    }
+
+    @Override
+    @Transactional
+    public boolean releaseLease(Long paymentId, String leaseToken) {
+        return springRepository.releaseLease(paymentId, leaseToken) > 0;
+    }
+}
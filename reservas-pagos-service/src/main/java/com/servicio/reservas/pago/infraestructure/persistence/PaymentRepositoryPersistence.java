@@ -2,20 +2,43 @@ package com.servicio.reservas.pago.infraestructure.persistence;
 
 
 import com.servicio.reservas.pago.domain.entities.Payment;
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
 import com.servicio.reservas.pago.domain.repository.IPaymentRepository;
+import com.servicio.reservas.pago.domain.repository.PaymentCursor;
+import com.servicio.reservas.pago.domain.repository.PaymentLedgerRow;
+import com.servicio.reservas.pago.domain.repository.PaymentSearchCriteria;
+import com.servicio.reservas.pago.domain.repository.PaymentStatusChange;
+import com.servicio.reservas.pago.domain.repository.PaymentStatusChangeRequest;
+import com.servicio.reservas.pago.domain.repository.PaymentStatusSnapshot;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
 public class PaymentRepositoryPersistence implements IPaymentRepository {
 
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+    private static final String UPDATE_STATUS_IF_CURRENT_SQL = "update payments set status = ?, updated_at = ?, updated_by = ?, "
+            + "version = version + 1 where id = ? and status = ?";
+
     private final SpringPaymentRepository springRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect databaseDialect;
 
-    public PaymentRepositoryPersistence(SpringPaymentRepository springRepository) {
+    public PaymentRepositoryPersistence(SpringPaymentRepository springRepository, JdbcTemplate jdbcTemplate,
+                                        DatabaseDialect databaseDialect) {
         this.springRepository = springRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.databaseDialect = databaseDialect;
     }
 
     @Override
@@ -25,16 +48,130 @@ public class PaymentRepositoryPersistence implements IPaymentRepository {
         return PaymentMapper.toDomain(savedModel);
     }
 
+    @Override
+    public List<Payment> saveAll(List<Payment> payments) {
+        List<PaymentModel> models = payments.stream()
+                .map(PaymentMapper::toModel)
+                .collect(Collectors.toList());
+
+        return springRepository.saveAll(models).stream()
+                .map(PaymentMapper::toDomain)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public Optional<Payment> findById(Long id) {
         return springRepository.findById(id).map(PaymentMapper::toDomain);
     }
 
     @Override
-    public List<Payment> findAll() {
-        List<PaymentModel> paymentEntities = springRepository.findAll();
+    public List<Payment> findAllById(List<Long> ids) {
+        return springRepository.findAllById(ids).stream()
+                .map(PaymentMapper::toDomain)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<Payment> findPendingByReservationId(Long reservationId) {
+        return springRepository.findFirstByReservationIdAndStatusOrderByCreatedAtDesc(reservationId, PaymentStatus.PENDING)
+                .map(PaymentMapper::toDomain);
+    }
+
+    @Override
+    public List<Payment> findPendingByReservationIds(List<Long> reservationIds) {
+        return springRepository.findByReservationIdInAndStatus(reservationIds, PaymentStatus.PENDING).stream()
+                .map(PaymentMapper::toDomain)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<Payment> findByIdempotencyKey(String idempotencyKey) {
+        return springRepository.findByIdempotencyKey(idempotencyKey).map(PaymentMapper::toDomain);
+    }
+
+    @Override
+    public Optional<PaymentStatusChange> changeStatus(Long id, PaymentStatus newStatus, LocalDateTime updatedAt, String updatedBy) {
+        List<PaymentStatus> expectedStatuses = Arrays.stream(PaymentStatus.values())
+                .filter(status -> status.canTransitionTo(newStatus))
+                .toList();
+        // Nothing may move to this status: only the current one is needed, to tell a repeat from a refusal
+        if (expectedStatuses.isEmpty()) {
+            return springRepository.findStatusSnapshotById(id).map(current -> new PaymentStatusChange(false, current));
+        }
+
+        if (databaseDialect.isPostgres()) {
+            Optional<PaymentStatusChange> applied = springRepository.changeStatusReturningPrevious(id,
+                            expectedStatuses.stream().map(PaymentStatus::name).toList(),
+                            newStatus.name(), updatedAt, updatedBy)
+                    .map(row -> new PaymentStatusChange(true, new PaymentStatusSnapshot(
+                            PaymentStatus.valueOf(row.getStatus()), row.getAmount(), row.getCreatedAt())));
+            // Not applied: the current row tells a repeat and a refusal from a missing payment
+            return applied.isPresent() ? applied
+                    : springRepository.findStatusSnapshotById(id).map(current -> new PaymentStatusChange(false, current));
+        }
+
+        // Other databases (H2 in tests): one conditional UPDATE per status the payment may come from, so the one
+        // that matches tells which status it left; then a read for the amount and creation time
+        for (PaymentStatus expectedStatus : expectedStatuses) {
+            if (springRepository.updateStatusIfCurrent(id, expectedStatus, newStatus, updatedAt, updatedBy) == 1) {
+                return springRepository.findStatusSnapshotById(id).map(current -> new PaymentStatusChange(true,
+                        new PaymentStatusSnapshot(expectedStatus, current.getAmount(), current.getCreatedAt())));
+            }
+        }
+        return springRepository.findStatusSnapshotById(id).map(current -> new PaymentStatusChange(false, current));
+    }
+
+    @Override
+    public List<PaymentStatus> changeStatuses(List<PaymentStatusChangeRequest> changes, LocalDateTime updatedAt) {
+        // One statement per status each change may come from. They run in order, so a change sees the ones before
+        // it, and at most one statement of a change matches: the one naming the status it leaves
+        List<Object[]> statements = new ArrayList<>();
+        List<PaymentStatus> expectedStatuses = new ArrayList<>();
+        List<Integer> changeIndexes = new ArrayList<>();
+        for (int i = 0; i < changes.size(); i++) {
+            PaymentStatusChangeRequest change = changes.get(i);
+            for (PaymentStatus expectedStatus : PaymentStatus.values()) {
+                if (expectedStatus.canTransitionTo(change.getStatus())) {
+                    statements.add(new Object[]{change.getStatus().name(), updatedAt, change.getUpdatedBy(),
+                            change.getPaymentId(), expectedStatus.name()});
+                    expectedStatuses.add(expectedStatus);
+                    changeIndexes.add(i);
+                }
+            }
+        }
+
+        List<PaymentStatus> previousStatuses = new ArrayList<>(Collections.nCopies(changes.size(), null));
+        if (statements.isEmpty()) {
+            return previousStatuses;
+        }
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_STATUS_IF_CURRENT_SQL, statements);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 1) {
+                previousStatuses.set(changeIndexes.get(i), expectedStatuses.get(i));
+            }
+        }
+        return previousStatuses;
+    }
+
+    @Override
+    public void deleteAllById(List<Long> ids) {
+        springRepository.deleteAllByIdInBatch(ids);
+    }
+
+    @Override
+    public List<Payment> findPage(PaymentSearchCriteria criteria, PaymentCursor after, int limit) {
+        // LIMIT is pushed down to the query, so only one page is ever loaded
+        List<PaymentModel> paymentEntities = springRepository.findBy(
+                PaymentSpecifications.matching(criteria, after),
+                query -> query.sortBy(NEWEST_FIRST).limit(limit).all());
+
         return paymentEntities.stream()
                 .map(PaymentMapper::toDomain)
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    @Override
+    public Stream<PaymentLedgerRow> streamLedger(LocalDateTime createdFrom, LocalDateTime createdTo) {
+        return springRepository.streamLedger(createdFrom, createdTo);
+    }
+}
@@ -0,0 +1,43 @@
+package com.servicio.reservas.pago.infraestructure.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Moves {@code payments_seq} past the ids that were generated while the table still used an IDENTITY column.
+ * It only acts when the sequence is behind {@code MAX(id)}, so it is a no-op after the first run.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@Slf4j
+public class PaymentSequenceInitializer implements InitializingBean {
+
+    private static final String ALIGN_SEQUENCE_SQL =
+            "SELECT setval('payments_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM payments)) "
+                    + "WHERE (SELECT last_value FROM payments_seq) <= (SELECT COALESCE(MAX(id), 0) FROM payments)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect databaseDialect;
+
+    public PaymentSequenceInitializer(JdbcTemplate jdbcTemplate, DatabaseDialect databaseDialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.databaseDialect = databaseDialect;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!databaseDialect.isPostgres()) {
+            return;
+        }
+
+        List<Long> alignedTo = jdbcTemplate.queryForList(ALIGN_SEQUENCE_SQL, Long.class);
+        if (!alignedTo.isEmpty()) {
+            log.info("payments_seq aligned with existing payment ids, next block starts after {}", alignedTo.get(0));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.servicio.reservas.pago.infraestructure.persistence;
+
+import com.servicio.reservas.pago.domain.repository.PaymentCursor;
+import com.servicio.reservas.pago.domain.repository.PaymentSearchCriteria;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PaymentSpecifications {
+
+    // Builds the filter + keyset predicate for a (createdAt DESC, id DESC) listing
+    public static Specification<PaymentModel> matching(PaymentSearchCriteria criteria, PaymentCursor after) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (criteria != null) {
+                if (criteria.getStatus() != null) {
+                    predicates.add(cb.equal(root.get("status"), criteria.getStatus()));
+                }
+                if (criteria.getReservationId() != null) {
+                    predicates.add(cb.equal(root.get("reservationId"), criteria.getReservationId()));
+                }
+                if (criteria.getCreatedFrom() != null) {
+                    predicates.add(cb.greaterThanOrEqualTo(root.<LocalDateTime>get("createdAt"), criteria.getCreatedFrom()));
+                }
+                if (criteria.getCreatedTo() != null) {
+                    predicates.add(cb.lessThan(root.<LocalDateTime>get("createdAt"), criteria.getCreatedTo()));
+                }
+            }
+
+            // Keyset: (created_at, id) < (cursor.createdAt, cursor.id)
+            if (after != null) {
+                predicates.add(cb.or(
+                        cb.lessThan(root.<LocalDateTime>get("createdAt"), after.getCreatedAt()),
+                        cb.and(
+                                cb.equal(root.get("createdAt"), after.getCreatedAt()),
+                                cb.lessThan(root.<Long>get("id"), after.getId())
+                        )
+                ));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package com.servicio.reservas.pago.infraestructure.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Fills {@code payment_stats} from the existing payments the first time the service starts with the table.
+ * From then on every payment insert, status change and delete updates it in its own transaction, so this is
+ * a no-op once the table has rows.
+ * <p>
+ * The table lock makes concurrent starts wait for the first one, and makes payments committed meanwhile wait
+ * for the backfill; payments written by nodes still running the previous version are not counted.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@Slf4j
+public class PaymentStatsInitializer implements InitializingBean {
+
+    private static final String LOCK_SQL = "LOCK TABLE payment_stats IN EXCLUSIVE MODE";
+    private static final String HAS_ROWS_SQL = "SELECT EXISTS (SELECT 1 FROM payment_stats)";
+    private static final String BACKFILL_SQL =
+            "INSERT INTO payment_stats (bucket_start, status, stripe, payment_count, total_amount) "
+                    + "SELECT date_trunc('hour', created_at), status, 0, COUNT(*), SUM(CAST(amount AS NUMERIC(19, 2))) "
+                    + "FROM payments GROUP BY 1, 2";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect databaseDialect;
+
+    public PaymentStatsInitializer(JdbcTemplate jdbcTemplate, DatabaseDialect databaseDialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.databaseDialect = databaseDialect;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!databaseDialect.isPostgres()) {
+            return;
+        }
+
+        Integer buckets = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(LOCK_SQL);
+                boolean hasRows;
+                try (ResultSet resultSet = statement.executeQuery(HAS_ROWS_SQL)) {
+                    hasRows = resultSet.next() && resultSet.getBoolean(1);
+                }
+                int inserted = hasRows ? 0 : statement.executeUpdate(BACKFILL_SQL);
+                connection.commit();
+                return inserted;
+            } catch (Exception e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+
+        if (buckets != null && buckets > 0) {
+            log.info("payment_stats backfilled from existing payments: {} hourly buckets", buckets);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.servicio.reservas.pago.infraestructure.persistence;
+
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One stripe of an hourly bucket. Each (hour, status) total is split over a few rows that concurrent
+ * transactions update at random, so they rarely wait on each other's row lock; reads add the stripes up.
+ * The primary key starts with the bucket, so a time range reads a contiguous slice of it.
+ */
+@Entity
+@Table(name = "payment_stats")
+@IdClass(PaymentStatsModel.Key.class)
+@Data
+@NoArgsConstructor
+public class PaymentStatsModel {
+
+    @Id
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private PaymentStatus status;
+
+    @Id
+    @Column(nullable = false)
+    private int stripe;
+
+    @Column(name = "payment_count", nullable = false)
+    private long paymentCount;
+
+    @Column(name = "total_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDateTime bucketStart;
+        private PaymentStatus status;
+        private int stripe;
+    }
+}
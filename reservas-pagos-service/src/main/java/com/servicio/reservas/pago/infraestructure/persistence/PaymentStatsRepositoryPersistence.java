@@ -0,0 +1,59 @@
+package com.servicio.reservas.pago.infraestructure.persistence;
+
+import com.servicio.reservas.pago.domain.repository.IPaymentStatsRepository;
+import com.servicio.reservas.pago.domain.repository.PaymentStatsRow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Repository
+public class PaymentStatsRepositoryPersistence implements IPaymentStatsRepository {
+
+    private final SpringPaymentStatsRepository springRepository;
+    private final DatabaseDialect databaseDialect;
+    private final int stripes;
+
+    public PaymentStatsRepositoryPersistence(SpringPaymentStatsRepository springRepository,
+                                             DatabaseDialect databaseDialect,
+                                             @Value("${app.payment.stats.stripes:8}") int stripes) {
+        this.springRepository = springRepository;
+        this.databaseDialect = databaseDialect;
+        this.stripes = Math.max(1, stripes);
+    }
+
+    @Override
+    public void add(List<PaymentStatsRow> increments) {
+        // One stripe for the whole call: transactions that pick the same stripe lock the rows in the same order
+        int stripe = ThreadLocalRandom.current().nextInt(stripes);
+        boolean upsert = databaseDialect.isPostgres();
+
+        for (PaymentStatsRow increment : increments) {
+            if (upsert) {
+                springRepository.upsert(increment.getBucketStart(), increment.getStatus().name(), stripe,
+                        increment.getCount(), increment.getAmount());
+                continue;
+            }
+            // Other databases (H2 in tests): update, insert when the stripe does not exist yet.
+            // Not safe against two transactions creating the same stripe at once
+            int updated = springRepository.addToExisting(increment.getBucketStart(), increment.getStatus(), stripe,
+                    increment.getCount(), increment.getAmount());
+            if (updated == 0) {
+                PaymentStatsModel model = new PaymentStatsModel();
+                model.setBucketStart(increment.getBucketStart());
+                model.setStatus(increment.getStatus());
+                model.setStripe(stripe);
+                model.setPaymentCount(increment.getCount());
+                model.setTotalAmount(increment.getAmount());
+                springRepository.saveAndFlush(model);
+            }
+        }
+    }
+
+    @Override
+    public List<PaymentStatsRow> findHourly(LocalDateTime from, LocalDateTime to) {
+        return springRepository.sumByBucketAndStatus(from, to);
+    }
+}
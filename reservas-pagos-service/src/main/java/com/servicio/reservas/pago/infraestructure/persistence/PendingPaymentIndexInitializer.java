@@ -0,0 +1,45 @@
+package com.servicio.reservas.pago.infraestructure.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the partial unique index that allows a single PENDING payment per reservation.
+ * JPA cannot express a partial index, so {@code ddl-auto=update} never creates it. Together with the
+ * unique {@code idempotency_key} column it keeps creation idempotent across nodes.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@Slf4j
+public class PendingPaymentIndexInitializer implements InitializingBean {
+
+    private static final String CREATE_INDEX_SQL =
+            "CREATE UNIQUE INDEX IF NOT EXISTS uq_payments_pending_reservation "
+                    + "ON payments (reservation_id) WHERE status = 'PENDING'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect databaseDialect;
+
+    public PendingPaymentIndexInitializer(JdbcTemplate jdbcTemplate, DatabaseDialect databaseDialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.databaseDialect = databaseDialect;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!databaseDialect.isPostgres()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.execute(CREATE_INDEX_SQL);
+        } catch (DataAccessException e) {
+            // Existing duplicates: creation still works, deduplication is then only enforced per node
+            log.error("Could not create uq_payments_pending_reservation; resolve duplicate PENDING payments and restart", e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.servicio.reservas.pago.infraestructure.persistence;
+
+import java.util.function.Supplier;
+
+/**
+ * Thread-bound hint for {@link ReplicaRoutingDataSource}: connections obtained while it is set come from the
+ * primary, also in read-only transactions.
+ * <p>
+ * A transaction only obtains its connection at its first statement, so the hint must be set before that
+ * statement runs; it has no effect on a transaction that already holds a connection.
+ */
+public final class ReplicaRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private ReplicaRouting() {
+    }
+
+    public static <T> T onPrimary(Supplier<T> work) {
+        if (PRIMARY_REQUIRED.get() != null) {
+            return work.get();
+        }
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            PRIMARY_REQUIRED.remove();
+        }
+    }
+
+    public static boolean isPrimaryRequired() {
+        return PRIMARY_REQUIRED.get() != null;
+    }
+}
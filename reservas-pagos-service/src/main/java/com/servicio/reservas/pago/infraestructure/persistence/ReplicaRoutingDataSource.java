@@ -0,0 +1,177 @@
+package com.servicio.reservas.pago.infraestructure.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands out connections for read-only transactions: round-robin over the replicas that passed their last
+ * health check, or from the primary when none did, when the chosen replica cannot give a connection, or when
+ * {@link ReplicaRouting} asks for the primary.
+ * <p>
+ * A replica is taken out on the first failed connection and put back by the next successful check.
+ * On PostgreSQL a replica that replays WAL more than {@code maxLag} behind the primary is also taken out,
+ * so readers do not fall further behind than that.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    // Seconds since the last replayed transaction, or 0 when everything received was replayed (or not a standby)
+    private static final String POSTGRES_LAG_SQL =
+            "SELECT CASE WHEN pg_is_in_recovery() AND pg_last_wal_receive_lsn() IS DISTINCT FROM pg_last_wal_replay_lsn() "
+                    + "THEN COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) ELSE 0 END";
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Duration maxLag;
+    private final int validationTimeoutSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder primaryFallbacks = new LongAdder();
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration maxLag, Duration validationTimeout) {
+        this.primary = primary;
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+        this.maxLag = maxLag;
+        this.validationTimeoutSeconds = (int) Math.max(1, validationTimeout.toSeconds());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (ReplicaRouting.isPrimaryRequired()) {
+            return primary.getConnection();
+        }
+
+        int size = replicas.size();
+        int start = size == 0 ? 0 : Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                replica.connections.increment();
+                return connection;
+            } catch (SQLException e) {
+                replica.markDown("connection failed: " + e.getMessage());
+            }
+        }
+
+        primaryFallbacks.increment();
+        return primary.getConnection();
+    }
+
+    // Every pool has its own credentials
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica connections use the credentials of their pool");
+    }
+
+    // Validates every replica and, on PostgreSQL, checks its replay lag
+    @Scheduled(fixedDelayString = "${app.datasource.replicas.health-check-interval:5s}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (!connection.isValid(validationTimeoutSeconds)) {
+                    replica.markDown("connection is not valid");
+                    continue;
+                }
+                double lagSeconds = replayLagSeconds(connection);
+                if (lagSeconds * 1000 > maxLag.toMillis()) {
+                    replica.markDown(String.format("replay lag of %.1fs", lagSeconds));
+                    continue;
+                }
+                replica.markUp();
+            } catch (SQLException e) {
+                replica.markDown("health check failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private double replayLagSeconds(Connection connection) throws SQLException {
+        if (!DatabaseDialect.isPostgres(connection)) {
+            return 0;
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(POSTGRES_LAG_SQL)) {
+            return resultSet.next() ? resultSet.getDouble(1) : 0;
+        }
+    }
+
+    public int healthyReplicas() {
+        return (int) replicas.stream().filter(replica -> replica.healthy).count();
+    }
+
+    public boolean isHealthy(String replicaName) {
+        return replicas.stream().anyMatch(replica -> replica.name.equals(replicaName) && replica.healthy);
+    }
+
+    public long replicaConnections(String replicaName) {
+        return replicas.stream()
+                .filter(replica -> replica.name.equals(replicaName))
+                .mapToLong(replica -> replica.connections.sum())
+                .sum();
+    }
+
+    public List<String> replicaNames() {
+        return replicas.stream().map(replica -> replica.name).toList();
+    }
+
+    // Read-only connections served by the primary because no replica could take them
+    public long primaryFallbacks() {
+        return primaryFallbacks.sum();
+    }
+
+    // Closes the replica pools; the primary belongs to the application context
+    @Override
+    public void close() throws IOException {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private final LongAdder connections = new LongAdder();
+        // Assumed healthy until a connection or a check fails
+        private volatile boolean healthy = true;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        private void markDown(String reason) {
+            if (healthy) {
+                log.warn("Read replica {} taken out of rotation: {}", name, reason);
+            }
+            healthy = false;
+        }
+
+        private void markUp() {
+            if (!healthy) {
+                log.info("Read replica {} back in rotation", name);
+            }
+            healthy = true;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.servicio.reservas.pago.infraestructure.persistence;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface SpringPaymentOutboxRepository extends JpaRepository<PaymentOutboxModel, Long> {
+
+    Optional<PaymentOutboxModel> findByPaymentId(Long paymentId);
+
+    // Lock timeout -2 is Hibernate's SKIP_LOCKED: renders FOR UPDATE SKIP LOCKED on PostgreSQL,
+    // so several nodes polling at once each get a disjoint set of entries
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_LOCK_TIMEOUT, value = "-2"))
+    @Query("select o from PaymentOutboxModel o "
+            + "where o.nextAttemptAt <= :now and (o.lockedUntil is null or o.lockedUntil < :now) "
+            + "order by o.nextAttemptAt, o.id")
+    List<PaymentOutboxModel> findDueForUpdate(@Param("now") LocalDateTime now, Limit limit);
+
+    @Modifying
+    @Query("delete from PaymentOutboxModel o where o.paymentId = :paymentId and o.leaseToken = :leaseToken")
+    int deleteLeased(@Param("paymentId") Long paymentId, @Param("leaseToken") String leaseToken);
+
+    @Modifying
+    @Query("update PaymentOutboxModel o set o.attempts = :attempts, o.nextAttemptAt = :nextAttemptAt, "
+            + "o.lastError = :lastError, o.lockedUntil = null, o.leaseToken = null "
+            + "where o.paymentId = :paymentId and o.leaseToken = :leaseToken")
+    int rescheduleLeased(@Param("paymentId") Long paymentId,
+                         @Param("leaseToken") String leaseToken,
+                         @Param("attempts") int attempts,
+                         @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                         @Param("lastError") String lastError);
+
+    @Modifying
+    @Query("update PaymentOutboxModel o set o.lockedUntil = null, o.leaseToken = null "
+            + "where o.paymentId = :paymentId and o.leaseToken = :leaseToken")
+    int releaseLease(@Param("paymentId") Long paymentId, @Param("leaseToken") String leaseToken);
+}
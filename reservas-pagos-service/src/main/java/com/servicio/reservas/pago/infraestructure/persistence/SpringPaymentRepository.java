@@ -1,10 +1,82 @@
 package com.servicio.reservas.pago.infraestructure.persistence;
 
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import com.servicio.reservas.pago.domain.repository.PaymentLedgerRow;
+import com.servicio.reservas.pago.domain.repository.PaymentStatusSnapshot;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface SpringPaymentRepository extends JpaRepository<PaymentModel, Long> {
+public interface SpringPaymentRepository extends JpaRepository<PaymentModel, Long>, JpaSpecificationExecutor<PaymentModel> {
 
     Optional<PaymentModel> findByExternalPaymentId(String externalPaymentId);
     Optional<PaymentModel> findByReservationId(Long reservationId);
-}
\ No newline at end of file
+    Optional<PaymentModel> findFirstByReservationIdAndStatusOrderByCreatedAtDesc(Long reservationId, PaymentStatus status);
+    List<PaymentModel> findByReservationIdInAndStatus(Collection<Long> reservationIds, PaymentStatus status);
+    Optional<PaymentModel> findByIdempotencyKey(String idempotencyKey);
+
+    @Query("select new com.servicio.reservas.pago.domain.repository.PaymentStatusSnapshot(p.status, p.amount, p.createdAt) "
+            + "from PaymentModel p where p.id = :id")
+    Optional<PaymentStatusSnapshot> findStatusSnapshotById(@Param("id") Long id);
+
+    // Compare-and-set on the status in one statement; bumps the version so stale full-row saves fail
+    @Transactional
+    @Modifying
+    @Query("update PaymentModel p set p.status = :status, p.updatedAt = :updatedAt, p.updatedBy = :updatedBy, "
+            + "p.version = p.version + 1 "
+            + "where p.id = :id and p.status = :expectedStatus")
+    int updateStatusIfCurrent(@Param("id") Long id,
+                              @Param("expectedStatus") PaymentStatus expectedStatus,
+                              @Param("status") PaymentStatus status,
+                              @Param("updatedAt") LocalDateTime updatedAt,
+                              @Param("updatedBy") String updatedBy);
+
+    // PostgreSQL: the same compare-and-set against any of the expected statuses, returning the status the row had
+    // before it. The row is locked in the FROM subquery, which the UPDATE has to read before it can change anything.
+    // No row: the change was refused, or the payment does not exist
+    @Transactional
+    @Query(value = "update payments p set status = :status, updated_at = :updatedAt, updated_by = :updatedBy, "
+            + "version = p.version + 1 "
+            + "from (select status, amount, created_at from payments where id = :id for update) old "
+            + "where p.id = :id and old.status in (:expectedStatuses) "
+            + "returning old.status as status, old.amount as amount, old.created_at as \"createdAt\"",
+            nativeQuery = true)
+    Optional<PreviousStatusRow> changeStatusReturningPrevious(@Param("id") Long id,
+                                                              @Param("expectedStatuses") Collection<String> expectedStatuses,
+                                                              @Param("status") String status,
+                                                              @Param("updatedAt") LocalDateTime updatedAt,
+                                                              @Param("updatedBy") String updatedBy);
+
+    // Constructor projection: rows are not managed, so the persistence context stays empty while streaming
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("select new com.servicio.reservas.pago.domain.repository.PaymentLedgerRow("
+            + "p.id, p.reservationId, p.externalPaymentId, p.amount, p.status, "
+            + "p.createdAt, p.updatedAt, p.createdBy, p.updatedBy) "
+            + "from PaymentModel p "
+            + "where (:createdFrom is null or p.createdAt >= :createdFrom) "
+            + "and (:createdTo is null or p.createdAt < :createdTo) "
+            + "order by p.createdAt, p.id")
+    Stream<PaymentLedgerRow> streamLedger(@Param("createdFrom") LocalDateTime createdFrom,
+                                          @Param("createdTo") LocalDateTime createdTo);
+
+    interface PreviousStatusRow {
+        String getStatus();
+        Double getAmount();
+        LocalDateTime getCreatedAt();
+    }
+}
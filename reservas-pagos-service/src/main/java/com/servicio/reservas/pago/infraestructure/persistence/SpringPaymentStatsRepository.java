@@ -0,0 +1,45 @@
+package com.servicio.reservas.pago.infraestructure.persistence;
+
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import com.servicio.reservas.pago.domain.repository.PaymentStatsRow;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface SpringPaymentStatsRepository extends JpaRepository<PaymentStatsModel, PaymentStatsModel.Key> {
+
+    // PostgreSQL: creates the stripe or adds to it in one statement, also when another transaction creates it first
+    @Modifying
+    @Query(value = "insert into payment_stats (bucket_start, status, stripe, payment_count, total_amount) "
+            + "values (:bucketStart, :status, :stripe, :count, :amount) "
+            + "on conflict (bucket_start, status, stripe) do update set "
+            + "payment_count = payment_stats.payment_count + excluded.payment_count, "
+            + "total_amount = payment_stats.total_amount + excluded.total_amount",
+            nativeQuery = true)
+    int upsert(@Param("bucketStart") LocalDateTime bucketStart,
+               @Param("status") String status,
+               @Param("stripe") int stripe,
+               @Param("count") long count,
+               @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query("update PaymentStatsModel s set s.paymentCount = s.paymentCount + :count, s.totalAmount = s.totalAmount + :amount "
+            + "where s.bucketStart = :bucketStart and s.status = :status and s.stripe = :stripe")
+    int addToExisting(@Param("bucketStart") LocalDateTime bucketStart,
+                      @Param("status") PaymentStatus status,
+                      @Param("stripe") int stripe,
+                      @Param("count") long count,
+                      @Param("amount") BigDecimal amount);
+
+    @Query("select new com.servicio.reservas.pago.domain.repository.PaymentStatsRow("
+            + "s.bucketStart, s.status, sum(s.paymentCount), sum(s.totalAmount)) "
+            + "from PaymentStatsModel s where s.bucketStart >= :from and s.bucketStart < :to "
+            + "group by s.bucketStart, s.status "
+            + "order by s.bucketStart, s.status")
+    List<PaymentStatsRow> sumByBucketAndStatus(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
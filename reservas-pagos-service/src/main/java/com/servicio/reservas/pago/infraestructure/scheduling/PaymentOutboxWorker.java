@@ -0,0 +1,38 @@
+package com.servicio.reservas.pago.infraestructure.scheduling;
+
+import com.servicio.reservas.pago.application.services.PaymentPreferenceDispatcher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Retries payment preferences that were not created right after the payment was saved
+ * (gateway error, timeout, or the node stopped in between).
+ */
+@Component
+@Slf4j
+public class PaymentOutboxWorker {
+
+    private final PaymentPreferenceDispatcher dispatcher;
+    private final int batchSize;
+
+    public PaymentOutboxWorker(PaymentPreferenceDispatcher dispatcher,
+                               @Value("${app.payment.outbox.batch-size:20}") int batchSize) {
+        this.dispatcher = dispatcher;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.payment.outbox.poll-interval:5s}",
+            initialDelayString = "${app.payment.outbox.poll-interval:5s}")
+    public void dispatchDue() {
+        try {
+            // Keep draining while batches come back full
+            while (dispatcher.dispatchDue(batchSize) == batchSize) {
+                log.debug("Payment outbox batch of {} processed, polling again", batchSize);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Payment outbox poll failed: {}", e.getMessage());
+        }
+    }
+}
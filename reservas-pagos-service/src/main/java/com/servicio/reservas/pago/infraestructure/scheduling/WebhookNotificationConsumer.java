@@ -0,0 +1,170 @@
+package com.servicio.reservas.pago.infraestructure.scheduling;
+
+import com.servicio.reservas.pago.application.dto.PaymentStatusUpdate;
+import com.servicio.reservas.pago.application.services.IPaymentService;
+import com.servicio.reservas.pago.infraestructure.exception.InvalidPaymentStatusException;
+import com.servicio.reservas.pago.infraestructure.exception.InvalidStatusTransitionException;
+import com.servicio.reservas.pago.infraestructure.exception.PaymentNotFoundException;
+import com.servicio.reservas.pago.infraestructure.storage.WebhookJournal;
+import com.servicio.reservas.pago.infraestructure.storage.WebhookNotification;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Applies the webhook notifications queued in the {@link WebhookJournal}, oldest first.
+ * <p>
+ * A batch is applied in one transaction; an out-of-order notification that would move a payment backwards is
+ * skipped there. If the batch fails, its notifications are applied one by one so a single bad notification does
+ * not hold back the rest: an unknown status goes straight to the dead-letter log, and an unknown payment moves
+ * to the journal's retry log, where it is tried again every unknown-payment-retry-delay until max-attempts and
+ * then dead-lettered; the queue behind it keeps draining meanwhile. Any other failure (database down, timeouts)
+ * is never dead-lettered: the consumer backs off and retries, while the journal keeps accepting notifications.
+ * Progress is committed after each handled notification, so a restart resumes where it stopped.
+ */
+@Component
+@Slf4j
+public class WebhookNotificationConsumer {
+
+    static final String UPDATED_BY = "MERCADOPAGO_WEBHOOK";
+
+    private final WebhookJournal journal;
+    private final IPaymentService paymentService;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryBackoffNanos;
+    private final long maxRetryBackoffNanos;
+    private final Duration unknownPaymentRetryDelay;
+
+    // Only touched by the scheduler thread
+    private int consecutiveFailures;
+    private long retryAt;
+
+    public WebhookNotificationConsumer(WebhookJournal journal,
+                                       IPaymentService paymentService,
+                                       @Value("${app.webhook.consumer.batch-size:100}") int batchSize,
+                                       @Value("${app.webhook.consumer.max-attempts:5}") int maxAttempts,
+                                       @Value("${app.webhook.consumer.retry-backoff:1s}") Duration retryBackoff,
+                                       @Value("${app.webhook.consumer.max-retry-backoff:1m}") Duration maxRetryBackoff,
+                                       @Value("${app.webhook.consumer.unknown-payment-retry-delay:5s}") Duration unknownPaymentRetryDelay) {
+        this.journal = journal;
+        this.paymentService = paymentService;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffNanos = retryBackoff.toNanos();
+        this.maxRetryBackoffNanos = maxRetryBackoff.toNanos();
+        this.unknownPaymentRetryDelay = unknownPaymentRetryDelay;
+    }
+
+    @Scheduled(fixedDelayString = "${app.webhook.consumer.poll-interval:200ms}")
+    public void drain() {
+        if (consecutiveFailures > 0 && System.nanoTime() - retryAt < 0) {
+            return;
+        }
+        try {
+            // Keep draining while batches come back full
+            while (journal.hasUncommitted() && applyNextBatch() == batchSize) {
+                log.debug("Webhook batch of {} applied, reading again", batchSize);
+            }
+            applyDueRetries();
+        } catch (RuntimeException e) {
+            log.warn("Webhook journal poll failed: {}", e.getMessage());
+            backOff();
+        }
+    }
+
+    // Returns how many notifications were handled (applied or dead-lettered)
+    int applyNextBatch() {
+        List<WebhookJournal.Entry> entries = journal.readUncommitted(batchSize);
+        if (entries.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            paymentService.updatePaymentStatuses(entries.stream().map(entry -> toUpdate(entry.getNotification())).toList());
+            journal.commit(entries.get(entries.size() - 1).getNext());
+            consecutiveFailures = 0;
+            return entries.size();
+        } catch (RuntimeException e) {
+            log.debug("Webhook batch of {} failed ({}), applying one by one", entries.size(), e.getMessage());
+        }
+
+        int handled = 0;
+        for (WebhookJournal.Entry entry : entries) {
+            WebhookNotification notification = entry.getNotification();
+            try {
+                paymentService.updatePaymentStatus(notification.getPaymentId(), notification.getStatus(), UPDATED_BY);
+            } catch (InvalidStatusTransitionException e) {
+                // Out-of-order notification for a payment that has already moved on: nothing to apply
+                log.info("Ignored webhook {}: {}", notification, e.getMessage());
+            } catch (InvalidPaymentStatusException e) {
+                journal.deadLetter(notification, e.getMessage());
+                log.warn("Dead-lettered webhook {}: {}", notification, e.getMessage());
+            } catch (PaymentNotFoundException e) {
+                retryLaterOrDeadLetter(notification, 1, e);
+            } catch (RuntimeException e) {
+                log.warn("Could not apply webhook {}, will retry: {}", notification, e.getMessage());
+                backOff();
+                return handled;
+            }
+            journal.commit(entry.getNext());
+            consecutiveFailures = 0;
+            handled++;
+        }
+        return handled;
+    }
+
+    // Retries are scheduled with the same delay, so they come due in the order they were written
+    void applyDueRetries() {
+        Instant now = Instant.now();
+        for (WebhookJournal.RetryEntry retry : journal.readRetries(batchSize)) {
+            if (retry.getRetryAt().isAfter(now)) {
+                return;
+            }
+            WebhookNotification notification = retry.getNotification();
+            try {
+                paymentService.updatePaymentStatus(notification.getPaymentId(), notification.getStatus(), UPDATED_BY);
+                log.info("Applied webhook {} after {} attempts", notification, retry.getAttempts() + 1);
+            } catch (InvalidStatusTransitionException e) {
+                log.info("Ignored webhook {}: {}", notification, e.getMessage());
+            } catch (InvalidPaymentStatusException e) {
+                journal.deadLetter(notification, e.getMessage());
+                log.warn("Dead-lettered webhook {}: {}", notification, e.getMessage());
+            } catch (PaymentNotFoundException e) {
+                retryLaterOrDeadLetter(notification, retry.getAttempts() + 1, e);
+            } catch (RuntimeException e) {
+                log.warn("Could not retry webhook {}, will try again: {}", notification, e.getMessage());
+                backOff();
+                return;
+            }
+            journal.commitRetry(retry.getNext());
+            consecutiveFailures = 0;
+        }
+    }
+
+    private void retryLaterOrDeadLetter(WebhookNotification notification, int attempts, PaymentNotFoundException e) {
+        if (attempts < maxAttempts) {
+            journal.scheduleRetry(notification, attempts, Instant.now().plus(unknownPaymentRetryDelay));
+            log.info("Webhook {} for an unknown payment, retrying in {} (attempt {} of {})",
+                    notification, unknownPaymentRetryDelay, attempts, maxAttempts);
+            return;
+        }
+        journal.deadLetter(notification, e.getMessage());
+        log.warn("Dead-lettered webhook {} after {} attempts: {}", notification, attempts, e.getMessage());
+    }
+
+    private void backOff() {
+        consecutiveFailures++;
+        long delay = retryBackoffNanos << Math.min(consecutiveFailures - 1, 20);
+        retryAt = System.nanoTime() + Math.min(delay, maxRetryBackoffNanos);
+    }
+
+    private static PaymentStatusUpdate toUpdate(WebhookNotification notification) {
+        return new PaymentStatusUpdate(notification.getPaymentId(), notification.getStatus(), UPDATED_BY);
+    }
+}
@@ -0,0 +1,289 @@
+package com.servicio.reservas.pago.infraestructure.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of records stored in fixed-size, memory-mapped segment files.
+ * <p>
+ * Record layout: {@code [int length][int crc32][payload]}. The length is written last, so a record torn by
+ * a crash reads as length 0 (end of the log) or fails its CRC; recovery cuts the log at that point.
+ * Readers only see records up to the last completed append, and a single consumer stores how far it got
+ * in a checkpoint file. Segments entirely before the checkpoint are deleted.
+ */
+@Slf4j
+class AppendOnlyLog implements AutoCloseable {
+
+    static final int HEADER_BYTES = 8;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path directory;
+    private final int segmentBytes;
+
+    // ReentrantLock rather than synchronized so virtual threads writing to the log do not pin their carrier
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private MappedByteBuffer writeBuffer;
+    private long writeSegment;
+    private int writeOffset;
+    private int unforcedFrom;
+
+    private volatile JournalPosition published;
+    private volatile JournalPosition committed;
+
+    // Only touched by the single reader
+    private long readSegment = -1;
+    private ByteBuffer readBuffer;
+
+    AppendOnlyLog(Path directory, int segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        try {
+            Files.createDirectories(directory);
+            List<Long> segments = listSegments();
+            writeSegment = segments.isEmpty() ? 1 : segments.get(segments.size() - 1);
+            writeBuffer = mapForWrite(writeSegment);
+            writeOffset = recoverEnd(writeBuffer);
+            unforcedFrom = writeOffset;
+            published = new JournalPosition(writeSegment, writeOffset);
+            committed = readCheckpoint().orElse(new JournalPosition(segments.isEmpty() ? 1 : segments.get(0), 0));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open log in " + directory, e);
+        }
+    }
+
+    /**
+     * Appends one record. When {@code force} is set the record is on disk before this returns;
+     * otherwise it is in the page cache and survives a process crash, and {@link #force()} makes it durable.
+     */
+    JournalPosition append(byte[] payload, boolean force) {
+        int recordBytes = HEADER_BYTES + payload.length;
+        if (recordBytes > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit in a segment");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        appendLock.lock();
+        try {
+            if (writeOffset + recordBytes > segmentBytes) {
+                roll();
+            }
+            int start = writeOffset;
+            writeBuffer.put(start + HEADER_BYTES, payload);
+            writeBuffer.putInt(start + 4, (int) crc.getValue());
+            writeBuffer.putInt(start, payload.length);
+            writeOffset += recordBytes;
+            if (force) {
+                forceLocked();
+            }
+            published = new JournalPosition(writeSegment, writeOffset);
+            return published;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Flushes everything appended since the last force to disk
+    void force() {
+        appendLock.lock();
+        try {
+            forceLocked();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Reads up to {@code max} complete records starting at {@code from}. Each record is returned with the
+     * position right after it, which is what the reader passes to {@link #commit} once it has been handled.
+     */
+    List<Record> read(JournalPosition from, int max) {
+        JournalPosition end = published;
+        List<Record> records = new ArrayList<>();
+        long segment = from.getSegment();
+        int offset = from.getOffset();
+
+        while (records.size() < max && new JournalPosition(segment, offset).compareTo(end) < 0) {
+            ByteBuffer buffer = readBuffer(segment);
+            int length = offset + HEADER_BYTES <= buffer.limit() ? buffer.getInt(offset) : 0;
+            if (length <= 0 || offset + HEADER_BYTES + length > buffer.limit()) {
+                // End of a rolled segment
+                segment++;
+                offset = 0;
+                continue;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(offset + HEADER_BYTES, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                // Cannot happen below the published position unless the file was damaged on disk
+                log.error("Corrupt record in segment {} at offset {} of {}, skipping the rest of the segment",
+                        segment, offset, directory);
+                segment++;
+                offset = 0;
+                continue;
+            }
+            offset += HEADER_BYTES + length;
+            records.add(new Record(payload, new JournalPosition(segment, offset)));
+        }
+        return records;
+    }
+
+    JournalPosition committed() {
+        return committed;
+    }
+
+    JournalPosition published() {
+        return published;
+    }
+
+    // Stores the reader's progress atomically and drops the segments it has fully consumed
+    void commit(JournalPosition position) {
+        try {
+            Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+            Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer bytes = ByteBuffer.allocate(12).putLong(position.getSegment()).putInt(position.getOffset()).flip();
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, checkpoint, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            committed = position;
+
+            for (Long segment : listSegments()) {
+                if (segment < position.getSegment()) {
+                    Files.deleteIfExists(segmentPath(segment));
+                }
+            }
+            if (readSegment < position.getSegment()) {
+                readSegment = -1;
+                readBuffer = null;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write checkpoint in " + directory, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        force();
+    }
+
+    private void forceLocked() {
+        if (writeOffset > unforcedFrom) {
+            writeBuffer.force(unforcedFrom, writeOffset - unforcedFrom);
+            unforcedFrom = writeOffset;
+        }
+    }
+
+    private void roll() {
+        forceLocked();
+        try {
+            writeBuffer = mapForWrite(writeSegment + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create segment " + (writeSegment + 1) + " in " + directory, e);
+        }
+        writeSegment++;
+        writeOffset = 0;
+        unforcedFrom = 0;
+    }
+
+    private MappedByteBuffer mapForWrite(long segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Mapping past the end grows the file to the full segment size, zero-filled
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+    }
+
+    private ByteBuffer readBuffer(long segment) {
+        if (segment != readSegment) {
+            try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+                readBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                readSegment = segment;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read segment " + segment + " in " + directory, e);
+            }
+        }
+        return readBuffer;
+    }
+
+    // Walks the valid records of the last segment and wipes whatever a crash left after them
+    private int recoverEnd(MappedByteBuffer buffer) {
+        int offset = 0;
+        while (offset + HEADER_BYTES <= segmentBytes) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + HEADER_BYTES + length > segmentBytes) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(offset + HEADER_BYTES, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                break;
+            }
+            offset += HEADER_BYTES + length;
+        }
+        if (offset + HEADER_BYTES <= segmentBytes && buffer.getInt(offset) != 0) {
+            log.warn("Discarding torn record at offset {} of segment {} in {}", offset, writeSegment, directory);
+            for (int i = offset; i < segmentBytes; i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.force();
+        }
+        return offset;
+    }
+
+    private Optional<JournalPosition> readCheckpoint() throws IOException {
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.isRegularFile(checkpoint)) {
+            return Optional.empty();
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(checkpoint));
+        return Optional.of(new JournalPosition(bytes.getLong(), bytes.getInt()));
+    }
+
+    private List<Long> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%020d%s", segment, SEGMENT_SUFFIX));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static final class Record {
+        private final byte[] payload;
+        private final JournalPosition next; // Position right after this record
+    }
+}
@@ -0,0 +1,24 @@
+package com.servicio.reservas.pago.infraestructure.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Position in an append-only log: a segment number and a byte offset inside that segment.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class JournalPosition implements Comparable<JournalPosition> {
+    private final long segment;
+    private final int offset;
+
+    @Override
+    public int compareTo(JournalPosition other) {
+        int bySegment = Long.compare(segment, other.segment);
+        return bySegment != 0 ? bySegment : Integer.compare(offset, other.offset);
+    }
+}
@@ -0,0 +1,14 @@
+package com.servicio.reservas.pago.infraestructure.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+@Getter
+@AllArgsConstructor
+public class StoredVoucher {
+    private final Path path;
+    private final String etag; // Strong validator: the stored bytes for a key never change
+    private final long size;
+}
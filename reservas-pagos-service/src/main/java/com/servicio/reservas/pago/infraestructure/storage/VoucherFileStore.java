@@ -0,0 +1,96 @@
+package com.servicio.reservas.pago.infraestructure.storage;
+
+import com.servicio.reservas.pago.domain.entities.Payment;
+import com.servicio.reservas.pago.infraestructure.metrics.PaymentMetrics;
+import com.servicio.reservas.pago.infraestructure.metrics.PaymentMetrics.VoucherSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Local file store for rendered vouchers.
+ * <p>
+ * Files are keyed by SHA-256(payment id + updatedAt), so any change to the payment produces a new key
+ * and a stored file is never rewritten. Writes go to a temp file that is atomically renamed into place.
+ */
+@Component
+@Slf4j
+public class VoucherFileStore {
+
+    private final Path rootDirectory;
+    private final PaymentMetrics paymentMetrics;
+
+    public VoucherFileStore(@Value("${app.voucher.store.dir:${java.io.tmpdir}/reservas-pagos/vouchers}") String rootDirectory,
+                            PaymentMetrics paymentMetrics) {
+        this.rootDirectory = Paths.get(rootDirectory);
+        this.paymentMetrics = paymentMetrics;
+    }
+
+    public Optional<StoredVoucher> find(Payment payment) {
+        String key = keyFor(payment);
+        Path path = pathFor(key);
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        return Optional.of(new StoredVoucher(path, key, path.toFile().length()));
+    }
+
+    // The renderer writes straight into the temp file, so no byte[] copy of the PDF is held.
+    // Returns empty when the file cannot be written; callers then stream a fresh render instead
+    public Optional<StoredVoucher> store(Payment payment, Consumer<OutputStream> renderer) {
+        String key = keyFor(payment);
+        Path target = pathFor(key);
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), key, ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(temp)) {
+                    renderer.accept(out);
+                } catch (RuntimeException e) {
+                    paymentMetrics.recordFailedVoucherRender(VoucherSource.STORE, System.nanoTime() - start);
+                    throw e;
+                }
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            long size = Files.size(target);
+            paymentMetrics.recordVoucherRender(VoucherSource.STORE, System.nanoTime() - start, size);
+            return Optional.of(new StoredVoucher(target, key, size));
+        } catch (IOException e) {
+            paymentMetrics.recordFailedVoucherRender(VoucherSource.STORE, System.nanoTime() - start);
+            log.error("Could not store voucher for payment {}: {}", payment.getId(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private Path pathFor(String key) {
+        // Two-character fan-out keeps directories small
+        return rootDirectory.resolve(key.substring(0, 2)).resolve(key + ".pdf");
+    }
+
+    private String keyFor(Payment payment) {
+        String version = payment.getUpdatedAt() != null ? payment.getUpdatedAt().toString() : "initial";
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((payment.getId() + ":" + version).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
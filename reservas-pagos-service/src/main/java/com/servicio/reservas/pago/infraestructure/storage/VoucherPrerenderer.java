@@ -0,0 +1,77 @@
+package com.servicio.reservas.pago.infraestructure.storage;
+
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import com.servicio.reservas.pago.domain.events.PaymentApprovedEvent;
+import com.servicio.reservas.pago.domain.repository.IPaymentRepository;
+import com.servicio.reservas.pago.domain.services.VoucherPdfGeneratorService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders and stores the voucher as soon as a payment is approved, on a small background pool,
+ * so the webhook thread returns immediately and the first download is served from disk.
+ * Dropped tasks are harmless: downloads render on demand when the file is missing.
+ */
+@Component
+@Slf4j
+public class VoucherPrerenderer {
+
+    private final IPaymentRepository paymentRepository;
+    private final VoucherPdfGeneratorService voucherPdfGeneratorService;
+    private final VoucherFileStore voucherFileStore;
+    private final ThreadPoolExecutor executor;
+
+    public VoucherPrerenderer(IPaymentRepository paymentRepository,
+                              VoucherPdfGeneratorService voucherPdfGeneratorService,
+                              VoucherFileStore voucherFileStore,
+                              @Value("${app.voucher.prerender.threads:2}") int threads,
+                              @Value("${app.voucher.prerender.queue-capacity:500}") int queueCapacity) {
+        this.paymentRepository = paymentRepository;
+        this.voucherPdfGeneratorService = voucherPdfGeneratorService;
+        this.voucherFileStore = voucherFileStore;
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("voucher-render-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPaymentApproved(PaymentApprovedEvent event) {
+        try {
+            executor.execute(() -> prerender(event.getPaymentId()));
+        } catch (RejectedExecutionException e) {
+            log.warn("Voucher pre-render queue full, payment {} will be rendered on first download", event.getPaymentId());
+        }
+    }
+
+    private void prerender(Long paymentId) {
+        try {
+            // Reloaded after commit so the store key matches what downloads will compute
+            paymentRepository.findById(paymentId)
+                    .filter(payment -> payment.getStatus() == PaymentStatus.APPROVED)
+                    .filter(payment -> voucherFileStore.find(payment).isEmpty())
+                    .ifPresent(payment -> voucherFileStore.store(payment,
+                            out -> voucherPdfGeneratorService.writePdf(payment, out)));
+        } catch (RuntimeException e) {
+            log.error("Voucher pre-render failed for payment {}: {}", paymentId, e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,54 @@
+package com.servicio.reservas.pago.infraestructure.storage;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders vouchers for the bulk ZIP export. PDF rendering is pure CPU work, so more threads than cores only
+ * adds context switches: {@code parallelism} defaults to one thread per available core. The pool is shared
+ * by all running exports, and each export keeps at most {@code 2 x parallelism} renders in flight.
+ * <p>
+ * When concurrent exports fill the queue, {@link ThreadPoolExecutor.CallerRunsPolicy} makes the export's own
+ * request thread render the next voucher. That export then slows down to the pace of the pool instead of
+ * failing, and the queue cannot grow past {@code queue-capacity}.
+ * Not an {@link java.util.concurrent.Executor} bean, so it does not replace Spring Boot's task executor.
+ */
+@Component
+public class VoucherRenderExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final int parallelism;
+
+    public VoucherRenderExecutor(@Value("${app.voucher.export.parallelism:0}") int parallelism,
+                                 @Value("${app.voucher.export.queue-capacity:256}") int queueCapacity) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(
+                this.parallelism, this.parallelism,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("voucher-export-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public <T> CompletionService<T> newCompletionService() {
+        return new ExecutorCompletionService<>(executor);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
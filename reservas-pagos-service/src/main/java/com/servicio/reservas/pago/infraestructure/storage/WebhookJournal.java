@@ -0,0 +1,211 @@
+package com.servicio.reservas.pago.infraestructure.storage;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable local queue for incoming webhook notifications.
+ * <p>
+ * The controller appends each notification and answers Mercado Pago right away; a consumer reads them back
+ * in order, applies them, and commits its position. Notifications that cannot be applied are moved to a
+ * separate dead-letter log in the {@code dead-letter} subdirectory. Notifications that have to be tried again
+ * later go to a retry log in the {@code retry} subdirectory, read in order by the same consumer, so they do not
+ * hold back the main queue. Both are always forced to disk.
+ * <p>
+ * With {@link FsyncPolicy#ALWAYS} a notification is on disk before it is acknowledged. With
+ * {@link FsyncPolicy#INTERVAL} it is in the page cache (safe if the process dies) and forced to disk every
+ * fsync interval, so a power loss can drop the notifications of the last interval. Mercado Pago does not
+ * resend acknowledged notifications, so use ALWAYS where that window matters.
+ */
+@Component
+@Slf4j
+public class WebhookJournal implements AutoCloseable {
+
+    public enum FsyncPolicy { ALWAYS, INTERVAL }
+
+    private static final String DEAD_LETTER_DIRECTORY = "dead-letter";
+    private static final String RETRY_DIRECTORY = "retry";
+
+    private final AppendOnlyLog journal;
+    private final AppendOnlyLog deadLetters;
+    private final AppendOnlyLog retries;
+    private final boolean forceOnAppend;
+    private final ScheduledExecutorService flusher;
+
+    public WebhookJournal(@Value("${app.webhook.journal.dir:${java.io.tmpdir}/reservas-pagos/webhooks}") String directory,
+                          @Value("${app.webhook.journal.segment-size:16MB}") DataSize segmentSize,
+                          @Value("${app.webhook.journal.fsync:INTERVAL}") FsyncPolicy fsyncPolicy,
+                          @Value("${app.webhook.journal.fsync-interval:200ms}") Duration fsyncInterval) {
+        Path root = Paths.get(directory);
+        int segmentBytes = Math.toIntExact(segmentSize.toBytes());
+        this.journal = new AppendOnlyLog(root, segmentBytes);
+        this.deadLetters = new AppendOnlyLog(root.resolve(DEAD_LETTER_DIRECTORY), segmentBytes);
+        this.retries = new AppendOnlyLog(root.resolve(RETRY_DIRECTORY), segmentBytes);
+        this.forceOnAppend = fsyncPolicy == FsyncPolicy.ALWAYS;
+
+        if (forceOnAppend) {
+            this.flusher = null;
+        } else {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "webhook-journal-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMillis = fsyncInterval.toMillis();
+            flusher.scheduleWithFixedDelay(this::forceQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public JournalPosition append(WebhookNotification notification) {
+        return journal.append(encode(notification, null), forceOnAppend);
+    }
+
+    /**
+     * Notifications after the committed position, oldest first. Only one consumer may read and commit.
+     */
+    public List<Entry> readUncommitted(int max) {
+        return journal.read(journal.committed(), max).stream()
+                .map(record -> new Entry(decode(ByteBuffer.wrap(record.getPayload())), record.getNext()))
+                .toList();
+    }
+
+    // Marks every notification before the position as handled
+    public void commit(JournalPosition position) {
+        journal.commit(position);
+    }
+
+    public void deadLetter(WebhookNotification notification, String reason) {
+        deadLetters.append(encode(notification, reason), true);
+    }
+
+    /**
+     * Queues a notification to be tried again once {@code retryAt} has passed. {@code attempts} is how many
+     * times it has been tried so far. The record is on disk when this returns, so the caller can commit past it.
+     */
+    public void scheduleRetry(WebhookNotification notification, int attempts, Instant retryAt) {
+        byte[] encoded = encode(notification, null);
+        ByteBuffer buffer = ByteBuffer.allocate(12 + encoded.length);
+        buffer.putInt(attempts);
+        buffer.putLong(retryAt.toEpochMilli());
+        buffer.put(encoded);
+        retries.append(buffer.array(), true);
+    }
+
+    // Retries after the committed retry position, in the order they were scheduled
+    public List<RetryEntry> readRetries(int max) {
+        return retries.read(retries.committed(), max).stream()
+                .map(record -> {
+                    ByteBuffer buffer = ByteBuffer.wrap(record.getPayload());
+                    int attempts = buffer.getInt();
+                    Instant retryAt = Instant.ofEpochMilli(buffer.getLong());
+                    return new RetryEntry(decode(buffer), attempts, retryAt, record.getNext());
+                })
+                .toList();
+    }
+
+    public void commitRetry(JournalPosition position) {
+        retries.commit(position);
+    }
+
+    public boolean hasUncommitted() {
+        return journal.committed().compareTo(journal.published()) < 0;
+    }
+
+    @Override
+    @PreDestroy
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        journal.close();
+        deadLetters.close();
+        retries.close();
+    }
+
+    private void forceQuietly() {
+        try {
+            journal.force();
+        } catch (RuntimeException e) {
+            log.warn("Could not fsync the webhook journal: {}", e.getMessage());
+        }
+    }
+
+    private static byte[] encode(WebhookNotification notification, String reason) {
+        byte[] status = bytes(notification.getStatus());
+        byte[] topic = bytes(notification.getTopic());
+        byte[] error = bytes(reason);
+        ByteBuffer buffer = ByteBuffer.allocate(16 + 12 + length(status) + length(topic) + length(error));
+        buffer.putLong(notification.getPaymentId());
+        buffer.putLong(notification.getReceivedAt().toEpochMilli());
+        putString(buffer, status);
+        putString(buffer, topic);
+        putString(buffer, error);
+        return buffer.array();
+    }
+
+    private static WebhookNotification decode(ByteBuffer buffer) {
+        long paymentId = buffer.getLong();
+        Instant receivedAt = Instant.ofEpochMilli(buffer.getLong());
+        String status = getString(buffer);
+        String topic = getString(buffer);
+        return new WebhookNotification(paymentId, status, topic, receivedAt);
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int length(byte[] value) {
+        return value != null ? value.length : 0;
+    }
+
+    // Length-prefixed; -1 stands for null
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        buffer.putInt(value != null ? value.length : -1);
+        if (value != null) {
+            buffer.put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Entry {
+        private final WebhookNotification notification;
+        private final JournalPosition next; // Commit this once the notification has been handled
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class RetryEntry {
+        private final WebhookNotification notification;
+        private final int attempts;
+        private final Instant retryAt;
+        private final JournalPosition next; // Pass this to commitRetry once the retry has been handled
+    }
+}
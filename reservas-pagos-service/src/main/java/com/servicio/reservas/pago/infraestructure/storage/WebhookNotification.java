@@ -0,0 +1,20 @@
+package com.servicio.reservas.pago.infraestructure.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Instant;
+
+/**
+ * A Mercado Pago payment notification exactly as it was received, before it is applied.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class WebhookNotification {
+    private final Long paymentId;
+    private final String status;
+    private final String topic; // Optional
+    private final Instant receivedAt;
+}
@@ -1,13 +1,72 @@
 package com.servicio.reservas.pago;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
 
-@SpringBootTest
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Full context against an in-memory H2 database; outside services are given placeholder urls and never called
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:context;DB_CLOSE_DELAY=-1",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "mercado-pago.access-token=test-token",
+        "app.notification_url=http://localhost/api/payments/webhook",
+        "app.payment.success-url=http://success",
+        "app.payment.pending-url=http://pending",
+        "app.payment.failure-url=http://failure",
+        "eureka.client.enabled=false",
+        "spring.security.oauth2.resourceserver.jwt.jwk-set-uri=http://localhost/oauth2/jwks",
+        "spring.security.oauth2.client.provider.self.token-uri=http://localhost/oauth2/token",
+        "spring.security.oauth2.client.registration.pagos-service-client.provider=self",
+        "spring.security.oauth2.client.registration.pagos-service-client.client-id=pagos-service",
+        "spring.security.oauth2.client.registration.pagos-service-client.client-secret=secret",
+        "spring.security.oauth2.client.registration.pagos-service-client.authorization-grant-type=client_credentials"
+})
+@AutoConfigureMockMvc
+// Tests leave metrics export off by default; the Prometheus endpoint only exists with it on
+@AutoConfigureObservability(tracing = false)
 class ReservasPagosServiceApplicationTests {
 
+    @Autowired
+    private MockMvc mockMvc;
+
     @Test
     void contextLoads() {
     }
 
+    @Test
+    void health_IsOpenToProbesWithoutAToken() throws Exception {
+        // UP or DOWN depending on the placeholder services, but never an authentication error
+        int status = mockMvc.perform(get("/actuator/health")).andReturn().getResponse().getStatus();
+
+        assertNotEquals(401, status);
+        assertNotEquals(403, status);
+    }
+
+    @Test
+    void prometheus_WithoutAToken_IsUnauthorized() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @WithMockUser(authorities = "ROLE_ADMINISTRADOR")
+    void prometheus_TokenWithoutTheScraperAuthority_IsForbidden() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(authorities = "SCOPE_METRICS_SCRAPE")
+    void prometheus_ScraperToken_GetsTheMetrics() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk());
+    }
 }
@@ -0,0 +1,156 @@
+package com.servicio.reservas.pago.application.services;
+
+import com.servicio.reservas.pago.application.dto.PaymentDtoMapper;
+import com.servicio.reservas.pago.application.dto.PaymentRequest;
+import com.servicio.reservas.pago.application.dto.PaymentResponse;
+import com.servicio.reservas.pago.application.dto.PreferenceRequest;
+import com.servicio.reservas.pago.application.dto.PreferenceResponse;
+import com.servicio.reservas.pago.domain.services.VoucherPdfGeneratorService;
+import com.servicio.reservas.pago.infraestructure.client.GatewayExecutor;
+import com.servicio.reservas.pago.infraestructure.client.IGatewayPaymentPort;
+import com.servicio.reservas.pago.infraestructure.client.IReservationClient;
+import com.servicio.reservas.pago.infraestructure.client.ReservationDTO;
+import com.servicio.reservas.pago.infraestructure.metrics.PaymentMetrics;
+import com.servicio.reservas.pago.infraestructure.persistence.CachingPaymentRepository;
+import com.servicio.reservas.pago.infraestructure.persistence.DatabaseDialect;
+import com.servicio.reservas.pago.infraestructure.persistence.PaymentOutboxRepositoryPersistence;
+import com.servicio.reservas.pago.infraestructure.persistence.PaymentRepositoryPersistence;
+import com.servicio.reservas.pago.infraestructure.persistence.SpringPaymentOutboxRepository;
+import com.servicio.reservas.pago.infraestructure.storage.VoucherFileStore;
+import com.servicio.reservas.pago.infraestructure.storage.VoucherRenderExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+/**
+ * createPayment against a real pool of ONE connection and a gateway that takes 300 ms per call.
+ * If the payment transaction still spanned the gateway call, the callers would queue for that connection
+ * and time out after 250 ms; with the outbox the gateway calls overlap and every request succeeds.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:payment-pool;DB_CLOSE_DELAY=-1",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.datasource.hikari.maximum-pool-size=1",
+        "spring.datasource.hikari.minimum-idle=1",
+        "spring.datasource.hikari.connection-timeout=250",
+        "app.payment.success-url=http://success",
+        "app.payment.pending-url=http://pending",
+        "app.payment.failure-url=http://failure"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({PaymentService.class, PaymentDtoMapper.class, PaymentRepositoryPersistence.class, DatabaseDialect.class,
+        CachingPaymentRepository.class,
+        PaymentOutboxRepositoryPersistence.class, PaymentOutboxService.class, PaymentPreferenceDispatcher.class,
+        PreferenceRequestFactory.class, GatewayExecutor.class, VoucherRenderExecutor.class,
+        PaymentMetrics.class, SimpleMeterRegistry.class,
+        PaymentCreationConnectionPoolTest.SlowGatewayPort.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentCreationConnectionPoolTest {
+
+    private static final int CONCURRENT_REQUESTS = 6;
+
+    @Autowired
+    private PaymentService paymentService;
+    @MockBean
+    private IReservationClient reservationClient;
+    @MockBean
+    private VoucherPdfGeneratorService voucherPdfGeneratorService;
+    @MockBean
+    private VoucherFileStore voucherFileStore;
+    // Statistics rows are not what this test measures, and H2 has no upsert for concurrent first writes
+    @MockBean
+    private PaymentStatsService paymentStatsService;
+    @Autowired
+    private SlowGatewayPort gateway;
+    @Autowired
+    private SpringPaymentOutboxRepository outboxRepository;
+
+    @BeforeEach
+    void setUp() {
+        when(reservationClient.findReservationById(anyLong()))
+                .thenAnswer(invocation -> Optional.of(new ReservationDTO(invocation.getArgument(0), 50L, 20L, 250.0)));
+    }
+
+    @Test
+    void createPayment_SlowGateway_DoesNotHoldAPooledConnection() throws Exception {
+        // One creation alone first: the first transactions pay for class loading and JIT, which on a small
+        // machine alone can take longer than the 250 ms connection timeout
+        paymentService.createPayment(paymentRequest(99L), null);
+        gateway.reset();
+
+        ExecutorService callers = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+        try {
+            List<Future<PaymentResponse>> responses = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                PaymentRequest request = paymentRequest(100L + i);
+                responses.add(callers.submit(() -> paymentService.createPayment(request, null)));
+            }
+
+            for (Future<PaymentResponse> response : responses) {
+                assertNotNull(response.get(10, TimeUnit.SECONDS).getPaymentLink(), "Every payment must get its link.");
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+
+        // With a single pooled connection, overlapping gateway calls prove none of them was holding it
+        assertTrue(gateway.maxConcurrentCalls() > 1, "Gateway calls should overlap, got " + gateway.maxConcurrentCalls());
+        assertEquals(0, outboxRepository.count(), "Completed preferences must leave no outbox entries.");
+    }
+
+    private static PaymentRequest paymentRequest(Long reservationId) {
+        PaymentRequest request = new PaymentRequest();
+        request.setReservationId(reservationId);
+        request.setAmount(250.0);
+        return request;
+    }
+
+    static class SlowGatewayPort implements IGatewayPaymentPort {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+
+        @Override
+        public Optional<PreferenceResponse> createPaymentPreference(PreferenceRequest request) {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Optional.empty();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return Optional.of(new PreferenceResponse("MP_" + request.getExternalReference(),
+                    "http://link_mp/" + request.getExternalReference()));
+        }
+
+        int maxConcurrentCalls() {
+            return maxInFlight.get();
+        }
+
+        void reset() {
+            maxInFlight.set(0);
+        }
+    }
+}
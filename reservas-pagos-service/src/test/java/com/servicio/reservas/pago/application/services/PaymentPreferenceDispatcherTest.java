@@ -0,0 +1,195 @@
+package com.servicio.reservas.pago.application.services;
+
+import com.servicio.reservas.pago.application.dto.PreferenceRequest;
+import com.servicio.reservas.pago.application.dto.PreferenceResponse;
+import com.servicio.reservas.pago.domain.entities.Payment;
+import com.servicio.reservas.pago.domain.entities.PaymentOutboxEntry;
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import com.servicio.reservas.pago.domain.repository.IPaymentRepository;
+import com.servicio.reservas.pago.infraestructure.client.IGatewayPaymentPort;
+import com.servicio.reservas.pago.infraestructure.metrics.PaymentMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class PaymentPreferenceDispatcherTest {
+
+    private static final Long PAYMENT_ID = 1L;
+    private static final String LEASE_TOKEN = "lease-1";
+
+    @Mock
+    private IPaymentRepository paymentRepository;
+    @Mock
+    private PaymentOutboxService paymentOutboxService;
+    @Mock
+    private IGatewayPaymentPort gatewayPaymentPort;
+    @Spy
+    private PreferenceRequestFactory preferenceRequestFactory =
+            new PreferenceRequestFactory("http://success", "http://pending", "http://failure");
+    @Spy
+    private PaymentMetrics paymentMetrics = new PaymentMetrics(new SimpleMeterRegistry());
+
+    @InjectMocks
+    private PaymentPreferenceDispatcher dispatcher;
+
+    private Payment pendingPayment;
+    private PreferenceResponse preference;
+
+    @BeforeEach
+    void setUp() {
+        pendingPayment = Payment.builder()
+                .id(PAYMENT_ID)
+                .reservationId(101L)
+                .amount(250.0)
+                .status(PaymentStatus.PENDING)
+                .createdAt(LocalDateTime.now())
+                .build();
+        preference = new PreferenceResponse("MP_ID_123", "http://link_mp");
+    }
+
+    @Test
+    void dispatchClaimed_GatewaySucceeds_CompletesTheOutboxEntry() {
+        // ARRANGE
+        Payment linked = pendingPayment.toBuilder().externalPaymentId("MP_ID_123").paymentLink("http://link_mp").build();
+        when(paymentRepository.findById(PAYMENT_ID)).thenReturn(Optional.of(pendingPayment));
+        when(gatewayPaymentPort.createPaymentPreference(any(PreferenceRequest.class))).thenReturn(Optional.of(preference));
+        when(paymentOutboxService.complete(PAYMENT_ID, LEASE_TOKEN, preference)).thenReturn(Optional.of(linked));
+
+        // ACT
+        Optional<Payment> result = dispatcher.dispatchClaimed(PAYMENT_ID, LEASE_TOKEN);
+
+        // ASSERT
+        assertEquals("http://link_mp", result.orElseThrow().getPaymentLink());
+        verify(gatewayPaymentPort).createPaymentPreference(argThat(request -> "1".equals(request.getExternalReference())));
+        verify(paymentOutboxService, never()).reschedule(any(), any(), any());
+    }
+
+    @Test
+    void dispatchClaimed_GatewayReturnsEmpty_ReschedulesTheEntry() {
+        // ARRANGE
+        when(paymentRepository.findById(PAYMENT_ID)).thenReturn(Optional.of(pendingPayment));
+        when(gatewayPaymentPort.createPaymentPreference(any(PreferenceRequest.class))).thenReturn(Optional.empty());
+
+        // ACT
+        Optional<Payment> result = dispatcher.dispatchClaimed(PAYMENT_ID, LEASE_TOKEN);
+
+        // ASSERT
+        assertTrue(result.isEmpty());
+        verify(paymentOutboxService).reschedule(eq(PAYMENT_ID), eq(LEASE_TOKEN), anyString());
+        verify(paymentOutboxService, never()).complete(any(), any(), any());
+    }
+
+    @Test
+    void dispatchClaimed_GatewayThrows_ReschedulesWithTheError() {
+        // ARRANGE
+        when(paymentRepository.findById(PAYMENT_ID)).thenReturn(Optional.of(pendingPayment));
+        when(gatewayPaymentPort.createPaymentPreference(any(PreferenceRequest.class)))
+                .thenThrow(new IllegalStateException("read timed out"));
+
+        // ACT
+        Optional<Payment> result = dispatcher.dispatchClaimed(PAYMENT_ID, LEASE_TOKEN);
+
+        // ASSERT
+        assertTrue(result.isEmpty());
+        verify(paymentOutboxService).reschedule(PAYMENT_ID, LEASE_TOKEN, "read timed out");
+    }
+
+    @Test
+    void dispatchClaimed_PaymentDeleted_DiscardsTheEntry() {
+        // ARRANGE
+        when(paymentRepository.findById(PAYMENT_ID)).thenReturn(Optional.empty());
+
+        // ACT
+        Optional<Payment> result = dispatcher.dispatchClaimed(PAYMENT_ID, LEASE_TOKEN);
+
+        // ASSERT
+        assertTrue(result.isEmpty());
+        verify(paymentOutboxService).discard(PAYMENT_ID, LEASE_TOKEN);
+        verify(gatewayPaymentPort, never()).createPaymentPreference(any());
+    }
+
+    @Test
+    void dispatchClaimed_LeaseLostBeforeTheLinkWasStored_ReturnsEmpty() {
+        // ARRANGE
+        when(paymentRepository.findById(PAYMENT_ID)).thenReturn(Optional.of(pendingPayment));
+        when(gatewayPaymentPort.createPaymentPreference(any(PreferenceRequest.class))).thenReturn(Optional.of(preference));
+        when(paymentOutboxService.complete(PAYMENT_ID, LEASE_TOKEN, preference)).thenReturn(Optional.empty());
+
+        // ACT
+        Optional<Payment> result = dispatcher.dispatchClaimed(PAYMENT_ID, LEASE_TOKEN);
+
+        // ASSERT
+        assertTrue(result.isEmpty());
+        verify(paymentOutboxService, never()).reschedule(any(), any(), any());
+    }
+
+    @Test
+    void dispatchDue_ProcessesEveryClaimedEntryEvenWhenOneFails() {
+        // ARRANGE
+        Payment second = pendingPayment.toBuilder().id(2L).build();
+        when(paymentOutboxService.claimNext()).thenReturn(
+                Optional.of(leased(PAYMENT_ID, "lease-1")), Optional.of(leased(2L, "lease-2")), Optional.empty());
+        when(paymentRepository.findById(PAYMENT_ID)).thenThrow(new IllegalStateException("connection reset"));
+        when(paymentRepository.findById(2L)).thenReturn(Optional.of(second));
+        when(gatewayPaymentPort.createPaymentPreference(any(PreferenceRequest.class))).thenReturn(Optional.of(preference));
+
+        // ACT
+        int claimed = dispatcher.dispatchDue(20);
+
+        // ASSERT
+        assertEquals(2, claimed);
+        verify(paymentOutboxService).complete(2L, "lease-2", preference);
+        verify(paymentOutboxService, times(3)).claimNext();
+    }
+
+    @Test
+    void dispatchDue_LeasesEachEntryRightBeforeItsGatewayCall() {
+        // ARRANGE
+        Payment second = pendingPayment.toBuilder().id(2L).build();
+        when(paymentOutboxService.claimNext()).thenReturn(
+                Optional.of(leased(PAYMENT_ID, "lease-1")), Optional.of(leased(2L, "lease-2")));
+        when(paymentRepository.findById(PAYMENT_ID)).thenReturn(Optional.of(pendingPayment));
+        when(paymentRepository.findById(2L)).thenReturn(Optional.of(second));
+        when(gatewayPaymentPort.createPaymentPreference(any(PreferenceRequest.class))).thenReturn(Optional.of(preference));
+
+        // ACT
+        int claimed = dispatcher.dispatchDue(2);
+
+        // ASSERT
+        assertEquals(2, claimed);
+        InOrder inOrder = inOrder(paymentOutboxService, gatewayPaymentPort);
+        inOrder.verify(paymentOutboxService).claimNext();
+        inOrder.verify(gatewayPaymentPort).createPaymentPreference(any(PreferenceRequest.class));
+        inOrder.verify(paymentOutboxService).claimNext();
+        inOrder.verify(gatewayPaymentPort).createPaymentPreference(any(PreferenceRequest.class));
+        // A full batch stops claiming; the worker polls again
+        verify(paymentOutboxService, times(2)).claimNext();
+    }
+
+    private PaymentOutboxEntry leased(Long paymentId, String leaseToken) {
+        return PaymentOutboxEntry.builder()
+                .paymentId(paymentId)
+                .lockedUntil(LocalDateTime.now().plusMinutes(2))
+                .leaseToken(leaseToken)
+                .build();
+    }
+}
@@ -3,28 +3,71 @@ package com.servicio.reservas.pago.application.services;
 import com.servicio.reservas.pago.application.dto.*;
 import com.servicio.reservas.pago.domain.entities.Payment;
 import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import com.servicio.reservas.pago.domain.events.PaymentApprovedEvent;
 import com.servicio.reservas.pago.domain.repository.IPaymentRepository;
+import com.servicio.reservas.pago.domain.repository.PaymentCursor;
+import com.servicio.reservas.pago.domain.repository.PaymentLedgerRow;
+import com.servicio.reservas.pago.domain.repository.PaymentSearchCriteria;
+import com.servicio.reservas.pago.domain.repository.PaymentStatusChange;
+import com.servicio.reservas.pago.domain.repository.PaymentStatusChangeRequest;
+import com.servicio.reservas.pago.domain.repository.PaymentStatusSnapshot;
 import com.servicio.reservas.pago.domain.services.VoucherPdfGeneratorService;
-import com.servicio.reservas.pago.infraestructure.client.IGatewayPaymentPort;
+import com.servicio.reservas.pago.infraestructure.client.GatewayExecutor;
 import com.servicio.reservas.pago.infraestructure.client.IReservationClient;
 import com.servicio.reservas.pago.infraestructure.client.ReservationDTO;
 import com.servicio.reservas.pago.infraestructure.exception.*;
+import com.servicio.reservas.pago.infraestructure.metrics.PaymentMetrics;
+import com.servicio.reservas.pago.infraestructure.storage.StoredVoucher;
+import com.servicio.reservas.pago.infraestructure.storage.VoucherFileStore;
+import com.servicio.reservas.pago.infraestructure.storage.VoucherRenderExecutor;
+import feign.FeignException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
-import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,9 +81,24 @@ class PaymentServiceTest {
     @Mock
     private IReservationClient reservationClient;
     @Mock
-    private IGatewayPaymentPort gatewayPaymentPort;
-    @Mock
     private VoucherPdfGeneratorService voucherPdfGeneratorService;
+    @Spy
+    private GatewayExecutor gatewayExecutor = new GatewayExecutor(2, 10);
+    @Mock
+    private VoucherFileStore voucherFileStore;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Spy
+    private VoucherRenderExecutor voucherRenderExecutor = new VoucherRenderExecutor(2, 10);
+    @Mock
+    private PaymentOutboxService paymentOutboxService;
+    @Mock
+    private PaymentPreferenceDispatcher preferenceDispatcher;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    @Spy
+    private PaymentMetrics paymentMetrics = new PaymentMetrics(meterRegistry);
+    @Mock
+    private PaymentStatsService paymentStatsService;
 
     @InjectMocks
     private PaymentService paymentService;
@@ -56,16 +114,10 @@ class PaymentServiceTest {
     private PaymentRequest validRequest;
     private ReservationDTO reservationDTO;
     private Payment savedPayment;
-    private PreferenceResponse preferenceResponse;
     private PaymentResponse expectedResponse;
 
     @BeforeEach
     void setUp() {
-        // Mocking @Value injection
-        ReflectionTestUtils.setField(paymentService, "successUrl", "http://success");
-        ReflectionTestUtils.setField(paymentService, "pendingUrl", "http://pending");
-        ReflectionTestUtils.setField(paymentService, "failureUrl", "http://failure");
-
         validRequest = new PaymentRequest();
         validRequest.setReservationId(RESERVATION_ID);
         validRequest.setAmount(AMOUNT);
@@ -86,8 +138,6 @@ class PaymentServiceTest {
                 .createdBy("RESERVAS_SERVICE")
                 .build();
 
-        preferenceResponse = new PreferenceResponse("MP_ID_123", "http://link_mp");
-
         // PaymentResponse setup using Builder to match the DTO fields.
         expectedResponse = PaymentResponse.builder()
                 .id(PAYMENT_ID) // Uses 'id' field as defined in PaymentResponse DTO
@@ -111,24 +161,25 @@ class PaymentServiceTest {
         // ARRANGE
         when(reservationClient.findReservationById(RESERVATION_ID)).thenReturn(Optional.of(reservationDTO));
 
-        // First save (no ID): Added null check to prevent NullPointerException with argThat
-        when(paymentRepository.save(argThat(p -> p != null && p.getId() == null))).thenReturn(savedPayment);
+        // The pending payment and its outbox entry are saved first, with no link yet
+        when(paymentOutboxService.createPendingPayment(argThat(p -> p != null && p.getId() == null && p.getPaymentLink() == null), anyString()))
+                .thenReturn(savedPayment);
 
-        when(gatewayPaymentPort.createPaymentPreference(any(PreferenceRequest.class))).thenReturn(Optional.of(preferenceResponse));
-
-        // Second save (with external ID): Added null check to prevent NullPointerException with argThat
-        when(paymentRepository.save(argThat(p -> p != null && p.getExternalPaymentId() != null))).thenReturn(savedPayment);
+        // Then the preference is created after commit and stored on the payment
+        when(preferenceDispatcher.dispatchClaimed(eq(PAYMENT_ID), anyString())).thenReturn(Optional.of(savedPayment));
 
 
         // ACT
-        PaymentResponse result = paymentService.createPayment(validRequest);
+        PaymentResponse result = paymentService.createPayment(validRequest, null);
 
         // ASSERT
         assertNotNull(result, "Response must not be null.");
         assertEquals("http://link_mp", result.getPaymentLink(), "Should return the generated payment link.");
 
-        verify(paymentRepository, times(2)).save(any(Payment.class));
-        verify(gatewayPaymentPort, times(1)).createPaymentPreference(any(PreferenceRequest.class));
+        verify(paymentOutboxService, times(1)).createPendingPayment(any(Payment.class), anyString());
+        verify(preferenceDispatcher, times(1)).dispatchClaimed(eq(PAYMENT_ID), anyString());
+        assertEquals(1, meterRegistry.get("payment.create.phase").tag("phase", "reservation_lookup").timer().count());
+        assertEquals(1, meterRegistry.get("payment.create.phase").tag("phase", "pending_insert").timer().count());
     }
 
     @Test
@@ -138,11 +189,11 @@ class PaymentServiceTest {
 
         // ACT & ASSERT
         assertThrows(ReservationNotFoundException.class, () ->
-                paymentService.createPayment(validRequest)
+                paymentService.createPayment(validRequest, null)
         );
 
-        verify(paymentRepository, never()).save(any(Payment.class));
-        verify(gatewayPaymentPort, never()).createPaymentPreference(any(PreferenceRequest.class));
+        verify(paymentOutboxService, never()).createPendingPayment(any(Payment.class), anyString());
+        verify(preferenceDispatcher, never()).dispatchClaimed(any(), any());
     }
 
     @Test
@@ -150,20 +201,433 @@ class PaymentServiceTest {
         // ARRANGE
         when(reservationClient.findReservationById(RESERVATION_ID)).thenReturn(Optional.of(reservationDTO));
 
-        // First save successful
-        when(paymentRepository.save(argThat(p -> p != null && p.getId() == null))).thenReturn(savedPayment);
+        when(paymentOutboxService.createPendingPayment(any(Payment.class), anyString())).thenReturn(savedPayment);
 
-        // Simulate gateway returning empty
-        when(gatewayPaymentPort.createPaymentPreference(any(PreferenceRequest.class))).thenReturn(Optional.empty());
+        // Simulate the gateway failing: the dispatcher reschedules the outbox entry and returns empty
+        when(preferenceDispatcher.dispatchClaimed(eq(PAYMENT_ID), anyString())).thenReturn(Optional.empty());
 
         // ACT & ASSERT
         assertThrows(ExternalPaymentGatewayException.class, () ->
-                paymentService.createPayment(validRequest)
+                paymentService.createPayment(validRequest, null)
         );
 
-        // Should call save only once (before the gateway call)
-        verify(paymentRepository, times(1)).save(any(Payment.class));
-        verify(gatewayPaymentPort, times(1)).createPaymentPreference(any(PreferenceRequest.class));
+        // The payment is kept for the outbox worker to retry; nothing is saved directly
+        verify(paymentOutboxService, times(1)).createPendingPayment(any(Payment.class), anyString());
+        verify(paymentRepository, never()).save(any(Payment.class));
+    }
+
+    @Test
+    void createPayment_ReservationAlreadyHasPendingPayment_ReturnsItWithoutNewPreference() {
+        // ARRANGE
+        when(paymentRepository.findPendingByReservationId(RESERVATION_ID)).thenReturn(Optional.of(savedPayment));
+
+        // ACT
+        PaymentResponse result = paymentService.createPayment(validRequest, null);
+
+        // ASSERT
+        assertEquals(PAYMENT_ID, result.getId());
+        verify(paymentOutboxService, never()).createPendingPayment(any(Payment.class), anyString());
+        verify(preferenceDispatcher, never()).dispatchClaimed(any(), any());
+        verify(reservationClient, never()).findReservationById(any());
+    }
+
+    @Test
+    void createPayment_LinklessPendingPaymentStillQueued_ReturnsItWithoutNewPreference() {
+        // ARRANGE
+        Payment pending = savedPayment.toBuilder().paymentLink(null).build();
+        when(paymentRepository.findPendingByReservationId(RESERVATION_ID)).thenReturn(Optional.of(pending));
+        when(paymentOutboxService.requeue(eq(PAYMENT_ID), anyString())).thenReturn(false);
+
+        // ACT
+        paymentService.createPayment(validRequest, null);
+
+        // ASSERT
+        verify(paymentDtoMapper).toResponse(pending);
+        verify(preferenceDispatcher, never()).dispatchClaimed(any(), any());
+    }
+
+    @Test
+    void createPayment_LinklessPendingPaymentWithoutOutboxEntry_RequeuesAndCreatesPreference() {
+        // ARRANGE
+        Payment pending = savedPayment.toBuilder().paymentLink(null).build();
+        when(paymentRepository.findPendingByReservationId(RESERVATION_ID)).thenReturn(Optional.of(pending));
+        when(paymentOutboxService.requeue(eq(PAYMENT_ID), anyString())).thenReturn(true);
+        when(preferenceDispatcher.dispatchClaimed(eq(PAYMENT_ID), anyString())).thenReturn(Optional.of(savedPayment));
+
+        // ACT
+        paymentService.createPayment(validRequest, null);
+
+        // ASSERT
+        verify(paymentDtoMapper).toResponse(savedPayment);
+        verify(paymentOutboxService, never()).createPendingPayment(any(Payment.class), anyString());
+    }
+
+    @Test
+    void createPayment_RequeuedPaymentGatewayFails_ThrowsExternalPaymentGatewayException() {
+        // ARRANGE
+        Payment pending = savedPayment.toBuilder().paymentLink(null).build();
+        when(paymentRepository.findPendingByReservationId(RESERVATION_ID)).thenReturn(Optional.of(pending));
+        when(paymentOutboxService.requeue(eq(PAYMENT_ID), anyString())).thenReturn(true);
+        when(preferenceDispatcher.dispatchClaimed(eq(PAYMENT_ID), anyString())).thenReturn(Optional.empty());
+
+        // ACT & ASSERT
+        assertThrows(ExternalPaymentGatewayException.class, () -> paymentService.createPayment(validRequest, null));
+    }
+
+    @Test
+    void createPayment_LinklessPendingPaymentRequeuedByAnotherNode_ReturnsIt() {
+        // ARRANGE
+        Payment pending = savedPayment.toBuilder().paymentLink(null).build();
+        when(paymentRepository.findPendingByReservationId(RESERVATION_ID)).thenReturn(Optional.of(pending));
+        when(paymentOutboxService.requeue(eq(PAYMENT_ID), anyString())).thenThrow(new DataIntegrityViolationException("duplicate payment_id"));
+
+        // ACT
+        paymentService.createPayment(validRequest, null);
+
+        // ASSERT
+        verify(paymentDtoMapper).toResponse(pending);
+        verify(preferenceDispatcher, never()).dispatchClaimed(any(), any());
+    }
+
+    @Test
+    void createPayment_IdempotencyKeyReplayed_ReturnsTheOriginalPayment() {
+        // ARRANGE
+        Payment approved = savedPayment.toBuilder().status(PaymentStatus.APPROVED).idempotencyKey("key-1").build();
+        when(paymentRepository.findByIdempotencyKey("key-1")).thenReturn(Optional.of(approved));
+
+        // ACT
+        paymentService.createPayment(validRequest, " key-1 ");
+
+        // ASSERT
+        verify(paymentDtoMapper).toResponse(approved);
+        verify(paymentOutboxService, never()).createPendingPayment(any(Payment.class), anyString());
+    }
+
+    @Test
+    void createPayment_IdempotencyKeyUsedForAnotherReservation_ThrowsConflict() {
+        // ARRANGE
+        Payment other = savedPayment.toBuilder().reservationId(999L).idempotencyKey("key-1").build();
+        when(paymentRepository.findByIdempotencyKey("key-1")).thenReturn(Optional.of(other));
+
+        // ACT & ASSERT
+        assertThrows(IdempotencyKeyConflictException.class, () -> paymentService.createPayment(validRequest, "key-1"));
+        verify(paymentOutboxService, never()).createPendingPayment(any(Payment.class), anyString());
+    }
+
+    @Test
+    void createPayment_IdempotencyKeyTooLong_ThrowsInvalidKey() {
+        assertThrows(InvalidIdempotencyKeyException.class, () -> paymentService.createPayment(validRequest, "k".repeat(256)));
+    }
+
+    @Test
+    void createPayment_MaxLengthKeyWithSurroundingWhitespace_IsTrimmedAndAccepted() {
+        // ARRANGE
+        String key = "k".repeat(255);
+        when(reservationClient.findReservationById(RESERVATION_ID)).thenReturn(Optional.of(reservationDTO));
+        when(paymentOutboxService.createPendingPayment(any(Payment.class), anyString())).thenReturn(savedPayment);
+        when(preferenceDispatcher.dispatchClaimed(eq(PAYMENT_ID), anyString())).thenReturn(Optional.of(savedPayment));
+
+        // ACT
+        paymentService.createPayment(validRequest, "  " + key + " ");
+
+        // ASSERT
+        verify(paymentOutboxService).createPendingPayment(argThat(p -> key.equals(p.getIdempotencyKey())), anyString());
+    }
+
+    @Test
+    void createPayment_NewPayment_StoresTheIdempotencyKey() {
+        // ARRANGE
+        when(reservationClient.findReservationById(RESERVATION_ID)).thenReturn(Optional.of(reservationDTO));
+        when(paymentOutboxService.createPendingPayment(any(Payment.class), anyString())).thenReturn(savedPayment);
+        when(preferenceDispatcher.dispatchClaimed(eq(PAYMENT_ID), anyString())).thenReturn(Optional.of(savedPayment));
+
+        // ACT
+        paymentService.createPayment(validRequest, "key-1");
+
+        // ASSERT
+        verify(paymentOutboxService).createPendingPayment(argThat(p -> "key-1".equals(p.getIdempotencyKey())), anyString());
+    }
+
+    @Test
+    void createPayment_DuplicateInsertedByAnotherNode_ReturnsTheWinningPayment() {
+        // ARRANGE
+        when(reservationClient.findReservationById(RESERVATION_ID)).thenReturn(Optional.of(reservationDTO));
+        when(paymentRepository.findPendingByReservationId(RESERVATION_ID))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(savedPayment));
+        when(paymentOutboxService.createPendingPayment(any(Payment.class), anyString()))
+                .thenThrow(new DataIntegrityViolationException("uq_payments_pending_reservation"));
+
+        // ACT
+        PaymentResponse result = paymentService.createPayment(validRequest, null);
+
+        // ASSERT
+        assertEquals(PAYMENT_ID, result.getId());
+        verify(preferenceDispatcher, never()).dispatchClaimed(any(), any());
+    }
+
+    @Test
+    void createPayment_ConcurrentDuplicates_CollapseToOneGatewayCall() throws Exception {
+        // ARRANGE: once the first request has saved its payment, the others find it
+        AtomicReference<Payment> created = new AtomicReference<>();
+        when(reservationClient.findReservationById(RESERVATION_ID)).thenReturn(Optional.of(reservationDTO));
+        when(paymentRepository.findPendingByReservationId(RESERVATION_ID))
+                .thenAnswer(invocation -> Optional.ofNullable(created.get()));
+        when(paymentOutboxService.createPendingPayment(any(Payment.class), anyString())).thenAnswer(invocation -> {
+            created.set(savedPayment);
+            return savedPayment;
+        });
+        when(preferenceDispatcher.dispatchClaimed(eq(PAYMENT_ID), anyString())).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            return Optional.of(savedPayment);
+        });
+
+        // ACT
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<PaymentResponse>> responses = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                responses.add(callers.submit(() -> paymentService.createPayment(validRequest, null)));
+            }
+            for (Future<PaymentResponse> response : responses) {
+                assertNotNull(response.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+
+        // ASSERT
+        verify(paymentOutboxService, times(1)).createPendingPayment(any(Payment.class), anyString());
+        verify(preferenceDispatcher, times(1)).dispatchClaimed(eq(PAYMENT_ID), anyString());
+    }
+
+    @Test
+    void createPayment_OtherReservation_DoesNotWaitForASlowGatewayCall() throws Exception {
+        // ARRANGE
+        // 357 landed on the same lock stripe as 101 when creations locked by hash
+        Payment other = savedPayment.toBuilder().id(2L).reservationId(357L).build();
+        PaymentRequest otherRequest = new PaymentRequest();
+        otherRequest.setReservationId(357L);
+        when(reservationClient.findReservationById(RESERVATION_ID)).thenReturn(Optional.of(reservationDTO));
+        when(reservationClient.findReservationById(357L)).thenReturn(Optional.of(new ReservationDTO(357L, SERVICE_ID, USER_ID, 80.0)));
+        when(paymentOutboxService.createPendingPayment(argThat(p -> p != null && RESERVATION_ID.equals(p.getReservationId())), anyString()))
+                .thenReturn(savedPayment);
+        when(paymentOutboxService.createPendingPayment(argThat(p -> p != null && p.getReservationId() == 357L), anyString()))
+                .thenReturn(other);
+
+        // The first reservation's Mercado Pago call hangs until the second creation is done
+        CountDownLatch slowCallStarted = new CountDownLatch(1);
+        CountDownLatch otherDone = new CountDownLatch(1);
+        when(preferenceDispatcher.dispatchClaimed(eq(PAYMENT_ID), anyString())).thenAnswer(invocation -> {
+            slowCallStarted.countDown();
+            otherDone.await(5, TimeUnit.SECONDS);
+            return Optional.of(savedPayment);
+        });
+        when(preferenceDispatcher.dispatchClaimed(eq(2L), anyString())).thenReturn(Optional.of(other));
+
+        // ACT
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<PaymentResponse> slow = callers.submit(() -> paymentService.createPayment(validRequest, null));
+            assertTrue(slowCallStarted.await(5, TimeUnit.SECONDS));
+
+            Future<PaymentResponse> fast = callers.submit(() -> paymentService.createPayment(otherRequest, null));
+            assertNotNull(fast.get(2, TimeUnit.SECONDS), "Only duplicates of the same reservation wait.");
+            otherDone.countDown();
+            slow.get(5, TimeUnit.SECONDS);
+        } finally {
+            callers.shutdownNow();
+        }
+
+        // ASSERT
+        verify(preferenceDispatcher).dispatchClaimed(eq(2L), anyString());
+    }
+
+    @Test
+    void createPaymentAsync_ReturnsPendingPaymentAndDispatchesInBackground() {
+        // ARRANGE
+        Payment pending = savedPayment.toBuilder().externalPaymentId(null).paymentLink(null).build();
+        when(reservationClient.findReservationById(RESERVATION_ID)).thenReturn(Optional.of(reservationDTO));
+        when(paymentOutboxService.createPendingPayment(any(Payment.class), anyString())).thenReturn(pending);
+        when(preferenceDispatcher.dispatchClaimed(eq(PAYMENT_ID), anyString())).thenReturn(Optional.of(savedPayment));
+        when(paymentDtoMapper.toResponse(pending)).thenReturn(PaymentResponse.builder().id(PAYMENT_ID).linkReady(false).build());
+
+        // ACT
+        PaymentResponse result = paymentService.createPaymentAsync(validRequest, null);
+
+        // ASSERT
+        assertFalse(result.isLinkReady(), "The link is created after the response.");
+        verify(preferenceDispatcher, timeout(1000)).dispatchClaimed(eq(PAYMENT_ID), anyString());
+        verify(paymentOutboxService, never()).release(any(), any());
+    }
+
+    @Test
+    void createPaymentAsync_GatewayPoolSaturated_ReleasesTheEntryToTheWorker() {
+        // ARRANGE
+        when(reservationClient.findReservationById(RESERVATION_ID)).thenReturn(Optional.of(reservationDTO));
+        when(paymentOutboxService.createPendingPayment(any(Payment.class), anyString())).thenReturn(savedPayment);
+        doReturn(CompletableFuture.failedFuture(new RejectedExecutionException("full")))
+                .when(gatewayExecutor).submit(any());
+
+        // ACT
+        paymentService.createPaymentAsync(validRequest, null);
+
+        // ASSERT
+        ArgumentCaptor<String> leaseToken = ArgumentCaptor.forClass(String.class);
+        verify(paymentOutboxService).createPendingPayment(any(Payment.class), leaseToken.capture());
+        verify(paymentOutboxService).release(PAYMENT_ID, leaseToken.getValue());
+        verify(preferenceDispatcher, never()).dispatchClaimed(any(), any());
+    }
+
+    @Test
+    void createPaymentAsync_LinklessPendingPaymentWithoutOutboxEntry_RequeuesAndDispatchesInBackground() {
+        // ARRANGE
+        Payment pending = savedPayment.toBuilder().paymentLink(null).build();
+        when(paymentRepository.findPendingByReservationId(RESERVATION_ID)).thenReturn(Optional.of(pending));
+        when(paymentOutboxService.requeue(eq(PAYMENT_ID), anyString())).thenReturn(true);
+        when(preferenceDispatcher.dispatchClaimed(eq(PAYMENT_ID), anyString())).thenReturn(Optional.of(savedPayment));
+
+        // ACT
+        paymentService.createPaymentAsync(validRequest, null);
+
+        // ASSERT
+        verify(paymentDtoMapper).toResponse(pending);
+        verify(preferenceDispatcher, timeout(1000)).dispatchClaimed(eq(PAYMENT_ID), anyString());
+        verify(paymentOutboxService, never()).createPendingPayment(any(Payment.class), anyString());
+    }
+
+    @Test
+    void createPayments_MixedOutcomes_ReturnsPerItemResultsInRequestOrder() {
+        // ARRANGE
+        ReservationDTO second = new ReservationDTO(102L, SERVICE_ID, USER_ID, 80.0);
+        when(reservationClient.findReservationsByIds(List.of(RESERVATION_ID, 102L, 103L)))
+                .thenReturn(List.of(reservationDTO, second));
+
+        AtomicLong ids = new AtomicLong(1);
+        when(paymentOutboxService.createPendingPayments(anyList(), anyString())).thenAnswer(invocation -> {
+            List<Payment> payments = invocation.getArgument(0);
+            payments.forEach(p -> p.setId(ids.getAndIncrement()));
+            return payments;
+        });
+
+        // Only the first payment gets a preference; the second one fails at the gateway
+        when(preferenceDispatcher.dispatchClaimed(eq(PAYMENT_ID), anyString())).thenReturn(Optional.of(savedPayment));
+        when(preferenceDispatcher.dispatchClaimed(eq(2L), anyString())).thenReturn(Optional.empty());
+
+        BatchPaymentRequest request = new BatchPaymentRequest(List.of(RESERVATION_ID, 102L, 103L, RESERVATION_ID));
+
+        // ACT
+        BatchPaymentResponse result = paymentService.createPayments(request);
+
+        // ASSERT
+        assertEquals(3, result.getResults().size());
+        assertEquals(1, result.getSucceeded());
+        assertEquals(2, result.getFailed());
+
+        assertEquals(RESERVATION_ID, result.getResults().get(0).getReservationId());
+        assertTrue(result.getResults().get(0).isSuccess());
+        assertEquals(102L, result.getResults().get(1).getReservationId());
+        assertFalse(result.getResults().get(1).isSuccess());
+        assertEquals(103L, result.getResults().get(2).getReservationId());
+        assertTrue(result.getResults().get(2).getError().contains("Reservation not found"));
+
+        // Inserted with their outbox entries under one lease, so the statistics change in the same transaction
+        ArgumentCaptor<String> leaseToken = ArgumentCaptor.forClass(String.class);
+        verify(paymentOutboxService, times(1)).createPendingPayments(anyList(), leaseToken.capture());
+        verify(preferenceDispatcher).dispatchClaimed(PAYMENT_ID, leaseToken.getValue());
+        verify(preferenceDispatcher).dispatchClaimed(2L, leaseToken.getValue());
+        // The failed payment stays PENDING for the outbox worker, as after a failed single creation
+        verify(paymentRepository, never()).deleteAllById(anyList());
+    }
+
+    @Test
+    void createPayments_LinklessPendingPaymentWithoutOutboxEntry_RequeuesAndDispatchesIt() {
+        // ARRANGE
+        Payment pending = savedPayment.toBuilder().paymentLink(null).build();
+        when(reservationClient.findReservationsByIds(List.of(RESERVATION_ID))).thenReturn(List.of(reservationDTO));
+        when(paymentRepository.findPendingByReservationIds(List.of(RESERVATION_ID))).thenReturn(List.of(pending));
+        when(paymentOutboxService.requeue(eq(PAYMENT_ID), anyString())).thenReturn(true);
+        when(preferenceDispatcher.dispatchClaimed(eq(PAYMENT_ID), anyString())).thenReturn(Optional.of(savedPayment));
+
+        // ACT
+        BatchPaymentResponse result = paymentService.createPayments(new BatchPaymentRequest(List.of(RESERVATION_ID)));
+
+        // ASSERT
+        assertEquals(1, result.getSucceeded());
+        verify(paymentDtoMapper).toResponse(savedPayment);
+        verify(paymentOutboxService, never()).createPendingPayments(anyList(), anyString());
+    }
+
+    @Test
+    void createPayments_GatewayPoolSaturated_ReleasesTheEntriesAndFailsTheItems() {
+        // ARRANGE
+        when(reservationClient.findReservationsByIds(List.of(RESERVATION_ID))).thenReturn(List.of(reservationDTO));
+        when(paymentOutboxService.createPendingPayments(anyList(), anyString())).thenAnswer(invocation -> {
+            List<Payment> payments = invocation.getArgument(0);
+            payments.forEach(p -> p.setId(PAYMENT_ID));
+            return payments;
+        });
+        doReturn(CompletableFuture.failedFuture(new RejectedExecutionException("full")))
+                .when(gatewayExecutor).submit(any());
+
+        // ACT
+        BatchPaymentResponse result = paymentService.createPayments(new BatchPaymentRequest(List.of(RESERVATION_ID)));
+
+        // ASSERT
+        assertEquals(1, result.getFailed());
+        ArgumentCaptor<String> leaseToken = ArgumentCaptor.forClass(String.class);
+        verify(paymentOutboxService).createPendingPayments(anyList(), leaseToken.capture());
+        verify(paymentOutboxService).release(PAYMENT_ID, leaseToken.getValue());
+    }
+
+    @Test
+    void createPayments_SingleCreationWinsTheRace_ReturnsTheWinningPaymentForThatItem() {
+        // ARRANGE
+        ReservationDTO second = new ReservationDTO(102L, SERVICE_ID, USER_ID, 80.0);
+        when(reservationClient.findReservationsByIds(List.of(RESERVATION_ID, 102L))).thenReturn(List.of(reservationDTO, second));
+        // A single creation for the first reservation commits between the lookup and the batch insert
+        when(paymentOutboxService.createPendingPayments(anyList(), anyString()))
+                .thenThrow(new DataIntegrityViolationException("uq_payments_pending_reservation"));
+        when(paymentOutboxService.createPendingPayment(argThat(p -> p != null && RESERVATION_ID.equals(p.getReservationId())), anyString()))
+                .thenThrow(new DataIntegrityViolationException("uq_payments_pending_reservation"));
+        when(paymentRepository.findPendingByReservationId(RESERVATION_ID)).thenReturn(Optional.of(savedPayment));
+
+        Payment secondPayment = savedPayment.toBuilder().id(2L).reservationId(102L).paymentLink(null).build();
+        when(paymentOutboxService.createPendingPayment(argThat(p -> p != null && p.getReservationId() == 102L), anyString()))
+                .thenReturn(secondPayment);
+        when(preferenceDispatcher.dispatchClaimed(eq(2L), anyString())).thenReturn(Optional.of(secondPayment));
+
+        // ACT
+        BatchPaymentResponse result = paymentService.createPayments(new BatchPaymentRequest(List.of(RESERVATION_ID, 102L)));
+
+        // ASSERT
+        assertEquals(2, result.getSucceeded());
+        assertEquals(0, result.getFailed());
+        verify(paymentDtoMapper).toResponse(savedPayment);
+        // The winner's preference belongs to the request that created it
+        verify(preferenceDispatcher, never()).dispatchClaimed(eq(PAYMENT_ID), anyString());
+        verify(preferenceDispatcher).dispatchClaimed(eq(2L), anyString());
+    }
+
+    @Test
+    void createPayments_BulkEndpointUnavailable_FallsBackToSingleLookups() {
+        // ARRANGE
+        when(reservationClient.findReservationsByIds(anyList())).thenThrow(mock(FeignException.NotFound.class));
+        when(reservationClient.findReservationById(RESERVATION_ID)).thenReturn(Optional.of(reservationDTO));
+        when(paymentOutboxService.createPendingPayments(anyList(), anyString())).thenAnswer(invocation -> {
+            List<Payment> payments = invocation.getArgument(0);
+            payments.forEach(p -> p.setId(PAYMENT_ID));
+            return payments;
+        });
+        when(preferenceDispatcher.dispatchClaimed(eq(PAYMENT_ID), anyString())).thenReturn(Optional.of(savedPayment));
+
+        // ACT
+        BatchPaymentResponse result = paymentService.createPayments(new BatchPaymentRequest(List.of(RESERVATION_ID)));
+
+        // ASSERT
+        assertEquals(1, result.getSucceeded());
+        assertEquals(0, result.getFailed());
+        verify(reservationClient, times(1)).findReservationById(RESERVATION_ID);
     }
 
     // --- 2. TESTS FOR getPaymentById ---
@@ -196,124 +660,406 @@ class PaymentServiceTest {
         verify(paymentRepository, times(1)).findById(99L);
     }
 
-    // --- 3. TESTS FOR findAllPayments ---
+    // --- 3. TESTS FOR findPayments ---
 
     @Test
-    void findAllPayments_ReturnsListOfPaymentResponses() {
+    void findPayments_MoreRowsThanPageSize_ReturnsPageWithNextCursor() {
         // ARRANGE
-        List<Payment> paymentList = Collections.singletonList(savedPayment);
-        when(paymentRepository.findAll()).thenReturn(paymentList);
+        Payment older = Payment.builder()
+                .id(PAYMENT_ID - 1)
+                .createdAt(savedPayment.getCreatedAt().minusMinutes(1))
+                .build();
+        PaymentSearchCriteria criteria = PaymentSearchCriteria.builder().status(PaymentStatus.PENDING).build();
+        when(paymentRepository.findPage(criteria, null, 2)).thenReturn(List.of(savedPayment, older));
 
         // ACT
-        List<PaymentResponse> result = paymentService.findAllPayments();
+        PaymentPageResponse result = paymentService.findPayments(criteria, null, 1);
 
         // ASSERT
-        assertFalse(result.isEmpty());
-        assertEquals(1, result.size());
-        verify(paymentRepository, times(1)).findAll();
+        assertEquals(1, result.getItems().size());
+        assertTrue(result.isHasMore());
+        PaymentCursor cursor = PaymentCursorCodec.decode(result.getNextCursor());
+        assertEquals(PAYMENT_ID, cursor.getId());
+        assertEquals(savedPayment.getCreatedAt(), cursor.getCreatedAt());
         verify(paymentDtoMapper, times(1)).toResponse(any(Payment.class));
     }
 
     @Test
-    void findAllPayments_NoPayments_ReturnsEmptyList() {
+    void findPayments_WithCursor_PassesDecodedKeysetToRepository() {
         // ARRANGE
-        when(paymentRepository.findAll()).thenReturn(Collections.emptyList());
+        PaymentCursor cursor = new PaymentCursor(LocalDateTime.of(2025, 1, 10, 12, 30), 42L);
+        String token = PaymentCursorCodec.encode(cursor);
+        when(paymentRepository.findPage(any(), eq(cursor), eq(21))).thenReturn(Collections.singletonList(savedPayment));
 
         // ACT
-        List<PaymentResponse> result = paymentService.findAllPayments();
+        PaymentPageResponse result = paymentService.findPayments(new PaymentSearchCriteria(), token, 20);
 
         // ASSERT
-        assertTrue(result.isEmpty());
-        verify(paymentRepository, times(1)).findAll();
+        assertEquals(1, result.getItems().size());
+        assertFalse(result.isHasMore());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void findPayments_NoPayments_ReturnsEmptyPage() {
+        // ARRANGE
+        when(paymentRepository.findPage(any(), any(), anyInt())).thenReturn(Collections.emptyList());
+
+        // ACT
+        PaymentPageResponse result = paymentService.findPayments(new PaymentSearchCriteria(), null, 0);
+
+        // ASSERT
+        assertTrue(result.getItems().isEmpty());
+        assertFalse(result.isHasMore());
+        verify(paymentRepository, times(1)).findPage(any(), isNull(), eq(21));
         verify(paymentDtoMapper, never()).toResponse(any(Payment.class));
     }
 
-    // --- 4. TESTS FOR updatePaymentStatus ---
+    @Test
+    void findPayments_MalformedCursor_ThrowsInvalidPageCursorException() {
+        // ACT & ASSERT
+        assertThrows(InvalidPageCursorException.class, () ->
+                paymentService.findPayments(new PaymentSearchCriteria(), "not-a-cursor", 20)
+        );
+        verify(paymentRepository, never()).findPage(any(), any(), anyInt());
+    }
 
     @Test
-    void updatePaymentStatus_ValidStatus_UpdatesAndSavesPayment() {
+    void exportPayments_Csv_WritesHeaderAndEscapedRows() {
         // ARRANGE
-        String newStatus = "APPROVED";
-        Payment paymentToUpdate = Payment.builder()
-                .id(PAYMENT_ID)
-                .reservationId(RESERVATION_ID)
-                .amount(AMOUNT)
-                .status(PaymentStatus.PENDING)
-                .build();
+        LocalDateTime createdAt = LocalDateTime.of(2025, 3, 1, 10, 15, 30);
+        PaymentLedgerRow row = new PaymentLedgerRow(PAYMENT_ID, RESERVATION_ID, "MP,123", AMOUNT,
+                PaymentStatus.APPROVED, createdAt, null, "RESERVAS_SERVICE", null);
+        when(paymentRepository.streamLedger(null, null)).thenReturn(Stream.of(row));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // ACT
+        paymentService.exportPayments(null, null, PaymentLedgerFormat.CSV, output);
+
+        // ASSERT
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("id,reservationId,externalPaymentId"));
+        assertEquals("1,101,\"MP,123\",250.0,APPROVED,2025-03-01T10:15:30,,RESERVAS_SERVICE,", lines[1]);
+        verify(paymentDtoMapper, never()).toResponse(any(Payment.class));
+    }
+
+    @Test
+    void exportPayments_Ndjson_WritesOneJsonObjectPerRow() {
+        // ARRANGE
+        LocalDateTime from = LocalDateTime.of(2025, 3, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 4, 1, 0, 0);
+        PaymentLedgerRow row = new PaymentLedgerRow(PAYMENT_ID, RESERVATION_ID, null, AMOUNT,
+                PaymentStatus.PENDING, from, null, "say \"hi\"", null);
+        when(paymentRepository.streamLedger(from, to)).thenReturn(Stream.of(row, row));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // ACT
+        paymentService.exportPayments(from, to, PaymentLedgerFormat.NDJSON, output);
+
+        // ASSERT
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"id\":1,\"reservationId\":101,\"externalPaymentId\":null,\"amount\":250.0,"
+                + "\"status\":\"PENDING\",\"createdAt\":\"2025-03-01T00:00\",\"updatedAt\":null,"
+                + "\"createdBy\":\"say \\\"hi\\\"\",\"updatedBy\":null}", lines[0]);
+    }
+
+    @Test
+    void exportVouchers_WritesOneStoredEntryPerApprovedPaymentAndListsFailures() throws Exception {
+        // ARRANGE
+        LocalDateTime createdAt = LocalDateTime.of(2025, 3, 1, 10, 0);
+        Payment first = Payment.builder().id(1L).reservationId(11L).amount(10.0)
+                .status(PaymentStatus.APPROVED).createdAt(createdAt).build();
+        Payment second = Payment.builder().id(2L).reservationId(12L).amount(20.0)
+                .status(PaymentStatus.APPROVED).createdAt(createdAt).build();
+
+        when(paymentRepository.findPage(argThat(criteria -> criteria.getStatus() == PaymentStatus.APPROVED), isNull(), anyInt()))
+                .thenReturn(List.of(first, second));
+        when(voucherFileStore.find(any(Payment.class))).thenReturn(Optional.empty());
+        when(voucherPdfGeneratorService.generatePdf(first)).thenReturn("PDF-1".getBytes(StandardCharsets.UTF_8));
+        when(voucherPdfGeneratorService.generatePdf(second)).thenThrow(new VoucherGenerationException("boom"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // ACT
+        paymentService.exportVouchers(createdAt.minusDays(1), createdAt.plusDays(1), out);
+
+        // ASSERT
+        Map<String, String> entries = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                assertEquals(ZipEntry.STORED, entry.getMethod());
+                entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        assertEquals(2, entries.size());
+        assertEquals("PDF-1", entries.get("payment_voucher_1.pdf"));
+        assertTrue(entries.get("errors.txt").contains("\n2\n"));
+    }
+
+    // --- 4. TESTS FOR updatePaymentStatus ---
+
+    @Test
+    void updatePaymentStatus_ValidTransition_IsOneRepositoryCallAndMovesTheStatsFromTheReturnedStatus() {
+        // ARRANGE: the change was applied to a REJECTED payment
+        LocalDateTime createdAt = savedPayment.getCreatedAt();
+        when(paymentRepository.changeStatus(eq(PAYMENT_ID), eq(PaymentStatus.APPROVED), any(LocalDateTime.class), eq(AUDIT_USER)))
+                .thenReturn(Optional.of(new PaymentStatusChange(true, new PaymentStatusSnapshot(PaymentStatus.REJECTED, AMOUNT, createdAt))));
+
+        // ACT
+        boolean updated = paymentService.updatePaymentStatus(PAYMENT_ID, "APPROVED", AUDIT_USER);
 
-        when(paymentRepository.findById(PAYMENT_ID)).thenReturn(Optional.of(paymentToUpdate));
-        when(paymentRepository.save(any(Payment.class))).thenReturn(paymentToUpdate);
+        // ASSERT
+        assertTrue(updated);
+        verify(paymentRepository, times(1)).changeStatus(any(), any(), any(), any());
+        verify(paymentRepository, never()).findById(any());
+        verify(paymentRepository, never()).save(any(Payment.class));
+        verify(paymentStatsService, times(1)).recordStatusChange(createdAt, AMOUNT, PaymentStatus.REJECTED, PaymentStatus.APPROVED);
+        verify(eventPublisher, times(1)).publishEvent(any(PaymentApprovedEvent.class));
+        assertEquals(1, statusUpdateTimerCount("single", "applied"));
+    }
+
+    @Test
+    void updatePaymentStatus_SameStatus_SkipsTheWrite() {
+        // ARRANGE: the payment is already APPROVED
+        when(paymentRepository.changeStatus(eq(PAYMENT_ID), eq(PaymentStatus.APPROVED), any(LocalDateTime.class), eq(AUDIT_USER)))
+                .thenReturn(Optional.of(new PaymentStatusChange(false, new PaymentStatusSnapshot(PaymentStatus.APPROVED, AMOUNT, LocalDateTime.now()))));
 
         // ACT
-        Payment result = paymentService.updatePaymentStatus(PAYMENT_ID, newStatus, AUDIT_USER);
+        boolean updated = paymentService.updatePaymentStatus(PAYMENT_ID, "APPROVED", AUDIT_USER);
 
         // ASSERT
-        assertEquals(PaymentStatus.APPROVED, result.getStatus());
-        assertEquals(AUDIT_USER, result.getUpdatedBy());
-        verify(paymentRepository, times(1)).save(result);
+        assertFalse(updated);
+        verify(paymentStatsService, never()).recordStatusChange(any(), any(), any(), any());
+        verify(eventPublisher, never()).publishEvent(any());
+        assertEquals(1, paymentService.unchangedStatusUpdates());
+        assertEquals(1, statusUpdateTimerCount("single", "unchanged"));
+    }
+
+    @Test
+    void updatePaymentStatus_Regression_ThrowsInvalidStatusTransition() {
+        // ARRANGE: a late PENDING notification for an approved payment
+        when(paymentRepository.changeStatus(eq(PAYMENT_ID), eq(PaymentStatus.PENDING), any(LocalDateTime.class), eq(AUDIT_USER)))
+                .thenReturn(Optional.of(new PaymentStatusChange(false, new PaymentStatusSnapshot(PaymentStatus.APPROVED, AMOUNT, LocalDateTime.now()))));
+
+        // ACT & ASSERT
+        assertThrows(InvalidStatusTransitionException.class, () ->
+                paymentService.updatePaymentStatus(PAYMENT_ID, "PENDING", AUDIT_USER));
+        verify(paymentStatsService, never()).recordStatusChange(any(), any(), any(), any());
+        verify(eventPublisher, never()).publishEvent(any());
+        assertEquals(0, paymentService.unchangedStatusUpdates());
+        assertEquals(1, statusUpdateTimerCount("single", "invalid_transition"));
+        assertEquals(0, statusUpdateTimerCount("single", "applied"));
     }
 
     @Test
     void updatePaymentStatus_PaymentNotFound_ThrowsPaymentNotFoundException() {
         // ARRANGE
-        when(paymentRepository.findById(PAYMENT_ID)).thenReturn(Optional.empty());
+        when(paymentRepository.changeStatus(eq(PAYMENT_ID), any(), any(), any())).thenReturn(Optional.empty());
 
         // ACT & ASSERT
         assertThrows(PaymentNotFoundException.class, () ->
                 paymentService.updatePaymentStatus(PAYMENT_ID, "APPROVED", AUDIT_USER)
         );
         verify(paymentRepository, never()).save(any(Payment.class));
+        verify(paymentStatsService, never()).recordStatusChange(any(), any(), any(), any());
     }
 
     @Test
     void updatePaymentStatus_InvalidStatus_ThrowsInvalidPaymentStatusException() {
-        // ARRANGE
-        when(paymentRepository.findById(PAYMENT_ID)).thenReturn(Optional.of(savedPayment));
-
         // ACT & ASSERT
         assertThrows(InvalidPaymentStatusException.class, () ->
                 paymentService.updatePaymentStatus(PAYMENT_ID, "INVALID_STATUS", AUDIT_USER)
         );
+        verify(paymentRepository, never()).changeStatus(any(), any(), any(), any());
+    }
+
+    @Test
+    void updatePaymentStatuses_AppliesAllUpdatesWithOneBatchAndOneRead() {
+        // ARRANGE: payment 1 is rejected, then approved; payment 2 is approved
+        Payment first = Payment.builder().id(1L).reservationId(RESERVATION_ID).amount(AMOUNT).status(PaymentStatus.APPROVED).build();
+        Payment second = Payment.builder().id(2L).reservationId(RESERVATION_ID + 1).amount(AMOUNT).status(PaymentStatus.APPROVED).build();
+        when(paymentRepository.changeStatuses(anyList(), any(LocalDateTime.class)))
+                .thenReturn(List.of(PaymentStatus.PENDING, PaymentStatus.PENDING, PaymentStatus.REJECTED));
+        when(paymentRepository.findAllById(anyList())).thenReturn(List.of(first, second));
+
+        // ACT
+        List<Payment> result = paymentService.updatePaymentStatuses(List.of(
+                new PaymentStatusUpdate(1L, "REJECTED", AUDIT_USER),
+                new PaymentStatusUpdate(2L, "APPROVED", AUDIT_USER),
+                new PaymentStatusUpdate(1L, "APPROVED", AUDIT_USER)));
+
+        // ASSERT: the changes reach the repository in arrival order, in one call
+        ArgumentCaptor<List<PaymentStatusChangeRequest>> changes = ArgumentCaptor.forClass(List.class);
+        verify(paymentRepository, times(1)).changeStatuses(changes.capture(), any(LocalDateTime.class));
+        assertEquals(List.of(1L, 2L, 1L), changes.getValue().stream().map(PaymentStatusChangeRequest::getPaymentId).toList());
+        assertEquals(List.of(PaymentStatus.REJECTED, PaymentStatus.APPROVED, PaymentStatus.APPROVED),
+                changes.getValue().stream().map(PaymentStatusChangeRequest::getStatus).toList());
+
+        assertEquals(2, result.size());
+        verify(paymentRepository, times(1)).findAllById(List.of(1L, 2L));
+        verify(paymentRepository, never()).saveAll(anyList());
         verify(paymentRepository, never()).save(any(Payment.class));
+        // Payment 1 leaves PENDING for the statistics, not REJECTED
+        verify(paymentStatsService, times(1)).recordStatusChanges(anyList(),
+                eq(Map.of(1L, PaymentStatus.PENDING, 2L, PaymentStatus.PENDING)));
+        verify(eventPublisher, times(2)).publishEvent(any(PaymentApprovedEvent.class));
+    }
+
+    @Test
+    void updatePaymentStatuses_NoStatusChanges_RecordsNothing() {
+        // ARRANGE
+        Payment approved = savedPayment.toBuilder().status(PaymentStatus.APPROVED).build();
+        when(paymentRepository.changeStatuses(anyList(), any(LocalDateTime.class))).thenReturn(Arrays.asList(null, null));
+        when(paymentRepository.findAllById(anyList())).thenReturn(List.of(approved));
+
+        // ACT
+        List<Payment> result = paymentService.updatePaymentStatuses(List.of(
+                new PaymentStatusUpdate(PAYMENT_ID, "APPROVED", AUDIT_USER),
+                new PaymentStatusUpdate(PAYMENT_ID, "APPROVED", AUDIT_USER)));
+
+        // ASSERT
+        assertEquals(List.of(approved), result);
+        verify(paymentStatsService, never()).recordStatusChanges(anyList(), any());
+        verify(eventPublisher, never()).publishEvent(any());
+        assertEquals(2, paymentService.unchangedStatusUpdates());
+        assertEquals(0, paymentService.refusedStatusUpdates());
+    }
+
+    @Test
+    void updatePaymentStatuses_Regression_IsSkippedAndTheRestApplied() {
+        // ARRANGE: payment 1 is refunded and cannot go back to APPROVED; payment 2 is approved
+        Payment refunded = Payment.builder().id(1L).reservationId(RESERVATION_ID).amount(AMOUNT).status(PaymentStatus.REFUNDED).build();
+        Payment approved = Payment.builder().id(2L).reservationId(RESERVATION_ID + 1).amount(AMOUNT).status(PaymentStatus.APPROVED).build();
+        when(paymentRepository.changeStatuses(anyList(), any(LocalDateTime.class))).thenReturn(Arrays.asList(null, PaymentStatus.PENDING));
+        when(paymentRepository.findAllById(anyList())).thenReturn(List.of(refunded, approved));
+
+        // ACT
+        List<Payment> result = paymentService.updatePaymentStatuses(List.of(
+                new PaymentStatusUpdate(1L, "APPROVED", AUDIT_USER),
+                new PaymentStatusUpdate(2L, "APPROVED", AUDIT_USER)));
+
+        // ASSERT
+        assertEquals(2, result.size());
+        verify(paymentStatsService, times(1)).recordStatusChanges(eq(List.of(approved)), eq(Map.of(1L, PaymentStatus.REFUNDED, 2L, PaymentStatus.PENDING)));
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) -> event instanceof PaymentApprovedEvent approvedEvent
+                && approvedEvent.getPaymentId() == 2L));
+        assertEquals(1, paymentService.refusedStatusUpdates());
+        assertEquals(0, paymentService.unchangedStatusUpdates());
+        assertEquals(1, statusUpdateTimerCount("batch", "applied"));
+    }
+
+    @Test
+    void updatePaymentStatuses_UnknownPayment_FailsTheWholeBatch() {
+        // ARRANGE
+        when(paymentRepository.changeStatuses(anyList(), any(LocalDateTime.class))).thenReturn(Arrays.asList(PaymentStatus.PENDING, null));
+        when(paymentRepository.findAllById(anyList())).thenReturn(List.of(savedPayment));
+
+        // ACT & ASSERT: thrown inside the transaction, so the applied change is rolled back
+        assertThrows(PaymentNotFoundException.class, () -> paymentService.updatePaymentStatuses(List.of(
+                new PaymentStatusUpdate(PAYMENT_ID, "APPROVED", AUDIT_USER),
+                new PaymentStatusUpdate(404L, "APPROVED", AUDIT_USER))));
+        verify(paymentStatsService, never()).recordStatusChanges(anyList(), any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void updatePaymentStatuses_InvalidStatus_FailsBeforeWriting() {
+        // ACT & ASSERT
+        assertThrows(InvalidPaymentStatusException.class, () -> paymentService.updatePaymentStatuses(List.of(
+                new PaymentStatusUpdate(PAYMENT_ID, "APPROVED", AUDIT_USER),
+                new PaymentStatusUpdate(PAYMENT_ID, "UNKNOWN", AUDIT_USER))));
+        verify(paymentRepository, never()).changeStatuses(anyList(), any());
     }
 
-    // --- 5. TESTS FOR generatePaymentVoucher ---
+    // --- 5. TESTS FOR getPaymentVoucher ---
 
     @Test
-    void generatePaymentVoucher_PaymentApproved_ReturnsPdfBytes() {
+    void getPaymentVoucher_StoredVoucher_ServesFileWithoutRendering() {
         // ARRANGE
         Payment approvedPayment = Payment.builder()
                 .id(PAYMENT_ID)
                 .status(PaymentStatus.APPROVED)
                 .build();
-        byte[] pdfBytes = "PDF_CONTENT".getBytes();
+        StoredVoucher stored = new StoredVoucher(Path.of("voucher.pdf"), "abc123", 42L);
 
         when(paymentRepository.findById(PAYMENT_ID)).thenReturn(Optional.of(approvedPayment));
-        when(voucherPdfGeneratorService.generatePdf(approvedPayment)).thenReturn(pdfBytes);
+        when(voucherFileStore.find(approvedPayment)).thenReturn(Optional.of(stored));
 
         // ACT
-        byte[] result = paymentService.generatePaymentVoucher(PAYMENT_ID);
+        VoucherDocument result = paymentService.getPaymentVoucher(PAYMENT_ID);
 
         // ASSERT
-        assertNotNull(result);
-        assertArrayEquals(pdfBytes, result);
-        verify(voucherPdfGeneratorService, times(1)).generatePdf(approvedPayment);
+        assertEquals("abc123", result.getEtag());
+        assertEquals(42L, result.getContentLength());
+        verify(voucherPdfGeneratorService, never()).writePdf(any(Payment.class), any(OutputStream.class));
     }
 
     @Test
-    void generatePaymentVoucher_PaymentNotFound_ThrowsPaymentNotFoundException() {
+    void getPaymentVoucher_NotStored_RendersIntoStore() {
+        // ARRANGE
+        Payment approvedPayment = Payment.builder()
+                .id(PAYMENT_ID)
+                .status(PaymentStatus.APPROVED)
+                .build();
+        StoredVoucher stored = new StoredVoucher(Path.of("voucher.pdf"), "abc123", 11L);
+
+        when(paymentRepository.findById(PAYMENT_ID)).thenReturn(Optional.of(approvedPayment));
+        when(voucherFileStore.find(approvedPayment)).thenReturn(Optional.empty());
+        when(voucherFileStore.store(eq(approvedPayment), any())).thenAnswer(invocation -> {
+            Consumer<OutputStream> renderer = invocation.getArgument(1);
+            renderer.accept(new ByteArrayOutputStream());
+            return Optional.of(stored);
+        });
+
+        // ACT
+        VoucherDocument result = paymentService.getPaymentVoucher(PAYMENT_ID);
+
+        // ASSERT
+        assertTrue(result.isStored());
+        assertEquals("abc123", result.getEtag());
+        verify(voucherPdfGeneratorService, times(1)).writePdf(eq(approvedPayment), any(OutputStream.class));
+        verify(voucherPdfGeneratorService, never()).generatePdf(any(Payment.class));
+    }
+
+    @Test
+    void getPaymentVoucher_StoreFails_StreamsRenderWithoutEtag() {
+        // ARRANGE
+        Payment approvedPayment = Payment.builder()
+                .id(PAYMENT_ID)
+                .status(PaymentStatus.APPROVED)
+                .build();
+
+        when(paymentRepository.findById(PAYMENT_ID)).thenReturn(Optional.of(approvedPayment));
+        when(voucherFileStore.find(approvedPayment)).thenReturn(Optional.empty());
+        when(voucherFileStore.store(eq(approvedPayment), any())).thenReturn(Optional.empty());
+
+        // ACT
+        VoucherDocument result = paymentService.getPaymentVoucher(PAYMENT_ID);
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        result.getRenderer().accept(response);
+
+        // ASSERT
+        assertFalse(result.isStored());
+        assertNull(result.getEtag());
+        verify(voucherPdfGeneratorService, times(1)).writePdf(approvedPayment, response);
+    }
+
+    @Test
+    void getPaymentVoucher_PaymentNotFound_ThrowsPaymentNotFoundException() {
         // ARRANGE
         when(paymentRepository.findById(PAYMENT_ID)).thenReturn(Optional.empty());
 
         // ACT & ASSERT
         assertThrows(PaymentNotFoundException.class, () ->
-                paymentService.generatePaymentVoucher(PAYMENT_ID)
+                paymentService.getPaymentVoucher(PAYMENT_ID)
         );
-        verify(voucherPdfGeneratorService, never()).generatePdf(any(Payment.class));
+        verify(voucherPdfGeneratorService, never()).writePdf(any(Payment.class), any(OutputStream.class));
     }
 
     @Test
-    void generatePaymentVoucher_PaymentPending_ThrowsVoucherGenerationException() {
+    void getPaymentVoucher_PaymentPending_ThrowsVoucherGenerationException() {
         // ARRANGE
         Payment pendingPayment = Payment.builder()
                 .id(PAYMENT_ID)
@@ -324,8 +1070,13 @@ class PaymentServiceTest {
 
         // ACT & ASSERT
         assertThrows(VoucherGenerationException.class, () ->
-                paymentService.generatePaymentVoucher(PAYMENT_ID)
+                paymentService.getPaymentVoucher(PAYMENT_ID)
         );
-        verify(voucherPdfGeneratorService, never()).generatePdf(any(Payment.class));
+        verify(voucherPdfGeneratorService, never()).writePdf(any(Payment.class), any(OutputStream.class));
+        verify(voucherFileStore, never()).find(any(Payment.class));
+    }
+
+    private long statusUpdateTimerCount(String mode, String result) {
+        return meterRegistry.get("payment.status.update").tag("mode", mode).tag("result", result).timer().count();
     }
-}
\ No newline at end of file
+}
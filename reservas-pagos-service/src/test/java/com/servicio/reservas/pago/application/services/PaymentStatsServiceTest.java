@@ -0,0 +1,151 @@
+package com.servicio.reservas.pago.application.services;
+
+import com.servicio.reservas.pago.application.dto.PaymentStatsBucket;
+import com.servicio.reservas.pago.application.dto.PaymentStatsGranularity;
+import com.servicio.reservas.pago.application.dto.PaymentStatsResponse;
+import com.servicio.reservas.pago.domain.entities.Payment;
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import com.servicio.reservas.pago.domain.repository.IPaymentStatsRepository;
+import com.servicio.reservas.pago.domain.repository.PaymentStatsRow;
+import com.servicio.reservas.pago.infraestructure.exception.InvalidStatsRangeException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentStatsServiceTest {
+
+    private static final LocalDateTime TEN_AM = LocalDateTime.of(2025, 3, 1, 10, 0);
+
+    @Mock
+    private IPaymentStatsRepository statsRepository;
+
+    @InjectMocks
+    private PaymentStatsService paymentStatsService;
+
+    @Test
+    void recordCreated_MergesPaymentsOfTheSameHourIntoOneIncrement() {
+        paymentStatsService.recordCreated(List.of(
+                payment(1L, TEN_AM.plusMinutes(59), 80.0, PaymentStatus.PENDING),
+                payment(2L, TEN_AM.plusMinutes(5), 250.5, PaymentStatus.PENDING),
+                payment(3L, TEN_AM.minusMinutes(1), 10.0, PaymentStatus.PENDING)));
+
+        List<PaymentStatsRow> rows = savedIncrements();
+
+        // Oldest bucket first
+        assertEquals(2, rows.size());
+        assertRow(rows.get(0), TEN_AM.minusHours(1), PaymentStatus.PENDING, 1, "10.0");
+        assertRow(rows.get(1), TEN_AM, PaymentStatus.PENDING, 2, "330.5");
+    }
+
+    @Test
+    void recordStatusChange_MovesCountAndAmountWithinTheCreationHour() {
+        paymentStatsService.recordStatusChange(TEN_AM.plusMinutes(30), 250.0, PaymentStatus.PENDING, PaymentStatus.APPROVED);
+
+        List<PaymentStatsRow> rows = savedIncrements();
+
+        // Rows in status order, as every transaction writes them
+        assertEquals(2, rows.size());
+        assertRow(rows.get(0), TEN_AM, PaymentStatus.PENDING, -1, "-250.0");
+        assertRow(rows.get(1), TEN_AM, PaymentStatus.APPROVED, 1, "250.0");
+    }
+
+    @Test
+    void recordStatusChanges_MovesThatCancelOut_WriteNothing() {
+        // PENDING -> REJECTED and REJECTED -> APPROVED in the same hour: REJECTED gains one and loses one
+        Payment rejected = payment(2L, TEN_AM, 100.0, PaymentStatus.REJECTED);
+        Payment approved = payment(3L, TEN_AM, 100.0, PaymentStatus.APPROVED);
+
+        paymentStatsService.recordStatusChanges(List.of(rejected, approved),
+                Map.of(2L, PaymentStatus.PENDING, 3L, PaymentStatus.REJECTED));
+
+        List<PaymentStatsRow> rows = savedIncrements();
+        assertEquals(2, rows.size());
+        assertRow(rows.get(0), TEN_AM, PaymentStatus.PENDING, -1, "-100.0");
+        assertRow(rows.get(1), TEN_AM, PaymentStatus.APPROVED, 1, "100.0");
+    }
+
+    @Test
+    void recordDeleted_SubtractsThePayments() {
+        paymentStatsService.recordDeleted(List.of(payment(1L, TEN_AM, 80.0, PaymentStatus.PENDING)));
+
+        assertRow(savedIncrements().get(0), TEN_AM, PaymentStatus.PENDING, -1, "-80.0");
+    }
+
+    @Test
+    void getStats_Hourly_WidensTheRangeToWholeHours() {
+        when(statsRepository.findHourly(TEN_AM, TEN_AM.plusHours(2))).thenReturn(List.of(
+                new PaymentStatsRow(TEN_AM, PaymentStatus.APPROVED, 2L, new BigDecimal("500.00"))));
+
+        PaymentStatsResponse response = paymentStatsService.getStats(
+                TEN_AM.plusMinutes(15), TEN_AM.plusMinutes(61), PaymentStatsGranularity.HOUR);
+
+        assertEquals(TEN_AM, response.getFrom());
+        assertEquals(TEN_AM.plusHours(2), response.getTo());
+        assertEquals(List.of(new PaymentStatsBucket(TEN_AM, PaymentStatus.APPROVED, 2, new BigDecimal("500.00"))),
+                response.getBuckets());
+    }
+
+    @Test
+    void getStats_Daily_SumsTheHoursOfEachDay() {
+        LocalDateTime day = TEN_AM.toLocalDate().atStartOfDay();
+        when(statsRepository.findHourly(day, day.plusDays(2))).thenReturn(List.of(
+                new PaymentStatsRow(TEN_AM, PaymentStatus.PENDING, 1L, new BigDecimal("80.00")),
+                new PaymentStatsRow(TEN_AM.plusHours(1), PaymentStatus.APPROVED, 2L, new BigDecimal("500.00")),
+                new PaymentStatsRow(TEN_AM.plusHours(3), PaymentStatus.PENDING, 3L, new BigDecimal("30.00")),
+                new PaymentStatsRow(TEN_AM.plusDays(1), PaymentStatus.REJECTED, 1L, new BigDecimal("10.00"))));
+
+        PaymentStatsResponse response = paymentStatsService.getStats(day, day.plusDays(2), PaymentStatsGranularity.DAY);
+
+        assertEquals(List.of(
+                new PaymentStatsBucket(day, PaymentStatus.APPROVED, 2, new BigDecimal("500.00")),
+                new PaymentStatsBucket(day, PaymentStatus.PENDING, 4, new BigDecimal("110.00")),
+                new PaymentStatsBucket(day.plusDays(1), PaymentStatus.REJECTED, 1, new BigDecimal("10.00"))),
+                response.getBuckets());
+    }
+
+    @Test
+    void getStats_RangeTooLongOrEmpty_IsRejected() {
+        assertThrows(InvalidStatsRangeException.class, () ->
+                paymentStatsService.getStats(TEN_AM.minusDays(40), TEN_AM, PaymentStatsGranularity.HOUR));
+        assertThrows(InvalidStatsRangeException.class, () ->
+                paymentStatsService.getStats(TEN_AM, TEN_AM, PaymentStatsGranularity.HOUR));
+        verify(statsRepository, never()).findHourly(any(), any());
+    }
+
+    private List<PaymentStatsRow> savedIncrements() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PaymentStatsRow>> captor = ArgumentCaptor.forClass(List.class);
+        verify(statsRepository).add(captor.capture());
+        return captor.getValue();
+    }
+
+    private static void assertRow(PaymentStatsRow row, LocalDateTime bucketStart, PaymentStatus status, long count, String amount) {
+        assertEquals(bucketStart, row.getBucketStart());
+        assertEquals(status, row.getStatus());
+        assertEquals(count, row.getCount());
+        assertEquals(0, new BigDecimal(amount).compareTo(row.getAmount()), "amount " + row.getAmount());
+    }
+
+    private static Payment payment(Long id, LocalDateTime createdAt, Double amount, PaymentStatus status) {
+        return Payment.builder()
+                .id(id)
+                .reservationId(100L + id)
+                .amount(amount)
+                .status(status)
+                .createdAt(createdAt)
+                .build();
+    }
+}
@@ -0,0 +1,184 @@
+package com.servicio.reservas.pago.application.services;
+
+import com.servicio.reservas.pago.application.dto.PaymentDtoMapper;
+import com.servicio.reservas.pago.application.dto.PaymentRequest;
+import com.servicio.reservas.pago.application.dto.PreferenceRequest;
+import com.servicio.reservas.pago.application.dto.PreferenceResponse;
+import com.servicio.reservas.pago.domain.services.VoucherPdfGeneratorService;
+import com.servicio.reservas.pago.infraestructure.client.GatewayExecutor;
+import com.servicio.reservas.pago.infraestructure.client.IGatewayPaymentPort;
+import com.servicio.reservas.pago.infraestructure.client.IReservationClient;
+import com.servicio.reservas.pago.infraestructure.client.ReservationDTO;
+import com.servicio.reservas.pago.infraestructure.metrics.PaymentMetrics;
+import com.servicio.reservas.pago.infraestructure.persistence.CachingPaymentRepository;
+import com.servicio.reservas.pago.infraestructure.persistence.DatabaseDialect;
+import com.servicio.reservas.pago.infraestructure.persistence.PaymentOutboxRepositoryPersistence;
+import com.servicio.reservas.pago.infraestructure.persistence.PaymentRepositoryPersistence;
+import com.servicio.reservas.pago.infraestructure.storage.VoucherFileStore;
+import com.servicio.reservas.pago.infraestructure.storage.VoucherRenderExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+/**
+ * Throughput of createPayment with request handling on 200 platform threads (Tomcat's default) versus one
+ * virtual thread per request, while Mercado Pago is slow (1 s per preference) and the agenda service answers
+ * in 20 ms. Blocking then dominates the CPU cost of a creation, so the 200 request threads are what limits the
+ * platform run. Virtual threads go past that limit: creations only wait for other creations of the same reservation,
+ * and every request here is for a different one.
+ * <p>
+ * Recorded 2026-10-18, Temurin 21.0.1, 1 vCPU Xeon VM, two rounds: platform 173 and 174 req/s (p99 11.4 s),
+ * virtual 213 and 280 req/s (p99 9.4 and 7.1 s). Before creations stopped sharing 256 hashed lock stripes the
+ * virtual run stayed at 210-219 req/s, at most 256 / 200 = 1.28 times the platform throughput.
+ * With a 150 ms gateway the same machine is CPU-bound at 350-490 req/s long before 200 threads are busy,
+ * and virtual threads were slower there (250-320 req/s).
+ * Run with Java 21: mvn -P java21 test -Dtest=VirtualThreadLoadComparisonTest -DargLine=-Djdk.tracePinnedThreads=short
+ */
+@Slf4j
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:vthreads-load;DB_CLOSE_DELAY=-1",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.datasource.hikari.maximum-pool-size=50",
+        "app.payment.success-url=http://success",
+        "app.payment.pending-url=http://pending",
+        "app.payment.failure-url=http://failure"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({PaymentService.class, PaymentDtoMapper.class, PaymentRepositoryPersistence.class, DatabaseDialect.class,
+        CachingPaymentRepository.class,
+        PaymentOutboxRepositoryPersistence.class, PaymentOutboxService.class, PaymentPreferenceDispatcher.class,
+        PreferenceRequestFactory.class, GatewayExecutor.class, VoucherRenderExecutor.class,
+        PaymentMetrics.class, SimpleMeterRegistry.class,
+        VirtualThreadLoadComparisonTest.BlockingGatewayPort.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledForJreRange(min = JRE.JAVA_21)
+class VirtualThreadLoadComparisonTest {
+
+    private static final int REQUESTS = 2_000;
+    private static final int ROUNDS = 2;
+    private static final int PLATFORM_REQUEST_THREADS = 200;
+
+    @Autowired
+    private PaymentService paymentService;
+    @MockBean
+    private IReservationClient reservationClient;
+    @MockBean
+    private VoucherPdfGeneratorService voucherPdfGeneratorService;
+    @MockBean
+    private VoucherFileStore voucherFileStore;
+    // Statistics rows are not what this test measures, and H2 has no upsert for concurrent first writes
+    @MockBean
+    private PaymentStatsService paymentStatsService;
+
+    // Every request creates a new payment; a reused reservation would only replay the existing one
+    private long nextReservationId;
+
+    @BeforeEach
+    void setUp() {
+        when(reservationClient.findReservationById(anyLong())).thenAnswer(invocation -> {
+            Thread.sleep(20);
+            return Optional.of(new ReservationDTO(invocation.getArgument(0), 50L, 20L, 250.0));
+        });
+    }
+
+    @Test
+    void virtualThreads_SlowGateway_OutperformPlatformThreadPool() throws Exception {
+        ThreadPoolTaskExecutor platform = new ThreadPoolTaskExecutor();
+        platform.setCorePoolSize(PLATFORM_REQUEST_THREADS);
+        platform.setMaxPoolSize(PLATFORM_REQUEST_THREADS);
+        platform.setQueueCapacity(REQUESTS);
+        platform.setThreadNamePrefix("http-nio-");
+        platform.initialize();
+        AsyncTaskExecutor virtual = new VirtualThreadTaskExecutor("request-");
+
+        double platformThroughput = 0;
+        double virtualThroughput = 0;
+        try {
+            // Until the JIT has compiled the creation path a run is CPU-bound, whatever the threads
+            run("warm-up", platform);
+            run("warm-up", virtual);
+            // Alternating rounds, best of each, so neither side only gets the slower half of the run
+            for (int round = 0; round < ROUNDS; round++) {
+                platformThroughput = Math.max(platformThroughput, run("platform threads (" + PLATFORM_REQUEST_THREADS + ")", platform));
+                virtualThroughput = Math.max(virtualThroughput, run("virtual threads", virtual));
+            }
+        } finally {
+            platform.shutdown();
+        }
+
+        assertTrue(platformThroughput < PLATFORM_REQUEST_THREADS / BlockingGatewayPort.LATENCY_SECONDS,
+                "The platform run cannot exceed one request per thread per gateway call, got " + platformThroughput);
+        assertTrue(virtualThroughput > platformThroughput * 1.1,
+                "Virtual threads should go past the 200 request threads: " + virtualThroughput + " vs " + platformThroughput + " req/s");
+    }
+
+    // Returns the throughput in requests per second
+    private double run(String scenario, AsyncTaskExecutor requestThreads) throws Exception {
+        long start = System.nanoTime();
+        List<Future<Long>> latencies = new ArrayList<>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            PaymentRequest request = new PaymentRequest();
+            request.setReservationId(nextReservationId++);
+            request.setAmount(250.0);
+            long submitted = System.nanoTime();
+            latencies.add(requestThreads.submit(() -> {
+                paymentService.createPayment(request, null);
+                return System.nanoTime() - submitted;
+            }));
+        }
+
+        long[] nanos = new long[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            nanos[i] = latencies.get(i).get(2, TimeUnit.MINUTES);
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        Arrays.sort(nanos);
+
+        double throughput = REQUESTS / seconds;
+        log.info("{}: {} requests in {} s -> {} req/s, p50 {} ms, p99 {} ms", scenario, REQUESTS,
+                String.format("%.2f", seconds), Math.round(throughput),
+                nanos[REQUESTS / 2] / 1_000_000, nanos[(int) (REQUESTS * 0.99)] / 1_000_000);
+        return throughput;
+    }
+
+    static class BlockingGatewayPort implements IGatewayPaymentPort {
+
+        static final double LATENCY_SECONDS = 1.0;
+
+        @Override
+        public Optional<PreferenceResponse> createPaymentPreference(PreferenceRequest request) {
+            try {
+                Thread.sleep((long) (LATENCY_SECONDS * 1000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Optional.empty();
+            }
+            return Optional.of(new PreferenceResponse("MP_" + request.getExternalReference(),
+                    "http://link_mp/" + request.getExternalReference()));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.servicio.reservas.pago.domain.services;
+
+import com.servicio.reservas.pago.domain.entities.Payment;
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Heap allocated and CPU time per voucher download, buffered byte[] vs streamed, under concurrent renders.
+ * Compare across commits to measure renderer changes (e.g. the precompiled template).
+ * The response is simulated by a discarding stream so only rendering and copying are measured.
+ * Run with: mvn test -Dtest=VoucherAllocationBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VoucherAllocationBenchmarkTest {
+
+    private static final int THREADS = 8;
+    private static final int VOUCHERS_PER_THREAD = 200;
+
+    private final VoucherPdfGeneratorService generator = new VoucherPdfGeneratorService();
+    private final Payment payment = Payment.builder()
+            .id(1L)
+            .reservationId(101L)
+            .externalPaymentId("MP-123456")
+            .amount(250.0)
+            .status(PaymentStatus.APPROVED)
+            .createdAt(LocalDateTime.now())
+            .build();
+
+    @Test
+    void bufferedByteArray() throws Exception {
+        // Previous path: render to byte[] and hand the array to the response
+        run("generatePdf() + write byte[]", out -> {
+            try {
+                out.write(generator.generatePdf(payment));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Test
+    void streamedToResponse() throws Exception {
+        run("writePdf() to response stream", out -> generator.writePdf(payment, out));
+    }
+
+    private void run(String scenario, Consumer<OutputStream> download) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        // Warm-up so class loading and JIT do not count
+        for (int i = 0; i < 200; i++) {
+            download.accept(OutputStream.nullOutputStream());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<long[]>> measurements = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < THREADS; t++) {
+                measurements.add(executor.submit(() -> {
+                    long threadId = Thread.currentThread().getId();
+                    long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+                    long cpuBefore = threads.getThreadCpuTime(threadId);
+                    for (int i = 0; i < VOUCHERS_PER_THREAD; i++) {
+                        download.accept(OutputStream.nullOutputStream());
+                    }
+                    return new long[]{
+                            threads.getThreadAllocatedBytes(threadId) - allocatedBefore,
+                            threads.getThreadCpuTime(threadId) - cpuBefore
+                    };
+                }));
+            }
+
+            long allocated = 0;
+            long cpuNanos = 0;
+            for (Future<long[]> measurement : measurements) {
+                allocated += measurement.get()[0];
+                cpuNanos += measurement.get()[1];
+            }
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            int vouchers = THREADS * VOUCHERS_PER_THREAD;
+
+            assertTrue(allocated > 0);
+            System.out.printf("%s: %d vouchers on %d threads in %.3f s -> %.0f vouchers/s, %d KB allocated and %d us CPU per voucher%n",
+                    scenario, vouchers, THREADS, seconds, vouchers / seconds, allocated / vouchers / 1024, cpuNanos / vouchers / 1000);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
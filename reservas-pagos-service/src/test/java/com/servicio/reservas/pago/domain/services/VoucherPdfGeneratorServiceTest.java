@@ -0,0 +1,85 @@
+package com.servicio.reservas.pago.domain.services;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.canvas.parser.PdfTextExtractor;
+import com.servicio.reservas.pago.domain.entities.Payment;
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VoucherPdfGeneratorServiceTest {
+
+    private final VoucherPdfGeneratorService generator = new VoucherPdfGeneratorService();
+
+    @Test
+    void generatePdf_ContainsStaticTemplateAndPaymentFields() throws IOException {
+        Payment payment = Payment.builder()
+                .id(7L)
+                .reservationId(101L)
+                .externalPaymentId("MP-123456")
+                .amount(250.0)
+                .status(PaymentStatus.APPROVED)
+                .createdAt(LocalDateTime.of(2025, 3, 14, 9, 30))
+                .build();
+
+        String text = extractText(generator.generatePdf(payment));
+
+        // Static layer, replayed from the precompiled template
+        assertTrue(text.contains("StudioBarber"));
+        assertTrue(text.contains("Comprobante de Ingreso"));
+        assertTrue(text.contains("ID de Operación:"));
+        assertTrue(text.contains("StudioBarber | Cuenta de Comercio"));
+        // Variable fields
+        assertTrue(text.contains("14/03/2025 a las 09:30 hs."));
+        assertTrue(text.contains("$ 250.00 COP"));
+        assertTrue(text.contains("APPROVED"));
+        assertTrue(text.contains("MP-123456"));
+        assertTrue(text.contains("Reserva N° 101"));
+    }
+
+    @Test
+    void generatePdf_MissingExternalReference_PrintsNotAvailable() throws IOException {
+        Payment payment = Payment.builder()
+                .id(8L)
+                .reservationId(102L)
+                .amount(99.999)
+                .status(PaymentStatus.APPROVED)
+                .createdAt(LocalDateTime.of(2025, 3, 14, 9, 30))
+                .build();
+
+        String text = extractText(generator.generatePdf(payment));
+
+        assertTrue(text.contains("N/A"));
+        assertTrue(text.contains("$ 100.00 COP"));
+    }
+
+    @Test
+    void generatePdf_RepeatedRenders_ProduceOneSinglePageDocumentEach() throws IOException {
+        Payment payment = Payment.builder()
+                .id(9L)
+                .reservationId(103L)
+                .amount(10.0)
+                .status(PaymentStatus.APPROVED)
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        for (int i = 0; i < 3; i++) {
+            try (PdfDocument pdf = new PdfDocument(new PdfReader(new ByteArrayInputStream(generator.generatePdf(payment))))) {
+                assertEquals(1, pdf.getNumberOfPages());
+            }
+        }
+    }
+
+    private String extractText(byte[] pdfBytes) throws IOException {
+        try (PdfDocument pdf = new PdfDocument(new PdfReader(new ByteArrayInputStream(pdfBytes)))) {
+            return PdfTextExtractor.getTextFromPage(pdf.getFirstPage());
+        }
+    }
+}
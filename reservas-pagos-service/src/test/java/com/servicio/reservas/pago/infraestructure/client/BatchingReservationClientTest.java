@@ -0,0 +1,174 @@
+package com.servicio.reservas.pago.infraestructure.client;
+
+import feign.FeignException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class BatchingReservationClientTest {
+
+    private final StubAgendaService agenda = new StubAgendaService();
+    private BatchingReservationClient client;
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+    }
+
+    @Test
+    void findReservationById_ConcurrentLookups_AreSentAsOneBulkCall() throws Exception {
+        agenda.add(1L, 10.0);
+        agenda.add(2L, 20.0);
+        agenda.add(3L, 30.0);
+        client = new BatchingReservationClient(agenda, Duration.ofMillis(200), 50, Duration.ofMinutes(1), 1);
+
+        List<CompletableFuture<Optional<ReservationDTO>>> lookups = lookUpConcurrently(1L, 2L, 3L, 4L);
+
+        assertEquals(10.0, lookups.get(0).get(5, TimeUnit.SECONDS).orElseThrow().getAmount());
+        assertEquals(20.0, lookups.get(1).get(5, TimeUnit.SECONDS).orElseThrow().getAmount());
+        assertEquals(30.0, lookups.get(2).get(5, TimeUnit.SECONDS).orElseThrow().getAmount());
+        assertTrue(lookups.get(3).get(5, TimeUnit.SECONDS).isEmpty());
+        assertEquals(1, agenda.bulkCalls.size());
+        assertEquals(4, agenda.bulkCalls.get(0).size());
+        assertEquals(0, agenda.singleCalls.get());
+    }
+
+    @Test
+    void findReservationById_FullBatch_IsSentWithoutWaitingForTheWindow() throws Exception {
+        agenda.add(1L, 10.0);
+        agenda.add(2L, 20.0);
+        client = new BatchingReservationClient(agenda, Duration.ofMinutes(1), 2, Duration.ofMinutes(1), 1);
+
+        List<CompletableFuture<Optional<ReservationDTO>>> lookups = lookUpConcurrently(1L, 2L);
+
+        assertTrue(lookups.get(0).get(5, TimeUnit.SECONDS).isPresent());
+        assertTrue(lookups.get(1).get(5, TimeUnit.SECONDS).isPresent());
+        assertEquals(1, agenda.bulkCalls.size());
+    }
+
+    @Test
+    void findReservationById_SingleLookup_UsesPerIdEndpoint() {
+        agenda.add(1L, 10.0);
+        client = new BatchingReservationClient(agenda, Duration.ofMillis(5), 50, Duration.ofMinutes(1), 1);
+
+        assertTrue(client.findReservationById(1L).isPresent());
+
+        assertEquals(0, agenda.bulkCalls.size());
+        assertEquals(1, agenda.singleCalls.get());
+    }
+
+    @Test
+    void findReservationById_LoneLookup_IsOnePerIdCallFromTheDispatcher() {
+        agenda.add(1L, 10.0);
+        client = new BatchingReservationClient(agenda, Duration.ofMillis(5), 50, Duration.ofMinutes(1), 1);
+
+        assertEquals(10.0, client.findReservationById(1L).orElseThrow().getAmount());
+
+        // Answered by the window's own flush: no failed bulk round, no second call from the caller, no timer left
+        assertEquals(1, agenda.singleCalls.get());
+        assertEquals(0, agenda.bulkCalls.size());
+        assertTrue(agenda.singleCallThreads.get(0).startsWith("reservation-batch-"));
+        assertEquals(0, client.scheduledFlushes());
+    }
+
+    @Test
+    void findReservationById_LoneLookupFails_RethrowsTheAgendaError() {
+        agenda.singleFailure = mock(FeignException.ServiceUnavailable.class);
+        client = new BatchingReservationClient(agenda, Duration.ofMillis(5), 50, Duration.ofMinutes(1), 1);
+
+        assertThrows(FeignException.ServiceUnavailable.class, () -> client.findReservationById(1L));
+        assertEquals(1, agenda.singleCalls.get());
+    }
+
+    @Test
+    void findReservationById_BulkEndpointMissing_FallsBackToPerIdCallsAndStopsBatching() throws Exception {
+        agenda.add(1L, 10.0);
+        agenda.add(2L, 20.0);
+        agenda.bulkFailure = mock(FeignException.NotFound.class);
+        client = new BatchingReservationClient(agenda, Duration.ofMillis(200), 50, Duration.ofMinutes(1), 1);
+
+        List<CompletableFuture<Optional<ReservationDTO>>> lookups = lookUpConcurrently(1L, 2L);
+
+        assertTrue(lookups.get(0).get(5, TimeUnit.SECONDS).isPresent());
+        assertTrue(lookups.get(1).get(5, TimeUnit.SECONDS).isPresent());
+        assertEquals(1, agenda.bulkCalls.size());
+        assertEquals(2, agenda.singleCalls.get());
+
+        // Batching stays off: the next lookup goes straight to the per-id endpoint
+        assertTrue(client.findReservationById(1L).isPresent());
+        assertEquals(1, agenda.bulkCalls.size());
+        assertEquals(3, agenda.singleCalls.get());
+    }
+
+    // Starts all lookups together so they land in the same batching window
+    private List<CompletableFuture<Optional<ReservationDTO>>> lookUpConcurrently(Long... ids) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Optional<ReservationDTO>>> lookups = new ArrayList<>();
+        for (Long id : ids) {
+            CompletableFuture<Optional<ReservationDTO>> lookup = new CompletableFuture<>();
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    lookup.complete(client.findReservationById(id));
+                } catch (Throwable e) {
+                    lookup.completeExceptionally(e);
+                }
+            });
+            thread.start();
+            lookups.add(lookup);
+        }
+        start.countDown();
+        return lookups;
+    }
+
+    // In-memory stand-in for reservas-agenda-service that records the calls it receives
+    private static class StubAgendaService implements IReservationClient {
+
+        private final Map<Long, ReservationDTO> reservations = new ConcurrentHashMap<>();
+        private final List<List<Long>> bulkCalls = new CopyOnWriteArrayList<>();
+        private final AtomicInteger singleCalls = new AtomicInteger();
+        private final List<String> singleCallThreads = new CopyOnWriteArrayList<>();
+        private volatile RuntimeException bulkFailure;
+        private volatile RuntimeException singleFailure;
+
+        void add(Long id, Double amount) {
+            reservations.put(id, ReservationDTO.builder().id(id).amount(amount).build());
+        }
+
+        @Override
+        public Optional<ReservationDTO> findReservationById(Long id) {
+            singleCalls.incrementAndGet();
+            singleCallThreads.add(Thread.currentThread().getName());
+            if (singleFailure != null) {
+                throw singleFailure;
+            }
+            return Optional.ofNullable(reservations.get(id));
+        }
+
+        @Override
+        public List<ReservationDTO> findReservationsByIds(List<Long> ids) {
+            bulkCalls.add(List.copyOf(ids));
+            if (bulkFailure != null) {
+                throw bulkFailure;
+            }
+            return ids.stream()
+                    .map(reservations::get)
+                    .filter(reservation -> reservation != null)
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.servicio.reservas.pago.infraestructure.client;
+
+import feign.FeignException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingReservationClientTest {
+
+    private static final Long RESERVATION_ID = 101L;
+
+    @Mock
+    private IReservationClient delegate;
+
+    private CachingReservationClient client;
+    private ReservationDTO reservation;
+
+    @BeforeEach
+    void setUp() {
+        client = new CachingReservationClient(delegate, 100, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        reservation = ReservationDTO.builder()
+                .id(RESERVATION_ID)
+                .serviceId(50L)
+                .userId(20L)
+                .amount(250.0)
+                .build();
+    }
+
+    @Test
+    void findReservationById_RepeatedLookups_CallAgendaServiceOnce() {
+        when(delegate.findReservationById(RESERVATION_ID)).thenReturn(Optional.of(reservation));
+
+        client.findReservationById(RESERVATION_ID);
+        client.findReservationById(RESERVATION_ID);
+        Optional<ReservationDTO> third = client.findReservationById(RESERVATION_ID);
+
+        assertEquals(250.0, third.orElseThrow().getAmount());
+        verify(delegate, times(1)).findReservationById(RESERVATION_ID);
+        assertEquals(1, client.misses());
+        assertEquals(2, client.hits());
+        assertEquals(1, client.loadCount());
+    }
+
+    @Test
+    void findReservationById_NotFound_IsCachedAsEmpty() {
+        when(delegate.findReservationById(RESERVATION_ID)).thenThrow(mock(FeignException.NotFound.class));
+
+        assertTrue(client.findReservationById(RESERVATION_ID).isEmpty());
+        assertTrue(client.findReservationById(RESERVATION_ID).isEmpty());
+
+        verify(delegate, times(1)).findReservationById(RESERVATION_ID);
+        assertEquals(1, client.negativeHits());
+    }
+
+    @Test
+    void findReservationById_OtherFailures_AreNotCached() {
+        when(delegate.findReservationById(RESERVATION_ID))
+                .thenThrow(new IllegalStateException("agenda down"))
+                .thenReturn(Optional.of(reservation));
+
+        assertThrows(IllegalStateException.class, () -> client.findReservationById(RESERVATION_ID));
+        assertTrue(client.findReservationById(RESERVATION_ID).isPresent());
+
+        verify(delegate, times(2)).findReservationById(RESERVATION_ID);
+    }
+
+    @Test
+    void findReservationById_ConcurrentMisses_ShareOneRemoteCall() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        when(delegate.findReservationById(RESERVATION_ID)).thenAnswer(invocation -> {
+            loadStarted.countDown();
+            releaseLoad.await(5, TimeUnit.SECONDS);
+            return Optional.of(reservation);
+        });
+
+        CompletableFuture<Optional<ReservationDTO>> first = CompletableFuture.supplyAsync(() -> client.findReservationById(RESERVATION_ID));
+        assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Optional<ReservationDTO>> second = CompletableFuture.supplyAsync(() -> client.findReservationById(RESERVATION_ID));
+
+        while (client.coalescedLoads() == 0) {
+            Thread.onSpinWait();
+        }
+        releaseLoad.countDown();
+
+        assertTrue(first.get(5, TimeUnit.SECONDS).isPresent());
+        assertTrue(second.get(5, TimeUnit.SECONDS).isPresent());
+        verify(delegate, times(1)).findReservationById(RESERVATION_ID);
+    }
+
+    @Test
+    void findReservationsByIds_FetchesOnlyUncachedIdsAndCachesAbsentOnes() {
+        when(delegate.findReservationById(RESERVATION_ID)).thenReturn(Optional.of(reservation));
+        when(delegate.findReservationsByIds(List.of(102L, 103L)))
+                .thenReturn(List.of(ReservationDTO.builder().id(102L).amount(10.0).build()));
+
+        client.findReservationById(RESERVATION_ID);
+        List<ReservationDTO> found = client.findReservationsByIds(List.of(RESERVATION_ID, 102L, 103L));
+
+        assertEquals(2, found.size());
+        verify(delegate, times(1)).findReservationsByIds(List.of(102L, 103L));
+        // 103 was absent from the bulk answer, so it is now a cached miss
+        assertTrue(client.findReservationById(103L).isEmpty());
+        verify(delegate, never()).findReservationById(103L);
+    }
+}
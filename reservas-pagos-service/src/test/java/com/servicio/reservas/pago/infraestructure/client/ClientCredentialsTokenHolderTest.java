@@ -0,0 +1,175 @@
+package com.servicio.reservas.pago.infraestructure.client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClientCredentialsTokenHolderTest {
+
+    @Mock
+    private OAuth2AuthorizedClientManager authorizedClientManager;
+
+    @Mock
+    private OAuth2AuthorizedClientService authorizedClientService;
+
+    private ClientCredentialsTokenHolder tokenHolder;
+
+    @BeforeEach
+    void setUp() {
+        tokenHolder = new ClientCredentialsTokenHolder(authorizedClientManager, authorizedClientService,
+                Duration.ofSeconds(60), Duration.ZERO, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        tokenHolder.shutdown();
+    }
+
+    @Test
+    void getAccessToken_ValidToken_IsServedWithoutCallingTheAuthService() {
+        when(authorizedClientManager.authorize(any(OAuth2AuthorizeRequest.class)))
+                .thenReturn(authorizedClient("token-1", Instant.now().plusSeconds(300)));
+
+        assertEquals("token-1", tokenHolder.getAccessToken());
+        assertEquals("token-1", tokenHolder.getAccessToken());
+        assertEquals("token-1", tokenHolder.getAccessToken());
+
+        verify(authorizedClientManager, times(1)).authorize(any(OAuth2AuthorizeRequest.class));
+        assertEquals(1, tokenHolder.blockingFetches());
+    }
+
+    @Test
+    void refreshInBackground_ReplacesTokenWithoutBlockingRequests() {
+        when(authorizedClientManager.authorize(any(OAuth2AuthorizeRequest.class)))
+                .thenReturn(authorizedClient("token-1", Instant.now().plusSeconds(300)))
+                .thenReturn(authorizedClient("token-2", Instant.now().plusSeconds(600)));
+
+        tokenHolder.refreshInBackground();
+        assertEquals("token-1", tokenHolder.getAccessToken());
+        tokenHolder.refreshInBackground();
+        assertEquals("token-2", tokenHolder.getAccessToken());
+
+        assertEquals(0, tokenHolder.blockingFetches());
+        assertEquals(2, tokenHolder.refreshes());
+    }
+
+    @Test
+    void refreshInBackground_Failure_KeepsServingTheCurrentToken() {
+        when(authorizedClientManager.authorize(any(OAuth2AuthorizeRequest.class)))
+                .thenReturn(authorizedClient("token-1", Instant.now().plusSeconds(300)))
+                .thenThrow(new IllegalStateException("auth service down"));
+
+        tokenHolder.refreshInBackground();
+        tokenHolder.refreshInBackground();
+
+        assertEquals("token-1", tokenHolder.getAccessToken());
+        assertEquals(1, tokenHolder.refreshFailures());
+        assertEquals(0, tokenHolder.blockingFetches());
+    }
+
+    @Test
+    void getAccessToken_ExpiredToken_FetchesOnTheRequestThread() {
+        when(authorizedClientManager.authorize(any(OAuth2AuthorizeRequest.class)))
+                .thenReturn(authorizedClient("expired", Instant.now().minusSeconds(1)))
+                .thenReturn(authorizedClient("fresh", Instant.now().plusSeconds(300)));
+
+        tokenHolder.refreshInBackground();
+
+        assertEquals("fresh", tokenHolder.getAccessToken());
+        assertEquals(1, tokenHolder.blockingFetches());
+    }
+
+    @Test
+    void refreshInBackground_DropsTheStoredTokenSoTheManagerReallyFetches() {
+        when(authorizedClientManager.authorize(any(OAuth2AuthorizeRequest.class)))
+                .thenReturn(authorizedClient("token-1", Instant.now().plusSeconds(300)));
+
+        tokenHolder.refreshInBackground();
+
+        var order = inOrder(authorizedClientService, authorizedClientManager);
+        order.verify(authorizedClientService).removeAuthorizedClient(ClientCredentialsTokenHolder.CLIENT_REGISTRATION_ID,
+                "reservas-pagos-service");
+        order.verify(authorizedClientManager).authorize(any(OAuth2AuthorizeRequest.class));
+    }
+
+    @Test
+    void nextRefreshDelay_LongLivedToken_RefreshesRefreshBeforeAheadOfExpiry() {
+        ClientCredentialsTokenHolder holder = new ClientCredentialsTokenHolder(authorizedClientManager, authorizedClientService,
+                Duration.ofSeconds(60), Duration.ofSeconds(15), Duration.ofSeconds(5));
+        Instant now = Instant.now();
+
+        Duration delay = holder.nextRefreshDelay(token(now, now.plusSeconds(3600)));
+
+        assertTrue(delay.compareTo(Duration.ofSeconds(3600 - 75 - 1)) >= 0, delay.toString());
+        assertTrue(delay.compareTo(Duration.ofSeconds(3600 - 60)) <= 0, delay.toString());
+    }
+
+    @Test
+    void nextRefreshDelay_ShortLivedToken_WaitsHalfItsLifetimeInsteadOfTheRetryDelay() {
+        // 60s tokens against refresh-before 60s plus 15s jitter: refreshing 75s ahead would mean every retry-delay
+        ClientCredentialsTokenHolder holder = new ClientCredentialsTokenHolder(authorizedClientManager, authorizedClientService,
+                Duration.ofSeconds(60), Duration.ofSeconds(15), Duration.ofSeconds(5));
+        Instant now = Instant.now();
+
+        Duration delay = holder.nextRefreshDelay(token(now, now.plusSeconds(60)));
+
+        assertTrue(delay.compareTo(Duration.ofSeconds(29)) >= 0, delay.toString());
+        assertTrue(delay.compareTo(Duration.ofSeconds(30)) <= 0, delay.toString());
+    }
+
+    @Test
+    void refreshInBackground_ShortLivedTokens_FetchOncePerHalfLifetime() throws Exception {
+        ClientCredentialsTokenHolder holder = new ClientCredentialsTokenHolder(authorizedClientManager, authorizedClientService,
+                Duration.ofSeconds(60), Duration.ofSeconds(15), Duration.ofMillis(10));
+        when(authorizedClientManager.authorize(any(OAuth2AuthorizeRequest.class)))
+                .thenAnswer(invocation -> authorizedClient("short", Instant.now().plusSeconds(2), Duration.ofSeconds(2)));
+        try {
+            holder.start();
+            Thread.sleep(1500);
+
+            // Issued at 0s and refreshed at 1s: with the old 75s lead it was refetched every 10ms retry-delay
+            assertTrue(holder.refreshes() >= 1 && holder.refreshes() <= 3, "refreshes: " + holder.refreshes());
+            assertEquals("short", holder.getAccessToken());
+            assertEquals(0, holder.blockingFetches());
+        } finally {
+            holder.shutdown();
+        }
+    }
+
+    private static OAuth2AccessToken token(Instant issuedAt, Instant expiresAt) {
+        return new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token", issuedAt, expiresAt);
+    }
+
+    private static OAuth2AuthorizedClient authorizedClient(String tokenValue, Instant expiresAt) {
+        return authorizedClient(tokenValue, expiresAt, Duration.ofSeconds(600));
+    }
+
+    private static OAuth2AuthorizedClient authorizedClient(String tokenValue, Instant expiresAt, Duration lifetime) {
+        ClientRegistration registration = ClientRegistration.withRegistrationId(ClientCredentialsTokenHolder.CLIENT_REGISTRATION_ID)
+                .clientId("pagos-service")
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .tokenUri("http://localhost/oauth2/token")
+                .build();
+        OAuth2AccessToken token = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, tokenValue,
+                expiresAt.minus(lifetime), expiresAt);
+        return new OAuth2AuthorizedClient(registration, "reservas-pagos-service", token);
+    }
+}
@@ -0,0 +1,224 @@
+package com.servicio.reservas.pago.infraestructure.client;
+
+import com.servicio.reservas.pago.application.dto.PreferenceRequest;
+import com.servicio.reservas.pago.application.dto.PreferenceResponse;
+import com.servicio.reservas.pago.infraestructure.exception.ExternalPaymentGatewayException;
+import com.servicio.reservas.pago.infraestructure.metrics.PaymentMetrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResilientGatewayPaymentPortTest {
+
+    private static final PreferenceResponse PREFERENCE = new PreferenceResponse("MP_ID_123", "http://link_mp");
+
+    // Manual clock: the stub gateway "takes" as long as it advances it
+    private final AtomicLong nanos = new AtomicLong();
+    private StubGateway gateway;
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PaymentMetrics metrics = new PaymentMetrics(registry);
+
+    @BeforeEach
+    void setUp() {
+        gateway = new StubGateway();
+    }
+
+    @Test
+    void failingGateway_OpensTheCircuitAndFailsFastWithoutCallingIt() {
+        ResilientGatewayPaymentPort port = port(10, 10, 10);
+        gateway.behaviour = Optional::empty;
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(port.createPaymentPreference(request()).isEmpty());
+        }
+        assertEquals(GatewayCircuitBreaker.State.OPEN, port.circuitState());
+
+        assertThrows(ExternalPaymentGatewayException.class, () -> port.createPaymentPreference(request()));
+        assertEquals(4, gateway.calls.get(), "An open circuit must not reach the gateway.");
+        assertEquals(1, port.rejectedByCircuitBreaker());
+        assertEquals(1, port.circuitOpenedCount());
+    }
+
+    @Test
+    void calls_AreTimedByOutcome() {
+        ResilientGatewayPaymentPort port = port(10, 10, 10);
+        gateway.behaviour = () -> {
+            nanos.addAndGet(Duration.ofMillis(300).toNanos());
+            return Optional.of(PREFERENCE);
+        };
+        port.createPaymentPreference(request());
+
+        // 3 failures out of 4 calls open the circuit
+        gateway.behaviour = Optional::empty;
+        for (int i = 0; i < 3; i++) {
+            port.createPaymentPreference(request());
+        }
+        assertThrows(ExternalPaymentGatewayException.class, () -> port.createPaymentPreference(request()));
+
+        assertEquals(1, outcome("success").count());
+        assertEquals(300, outcome("success").totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(3, outcome("empty").count());
+        assertEquals(1, outcome("circuit_open").count());
+        assertEquals(0, outcome("error").count());
+    }
+
+    @Test
+    void openCircuit_AfterOpenDuration_ClosesWhenTrialCallsSucceed() {
+        ResilientGatewayPaymentPort port = port(10, 10, 10);
+        gateway.behaviour = Optional::empty;
+        for (int i = 0; i < 4; i++) {
+            port.createPaymentPreference(request());
+        }
+
+        nanos.addAndGet(Duration.ofSeconds(31).toNanos());
+        gateway.behaviour = () -> Optional.of(PREFERENCE);
+
+        // Two trial calls in HALF_OPEN
+        assertTrue(port.createPaymentPreference(request()).isPresent());
+        assertEquals(GatewayCircuitBreaker.State.HALF_OPEN, port.circuitState());
+        assertTrue(port.createPaymentPreference(request()).isPresent());
+        assertEquals(GatewayCircuitBreaker.State.CLOSED, port.circuitState());
+    }
+
+    @Test
+    void slowGateway_CountsAsFailureAndShrinksTheConcurrencyLimit() {
+        ResilientGatewayPaymentPort port = port(10, 10, 10);
+        gateway.behaviour = () -> {
+            nanos.addAndGet(Duration.ofSeconds(5).toNanos());
+            return Optional.of(PREFERENCE);
+        };
+
+        port.createPaymentPreference(request());
+        port.createPaymentPreference(request());
+
+        assertEquals(2, port.slowCalls());
+        assertEquals(4, port.concurrencyLimit(), "10 * 0.7 * 0.7 = 4.9, truncated");
+        port.createPaymentPreference(request());
+        port.createPaymentPreference(request());
+        assertEquals(GatewayCircuitBreaker.State.OPEN, port.circuitState());
+    }
+
+    @Test
+    void fastGateway_GrowsTheLimitOnlyWhileItIsInUse() {
+        AimdConcurrencyLimit limit = new AimdConcurrencyLimit(4, 1, 10, Duration.ofSeconds(1).toNanos(), 0.5);
+
+        // One call at a time never uses half of a limit of 4: no growth
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.onSuccess(Duration.ofMillis(50).toNanos());
+        }
+        assertEquals(4, limit.getLimit());
+
+        // Fully used: about +1 per limit's worth of successful calls
+        for (int round = 0; round < 3; round++) {
+            int permits = limit.getLimit();
+            for (int i = 0; i < permits; i++) {
+                assertTrue(limit.tryAcquire());
+            }
+            assertFalse(limit.tryAcquire());
+            for (int i = 0; i < permits; i++) {
+                limit.onSuccess(Duration.ofMillis(50).toNanos());
+            }
+        }
+        assertTrue(limit.getLimit() > 4, "Limit should have grown, got " + limit.getLimit());
+
+        limit.tryAcquire();
+        limit.onDropped();
+        assertTrue(limit.getLimit() <= 3, "A failure halves the limit, got " + limit.getLimit());
+    }
+
+    @Test
+    void bulkheadFull_RejectsTheExtraCallAfterMaxWait() throws Exception {
+        ResilientGatewayPaymentPort port = port(1, 10, 10);
+        CountDownLatch inGateway = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        gateway.behaviour = () -> {
+            inGateway.countDown();
+            await(release);
+            return Optional.of(PREFERENCE);
+        };
+
+        CompletableFuture<Optional<PreferenceResponse>> first =
+                CompletableFuture.supplyAsync(() -> port.createPaymentPreference(request()));
+        assertTrue(inGateway.await(1, TimeUnit.SECONDS));
+
+        assertThrows(ExternalPaymentGatewayException.class, () -> port.createPaymentPreference(request()));
+        assertEquals(1, port.rejectedByBulkhead());
+
+        release.countDown();
+        assertTrue(first.get(1, TimeUnit.SECONDS).isPresent());
+        assertEquals(GatewayCircuitBreaker.State.CLOSED, port.circuitState(), "Rejections are not gateway failures.");
+    }
+
+    @Test
+    void concurrencyLimitReached_RejectsBeforeTheBulkheadIsFull() throws Exception {
+        ResilientGatewayPaymentPort port = port(10, 1, 10);
+        CountDownLatch inGateway = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        gateway.behaviour = () -> {
+            inGateway.countDown();
+            await(release);
+            return Optional.of(PREFERENCE);
+        };
+
+        CompletableFuture<Optional<PreferenceResponse>> first =
+                CompletableFuture.supplyAsync(() -> port.createPaymentPreference(request()));
+        assertTrue(inGateway.await(1, TimeUnit.SECONDS));
+
+        assertThrows(ExternalPaymentGatewayException.class, () -> port.createPaymentPreference(request()));
+        assertEquals(1, port.rejectedByLimit());
+        assertEquals(1, port.inFlightCalls());
+
+        release.countDown();
+        first.get(1, TimeUnit.SECONDS);
+        assertEquals(0, port.inFlightCalls());
+    }
+
+    // Breaker: window 4, opens at 50% failures once 4 calls are recorded, 30 s open, 2 trial calls
+    private ResilientGatewayPaymentPort port(int maxConcurrentCalls, int initialLimit, int maxLimit) {
+        GatewayCircuitBreaker breaker = new GatewayCircuitBreaker(4, 4, 0.5, Duration.ofSeconds(30).toNanos(), 2, nanos::get);
+        AimdConcurrencyLimit limit = new AimdConcurrencyLimit(initialLimit, 1, maxLimit, Duration.ofSeconds(2).toNanos(), 0.7);
+        return new ResilientGatewayPaymentPort(gateway, breaker, maxConcurrentCalls, Duration.ofMillis(20),
+                limit, Duration.ofSeconds(4), nanos::get, metrics);
+    }
+
+    private Timer outcome(String outcome) {
+        return registry.get("mercadopago.preference.calls").tag("outcome", outcome).timer();
+    }
+
+    private static PreferenceRequest request() {
+        return new PreferenceRequest();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class StubGateway implements IGatewayPaymentPort {
+
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile Supplier<Optional<PreferenceResponse>> behaviour = () -> Optional.of(PREFERENCE);
+
+        @Override
+        public Optional<PreferenceResponse> createPaymentPreference(PreferenceRequest request) {
+            calls.incrementAndGet();
+            return behaviour.get();
+        }
+    }
+}
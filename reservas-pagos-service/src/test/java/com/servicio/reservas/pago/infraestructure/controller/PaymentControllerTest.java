@@ -1,28 +1,79 @@
 package com.servicio.reservas.pago.infraestructure.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.servicio.reservas.pago.application.dto.BatchPaymentItemResult;
+import com.servicio.reservas.pago.application.dto.BatchPaymentRequest;
+import com.servicio.reservas.pago.application.dto.BatchPaymentResponse;
+import com.servicio.reservas.pago.application.dto.PaymentDtoMapper;
+import com.servicio.reservas.pago.application.dto.PaymentLedgerFormat;
+import com.servicio.reservas.pago.application.dto.PaymentPageResponse;
 import com.servicio.reservas.pago.application.dto.PaymentRequest;
 import com.servicio.reservas.pago.application.dto.PaymentResponse;
+import com.servicio.reservas.pago.application.dto.PaymentStatsBucket;
+import com.servicio.reservas.pago.application.dto.PaymentStatsGranularity;
+import com.servicio.reservas.pago.application.dto.PaymentStatsResponse;
+import com.servicio.reservas.pago.application.dto.VoucherDocument;
 import com.servicio.reservas.pago.application.services.IPaymentService;
+import com.servicio.reservas.pago.domain.entities.Payment;
 import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import com.servicio.reservas.pago.domain.events.PaymentLinkReadyEvent;
+import com.servicio.reservas.pago.domain.repository.PaymentSearchCriteria;
+import com.servicio.reservas.pago.infraestructure.config.SecurityConfig;
+import com.servicio.reservas.pago.infraestructure.exception.IdempotencyKeyConflictException;
+import com.servicio.reservas.pago.infraestructure.exception.InvalidStatsRangeException;
+import com.servicio.reservas.pago.infraestructure.exception.InvalidStatusTransitionException;
+import com.servicio.reservas.pago.infraestructure.exception.PaymentNotFoundException;
 import com.servicio.reservas.pago.infraestructure.exception.VoucherGenerationException;
+import com.servicio.reservas.pago.infraestructure.metrics.PaymentMetrics;
+import com.servicio.reservas.pago.infraestructure.metrics.RequestTimings;
+import com.servicio.reservas.pago.infraestructure.storage.WebhookJournal;
+import com.servicio.reservas.pago.infraestructure.storage.WebhookNotification;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(PaymentController.class)
+@Import({SecurityConfig.class, PaymentEventStream.class, PaymentDtoMapper.class, WebhookDeduplicator.class,
+        PaymentMetrics.class, SimpleMeterRegistry.class})
+@WithMockUser(authorities = "ROLE_ADMINISTRADOR")
 public class PaymentControllerTest {
 
     @Autowired
@@ -35,6 +86,19 @@ public class PaymentControllerTest {
     @MockBean
     private IPaymentService ipaymentservice;
 
+    @MockBean
+    private WebhookJournal webhookJournal;
+
+    // The resource server chain needs a decoder; requests are authenticated with @WithMockUser instead
+    @MockBean
+    private JwtDecoder jwtDecoder;
+
+    @Autowired
+    private PaymentEventStream paymentEventStream;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private final String BASE_URL = "/api/payments";
 
     // --- UTILS ---
@@ -46,6 +110,7 @@ public class PaymentControllerTest {
                 .amount(99.99)
                 .status(status)
                 .paymentLink("http://mercadopago.com/link-test/" + id)
+                .linkReady(true)
                 .createdAt(LocalDateTime.now())
                 .build();
     }
@@ -55,19 +120,137 @@ public class PaymentControllerTest {
     // =========================================================================
 
     @Test
-    void listAllPayments_shouldReturn200OkWithPaymentsList() throws Exception {
+    void listAllPayments_shouldReturn200OkWithPaymentsPage() throws Exception {
         PaymentResponse p1 = createMockPaymentResponse(1L, PaymentStatus.APPROVED);
         PaymentResponse p2 = createMockPaymentResponse(2L, PaymentStatus.PENDING);
+        PaymentPageResponse page = PaymentPageResponse.builder()
+                .items(Arrays.asList(p1, p2))
+                .nextCursor("next-token")
+                .hasMore(true)
+                .build();
 
-        when(ipaymentservice.findAllPayments()).thenReturn(Arrays.asList(p1, p2));
+        when(ipaymentservice.findPayments(any(PaymentSearchCriteria.class), isNull(), eq(20))).thenReturn(page);
 
         mockMvc.perform(get(BASE_URL)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk()) // 200 OK
-                .andExpect(jsonPath("$.length()").value(2))
-                .andExpect(jsonPath("$[0].id").value(1L));
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[0].id").value(1L))
+                .andExpect(jsonPath("$.nextCursor").value("next-token"))
+                .andExpect(jsonPath("$.hasMore").value(true));
+
+        verify(ipaymentservice, times(1)).findPayments(any(PaymentSearchCriteria.class), isNull(), eq(20));
+    }
+
+    @Test
+    void listAllPayments_withFilters_shouldPassCriteriaAndCursorToService() throws Exception {
+        PaymentPageResponse emptyPage = PaymentPageResponse.builder()
+                .items(Collections.emptyList())
+                .build();
+
+        when(ipaymentservice.findPayments(any(PaymentSearchCriteria.class), eq("abc"), eq(50))).thenReturn(emptyPage);
 
-        verify(ipaymentservice, times(1)).findAllPayments();
+        mockMvc.perform(get(BASE_URL)
+                        .param("status", "APPROVED")
+                        .param("reservationId", "100")
+                        .param("from", "2025-01-01T00:00:00")
+                        .param("to", "2025-02-01T00:00:00")
+                        .param("cursor", "abc")
+                        .param("size", "50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(0))
+                .andExpect(jsonPath("$.hasMore").value(false));
+
+        verify(ipaymentservice).findPayments(argThat(criteria ->
+                criteria.getStatus() == PaymentStatus.APPROVED
+                        && criteria.getReservationId().equals(100L)
+                        && criteria.getCreatedFrom().equals(LocalDateTime.of(2025, 1, 1, 0, 0))
+                        && criteria.getCreatedTo().equals(LocalDateTime.of(2025, 2, 1, 0, 0))
+        ), eq("abc"), eq(50));
+    }
+
+    @Test
+    void getPaymentStats_daily_shouldReturnBucketsFromTheService() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2025, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 1, 3, 0, 0);
+        PaymentStatsResponse stats = PaymentStatsResponse.builder()
+                .granularity(PaymentStatsGranularity.DAY)
+                .from(from)
+                .to(to)
+                .buckets(List.of(
+                        new PaymentStatsBucket(from, PaymentStatus.APPROVED, 3, new BigDecimal("750.00")),
+                        new PaymentStatsBucket(from, PaymentStatus.PENDING, 1, new BigDecimal("80.00"))))
+                .build();
+
+        when(ipaymentservice.getPaymentStats(from, to, PaymentStatsGranularity.DAY)).thenReturn(stats);
+
+        mockMvc.perform(get(BASE_URL + "/stats")
+                        .param("granularity", "DAY")
+                        .param("from", "2025-01-01T00:00:00")
+                        .param("to", "2025-01-03T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.granularity").value("DAY"))
+                .andExpect(jsonPath("$.buckets.length()").value(2))
+                .andExpect(jsonPath("$.buckets[0].status").value("APPROVED"))
+                .andExpect(jsonPath("$.buckets[0].count").value(3))
+                .andExpect(jsonPath("$.buckets[0].amount").value(750.00));
+    }
+
+    @Test
+    void getPaymentStats_rangeTooLong_shouldReturn400BadRequest() throws Exception {
+        when(ipaymentservice.getPaymentStats(isNull(), isNull(), eq(PaymentStatsGranularity.HOUR)))
+                .thenThrow(new InvalidStatsRangeException("Range too long for HOUR granularity, at most 31 days."));
+
+        mockMvc.perform(get(BASE_URL + "/stats"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Range too long for HOUR granularity, at most 31 days."));
+    }
+
+    @Test
+    void exportPayments_withGzip_shouldStreamCompressedAttachment() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(3);
+            out.write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(ipaymentservice).exportPayments(isNull(), isNull(), eq(PaymentLedgerFormat.NDJSON), any(OutputStream.class));
+
+        MvcResult asyncResult = mockMvc.perform(get(BASE_URL + "/export").param("gzip", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"payments.ndjson.gz\""))
+                .andReturn();
+
+        byte[] compressed = result.getResponse().getContentAsByteArray();
+        try (GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertEquals("{\"id\":1}\n", new String(gzipInputStream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void exportVouchers_shouldStreamZipAttachment() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(2);
+            out.write("PK".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(ipaymentservice).exportVouchers(any(LocalDateTime.class), any(LocalDateTime.class), any(OutputStream.class));
+
+        MvcResult asyncResult = mockMvc.perform(get(BASE_URL + "/vouchers/export")
+                        .param("from", "2025-03-01T00:00:00")
+                        .param("to", "2025-04-01T00:00:00"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/zip"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"vouchers.zip\""))
+                .andExpect(content().string("PK"));
+
+        verify(ipaymentservice).exportVouchers(eq(LocalDateTime.of(2025, 3, 1, 0, 0)),
+                eq(LocalDateTime.of(2025, 4, 1, 0, 0)), any(OutputStream.class));
     }
 
     // =========================================================================
@@ -84,7 +267,7 @@ public class PaymentControllerTest {
 
         PaymentResponse mockResponse = createMockPaymentResponse(1L, PaymentStatus.PENDING);
 
-        when(ipaymentservice.createPayment(any(PaymentRequest.class))).thenReturn(mockResponse);
+        when(ipaymentservice.createPayment(any(PaymentRequest.class), isNull())).thenReturn(mockResponse);
 
         mockMvc.perform(post(BASE_URL + "/create")
                         .content(objectMapper.writeValueAsString(validRequest))
@@ -92,7 +275,141 @@ public class PaymentControllerTest {
                 .andExpect(status().isCreated()) // 201 CREATED
                 .andExpect(jsonPath("$.id").value(1L));
 
-        verify(ipaymentservice, times(1)).createPayment(any(PaymentRequest.class));
+        verify(ipaymentservice, times(1)).createPayment(any(PaymentRequest.class), isNull());
+    }
+
+    @Test
+    @WithMockUser(authorities = "ROLE_ADMINISTRADOR")
+    void createPayment_asAdministrator_shouldReturnServerTimingHeader() throws Exception {
+        PaymentRequest validRequest = new PaymentRequest();
+        validRequest.setReservationId(1L);
+        validRequest.setAmount(100.50);
+
+        when(ipaymentservice.createPayment(any(PaymentRequest.class), isNull())).thenAnswer(invocation -> {
+            RequestTimings.record(RequestTimings.Span.MP, 12_345_000L);
+            return createMockPaymentResponse(1L, PaymentStatus.PENDING);
+        });
+
+        mockMvc.perform(post(BASE_URL + "/create")
+                        .content(objectMapper.writeValueAsString(validRequest))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Server-Timing", containsString("mp;dur=12.345;desc=\"Mercado Pago call\"")))
+                .andExpect(header().string("Server-Timing", containsString("total;dur=")));
+    }
+
+    @Test
+    @WithMockUser(authorities = "ROLE_CLIENTE")
+    void createPayment_withoutTimingAuthority_shouldNotReturnServerTimingHeader() throws Exception {
+        PaymentRequest validRequest = new PaymentRequest();
+        validRequest.setReservationId(1L);
+        validRequest.setAmount(100.50);
+
+        when(ipaymentservice.createPayment(any(PaymentRequest.class), isNull()))
+                .thenReturn(createMockPaymentResponse(1L, PaymentStatus.PENDING));
+
+        mockMvc.perform(post(BASE_URL + "/create")
+                        .content(objectMapper.writeValueAsString(validRequest))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Server-Timing"));
+    }
+
+    @Test
+    void createPayment_withIdempotencyKey_shouldPassItToTheService() throws Exception {
+        PaymentRequest validRequest = new PaymentRequest();
+        validRequest.setReservationId(1L);
+        validRequest.setAmount(100.50);
+
+        when(ipaymentservice.createPayment(any(PaymentRequest.class), eq("checkout-1-attempt")))
+                .thenReturn(createMockPaymentResponse(1L, PaymentStatus.PENDING));
+
+        mockMvc.perform(post(BASE_URL + "/create")
+                        .header("Idempotency-Key", "checkout-1-attempt")
+                        .content(objectMapper.writeValueAsString(validRequest))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(1L));
+
+        verify(ipaymentservice, times(1)).createPayment(any(PaymentRequest.class), eq("checkout-1-attempt"));
+    }
+
+    @Test
+    void createPayment_withIdempotencyKeyReusedForAnotherReservation_shouldReturn422() throws Exception {
+        PaymentRequest validRequest = new PaymentRequest();
+        validRequest.setReservationId(2L);
+        validRequest.setAmount(100.50);
+
+        when(ipaymentservice.createPayment(any(PaymentRequest.class), eq("checkout-1-attempt")))
+                .thenThrow(new IdempotencyKeyConflictException("Idempotency-Key was already used for another reservation."));
+        double before = idempotencyConflictCount();
+
+        mockMvc.perform(post(BASE_URL + "/create")
+                        .header("Idempotency-Key", "checkout-1-attempt")
+                        .content(objectMapper.writeValueAsString(validRequest))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isUnprocessableEntity());
+
+        // Counted by exception class and status
+        assertEquals(before + 1, idempotencyConflictCount());
+    }
+
+    private double idempotencyConflictCount() {
+        return meterRegistry.find("payment.api.exceptions")
+                .tag("exception", "IdempotencyKeyConflictException")
+                .tag("status", "422")
+                .counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+
+    @Test
+    void createPayment_withRespondAsync_shouldReturn202AcceptedWithLocation() throws Exception {
+        PaymentRequest validRequest = new PaymentRequest();
+        validRequest.setReservationId(1L);
+        validRequest.setAmount(100.50);
+
+        PaymentResponse pending = PaymentResponse.builder()
+                .id(7L)
+                .reservationId(1L)
+                .status(PaymentStatus.PENDING)
+                .linkReady(false)
+                .build();
+
+        when(ipaymentservice.createPaymentAsync(any(PaymentRequest.class), isNull())).thenReturn(pending);
+
+        mockMvc.perform(post(BASE_URL + "/create")
+                        .header("Prefer", "respond-async")
+                        .content(objectMapper.writeValueAsString(validRequest))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isAccepted()) // 202 ACCEPTED
+                .andExpect(header().string(HttpHeaders.LOCATION, "http://localhost/api/payments/7"))
+                .andExpect(header().string("Preference-Applied", "respond-async"))
+                .andExpect(jsonPath("$.id").value(7L))
+                .andExpect(jsonPath("$.linkReady").value(false));
+
+        verify(ipaymentservice, never()).createPayment(any(PaymentRequest.class), any());
+    }
+
+    @Test
+    void createPayments_withPartialFailure_shouldReturn207MultiStatus() throws Exception {
+        BatchPaymentResponse mockResponse = BatchPaymentResponse.builder()
+                .results(Arrays.asList(
+                        BatchPaymentItemResult.succeeded(1L, createMockPaymentResponse(10L, PaymentStatus.PENDING)),
+                        BatchPaymentItemResult.failed(2L, "Reservation not found with ID: 2")))
+                .succeeded(1)
+                .failed(1)
+                .build();
+
+        when(ipaymentservice.createPayments(any(BatchPaymentRequest.class))).thenReturn(mockResponse);
+
+        mockMvc.perform(post(BASE_URL + "/batch")
+                        .content(objectMapper.writeValueAsString(new BatchPaymentRequest(Arrays.asList(1L, 2L))))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isMultiStatus()) // 207 MULTI-STATUS
+                .andExpect(jsonPath("$.results[0].success").value(true))
+                .andExpect(jsonPath("$.results[0].payment.id").value(10L))
+                .andExpect(jsonPath("$.results[1].success").value(false));
     }
 
     // =========================================================================
@@ -121,24 +438,136 @@ public class PaymentControllerTest {
                 .andExpect(status().isNotFound()); // 404 NOT FOUND
     }
 
+    @Test
+    void streamPaymentEvents_whenLinkAlreadyReady_shouldSendOneEventAndComplete() throws Exception {
+        when(ipaymentservice.getPaymentById(1L)).thenReturn(Optional.of(createMockPaymentResponse(1L, PaymentStatus.PENDING)));
+
+        MvcResult asyncResult = mockMvc.perform(get(BASE_URL + "/{id}/events", 1L))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string(containsString("event:payment")))
+                .andExpect(content().string(containsString("\"linkReady\":true")));
+    }
+
+    @Test
+    void streamPaymentEvents_whenLinkStoredLater_shouldPushItToTheSubscriber() throws Exception {
+        PaymentResponse pending = PaymentResponse.builder().id(2L).status(PaymentStatus.PENDING).linkReady(false).build();
+        when(ipaymentservice.getPaymentById(2L)).thenReturn(Optional.of(pending));
+
+        MvcResult asyncResult = mockMvc.perform(get(BASE_URL + "/{id}/events", 2L))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        paymentEventStream.onPaymentLinkReady(new PaymentLinkReadyEvent(Payment.builder()
+                .id(2L)
+                .status(PaymentStatus.PENDING)
+                .paymentLink("http://link_mp")
+                .build()));
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"linkReady\":false")))
+                .andExpect(content().string(containsString("\"paymentLink\":\"http://link_mp\"")));
+    }
+
+    @Test
+    void streamPaymentEvents_withNonExistingId_shouldReturn404NotFound() throws Exception {
+        when(ipaymentservice.getPaymentById(99L)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get(BASE_URL + "/{id}/events", 99L))
+                .andExpect(status().isNotFound());
+    }
+
     // =========================================================================
     //                            4. GET /{id}/voucher
     // =========================================================================
 
     @Test
-    void generateVoucher_withValidId_shouldReturn200OkAndPdf() throws Exception {
+    void generateVoucher_withStoredVoucher_shouldStreamFileWithEtag(@TempDir Path tempDir) throws Exception {
         Long paymentId = 1L;
         byte[] mockPdfContent = "PDF TEST CONTENT".getBytes();
+        Path file = Files.write(tempDir.resolve("voucher.pdf"), mockPdfContent);
 
-        when(ipaymentservice.generatePaymentVoucher(paymentId)).thenReturn(mockPdfContent);
+        when(ipaymentservice.getPaymentVoucher(paymentId))
+                .thenReturn(VoucherDocument.stored(file, "abc123", mockPdfContent.length));
 
         mockMvc.perform(get(BASE_URL + "/{id}/voucher", paymentId))
                 .andExpect(status().isOk()) // 200 OK
                 .andExpect(content().contentType(MediaType.APPLICATION_PDF))
                 .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"payment_voucher_1.pdf\""))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc123\""))
                 .andExpect(content().bytes(mockPdfContent));
 
-        verify(ipaymentservice, times(1)).generatePaymentVoucher(paymentId);
+        verify(ipaymentservice, times(1)).getPaymentVoucher(paymentId);
+    }
+
+    @Test
+    void generateVoucher_withRange_shouldReturn206PartialContent(@TempDir Path tempDir) throws Exception {
+        Long paymentId = 1L;
+        Path file = Files.write(tempDir.resolve("voucher.pdf"), "PDF TEST CONTENT".getBytes());
+
+        when(ipaymentservice.getPaymentVoucher(paymentId))
+                .thenReturn(VoucherDocument.stored(file, "abc123", Files.size(file)));
+
+        mockMvc.perform(get(BASE_URL + "/{id}/voucher", paymentId)
+                        .header(HttpHeaders.RANGE, "bytes=4-7"))
+                .andExpect(status().isPartialContent()) // 206 PARTIAL CONTENT
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 4-7/16"))
+                .andExpect(content().string("TEST"));
+    }
+
+    @Test
+    void generateVoucher_head_shouldReturnHeaders(@TempDir Path tempDir) throws Exception {
+        Long paymentId = 1L;
+        Path file = Files.write(tempDir.resolve("voucher.pdf"), "PDF TEST CONTENT".getBytes());
+
+        when(ipaymentservice.getPaymentVoucher(paymentId))
+                .thenReturn(VoucherDocument.stored(file, "abc123", Files.size(file)));
+
+        mockMvc.perform(head(BASE_URL + "/{id}/voucher", paymentId))
+                .andExpect(status().isOk()) // 200 OK
+                .andExpect(header().string(HttpHeaders.CONTENT_LENGTH, "16"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc123\""));
+    }
+
+    @Test
+    void generateVoucher_withMatchingEtag_shouldReturn304NotModified(@TempDir Path tempDir) throws Exception {
+        Long paymentId = 1L;
+        Path file = Files.write(tempDir.resolve("voucher.pdf"), "PDF TEST CONTENT".getBytes());
+
+        when(ipaymentservice.getPaymentVoucher(paymentId))
+                .thenReturn(VoucherDocument.stored(file, "abc123", Files.size(file)));
+
+        mockMvc.perform(get(BASE_URL + "/{id}/voucher", paymentId)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"abc123\""))
+                .andExpect(status().isNotModified()) // 304 NOT MODIFIED
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc123\""));
+    }
+
+    @Test
+    void generateVoucher_whenStoreUnavailable_shouldRenderStraightToTheResponseWithoutEtag() throws Exception {
+        Long paymentId = 1L;
+        byte[] mockPdfContent = "PDF TEST CONTENT".getBytes();
+
+        when(ipaymentservice.getPaymentVoucher(paymentId))
+                .thenReturn(VoucherDocument.streamed(out -> {
+                    try {
+                        out.write(mockPdfContent);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+
+        mockMvc.perform(get(BASE_URL + "/{id}/voucher", paymentId))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_PDF))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"payment_voucher_1.pdf\""))
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(content().bytes(mockPdfContent));
     }
 
     @Test
@@ -147,11 +576,86 @@ public class PaymentControllerTest {
 
         // Simulate service throwing the controlled exception
         doThrow(new VoucherGenerationException("Error generating PDF")).when(ipaymentservice)
-                .generatePaymentVoucher(paymentId);
+                .getPaymentVoucher(paymentId);
 
         // Assumes a GlobalExceptionHandler maps VoucherGenerationException to 422
         mockMvc.perform(get(BASE_URL + "/{id}/voucher", paymentId))
                 .andExpect(status().isUnprocessableEntity()) // 422 UNPROCESSABLE ENTITY
                 .andExpect(jsonPath("$.error").value("Unprocessable Entity"));
     }
-}
\ No newline at end of file
+
+    // =========================================================================
+    //                            5. POST /webhook
+    // =========================================================================
+
+    @Test
+    void receiveWebhook_shouldJournalTheNotificationAndReturn200WithoutApplyingIt() throws Exception {
+        mockMvc.perform(post(BASE_URL + "/webhook")
+                        .param("id", "7")
+                        .param("status", "APPROVED")
+                        .param("topic", "payment"))
+                .andExpect(status().isOk());
+
+        verify(webhookJournal).append(argThat(notification -> notification.getPaymentId() == 7L
+                && "APPROVED".equals(notification.getStatus())
+                && "payment".equals(notification.getTopic())));
+        verify(ipaymentservice, never()).updatePaymentStatus(any(), any(), any());
+    }
+
+    @Test
+    void receiveWebhook_whenJournalFails_shouldApplyTheNotificationDirectly() throws Exception {
+        when(webhookJournal.append(any(WebhookNotification.class))).thenThrow(new UncheckedIOException(new IOException("disk full")));
+
+        mockMvc.perform(post(BASE_URL + "/webhook")
+                        .param("id", "8")
+                        .param("status", "APPROVED"))
+                .andExpect(status().isOk());
+
+        verify(ipaymentservice).updatePaymentStatus(8L, "APPROVED", "MERCADOPAGO_WEBHOOK");
+    }
+
+    @Test
+    void receiveWebhook_whenJournalAndDirectUpdateFail_shouldReturn500() throws Exception {
+        when(webhookJournal.append(any(WebhookNotification.class))).thenThrow(new UncheckedIOException(new IOException("disk full")));
+        when(ipaymentservice.updatePaymentStatus(9L, "APPROVED", "MERCADOPAGO_WEBHOOK"))
+                .thenThrow(new PaymentNotFoundException("Payment not found with ID: 9"));
+
+        mockMvc.perform(post(BASE_URL + "/webhook")
+                        .param("id", "9")
+                        .param("status", "APPROVED"))
+                .andExpect(status().isInternalServerError());
+
+        // The failed notification is not remembered, so Mercado Pago's retry gets through
+        reset(webhookJournal);
+        mockMvc.perform(post(BASE_URL + "/webhook")
+                        .param("id", "9")
+                        .param("status", "APPROVED"))
+                .andExpect(status().isOk());
+        verify(webhookJournal).append(any(WebhookNotification.class));
+    }
+
+    @Test
+    void receiveWebhook_outOfOrderNotificationAppliedDirectly_shouldReturn200() throws Exception {
+        when(webhookJournal.append(any(WebhookNotification.class))).thenThrow(new UncheckedIOException(new IOException("disk full")));
+        when(ipaymentservice.updatePaymentStatus(11L, "PENDING", "MERCADOPAGO_WEBHOOK"))
+                .thenThrow(new InvalidStatusTransitionException("Payment 11 cannot move from APPROVED to PENDING."));
+
+        mockMvc.perform(post(BASE_URL + "/webhook")
+                        .param("id", "11")
+                        .param("status", "PENDING"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void receiveWebhook_repeatedNotification_shouldBeAcknowledgedWithoutJournaling() throws Exception {
+        for (int delivery = 0; delivery < 3; delivery++) {
+            mockMvc.perform(post(BASE_URL + "/webhook")
+                            .param("id", "10")
+                            .param("status", "APPROVED"))
+                    .andExpect(status().isOk());
+        }
+
+        verify(webhookJournal, times(1)).append(any(WebhookNotification.class));
+        verify(ipaymentservice, never()).updatePaymentStatus(any(), any(), any());
+    }
+}
@@ -0,0 +1,82 @@
+package com.servicio.reservas.pago.infraestructure.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebhookDeduplicatorTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private final WebhookDeduplicator deduplicator = new WebhookDeduplicator(1024, Duration.ofSeconds(60), clock::get);
+
+    @Test
+    void isDuplicate_SameNotificationWithinWindow_IsSuppressed() {
+        assertFalse(deduplicator.isDuplicate(1L, "APPROVED"));
+        assertTrue(deduplicator.isDuplicate(1L, "APPROVED"));
+        assertTrue(deduplicator.isDuplicate(1L, "APPROVED"));
+
+        assertEquals(2, deduplicator.suppressedDuplicates());
+        assertEquals(1, deduplicator.passedNotifications());
+    }
+
+    @Test
+    void isDuplicate_AfterTheWindow_LetsTheNotificationThrough() {
+        assertFalse(deduplicator.isDuplicate(1L, "APPROVED"));
+
+        clock.addAndGet(Duration.ofSeconds(61).toMillis());
+
+        assertFalse(deduplicator.isDuplicate(1L, "APPROVED"));
+    }
+
+    @Test
+    void isDuplicate_StatusChange_IsNeverSuppressed() {
+        assertFalse(deduplicator.isDuplicate(1L, "APPROVED"));
+        assertFalse(deduplicator.isDuplicate(1L, "REFUNDED"));
+        assertFalse(deduplicator.isDuplicate(1L, "APPROVED"));
+        assertFalse(deduplicator.isDuplicate(2L, "APPROVED"));
+    }
+
+    @Test
+    void forget_LetsTheRetryThrough() {
+        assertFalse(deduplicator.isDuplicate(1L, "APPROVED"));
+
+        deduplicator.forget(1L, "APPROVED");
+
+        assertFalse(deduplicator.isDuplicate(1L, "APPROVED"));
+    }
+
+    @Test
+    void isDuplicate_ConcurrentDeliveries_OnlyOnePasses() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger passed = new AtomicInteger();
+        try {
+            for (int i = 0; i < threads; i++) {
+                executor.submit(() -> {
+                    start.await();
+                    if (!deduplicator.isDuplicate(42L, "APPROVED")) {
+                        passed.incrementAndGet();
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, passed.get());
+        assertEquals(threads - 1, deduplicator.suppressedDuplicates());
+    }
+}
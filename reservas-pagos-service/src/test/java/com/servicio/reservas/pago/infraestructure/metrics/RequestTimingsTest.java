@@ -0,0 +1,54 @@
+package com.servicio.reservas.pago.infraestructure.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestTimingsTest {
+
+    @AfterEach
+    void tearDown() {
+        RequestTimings.end();
+    }
+
+    @Test
+    void notStarted_RecordsNothingAndHasNoHeader() {
+        RequestTimings.record(RequestTimings.Span.MP, 1_000_000L);
+
+        assertNull(RequestTimings.headerValue());
+    }
+
+    @Test
+    void recordedSpans_AreListedInOrderWithMillisecondDurations() {
+        RequestTimings.begin();
+        RequestTimings.record(RequestTimings.Span.DB_INSERT, 3_004_000L);
+        RequestTimings.record(RequestTimings.Span.AGENDA, 150_000L);
+
+        String header = RequestTimings.headerValue();
+
+        assertTrue(header.startsWith("agenda;dur=0.150;desc=\"Reservation lookup (cache, batching, agenda service)\", "
+                + "db-insert;dur=3.004;desc=\"Pending payment and outbox insert\", total;dur="), header);
+        assertFalse(header.contains("mp;"), "Spans never recorded are left out.");
+    }
+
+    @Test
+    void repeatedSpan_IsSummedAndCounted() {
+        RequestTimings.begin();
+        RequestTimings.record(RequestTimings.Span.MP, 2_000_000L);
+        RequestTimings.record(RequestTimings.Span.MP, 1_500_000L);
+
+        assertTrue(RequestTimings.headerValue().startsWith("mp;dur=3.500;desc=\"Mercado Pago call x2\", "));
+    }
+
+    @Test
+    void nextRequest_StartsFromZero() {
+        RequestTimings.begin();
+        RequestTimings.record(RequestTimings.Span.LOCK, 5_000_000L);
+        RequestTimings.end();
+
+        RequestTimings.begin();
+
+        assertTrue(RequestTimings.headerValue().startsWith("total;dur="));
+    }
+}
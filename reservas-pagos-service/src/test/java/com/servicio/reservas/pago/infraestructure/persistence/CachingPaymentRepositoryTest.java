@@ -0,0 +1,137 @@
+package com.servicio.reservas.pago.infraestructure.persistence;
+
+import com.servicio.reservas.pago.domain.entities.Payment;
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingPaymentRepositoryTest {
+
+    private static final Long PAYMENT_ID = 1L;
+
+    @Mock
+    private PaymentRepositoryPersistence delegate;
+
+    private CachingPaymentRepository repository;
+    private Payment payment;
+
+    @BeforeEach
+    void setUp() {
+        repository = new CachingPaymentRepository(delegate, 100, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        payment = Payment.builder()
+                .id(PAYMENT_ID)
+                .reservationId(101L)
+                .amount(250.0)
+                .status(PaymentStatus.PENDING)
+                .build();
+    }
+
+    @Test
+    void findById_RepeatedReads_HitDatabaseOnce() {
+        when(delegate.findById(PAYMENT_ID)).thenReturn(Optional.of(payment));
+
+        repository.findById(PAYMENT_ID);
+        repository.findById(PAYMENT_ID);
+        Optional<Payment> third = repository.findById(PAYMENT_ID);
+
+        assertTrue(third.isPresent());
+        verify(delegate, times(1)).findById(PAYMENT_ID);
+        assertEquals(2, repository.stats().hitCount());
+    }
+
+    @Test
+    void findById_ReturnsCopies_SoCallersCannotCorruptTheCache() {
+        when(delegate.findById(PAYMENT_ID)).thenReturn(Optional.of(payment));
+
+        repository.findById(PAYMENT_ID).orElseThrow().setStatus(PaymentStatus.APPROVED);
+
+        assertEquals(PaymentStatus.PENDING, repository.findById(PAYMENT_ID).orElseThrow().getStatus());
+    }
+
+    @Test
+    void findById_MissingPayment_IsNotCached() {
+        when(delegate.findById(PAYMENT_ID)).thenReturn(Optional.empty());
+
+        assertTrue(repository.findById(PAYMENT_ID).isEmpty());
+        assertTrue(repository.findById(PAYMENT_ID).isEmpty());
+
+        verify(delegate, times(2)).findById(PAYMENT_ID);
+    }
+
+    @Test
+    void save_OutsideTransaction_EvictsCachedEntry() {
+        when(delegate.findById(PAYMENT_ID)).thenReturn(Optional.of(payment));
+        when(delegate.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        repository.findById(PAYMENT_ID);
+        repository.save(payment);
+        repository.findById(PAYMENT_ID);
+
+        verify(delegate, times(2)).findById(PAYMENT_ID);
+    }
+
+    @Test
+    void findById_AfterWrite_ReadsFromPrimary() {
+        when(delegate.findById(PAYMENT_ID)).thenAnswer(invocation -> {
+            assertTrue(ReplicaRouting.isPrimaryRequired());
+            return Optional.of(payment);
+        });
+        when(delegate.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        repository.save(payment);
+        repository.findById(PAYMENT_ID);
+
+        assertFalse(ReplicaRouting.isPrimaryRequired());
+        assertEquals(1, repository.primaryPinnedReads());
+    }
+
+    @Test
+    void findById_NotRecentlyWritten_IsNotPinned() {
+        when(delegate.findById(PAYMENT_ID)).thenAnswer(invocation -> {
+            assertFalse(ReplicaRouting.isPrimaryRequired());
+            return Optional.of(payment);
+        });
+
+        repository.findById(PAYMENT_ID);
+
+        assertEquals(0, repository.primaryPinnedReads());
+    }
+
+    @Test
+    void findById_ConcurrentMisses_AreCoalescedIntoOneRead() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        when(delegate.findById(PAYMENT_ID)).thenAnswer(invocation -> {
+            loadStarted.countDown();
+            assertTrue(releaseLoad.await(5, TimeUnit.SECONDS));
+            return Optional.of(payment);
+        });
+
+        CompletableFuture<Optional<Payment>> leader = CompletableFuture.supplyAsync(() -> repository.findById(PAYMENT_ID));
+        assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Optional<Payment>> follower = CompletableFuture.supplyAsync(() -> repository.findById(PAYMENT_ID));
+
+        while (repository.coalescedLoads() == 0) {
+            Thread.onSpinWait();
+        }
+        releaseLoad.countDown();
+
+        assertTrue(leader.get(5, TimeUnit.SECONDS).isPresent());
+        assertTrue(follower.get(5, TimeUnit.SECONDS).isPresent());
+        verify(delegate, times(1)).findById(PAYMENT_ID);
+    }
+}
@@ -0,0 +1,99 @@
+package com.servicio.reservas.pago.infraestructure.persistence;
+
+import com.servicio.reservas.pago.domain.entities.Payment;
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Insert throughput against an in-memory H2 database.
+ * Run with: mvn test -Dtest=PaymentInsertBenchmarkTest -Dbenchmark=true
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({PaymentRepositoryPersistence.class, DatabaseDialect.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PaymentInsertBenchmarkTest {
+
+    private static final int ROWS = 5_000;
+    private static final int CHUNK = 500;
+
+    @Autowired
+    private PaymentRepositoryPersistence paymentRepository;
+
+    @Autowired
+    private SpringPaymentRepository springRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        springRepository.deleteAllInBatch();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void singleSavePerPayment() {
+        // Baseline: one transaction and one INSERT round trip per payment (previous createPayment behaviour)
+        long start = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            paymentRepository.save(newPayment(i));
+        }
+        report("save() per payment", start);
+    }
+
+    @Test
+    void batchedSaveAll() {
+        long start = System.nanoTime();
+        for (int offset = 0; offset < ROWS; offset += CHUNK) {
+            List<Payment> chunk = new ArrayList<>(CHUNK);
+            for (int i = offset; i < offset + CHUNK; i++) {
+                chunk.add(newPayment(i));
+            }
+            paymentRepository.saveAll(chunk);
+        }
+        report("saveAll() in chunks of " + CHUNK, start);
+    }
+
+    private void report(String scenario, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        assertEquals(ROWS, springRepository.count());
+        System.out.printf("%s: %d rows in %.3f s -> %.0f inserts/s (statements prepared: %d, transactions: %d)%n",
+                scenario, ROWS, seconds, ROWS / seconds,
+                statistics.getPrepareStatementCount(), statistics.getTransactionCount());
+    }
+
+    private Payment newPayment(int i) {
+        LocalDateTime now = LocalDateTime.now();
+        return Payment.builder()
+                .reservationId((long) i)
+                .amount(100.0 + i)
+                .status(PaymentStatus.PENDING)
+                .createdAt(now)
+                .updatedAt(now)
+                .createdBy("BENCHMARK")
+                .build();
+    }
+}
@@ -0,0 +1,123 @@
+package com.servicio.reservas.pago.infraestructure.persistence;
+
+import com.servicio.reservas.pago.application.dto.PreferenceResponse;
+import com.servicio.reservas.pago.application.services.PaymentOutboxService;
+import com.servicio.reservas.pago.application.services.PaymentStatsService;
+import com.servicio.reservas.pago.domain.entities.Payment;
+import com.servicio.reservas.pago.domain.entities.PaymentOutboxEntry;
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Outbox leases against an in-memory H2 database: a holder whose lease ran out and was claimed by another
+ * node can no longer complete, reschedule or release the entry.
+ */
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({PaymentOutboxService.class, PaymentOutboxRepositoryPersistence.class, PaymentRepositoryPersistence.class,
+        DatabaseDialect.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentOutboxLeaseTest {
+
+    @Autowired
+    private PaymentOutboxService outboxService;
+
+    @Autowired
+    private PaymentOutboxRepositoryPersistence outboxRepository;
+
+    @Autowired
+    private SpringPaymentOutboxRepository springOutboxRepository;
+
+    @Autowired
+    private SpringPaymentRepository springPaymentRepository;
+
+    @MockBean
+    private PaymentStatsService paymentStatsService;
+
+    private final PreferenceResponse preference = new PreferenceResponse("MP_ID_123", "http://link_mp");
+
+    @BeforeEach
+    void setUp() {
+        springOutboxRepository.deleteAllInBatch();
+        springPaymentRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void claimNext_LeasesOneDueEntryAtATimeUnderANewToken() {
+        Payment first = createPending(101L, "caller-1");
+        Payment second = createPending(102L, "caller-2");
+        expireLease(first.getId());
+        expireLease(second.getId());
+
+        PaymentOutboxEntry claimedFirst = outboxService.claimNext().orElseThrow();
+        PaymentOutboxEntry claimedSecond = outboxService.claimNext().orElseThrow();
+
+        assertNotEquals(claimedFirst.getPaymentId(), claimedSecond.getPaymentId());
+        assertNotEquals(claimedFirst.getLeaseToken(), claimedSecond.getLeaseToken());
+        assertNotEquals("caller-1", claimedFirst.getLeaseToken());
+        assertTrue(claimedFirst.getLockedUntil().isAfter(LocalDateTime.now()));
+        assertTrue(outboxService.claimNext().isEmpty(), "Both entries are leased now.");
+    }
+
+    @Test
+    void staleHolder_CannotCompleteRescheduleOrReleaseAfterAnotherNodeClaimedTheEntry() {
+        Payment payment = createPending(101L, "stale");
+        expireLease(payment.getId());
+        String current = outboxService.claimNext().orElseThrow().getLeaseToken();
+
+        outboxService.reschedule(payment.getId(), "stale", "read timed out");
+        outboxService.release(payment.getId(), "stale");
+        assertTrue(outboxService.complete(payment.getId(), "stale", preference).isEmpty());
+
+        PaymentOutboxEntry entry = outboxRepository.findByPaymentId(payment.getId()).orElseThrow();
+        assertEquals(current, entry.getLeaseToken());
+        assertEquals(0, entry.getAttempts());
+        assertNotNull(entry.getLockedUntil());
+        assertNull(springPaymentRepository.findById(payment.getId()).orElseThrow().getPaymentLink());
+
+        Payment linked = outboxService.complete(payment.getId(), current, preference).orElseThrow();
+        assertEquals("http://link_mp", linked.getPaymentLink());
+        assertTrue(outboxRepository.findByPaymentId(payment.getId()).isEmpty());
+    }
+
+    @Test
+    void reschedule_ByTheHolder_CountsTheAttemptAndEndsTheLease() {
+        Payment payment = createPending(101L, "caller");
+
+        outboxService.reschedule(payment.getId(), "caller", "read timed out");
+
+        PaymentOutboxEntry entry = outboxRepository.findByPaymentId(payment.getId()).orElseThrow();
+        assertEquals(1, entry.getAttempts());
+        assertNull(entry.getLockedUntil());
+        assertNull(entry.getLeaseToken());
+        assertEquals("read timed out", entry.getLastError());
+        assertTrue(entry.getNextAttemptAt().isAfter(LocalDateTime.now()));
+    }
+
+    private Payment createPending(Long reservationId, String leaseToken) {
+        return outboxService.createPendingPayment(Payment.builder()
+                .reservationId(reservationId)
+                .amount(250.0)
+                .status(PaymentStatus.PENDING)
+                .createdAt(LocalDateTime.now())
+                .createdBy("RESERVAS_SERVICE")
+                .build(), leaseToken);
+    }
+
+    // Stands in for a holder that outlived its lease
+    private void expireLease(Long paymentId) {
+        PaymentOutboxEntry entry = outboxRepository.findByPaymentId(paymentId).orElseThrow();
+        entry.setLockedUntil(LocalDateTime.now().minusSeconds(1));
+        outboxRepository.save(entry);
+    }
+}
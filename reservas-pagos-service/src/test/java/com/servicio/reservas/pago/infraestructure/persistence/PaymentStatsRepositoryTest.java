@@ -0,0 +1,74 @@
+package com.servicio.reservas.pago.infraestructure.persistence;
+
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import com.servicio.reservas.pago.domain.repository.PaymentStatsRow;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hourly statistics against an in-memory H2 database (update-or-insert path; PostgreSQL uses ON CONFLICT).
+ * Each test runs in one rolled-back transaction, like the payment writes the increments belong to.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "app.payment.stats.stripes=4"
+})
+@Import({PaymentStatsRepositoryPersistence.class, DatabaseDialect.class})
+class PaymentStatsRepositoryTest {
+
+    private static final LocalDateTime TEN_AM = LocalDateTime.of(2025, 3, 1, 10, 0);
+
+    @Autowired
+    private PaymentStatsRepositoryPersistence statsRepository;
+
+    @Autowired
+    private SpringPaymentStatsRepository springRepository;
+
+    @Test
+    void add_RepeatedIncrements_AreSummedOverTheStripes() {
+        for (int i = 0; i < 20; i++) {
+            statsRepository.add(List.of(increment(TEN_AM, PaymentStatus.PENDING, 1, "25.50")));
+        }
+        statsRepository.add(List.of(
+                increment(TEN_AM, PaymentStatus.PENDING, -1, "-25.50"),
+                increment(TEN_AM, PaymentStatus.APPROVED, 1, "25.50")));
+
+        List<PaymentStatsRow> rows = statsRepository.findHourly(TEN_AM, TEN_AM.plusHours(1));
+
+        assertEquals(2, rows.size());
+        assertEquals(PaymentStatus.APPROVED, rows.get(0).getStatus());
+        assertEquals(1L, rows.get(0).getCount());
+        assertEquals(0, new BigDecimal("25.50").compareTo(rows.get(0).getAmount()));
+        assertEquals(PaymentStatus.PENDING, rows.get(1).getStatus());
+        assertEquals(19L, rows.get(1).getCount());
+        assertEquals(0, new BigDecimal("484.50").compareTo(rows.get(1).getAmount()));
+        // At most one row per status and stripe, however many increments were written
+        assertTrue(springRepository.count() <= 2 * 4);
+    }
+
+    @Test
+    void findHourly_OnlyReturnsBucketsInTheRange_OldestFirst() {
+        statsRepository.add(List.of(
+                increment(TEN_AM.minusHours(1), PaymentStatus.PENDING, 1, "10.00"),
+                increment(TEN_AM, PaymentStatus.PENDING, 2, "20.00"),
+                increment(TEN_AM.plusHours(1), PaymentStatus.PENDING, 3, "30.00"),
+                increment(TEN_AM.plusHours(2), PaymentStatus.PENDING, 4, "40.00")));
+
+        List<PaymentStatsRow> rows = statsRepository.findHourly(TEN_AM, TEN_AM.plusHours(2));
+
+        assertEquals(List.of(TEN_AM, TEN_AM.plusHours(1)), rows.stream().map(PaymentStatsRow::getBucketStart).toList());
+        assertEquals(List.of(2L, 3L), rows.stream().map(PaymentStatsRow::getCount).toList());
+    }
+
+    private static PaymentStatsRow increment(LocalDateTime bucketStart, PaymentStatus status, long count, String amount) {
+        return new PaymentStatsRow(bucketStart, status, count, new BigDecimal(amount));
+    }
+}
@@ -0,0 +1,168 @@
+package com.servicio.reservas.pago.infraestructure.persistence;
+
+import com.servicio.reservas.pago.domain.entities.Payment;
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import com.servicio.reservas.pago.domain.repository.PaymentStatusChange;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The PostgreSQL status change ({@link SpringPaymentRepository#changeStatusReturningPrevious}) against a real
+ * database. Only runs with the {@code postgres} Maven profile, see pom.xml.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({PaymentRepositoryPersistence.class, DatabaseDialect.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "test.postgres.url", matches = ".+")
+class PaymentStatusUpdatePostgresTest {
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty("test.postgres.url"));
+        registry.add("spring.datasource.username", () -> System.getProperty("test.postgres.username", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getProperty("test.postgres.password", ""));
+    }
+
+    @Autowired
+    private PaymentRepositoryPersistence paymentRepository;
+
+    @Autowired
+    private SpringPaymentRepository springRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Payment pending;
+
+    @BeforeEach
+    void setUp() {
+        springRepository.deleteAllInBatch();
+        pending = paymentRepository.save(Payment.builder()
+                .reservationId(101L)
+                .amount(250.0)
+                .status(PaymentStatus.PENDING)
+                .createdAt(LocalDateTime.now())
+                .createdBy("RESERVAS_SERVICE")
+                .build());
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void changeStatus_AllowedTransition_IsOneStatementReturningTheStatusItLeft() {
+        PaymentStatusChange change = paymentRepository.changeStatus(pending.getId(),
+                PaymentStatus.APPROVED, LocalDateTime.now(), "MERCADOPAGO_WEBHOOK").orElseThrow();
+
+        assertTrue(change.isApplied());
+        assertEquals(PaymentStatus.PENDING, change.getPrevious().getStatus());
+        assertEquals(250.0, change.getPrevious().getAmount());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        Payment approved = paymentRepository.findById(pending.getId()).orElseThrow();
+        assertEquals(PaymentStatus.APPROVED, approved.getStatus());
+        assertEquals(pending.getVersion() + 1, approved.getVersion());
+    }
+
+    @Test
+    void changeStatus_RefusedOrRepeated_ReportsTheCurrentStatus() {
+        paymentRepository.changeStatus(pending.getId(), PaymentStatus.APPROVED, LocalDateTime.now(), "MERCADOPAGO_WEBHOOK");
+
+        PaymentStatusChange refused = paymentRepository.changeStatus(pending.getId(),
+                PaymentStatus.REJECTED, LocalDateTime.now(), "MERCADOPAGO_WEBHOOK").orElseThrow();
+        PaymentStatusChange repeated = paymentRepository.changeStatus(pending.getId(),
+                PaymentStatus.APPROVED, LocalDateTime.now(), "MERCADOPAGO_WEBHOOK").orElseThrow();
+
+        assertFalse(refused.isApplied());
+        assertEquals(PaymentStatus.APPROVED, refused.getPrevious().getStatus());
+        assertFalse(repeated.isApplied());
+        assertEquals(PaymentStatus.APPROVED, repeated.getPrevious().getStatus());
+        assertEquals(pending.getVersion() + 1, paymentRepository.findById(pending.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void changeStatus_UnknownPayment_IsEmpty() {
+        assertTrue(paymentRepository.changeStatus(-1L,
+                PaymentStatus.APPROVED, LocalDateTime.now(), "MERCADOPAGO_WEBHOOK").isEmpty());
+    }
+
+    @Test
+    void changeStatus_RowChangedByAConcurrentTransaction_SeesTheCommittedStatus() throws Exception {
+        // Another transaction rejects the payment and holds the row lock until the change below is waiting
+        CountDownLatch locked = new CountDownLatch(1);
+        CompletableFuture<Void> rejection = CompletableFuture.runAsync(() -> new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> {
+                    jdbcTemplate.update("update payments set status = 'REJECTED' where id = ?", pending.getId());
+                    locked.countDown();
+                    sleep(1000);
+                }));
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        PaymentStatusChange approval = paymentRepository.changeStatus(pending.getId(),
+                PaymentStatus.APPROVED, LocalDateTime.now(), "MERCADOPAGO_WEBHOOK").orElseThrow();
+        rejection.get(5, TimeUnit.SECONDS);
+
+        assertTrue(approval.isApplied());
+        assertEquals(PaymentStatus.REJECTED, approval.getPrevious().getStatus());
+        assertEquals(PaymentStatus.APPROVED, paymentRepository.findById(pending.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void changeStatus_RefusedAfterAConcurrentApproval_ReportsItInsteadOfNotFound() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CompletableFuture<Void> approval = CompletableFuture.runAsync(() -> new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> {
+                    jdbcTemplate.update("update payments set status = 'APPROVED' where id = ?", pending.getId());
+                    locked.countDown();
+                    sleep(1000);
+                }));
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        PaymentStatusChange rejection = paymentRepository.changeStatus(pending.getId(),
+                PaymentStatus.REJECTED, LocalDateTime.now(), "MERCADOPAGO_WEBHOOK").orElseThrow();
+        approval.get(5, TimeUnit.SECONDS);
+
+        assertFalse(rejection.isApplied());
+        assertEquals(PaymentStatus.APPROVED, rejection.getPrevious().getStatus());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
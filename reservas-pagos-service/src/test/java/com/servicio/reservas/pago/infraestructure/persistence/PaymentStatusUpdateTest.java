@@ -0,0 +1,156 @@
+package com.servicio.reservas.pago.infraestructure.persistence;
+
+import com.servicio.reservas.pago.domain.entities.Payment;
+import com.servicio.reservas.pago.domain.entities.PaymentStatus;
+import com.servicio.reservas.pago.domain.repository.PaymentStatusChange;
+import com.servicio.reservas.pago.domain.repository.PaymentStatusChangeRequest;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Conditional status updates against an in-memory H2 database.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({PaymentRepositoryPersistence.class, DatabaseDialect.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentStatusUpdateTest {
+
+    @Autowired
+    private PaymentRepositoryPersistence paymentRepository;
+
+    @Autowired
+    private SpringPaymentRepository springRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Payment pending;
+
+    @BeforeEach
+    void setUp() {
+        springRepository.deleteAllInBatch();
+        pending = paymentRepository.save(Payment.builder()
+                .reservationId(101L)
+                .amount(250.0)
+                .status(PaymentStatus.PENDING)
+                .createdAt(LocalDateTime.now())
+                .createdBy("RESERVAS_SERVICE")
+                .build());
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void changeStatus_AllowedTransition_ReturnsTheStatusItLeftAndBumpsTheVersion() {
+        PaymentStatusChange change = paymentRepository.changeStatus(pending.getId(),
+                PaymentStatus.APPROVED, LocalDateTime.now(), "MERCADOPAGO_WEBHOOK").orElseThrow();
+
+        assertTrue(change.isApplied());
+        assertEquals(PaymentStatus.PENDING, change.getPrevious().getStatus());
+        assertEquals(250.0, change.getPrevious().getAmount());
+        assertEquals(pending.getCreatedAt().truncatedTo(ChronoUnit.MILLIS),
+                change.getPrevious().getCreatedAt().truncatedTo(ChronoUnit.MILLIS));
+        // H2: the UPDATE from PENDING matches first, then the amount and creation time are read
+        assertEquals(2, statistics.getPrepareStatementCount());
+
+        Payment approved = paymentRepository.findById(pending.getId()).orElseThrow();
+        assertEquals(PaymentStatus.APPROVED, approved.getStatus());
+        assertEquals("MERCADOPAGO_WEBHOOK", approved.getUpdatedBy());
+        assertEquals(pending.getVersion() + 1, approved.getVersion());
+    }
+
+    @Test
+    void changeStatus_FromTheSecondAllowedStatus_ReportsThatStatus() {
+        paymentRepository.changeStatus(pending.getId(), PaymentStatus.REJECTED, LocalDateTime.now(), "MERCADOPAGO_WEBHOOK");
+
+        PaymentStatusChange change = paymentRepository.changeStatus(pending.getId(),
+                PaymentStatus.APPROVED, LocalDateTime.now(), "MERCADOPAGO_WEBHOOK").orElseThrow();
+
+        assertTrue(change.isApplied());
+        assertEquals(PaymentStatus.REJECTED, change.getPrevious().getStatus());
+    }
+
+    @Test
+    void changeStatus_OutOfOrderNotification_CannotRegressThePayment() {
+        paymentRepository.changeStatus(pending.getId(), PaymentStatus.APPROVED, LocalDateTime.now(), "MERCADOPAGO_WEBHOOK");
+
+        // A REJECTED notification that arrives after the approval
+        PaymentStatusChange change = paymentRepository.changeStatus(pending.getId(),
+                PaymentStatus.REJECTED, LocalDateTime.now(), "MERCADOPAGO_WEBHOOK").orElseThrow();
+
+        assertFalse(change.isApplied());
+        assertEquals(PaymentStatus.APPROVED, change.getPrevious().getStatus());
+        assertEquals(PaymentStatus.APPROVED, paymentRepository.findById(pending.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void changeStatus_SameStatus_IsNotAppliedAndReportsTheCurrentStatus() {
+        paymentRepository.changeStatus(pending.getId(), PaymentStatus.APPROVED, LocalDateTime.now(), "MERCADOPAGO_WEBHOOK");
+        Long version = paymentRepository.findById(pending.getId()).orElseThrow().getVersion();
+
+        PaymentStatusChange change = paymentRepository.changeStatus(pending.getId(),
+                PaymentStatus.APPROVED, LocalDateTime.now(), "MERCADOPAGO_WEBHOOK").orElseThrow();
+
+        assertFalse(change.isApplied());
+        assertEquals(PaymentStatus.APPROVED, change.getPrevious().getStatus());
+        assertEquals(version, paymentRepository.findById(pending.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void changeStatus_UnknownPayment_IsEmpty() {
+        assertTrue(paymentRepository.changeStatus(-1L,
+                PaymentStatus.APPROVED, LocalDateTime.now(), "MERCADOPAGO_WEBHOOK").isEmpty());
+        assertTrue(paymentRepository.changeStatus(-1L,
+                PaymentStatus.PENDING, LocalDateTime.now(), "MERCADOPAGO_WEBHOOK").isEmpty());
+    }
+
+    @Test
+    void changeStatuses_AppliesInOrderAndSkipsRefusedChanges() {
+        Payment other = paymentRepository.save(pending.toBuilder().id(null).version(null).reservationId(102L).build());
+
+        List<PaymentStatus> previous = paymentRepository.changeStatuses(List.of(
+                new PaymentStatusChangeRequest(pending.getId(), PaymentStatus.REJECTED, "MERCADOPAGO_WEBHOOK"),
+                new PaymentStatusChangeRequest(other.getId(), PaymentStatus.APPROVED, "MERCADOPAGO_WEBHOOK"),
+                new PaymentStatusChangeRequest(pending.getId(), PaymentStatus.APPROVED, "MERCADOPAGO_WEBHOOK"),
+                // Out of order after the approval, and an unknown payment
+                new PaymentStatusChangeRequest(other.getId(), PaymentStatus.REJECTED, "MERCADOPAGO_WEBHOOK"),
+                new PaymentStatusChangeRequest(-1L, PaymentStatus.APPROVED, "MERCADOPAGO_WEBHOOK")),
+                LocalDateTime.now());
+
+        assertEquals(Arrays.asList(PaymentStatus.PENDING, PaymentStatus.PENDING, PaymentStatus.REJECTED, null, null), previous);
+        assertEquals(PaymentStatus.APPROVED, paymentRepository.findById(pending.getId()).orElseThrow().getStatus());
+        assertEquals(pending.getVersion() + 2, paymentRepository.findById(pending.getId()).orElseThrow().getVersion());
+        assertEquals(PaymentStatus.APPROVED, paymentRepository.findById(other.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void save_StaleCopy_FailsInsteadOfOverwritingANewerStatus() {
+        Payment staleCopy = paymentRepository.findById(pending.getId()).orElseThrow();
+        paymentRepository.changeStatus(pending.getId(), PaymentStatus.APPROVED, LocalDateTime.now(), "MERCADOPAGO_WEBHOOK");
+
+        staleCopy.setPaymentLink("http://link_mp");
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> paymentRepository.save(staleCopy));
+        assertEquals(PaymentStatus.APPROVED, paymentRepository.findById(pending.getId()).orElseThrow().getStatus());
+    }
+}
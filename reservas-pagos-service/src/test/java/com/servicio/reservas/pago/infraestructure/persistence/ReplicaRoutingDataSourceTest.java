@@ -0,0 +1,156 @@
+package com.servicio.reservas.pago.infraestructure.persistence;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Routing against three in-memory H2 databases standing in for the primary and two replicas, wired like
+ * {@link com.servicio.reservas.pago.infraestructure.config.ReadReplicaDataSourceConfig}. Each database has a
+ * one-row table with its own name, so a query shows where it ran.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private final List<DataSource> databases = new ArrayList<>();
+
+    private SwitchableDataSource replica1;
+    private SwitchableDataSource replica2;
+    private ReplicaRoutingDataSource router;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = database("primary");
+        replica1 = new SwitchableDataSource(database("replica-1"));
+        replica2 = new SwitchableDataSource(database("replica-2"));
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-1", replica1);
+        replicas.put("replica-2", replica2);
+        router = new ReplicaRoutingDataSource(primary, replicas, Duration.ofSeconds(5), Duration.ofSeconds(1));
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(router);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (DataSource database : databases) {
+            new JdbcTemplate(database).execute("SHUTDOWN");
+        }
+    }
+
+    @Test
+    void readOnlyTransactions_AlternateBetweenReplicas() {
+        String first = readOnly.execute(status -> node());
+        String second = readOnly.execute(status -> node());
+
+        assertEquals(Set.of("replica-1", "replica-2"), Set.of(first, second));
+        assertEquals(1, router.replicaConnections("replica-1"));
+        assertEquals(1, router.replicaConnections("replica-2"));
+    }
+
+    @Test
+    void readWriteTransactionsAndPlainStatements_UsePrimary() {
+        assertEquals("primary", readWrite.execute(status -> node()));
+        assertEquals("primary", node());
+        assertEquals(0, router.replicaConnections("replica-1") + router.replicaConnections("replica-2"));
+    }
+
+    @Test
+    void onPrimary_ReadOnlyTransactionUsesPrimary() {
+        String node = ReplicaRouting.onPrimary(() -> readOnly.execute(status -> node()));
+
+        assertEquals("primary", node);
+        assertFalse(ReplicaRouting.isPrimaryRequired());
+        assertEquals(0, router.primaryFallbacks());
+    }
+
+    @Test
+    void replicaDown_IsSkippedUntilHealthCheckPasses() {
+        replica1.down = true;
+
+        assertEquals("replica-2", readOnly.execute(status -> node()));
+        assertEquals("replica-2", readOnly.execute(status -> node()));
+        assertFalse(router.isHealthy("replica-1"));
+        assertEquals(1, router.healthyReplicas());
+
+        router.checkReplicas();
+        assertFalse(router.isHealthy("replica-1"), "Still down, stays out of rotation.");
+
+        replica1.down = false;
+        router.checkReplicas();
+
+        assertTrue(router.isHealthy("replica-1"));
+        assertEquals(Set.of("replica-1", "replica-2"),
+                Set.of(readOnly.execute(status -> node()), readOnly.execute(status -> node())));
+        assertEquals(0, router.primaryFallbacks());
+    }
+
+    @Test
+    void allReplicasDown_FallsBackToPrimary() {
+        replica1.down = true;
+        replica2.down = true;
+
+        assertEquals("primary", readOnly.execute(status -> node()));
+        assertEquals(0, router.healthyReplicas());
+        assertEquals(1, router.primaryFallbacks());
+    }
+
+    private String node() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private DataSource database(String name) {
+        DataSource database = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate template = new JdbcTemplate(database);
+        template.execute("CREATE TABLE node (name VARCHAR(20))");
+        template.update("INSERT INTO node (name) VALUES (?)", name);
+        databases.add(database);
+        return database;
+    }
+
+    // Stands in for a replica that stops accepting connections
+    private static final class SwitchableDataSource extends DelegatingDataSource {
+
+        private volatile boolean down;
+
+        private SwitchableDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLException("Connection refused");
+            }
+            return super.getConnection();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.servicio.reservas.pago.infraestructure.scheduling;
+
+import com.servicio.reservas.pago.application.services.IPaymentService;
+import com.servicio.reservas.pago.infraestructure.exception.InvalidPaymentStatusException;
+import com.servicio.reservas.pago.infraestructure.exception.InvalidStatusTransitionException;
+import com.servicio.reservas.pago.infraestructure.exception.PaymentNotFoundException;
+import com.servicio.reservas.pago.infraestructure.storage.WebhookJournal;
+import com.servicio.reservas.pago.infraestructure.storage.WebhookNotification;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class WebhookNotificationConsumerTest {
+
+    private static final String UPDATED_BY = "MERCADOPAGO_WEBHOOK";
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private IPaymentService paymentService;
+
+    private WebhookJournal journal;
+    private WebhookNotificationConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        journal = new WebhookJournal(directory.toString(), DataSize.ofMegabytes(1), WebhookJournal.FsyncPolicy.ALWAYS, Duration.ofMillis(200));
+        // No back-off between polls, so every drain() retries right away
+        consumer = new WebhookNotificationConsumer(journal, paymentService, 10, 3, Duration.ZERO, Duration.ZERO, Duration.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.close();
+    }
+
+    @Test
+    void drain_AppliesQueuedNotificationsAsOneBatchAndCommits() {
+        append(1L, "APPROVED");
+        append(2L, "REJECTED");
+
+        consumer.drain();
+
+        verify(paymentService).updatePaymentStatuses(argThat(updates -> updates.size() == 2
+                && updates.get(0).getPaymentId() == 1L && "APPROVED".equals(updates.get(0).getStatus())
+                && updates.get(1).getPaymentId() == 2L && UPDATED_BY.equals(updates.get(1).getUpdatedBy())));
+        verify(paymentService, never()).updatePaymentStatus(any(), any(), any());
+        assertFalse(journal.hasUncommitted());
+    }
+
+    @Test
+    void drain_InvalidStatusInBatch_IsDeadLetteredAndTheRestApplied() {
+        append(1L, "APPROVED");
+        append(2L, "UNKNOWN");
+        append(3L, "REJECTED");
+        when(paymentService.updatePaymentStatuses(anyList())).thenThrow(new InvalidPaymentStatusException("Invalid payment status provided: UNKNOWN"));
+        when(paymentService.updatePaymentStatus(2L, "UNKNOWN", UPDATED_BY)).thenThrow(new InvalidPaymentStatusException("Invalid payment status provided: UNKNOWN"));
+
+        consumer.drain();
+
+        verify(paymentService).updatePaymentStatus(1L, "APPROVED", UPDATED_BY);
+        verify(paymentService).updatePaymentStatus(3L, "REJECTED", UPDATED_BY);
+        assertFalse(journal.hasUncommitted());
+    }
+
+    @Test
+    void drain_OutOfOrderNotification_IsDroppedWithoutRetry() {
+        append(4L, "PENDING");
+        InvalidStatusTransitionException regression = new InvalidStatusTransitionException("Payment 4 cannot move from APPROVED to PENDING.");
+        when(paymentService.updatePaymentStatuses(anyList())).thenThrow(regression);
+        when(paymentService.updatePaymentStatus(4L, "PENDING", UPDATED_BY)).thenThrow(regression);
+
+        consumer.drain();
+
+        verify(paymentService, times(1)).updatePaymentStatus(4L, "PENDING", UPDATED_BY);
+        assertFalse(journal.hasUncommitted());
+    }
+
+    @Test
+    void drain_UnknownPayment_IsRetriedThenDeadLettered() {
+        append(9L, "APPROVED");
+        when(paymentService.updatePaymentStatuses(anyList())).thenThrow(new PaymentNotFoundException("Payment not found with ID: 9"));
+        when(paymentService.updatePaymentStatus(9L, "APPROVED", UPDATED_BY)).thenThrow(new PaymentNotFoundException("Payment not found with ID: 9"));
+
+        consumer.drain();
+        // Moved to the retry log: the queue itself is already past it
+        assertFalse(journal.hasUncommitted());
+        assertEquals(2, journal.readRetries(10).get(0).getAttempts());
+
+        consumer.drain();
+
+        verify(paymentService, times(3)).updatePaymentStatus(9L, "APPROVED", UPDATED_BY);
+        assertTrue(journal.readRetries(10).isEmpty());
+    }
+
+    @Test
+    void drain_UnknownPayment_DoesNotHoldBackTheNotificationsBehindIt() {
+        consumer = new WebhookNotificationConsumer(journal, paymentService, 10, 3, Duration.ZERO, Duration.ZERO, Duration.ofHours(1));
+        append(9L, "APPROVED");
+        append(1L, "APPROVED");
+        when(paymentService.updatePaymentStatuses(anyList())).thenThrow(new PaymentNotFoundException("Payment not found with ID: 9"));
+        when(paymentService.updatePaymentStatus(9L, "APPROVED", UPDATED_BY)).thenThrow(new PaymentNotFoundException("Payment not found with ID: 9"));
+
+        consumer.drain();
+        consumer.drain();
+
+        verify(paymentService).updatePaymentStatus(1L, "APPROVED", UPDATED_BY);
+        // Not due yet, so the second poll did not try it again
+        verify(paymentService, times(1)).updatePaymentStatus(9L, "APPROVED", UPDATED_BY);
+        assertFalse(journal.hasUncommitted());
+        List<WebhookJournal.RetryEntry> retries = journal.readRetries(10);
+        assertEquals(1, retries.size());
+        assertEquals(9L, retries.get(0).getNotification().getPaymentId());
+        assertEquals(1, retries.get(0).getAttempts());
+    }
+
+    @Test
+    void drain_RetriedPaymentCreatedMeanwhile_IsApplied() {
+        append(9L, "APPROVED");
+        when(paymentService.updatePaymentStatuses(anyList())).thenThrow(new PaymentNotFoundException("Payment not found with ID: 9"));
+        when(paymentService.updatePaymentStatus(9L, "APPROVED", UPDATED_BY))
+                .thenThrow(new PaymentNotFoundException("Payment not found with ID: 9"))
+                .thenReturn(true);
+
+        consumer.drain();
+
+        verify(paymentService, times(2)).updatePaymentStatus(9L, "APPROVED", UPDATED_BY);
+        assertTrue(journal.readRetries(10).isEmpty());
+    }
+
+    @Test
+    void drain_DatabaseDown_KeepsNotificationsQueuedUntilItRecovers() {
+        append(1L, "APPROVED");
+        DataAccessResourceFailureException down = new DataAccessResourceFailureException("Connection refused");
+        when(paymentService.updatePaymentStatuses(anyList())).thenThrow(down).thenThrow(down).thenThrow(down).thenThrow(down).thenReturn(List.of());
+        when(paymentService.updatePaymentStatus(eq(1L), any(), any())).thenThrow(down);
+
+        for (int poll = 0; poll < 4; poll++) {
+            consumer.drain();
+        }
+        // Infrastructure failures never count towards max-attempts
+        assertTrue(journal.hasUncommitted());
+
+        consumer.drain();
+
+        assertFalse(journal.hasUncommitted());
+    }
+
+    @Test
+    void drain_AfterRestart_ResumesFromTheLastCommittedNotification() {
+        append(1L, "APPROVED");
+        consumer.drain();
+        append(2L, "REJECTED");
+        journal.close();
+
+        journal = new WebhookJournal(directory.toString(), DataSize.ofMegabytes(1), WebhookJournal.FsyncPolicy.ALWAYS, Duration.ofMillis(200));
+        consumer = new WebhookNotificationConsumer(journal, paymentService, 10, 3, Duration.ZERO, Duration.ZERO, Duration.ZERO);
+        consumer.drain();
+
+        verify(paymentService).updatePaymentStatuses(argThat(updates -> updates.size() == 1 && updates.get(0).getPaymentId() == 2L));
+        assertFalse(journal.hasUncommitted());
+    }
+
+    private void append(Long paymentId, String status) {
+        journal.append(new WebhookNotification(paymentId, status, "payment", Instant.now()));
+    }
+}
@@ -0,0 +1,156 @@
+package com.servicio.reservas.pago.infraestructure.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebhookJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private WebhookJournal journal;
+
+    @AfterEach
+    void tearDown() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void readUncommitted_ReturnsNotificationsInArrivalOrder() {
+        journal = open(DataSize.ofMegabytes(1));
+
+        journal.append(notification(1L, "APPROVED", "payment"));
+        journal.append(notification(2L, "REJECTED", null));
+
+        List<WebhookJournal.Entry> entries = journal.readUncommitted(10);
+
+        assertEquals(2, entries.size());
+        assertEquals(1L, entries.get(0).getNotification().getPaymentId());
+        assertEquals("APPROVED", entries.get(0).getNotification().getStatus());
+        assertEquals("payment", entries.get(0).getNotification().getTopic());
+        assertEquals(2L, entries.get(1).getNotification().getPaymentId());
+        assertNull(entries.get(1).getNotification().getTopic());
+        assertTrue(journal.hasUncommitted());
+    }
+
+    @Test
+    void commit_SurvivesRestart() {
+        journal = open(DataSize.ofMegabytes(1));
+        journal.append(notification(1L, "APPROVED", null));
+        journal.append(notification(2L, "APPROVED", null));
+        journal.append(notification(3L, "APPROVED", null));
+        journal.commit(journal.readUncommitted(1).get(0).getNext());
+        journal.close();
+
+        journal = open(DataSize.ofMegabytes(1));
+        List<WebhookJournal.Entry> entries = journal.readUncommitted(10);
+
+        assertEquals(List.of(2L, 3L), entries.stream().map(entry -> entry.getNotification().getPaymentId()).toList());
+
+        journal.commit(entries.get(1).getNext());
+        assertFalse(journal.hasUncommitted());
+        assertTrue(journal.readUncommitted(10).isEmpty());
+    }
+
+    @Test
+    void append_RollsToNewSegmentsAndCommitDeletesConsumedOnes() throws IOException {
+        // Room for two notifications per segment
+        journal = open(DataSize.ofBytes(128));
+        for (long id = 1; id <= 5; id++) {
+            journal.append(notification(id, "APPROVED", null));
+        }
+        assertEquals(3, segmentFiles(directory));
+
+        List<WebhookJournal.Entry> entries = journal.readUncommitted(10);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), entries.stream().map(entry -> entry.getNotification().getPaymentId()).toList());
+
+        journal.commit(entries.get(4).getNext());
+        assertEquals(1, segmentFiles(directory));
+    }
+
+    @Test
+    void open_DiscardsRecordTornByACrash() throws IOException {
+        journal = open(DataSize.ofMegabytes(1));
+        journal.append(notification(1L, "APPROVED", null));
+        JournalPosition end = journal.append(notification(2L, "APPROVED", null));
+        journal.close();
+
+        // A crash in the middle of an append: the length made it to disk but the payload did not match its CRC
+        try (RandomAccessFile segment = new RandomAccessFile(directory.resolve(String.format("%020d.log", end.getSegment())).toFile(), "rw")) {
+            segment.seek(end.getOffset());
+            segment.writeInt(40);
+            segment.writeInt(12345);
+            segment.write(new byte[40]);
+        }
+
+        journal = open(DataSize.ofMegabytes(1));
+        journal.append(notification(3L, "REJECTED", null));
+
+        assertEquals(List.of(1L, 2L, 3L), journal.readUncommitted(10).stream()
+                .map(entry -> entry.getNotification().getPaymentId()).toList());
+    }
+
+    @Test
+    void deadLetter_IsKeptApartFromTheQueue() {
+        journal = open(DataSize.ofMegabytes(1));
+        journal.append(notification(1L, "UNKNOWN", null));
+
+        WebhookJournal.Entry entry = journal.readUncommitted(1).get(0);
+        journal.deadLetter(entry.getNotification(), "Invalid payment status provided: UNKNOWN");
+        journal.commit(entry.getNext());
+        journal.close();
+        journal = null;
+
+        AppendOnlyLog deadLetters = new AppendOnlyLog(directory.resolve("dead-letter"), (int) DataSize.ofMegabytes(1).toBytes());
+        assertEquals(1, deadLetters.read(deadLetters.committed(), 10).size());
+    }
+
+    @Test
+    void scheduleRetry_IsKeptApartFromTheQueueAndSurvivesARestart() {
+        journal = open(DataSize.ofMegabytes(1));
+        Instant retryAt = Instant.ofEpochMilli(Instant.now().plusSeconds(5).toEpochMilli());
+        journal.scheduleRetry(notification(9L, "APPROVED", "payment"), 2, retryAt);
+        journal.close();
+
+        journal = open(DataSize.ofMegabytes(1));
+        assertFalse(journal.hasUncommitted());
+        List<WebhookJournal.RetryEntry> retries = journal.readRetries(10);
+        assertEquals(1, retries.size());
+        assertEquals(9L, retries.get(0).getNotification().getPaymentId());
+        assertEquals("payment", retries.get(0).getNotification().getTopic());
+        assertEquals(2, retries.get(0).getAttempts());
+        assertEquals(retryAt, retries.get(0).getRetryAt());
+
+        journal.commitRetry(retries.get(0).getNext());
+        assertTrue(journal.readRetries(10).isEmpty());
+    }
+
+    private WebhookJournal open(DataSize segmentSize) {
+        return new WebhookJournal(directory.toString(), segmentSize, WebhookJournal.FsyncPolicy.ALWAYS, Duration.ofMillis(200));
+    }
+
+    private static WebhookNotification notification(Long paymentId, String status, String topic) {
+        return new WebhookNotification(paymentId, status, topic, Instant.now());
+    }
+
+    private static long segmentFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".log")).count();
+        }
+    }
+}